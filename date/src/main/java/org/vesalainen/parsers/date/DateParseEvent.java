@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.date;
+
+import jdk.jfr.Category;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for date parsed by InternetDateParser.
+ * @author Timo Vesalainen
+ */
+@Name("org.vesalainen.parsers.date.Parse")
+@Label("Date Parse")
+@Category({"Parsers", "Date"})
+@StackTrace(false)
+public class DateParseEvent extends jdk.jfr.Event
+{
+    private static final EventType TYPE = EventType.getEventType(DateParseEvent.class);
+    @Label("Format")
+    String format;
+    @Label("Length")
+    int length;
+    /**
+     * Returns begun event or null if the event is not enabled in any running
+     * recording. Disabled events are not allocated.
+     * @return 
+     */
+    static DateParseEvent start()
+    {
+        if (TYPE.isEnabled())
+        {
+            DateParseEvent event = new DateParseEvent();
+            event.begin();
+            return event;
+        }
+        return null;
+    }
+}
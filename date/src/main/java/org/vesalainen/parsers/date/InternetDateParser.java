@@ -172,8 +172,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseZonedMutableDateTime(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseZ(text, cal);
+        commit(event, "Z", text);
         return cal;
     }
     public LocalDateTime parseLocalDateTime(String text)
@@ -182,8 +184,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseMutableDateTime(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseDT(text, cal);
+        commit(event, "DT", text);
         return cal;
     }
     /**
@@ -217,8 +221,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseRFC1123MutableDateTime(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseRFC1123(text, cal);
+        commit(event, "RFC1123", text);
         return cal;
     }
     /**
@@ -252,8 +258,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseRFC850MutableDateTime(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseRFC850(text, cal);
+        commit(event, "RFC850", text);
         return cal;
     }
     public String formatAscTime(Date date)
@@ -267,8 +275,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseAscTimeMutableDateTime(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseAscTime(text, cal);
+        commit(event, "AscTime", text);
         return cal;
     }
     /**
@@ -324,8 +334,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseISO8601MutableZonedDateTime(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseISO8601Z(text, cal);
+        commit(event, "ISO8601Z", text);
         return cal;
     }
     
@@ -339,8 +351,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseRMSExpressMutableZonedDateTime(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseRMSExpress(text, cal);
+        commit(event, "RMSExpress", text);
         return cal;
     }
 
@@ -350,8 +364,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseISO8601MutableLocalDateTime(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseISO8601DT(text, cal);
+        commit(event, "ISO8601DT", text);
         return cal;
     }
 
@@ -361,8 +377,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseISO8601MutableLocalDate(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseISO8601D(text, cal);
+        commit(event, "ISO8601D", text);
         return cal;
     }
 
@@ -372,8 +390,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseISO8601MutableYearMonth(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseISO8601YM(text, cal);
+        commit(event, "ISO8601YM", text);
         return cal;
     }
 
@@ -383,8 +403,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseISO8601MutableYear(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseISO8601Y(text, cal);
+        commit(event, "ISO8601Y", text);
         return cal;
     }
 
@@ -394,8 +416,10 @@ public abstract class InternetDateParser extends DateReducers
     }
     private SimpleMutableDateTime parseISO8601MutableLocalTime(String text)
     {
+        DateParseEvent event = DateParseEvent.start();
         SimpleMutableDateTime cal = getInstance();
         parseISO8601T(text, cal);
+        commit(event, "ISO8601T", text);
         return cal;
     }
 
@@ -403,6 +427,16 @@ public abstract class InternetDateParser extends DateReducers
     {
         return new SimpleMutableDateTime();
     }
+
+    private void commit(DateParseEvent event, String format, String text)
+    {
+        if (event != null && event.shouldCommit())
+        {
+            event.format = format;
+            event.length = text.length();
+            event.commit();
+        }
+    }
     /**
      * 
      * @param text
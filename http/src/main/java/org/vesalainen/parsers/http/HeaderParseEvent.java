@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.http;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for message header parsed by InternetHeaderParser.
+ * @author Timo Vesalainen
+ */
+@Name("org.vesalainen.parsers.http.Parse")
+@Label("Header Parse")
+@Category({"Parsers", "HTTP"})
+@StackTrace(false)
+public class HeaderParseEvent extends jdk.jfr.Event
+{
+    private static final EventType TYPE = EventType.getEventType(HeaderParseEvent.class);
+    @Label("Length")
+    @Description("Length of parsed text or -1 if parsed from stream")
+    int length;
+    @Label("Fields")
+    @Description("Number of distinct header field names")
+    int fields;
+    /**
+     * Returns begun event or null if the event is not enabled in any running
+     * recording. Disabled events are not allocated.
+     * @return 
+     */
+    static HeaderParseEvent start()
+    {
+        if (TYPE.isEnabled())
+        {
+            HeaderParseEvent event = new HeaderParseEvent();
+            event.begin();
+            return event;
+        }
+        return null;
+    }
+}
@@ -44,16 +44,30 @@ public abstract class InternetHeaderParser
 {
     public Map<String,List<String>> parse(String str)
     {
+        HeaderParseEvent event = HeaderParseEvent.start();
         Map<String,List<String>> hdr = new HashMap<>();
         parse(str, hdr);
+        commit(event, str.length(), hdr);
         return hdr;
     }
     public Map<String,List<String>> parse(InputStream is)
     {
+        HeaderParseEvent event = HeaderParseEvent.start();
         Map<String,List<String>> hdr = new HashMap<>();
         parse(is, hdr);
+        commit(event, -1, hdr);
         return hdr;
     }
+
+    private void commit(HeaderParseEvent event, int length, Map<String,List<String>> hdr)
+    {
+        if (event != null && event.shouldCommit())
+        {
+            event.length = length;
+            event.fields = hdr.size();
+            event.commit();
+        }
+    }
     /**
      * 
      * @param str
@@ -38,6 +38,12 @@ public abstract class AbstractFunction<R,C> extends ParserLocator2Impl implement
         return inner.resolvTable(tables);
     }
 
+    @Override
+    public void resolvAccessor(SQLConverter converter)
+    {
+        inner.resolvAccessor(converter);
+    }
+
     @Override
     public void associateCondition(Condition condition, boolean andPath)
     {
@@ -105,4 +111,12 @@ public abstract class AbstractFunction<R,C> extends ParserLocator2Impl implement
     }
     
     
+
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        inner = copier.copy(inner);
+    }
+
 }
@@ -0,0 +1,490 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import org.vesalainen.parsers.sql.util.ArrayMap;
+
+/**
+ * AggregateFunction is a select list column that aggregates argument values of
+ * a group. getValue methods return the argument value of one row. Aggregated
+ * value is produced by Accumulator.
+ * @author Timo Vesalainen
+ * @see GroupAggregator
+ */
+public class AggregateFunction<R,C> extends ParserLocator2Impl implements ColumnReference<R,C>
+{
+    public enum Type {COUNT, SUM, MIN, MAX, AVG}
+    
+    private Type type;
+    private boolean distinct;
+    private ColumnReference<R,C> inner;
+    private String title;
+    /**
+     * Creates aggregate function.
+     * @param type
+     * @param distinct If true only distinct argument values are aggregated.
+     * @param inner Argument or null for count(*)
+     */
+    public AggregateFunction(Type type, boolean distinct, ColumnReference<R,C> inner)
+    {
+        if (inner == null && type != Type.COUNT)
+        {
+            throw new IllegalArgumentException(type+"(*) not supported");
+        }
+        this.type = type;
+        this.distinct = distinct;
+        this.inner = inner;
+    }
+    /**
+     * Creates new accumulator for one group.
+     * @param engine
+     * @return 
+     */
+    public Accumulator<C> createAccumulator(Engine<R,C> engine)
+    {
+        if (distinct)
+        {
+            return new Distinct<>(this, engine);
+        }
+        return createAccumulator(engine, type, inner == null);
+    }
+    
+    private static <R,C> Accumulator<C> createAccumulator(Engine<R,C> engine, Type type, boolean all)
+    {
+        switch (type)
+        {
+            case COUNT:
+                return new Count<>(engine, all);
+            case SUM:
+                return new Sum<>(engine);
+            case MIN:
+                return new MinMax<>(engine, -1);
+            case MAX:
+                return new MinMax<>(engine, 1);
+            case AVG:
+                return new Avg<>(engine);
+            default:
+                throw new UnsupportedOperationException(type+" not supported");
+        }
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public boolean isDistinct()
+    {
+        return distinct;
+    }
+    /**
+     * Returns the result of this function over empty input. That is 0 for 
+     * COUNT and null for others.
+     * @param engine
+     * @return 
+     */
+    public C getEmptyValue(Engine<R,C> engine)
+    {
+        return createAccumulator(engine).getResult();
+    }
+    /**
+     * Returns argument or null for count(*)
+     * @return 
+     */
+    public ColumnReference<R, C> getInner()
+    {
+        return inner;
+    }
+    
+    @Override
+    public void associateCondition(Condition<R, C> condition, boolean andPath)
+    {
+    }
+
+    @Override
+    public String getColumn()
+    {
+        return toString();
+    }
+
+    @Override
+    public String getTitle()
+    {
+        return title != null ? title : toString();
+    }
+
+    @Override
+    public void setTitle(String title)
+    {
+        this.title = title;
+    }
+
+    @Override
+    public String getCorrelation()
+    {
+        return inner != null ? inner.getCorrelation() : null;
+    }
+
+    @Override
+    public Table<R, C> getTable()
+    {
+        return inner != null ? inner.getTable() : null;
+    }
+
+    @Override
+    public void setTable(Table<R, C> table)
+    {
+        if (inner != null)
+        {
+            inner.setTable(table);
+        }
+    }
+    /**
+     * Returns argument value of row or null for count(*)
+     * @param engine
+     * @param row
+     * @return 
+     */
+    @Override
+    public C getValue(SQLConverter<R, C> engine, R row)
+    {
+        return inner != null ? inner.getValue(engine, row) : null;
+    }
+    /**
+     * Returns argument value of row candidate or null for count(*)
+     * @param engine
+     * @param rowCandidate
+     * @return 
+     */
+    @Override
+    public C getValue(SQLConverter<R, C> engine, ArrayMap<Table<R, C>, R> rowCandidate)
+    {
+        return inner != null ? inner.getValue(engine, rowCandidate) : null;
+    }
+
+    @Override
+    public boolean resolvTable(Collection<Table<R, C>> tables)
+    {
+        return inner != null ? inner.resolvTable(tables) : true;
+    }
+
+    @Override
+    public void resolvAccessor(SQLConverter<R, C> converter)
+    {
+        if (inner != null)
+        {
+            inner.resolvAccessor(converter);
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int hash = 7;
+        hash = 29 * hash + Objects.hashCode(this.type);
+        hash = 29 * hash + (this.distinct ? 1 : 0);
+        hash = 29 * hash + Objects.hashCode(this.inner);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == null)
+        {
+            return false;
+        }
+        if (getClass() != obj.getClass())
+        {
+            return false;
+        }
+        final AggregateFunction<?,?> other = (AggregateFunction<?,?>) obj;
+        if (this.type != other.type)
+        {
+            return false;
+        }
+        if (this.distinct != other.distinct)
+        {
+            return false;
+        }
+        return Objects.equals(this.inner, other.inner);
+    }
+
+    @Override
+    public String toString()
+    {
+        return type.name().toLowerCase()+"("+(distinct ? "distinct " : "")+(inner != null ? inner : "*")+")";
+    }
+    /**
+     * Accumulator keeps the aggregate state of one group.
+     * @param <C> 
+     */
+    public interface Accumulator<C>
+    {
+        /**
+         * Adds argument value. Null values are ignored except in count(*)
+         * @param value 
+         */
+        void add(C value);
+        /**
+         * Adds the state of other accumulator of the same function.
+         * @param other 
+         */
+        void merge(Accumulator<C> other);
+        /**
+         * Returns aggregated value.
+         * @return 
+         */
+        C getResult();
+    }
+    
+    private static class Count<R,C> implements Accumulator<C>
+    {
+        private Engine<R,C> engine;
+        private boolean all;
+        private long count;
+
+        public Count(Engine<R, C> engine, boolean all)
+        {
+            this.engine = engine;
+            this.all = all;
+        }
+
+        @Override
+        public void add(C value)
+        {
+            if (all || value != null)
+            {
+                count++;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator<C> other)
+        {
+            count += ((Count)other).count;
+        }
+
+        @Override
+        public C getResult()
+        {
+            return engine.convert(count);
+        }
+    }
+    
+    private static class Sum<R,C> implements Accumulator<C>
+    {
+        private Engine<R,C> engine;
+        private boolean empty = true;
+        private boolean floating;
+        private long longSum;
+        private double doubleSum;
+
+        public Sum(Engine<R, C> engine)
+        {
+            this.engine = engine;
+        }
+
+        @Override
+        public void add(C value)
+        {
+            if (value != null)
+            {
+                Number number = engine.toNumber(value);
+                if (
+                        (number instanceof Long) ||
+                        (number instanceof Integer) ||
+                        (number instanceof Short) ||
+                        (number instanceof Byte)
+                        )
+                {
+                    longSum += number.longValue();
+                }
+                else
+                {
+                    floating = true;
+                    doubleSum += number.doubleValue();
+                }
+                empty = false;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator<C> other)
+        {
+            Sum<R,C> sum = (Sum<R,C>) other;
+            empty &= sum.empty;
+            floating |= sum.floating;
+            longSum += sum.longSum;
+            doubleSum += sum.doubleSum;
+        }
+
+        @Override
+        public C getResult()
+        {
+            if (empty)
+            {
+                return null;
+            }
+            if (floating)
+            {
+                return engine.convert(doubleSum+longSum);
+            }
+            return engine.convert(longSum);
+        }
+    }
+    
+    private static class Avg<R,C> implements Accumulator<C>
+    {
+        private Engine<R,C> engine;
+        private long count;
+        private double sum;
+
+        public Avg(Engine<R, C> engine)
+        {
+            this.engine = engine;
+        }
+
+        @Override
+        public void add(C value)
+        {
+            if (value != null)
+            {
+                sum += engine.toNumber(value).doubleValue();
+                count++;
+            }
+        }
+
+        @Override
+        public void merge(Accumulator<C> other)
+        {
+            Avg<R,C> avg = (Avg<R,C>) other;
+            count += avg.count;
+            sum += avg.sum;
+        }
+
+        @Override
+        public C getResult()
+        {
+            if (count == 0)
+            {
+                return null;
+            }
+            return engine.convert(sum/count);
+        }
+    }
+    
+    private static class MinMax<R,C> implements Accumulator<C>
+    {
+        private Engine<R,C> engine;
+        private int sign;
+        private C value;
+
+        public MinMax(Engine<R, C> engine, int sign)
+        {
+            this.engine = engine;
+            this.sign = sign;
+        }
+
+        @Override
+        public void add(C value)
+        {
+            if (value != null)
+            {
+                if (this.value == null || sign*engine.getComparator().compare(value, this.value) > 0)
+                {
+                    this.value = value;
+                }
+            }
+        }
+
+        @Override
+        public void merge(Accumulator<C> other)
+        {
+            add(((MinMax<R,C>)other).value);
+        }
+
+        @Override
+        public C getResult()
+        {
+            return value;
+        }
+    }
+    /**
+     * Collects distinct values and aggregates them when result is asked.
+     */
+    private static class Distinct<R,C> implements Accumulator<C>
+    {
+        private AggregateFunction<R,C> function;
+        private Engine<R,C> engine;
+        private Set<C> set;
+
+        public Distinct(AggregateFunction<R, C> function, Engine<R, C> engine)
+        {
+            this.function = function;
+            this.engine = engine;
+            if (engine.supportsHashJoin())
+            {
+                set = new HashSet<>();
+            }
+            else
+            {
+                set = new TreeSet<>(engine.getComparator());
+            }
+        }
+
+        @Override
+        public void add(C value)
+        {
+            if (value != null)
+            {
+                set.add(value);
+            }
+        }
+
+        @Override
+        public void merge(Accumulator<C> other)
+        {
+            set.addAll(((Distinct<R,C>)other).set);
+        }
+
+        @Override
+        public C getResult()
+        {
+            Accumulator<C> accumulator = createAccumulator(engine, function.type, false);
+            for (C value : set)
+            {
+                accumulator.add(value);
+            }
+            return accumulator.getResult();
+        }
+    }
+
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        inner = copier.copy(inner);
+    }
+
+}
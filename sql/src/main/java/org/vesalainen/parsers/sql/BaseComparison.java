@@ -77,4 +77,11 @@ public abstract class BaseComparison<R, C> extends ParserLocator2Impl implements
         return columnReference;
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        columnReference = copier.copy(columnReference);
+    }
+
 }
@@ -57,9 +57,31 @@ public class BatchStatement<R,C> extends Statement<R,C>
         return false;
     }
 
+    /**
+     * Sets sql also to a single contained statement which is the one actually 
+     * executed.
+     * @param sql 
+     */
+    @Override
+    void setSql(String sql)
+    {
+        super.setSql(sql);
+        if (statementList.size() == 1)
+        {
+            statementList.get(0).setSql(sql);
+        }
+    }
+
     public List<Statement<R, C>> getStatementList()
     {
         return statementList;
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        statementList = copier.copyList(statementList);
+    }
+
 }
@@ -73,10 +73,33 @@ public class BooleanTestCondition extends ParserLocator2Impl implements Conditio
         }
     }
 
+    public Condition getBooleanPrimary()
+    {
+        return booleanPrimary;
+    }
+
+    public boolean isIs()
+    {
+        return is;
+    }
+
+    public TruthValue getTruthValue()
+    {
+        return truthValue;
+    }
+
     @Override
     public void walk(ConditionVisitor visitor, boolean andPath)
     {
         visitor.visit(this, andPath);
         booleanPrimary.walk(visitor, false);
     }
+
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        booleanPrimary = copier.copy(booleanPrimary);
+    }
+
 }
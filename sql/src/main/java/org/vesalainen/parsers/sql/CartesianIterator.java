@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.vesalainen.parsers.sql.util.ArrayMap;
+import org.vesalainen.parsers.sql.util.CartesianMap;
+import org.vesalainen.parsers.sql.util.FastSet;
+import org.vesalainen.parsers.sql.util.IndexJoinMap;
+import org.vesalainen.parsers.sql.util.JoinMap;
+
+/**
+ * CartesianIterator enumerates joined row candidates that match the condition.
+ * Tables are walked in given order. First table rows are taken from given 
+ * index range and following tables rows from JoinMaps.
+ * 
+ * <p>Rows are enumerated as int indexes of table FastSet. IndexJoinMap and 
+ * CartesianMap are walked by index without hashing. Row objects are fetched
+ * only for rowCandidate.
+ * 
+ * <p>Note! ArrayMap returned by next() is the same instance for every call.
+ * It should not be stored.
+ * @author Timo Vesalainen
+ */
+public class CartesianIterator<R,C> implements Iterator<ArrayMap<Table<R,C>,R>>
+{
+    private SQLConverter<R,C> selector;
+    private Condition<R,C> condition;
+    private ArrayMap<Table<R,C>,R> rowCandidate;
+    private FastSet<R>[] all;
+    private JoinMap<R>[] joinMap;
+    private IndexJoinMap<R>[] indexMap;
+    private Iterator<R>[] iterator;
+    private int[] position;
+    private int[] end;
+    private int[] tableIndex;
+    private int level;
+    private boolean ready;
+
+    public CartesianIterator(
+            SQLConverter<R,C> selector, 
+            Condition<R,C> condition, 
+            TableContext<R,C>[] resultArray, 
+            ArrayMap<Table<R,C>,R> rowCandidate
+            )
+    {
+        this(selector, condition, resultArray, rowCandidate, 0, resultArray[0].getAll().capacity());
+    }
+    /**
+     * Creates iterator enumerating first table rows having index in range.
+     * @param selector
+     * @param condition
+     * @param resultArray
+     * @param rowCandidate
+     * @param from Inclusive start index
+     * @param to Exclusive end index
+     */
+    public CartesianIterator(
+            SQLConverter<R,C> selector, 
+            Condition<R,C> condition, 
+            TableContext<R,C>[] resultArray, 
+            ArrayMap<Table<R,C>,R> rowCandidate,
+            int from,
+            int to
+            )
+    {
+        this.selector = selector;
+        this.condition = condition;
+        this.rowCandidate = rowCandidate;
+        int length = resultArray.length;
+        all = new FastSet[length];
+        joinMap = new JoinMap[length];
+        indexMap = new IndexJoinMap[length];
+        iterator = new Iterator[length];
+        position = new int[length];
+        end = new int[length];
+        tableIndex = new int[length];
+        for (int ii=0;ii<length;ii++)
+        {
+            all[ii] = resultArray[ii].getAll();
+            tableIndex[ii] = rowCandidate.getIndexOf(resultArray[ii].getTable());
+            if (ii > 0)
+            {
+                joinMap[ii] = resultArray[ii-1].getJoinMapTo(resultArray[ii].getTable());
+                if (joinMap[ii] instanceof IndexJoinMap)
+                {
+                    indexMap[ii] = (IndexJoinMap<R>) joinMap[ii];
+                }
+            }
+        }
+        position[0] = from;
+        end[0] = to;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (!ready)
+        {
+            ready = advance();
+        }
+        return ready;
+    }
+
+    @Override
+    public ArrayMap<Table<R,C>,R> next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        return rowCandidate;
+    }
+
+    private boolean advance()
+    {
+        while (level >= 0)
+        {
+            int index = nextIndex(level);
+            if (index == -1)
+            {
+                level--;
+                continue;
+            }
+            rowCandidate.put(tableIndex[level], all[level].get(index));
+            if (level+1 < all.length)
+            {
+                if (open(level+1, index))
+                {
+                    level++;
+                }
+            }
+            else
+            {
+                if (condition == null || condition.matches(selector, rowCandidate) == TruthValue.TRUE)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    /**
+     * Starts enumerating level rows joined to previous level row.
+     * @param lvl
+     * @param sourceIndex Index of previous level row
+     * @return false if there are no joined rows
+     */
+    private boolean open(int lvl, int sourceIndex)
+    {
+        IndexJoinMap<R> gm = indexMap[lvl];
+        if (gm != null)
+        {
+            position[lvl] = gm.first(sourceIndex);
+            end[lvl] = gm.last(sourceIndex);
+            return position[lvl] < end[lvl];
+        }
+        if (joinMap[lvl] instanceof CartesianMap)
+        {
+            position[lvl] = 0;
+            end[lvl] = all[lvl].capacity();
+            return true;
+        }
+        Set<R> set = joinMap[lvl].get(all[lvl-1].get(sourceIndex));
+        if (set != null)
+        {
+            iterator[lvl] = set.iterator();
+            return true;
+        }
+        return false;
+    }
+    /**
+     * Returns index of next level row or -1.
+     * @param lvl
+     * @return 
+     */
+    private int nextIndex(int lvl)
+    {
+        IndexJoinMap<R> gm = indexMap[lvl];
+        if (gm != null)
+        {
+            FastSet<R> set = all[lvl];
+            while (position[lvl] < end[lvl])
+            {
+                int index = gm.target(position[lvl]++);
+                if (set.containsIndex(index))
+                {
+                    return index;
+                }
+            }
+            return -1;
+        }
+        if (lvl == 0 || joinMap[lvl] instanceof CartesianMap)
+        {
+            int index = all[lvl].nextSetBit(position[lvl], end[lvl]);
+            if (index != -1)
+            {
+                position[lvl] = index+1;
+            }
+            return index;
+        }
+        if (iterator[lvl].hasNext())
+        {
+            return all[lvl].indexOf(iterator[lvl].next());
+        }
+        return -1;
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+}
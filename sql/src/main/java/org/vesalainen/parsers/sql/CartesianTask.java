@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.concurrent.RecursiveTask;
+import org.vesalainen.parsers.sql.util.ArrayMap;
+
+/**
+ * CartesianTask enumerates row candidates in parallel. First table bit range
+ * is split until it is smaller than granularity. Each part is enumerated with
+ * its own CartesianIterator and collected to its own partition. Partitions are
+ * merged in range order, so the row order is the same as in sequential 
+ * enumeration.
+ * 
+ * <p>Tasks only read table sets and join maps. Lazily synced sets are synced
+ * by the invoking thread before invoke.
+ * @author Timo Vesalainen
+ * @see TableContext#syncSets() 
+ */
+class CartesianTask<R,C> extends RecursiveTask<OrderedFetchResult<R,C>.Partition>
+{
+    private static final long serialVersionUID = 1L;
+    private SelectStatement<R,C> select;
+    private Condition<R,C> condition;
+    private TableContext<R,C>[] resultArray;
+    private OrderedFetchResult<R,C> result;
+    private int from;
+    private int to;
+    private int granularity;
+
+    CartesianTask(SelectStatement<R,C> select, Condition<R,C> condition, TableContext<R,C>[] resultArray, OrderedFetchResult<R,C> result, int granularity)
+    {
+        this(select, condition, resultArray, result, 0, resultArray[0].getAll().capacity(), granularity);
+    }
+
+    private CartesianTask(SelectStatement<R,C> select, Condition<R,C> condition, TableContext<R,C>[] resultArray, OrderedFetchResult<R,C> result, int from, int to, int granularity)
+    {
+        this.select = select;
+        this.condition = condition;
+        this.resultArray = resultArray;
+        this.result = result;
+        this.from = from;
+        this.to = to;
+        this.granularity = granularity;
+    }
+
+    @Override
+    protected OrderedFetchResult<R,C>.Partition compute()
+    {
+        if (to - from <= granularity)
+        {
+            OrderedFetchResult<R,C>.Partition partition = result.createPartition();
+            ArrayMap<Table<R,C>,R> rowCandidate = new ArrayMap<>(select.getTables());
+            CartesianIterator<R,C> iterator = new CartesianIterator<>(result.engine, condition, resultArray, rowCandidate, from, to);
+            while (iterator.hasNext())
+            {
+                partition.addRow(iterator.next());
+            }
+            return partition;
+        }
+        int mid = (from + to) >>> 1;
+        CartesianTask<R,C> left = new CartesianTask<>(select, condition, resultArray, result, from, mid, granularity);
+        CartesianTask<R,C> right = new CartesianTask<>(select, condition, resultArray, result, mid, to, granularity);
+        right.fork();
+        OrderedFetchResult<R,C>.Partition partition = left.compute();
+        partition.merge(right.join());
+        return partition;
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+/**
+ * ColumnAccessor reads one column value from row. It is resolved once per 
+ * statement, so that the column name doesn't have to be looked up for every
+ * cell.
+ * @author Timo Vesalainen
+ * @param <R>   DB row
+ * @param <C>   DB column
+ * @see SQLConverter#accessor(java.lang.String) 
+ */
+public interface ColumnAccessor<R,C>
+{
+    C get(R row);
+}
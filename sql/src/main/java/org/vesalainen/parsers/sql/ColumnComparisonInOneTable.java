@@ -94,10 +94,21 @@ public class ColumnComparisonInOneTable<R,C> extends BaseComparison<R, C> implem
         visitor.visit(this, andPath);
     }
 
+    public ColumnReference<R, C> getColumnReference2()
+    {
+        return columnReference2;
+    }
     @Override
     public ColumnReference<R, C> getColumnReference()
     {
         return columnReference;
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        columnReference2 = copier.copy(columnReference2);
+    }
+
 }
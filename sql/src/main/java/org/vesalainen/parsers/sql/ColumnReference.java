@@ -48,4 +48,9 @@ public interface ColumnReference<R,C> extends RowValue<R, C>
     C getValue(SQLConverter<R,C> engine, ArrayMap<Table<R,C>,R> rowCandidate);
 
     boolean resolvTable(Collection<Table<R, C>> tables);
+    /**
+     * Resolves column accessor used in getValue methods.
+     * @param converter 
+     */
+    void resolvAccessor(SQLConverter<R,C> converter);
 }
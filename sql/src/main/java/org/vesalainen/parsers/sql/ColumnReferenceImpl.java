@@ -32,6 +32,7 @@ public class ColumnReferenceImpl<R,C> extends ParserLocator2Impl implements Colu
     protected String column;
     protected List<String> raw;
     private String title;
+    private ColumnAccessor<R,C> accessor;
 
     public ColumnReferenceImpl(List<String> raw)
     {
@@ -105,6 +106,12 @@ public class ColumnReferenceImpl<R,C> extends ParserLocator2Impl implements Colu
         return false;
     }
 
+    @Override
+    public void resolvAccessor(SQLConverter<R, C> converter)
+    {
+        accessor = converter.accessor(column);
+    }
+
     private void setColumn(String column)
     {
         this.column = column;
@@ -188,6 +195,10 @@ public class ColumnReferenceImpl<R,C> extends ParserLocator2Impl implements Colu
     public C getValue(SQLConverter<R, C> selector, R row)
     {
         assert row != null;
+        if (accessor != null)
+        {
+            return accessor.get(row);
+        }
         return selector.get(row, column);
     }
 
@@ -198,6 +209,10 @@ public class ColumnReferenceImpl<R,C> extends ParserLocator2Impl implements Colu
         R row = (R) rowCandidate.get(table);
         if (row != null)
         {
+            if (accessor != null)
+            {
+                return accessor.get(row);
+            }
             return selector.get(row, column);
         }
         return null;
@@ -251,4 +266,12 @@ public class ColumnReferenceImpl<R,C> extends ParserLocator2Impl implements Colu
         this.title = title;
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        table = copier.copy(table);
+        raw = copier.copyList(raw);
+    }
+
 }
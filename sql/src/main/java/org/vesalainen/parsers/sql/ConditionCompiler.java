@@ -0,0 +1,541 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.Comparator;
+import java.util.Set;
+import org.vesalainen.parsers.sql.util.ArrayMap;
+
+/**
+ * ConditionCompiler turns resolved condition tree into a tree of specialized
+ * evaluator nodes. Table slots in row candidate, column accessors, comparator
+ * and literal values are resolved at compile time. And/Or nodes use short 
+ * circuit three valued logic.
+ * 
+ * <p>Literal values are read when compiling, so condition must be compiled 
+ * after placeholders are bound. Conditions that are not known by compiler are
+ * evaluated by calling their matches method.
+ * @author Timo Vesalainen
+ * @see Engine#setCompileConditions(boolean) 
+ */
+public class ConditionCompiler<R,C>
+{
+    protected SQLConverter<R,C> converter;
+
+    public ConditionCompiler(SQLConverter<R, C> converter)
+    {
+        this.converter = converter;
+    }
+    /**
+     * Compiles condition for row candidates having the same layout as given.
+     * @param condition
+     * @param layout
+     * @return 
+     */
+    public Condition<R,C> compile(Condition<R,C> condition, ArrayMap<Table<R,C>,R> layout)
+    {
+        return new CompiledCondition<>(condition, node(condition, layout));
+    }
+    /**
+     * Returns condition that evaluates both compiled and interpreted condition
+     * and throws IllegalStateException if results differ.
+     * @param condition
+     * @param layout
+     * @return 
+     */
+    public Condition<R,C> compileVerifying(Condition<R,C> condition, ArrayMap<Table<R,C>,R> layout)
+    {
+        return new VerifyingCondition<>(condition, node(condition, layout));
+    }
+    
+    protected Node<R,C> node(Condition<R,C> condition, ArrayMap<Table<R,C>,R> layout)
+    {
+        if (condition instanceof AndCondition)
+        {
+            AndCondition<R,C> and = (AndCondition<R,C>) condition;
+            return new AndNode<>(node(and.getCondition1(), layout), node(and.getCondition2(), layout));
+        }
+        if (condition instanceof OrCondition)
+        {
+            OrCondition<R,C> or = (OrCondition<R,C>) condition;
+            return new OrNode<>(node(or.getCondition1(), layout), node(or.getCondition2(), layout));
+        }
+        if (condition instanceof NotCondition)
+        {
+            NotCondition<R,C> not = (NotCondition<R,C>) condition;
+            return new NotNode<>(node(not.getTest(), layout));
+        }
+        if (condition instanceof BooleanTestCondition)
+        {
+            BooleanTestCondition bt = (BooleanTestCondition) condition;
+            return new BooleanTestNode<>(node(bt.getBooleanPrimary(), layout), bt.isIs(), bt.getTruthValue());
+        }
+        if (condition instanceof LiteralComparison)
+        {
+            LiteralComparison<R,C> lc = (LiteralComparison<R,C>) condition;
+            C value = lc.getLiteral().getValue();
+            if (value == null)
+            {
+                return new ConstantNode<>(TruthValue.UNKNOWN);
+            }
+            return new LiteralComparisonNode<>(
+                    value(lc.getColumnReference(), layout), 
+                    converter.getComparator(), 
+                    accept(lc.getRelation()), 
+                    value);
+        }
+        if (condition instanceof JoinComparison)
+        {
+            JoinComparison<R,C> jc = (JoinComparison<R,C>) condition;
+            return new ColumnComparisonNode<>(
+                    value(jc.getColumnReference(), layout), 
+                    value(jc.getColumnReference2(), layout), 
+                    converter.getComparator(), 
+                    accept(jc.getRelation()));
+        }
+        if (condition instanceof ColumnComparisonInOneTable)
+        {
+            ColumnComparisonInOneTable<R,C> cc = (ColumnComparisonInOneTable<R,C>) condition;
+            return new ColumnComparisonNode<>(
+                    value(cc.getColumnReference(), layout), 
+                    value(cc.getColumnReference2(), layout), 
+                    converter.getComparator(), 
+                    accept(cc.getRelation()));
+        }
+        if (condition instanceof LikeCondition)
+        {
+            LikeCondition<R,C> lc = (LikeCondition<R,C>) condition;
+            return new LikeNode<>(value(lc.getColumnReference(), layout), lc);
+        }
+        if (condition instanceof InCondition)
+        {
+            InCondition<R,C> ic = (InCondition<R,C>) condition;
+            return new InNode<>(value(ic.getColumnReference(), layout), ic.getValues(converter), ic.hasNull(converter));
+        }
+        if (condition instanceof NullCondition)
+        {
+            NullCondition<R,C> nc = (NullCondition<R,C>) condition;
+            return new NullNode<>(value(nc.getColumnReference(), layout));
+        }
+        return new InterpretedNode<>(converter, condition);
+    }
+    
+    protected Value<R,C> value(ColumnReference<R,C> cf, ArrayMap<Table<R,C>,R> layout)
+    {
+        if (cf instanceof ColumnReferenceImpl)
+        {
+            return new SlotValue<>(layout.getIndexOf(cf.getTable()), converter.accessor(cf.getColumn()));
+        }
+        return new ReferenceValue<>(converter, cf);
+    }
+    /**
+     * Returns accepted comparison results indexed by signum+1.
+     * @param relation
+     * @return 
+     */
+    protected static boolean[] accept(Relation relation)
+    {
+        return new boolean[] {
+            BaseComparison.matches(-1, relation),
+            BaseComparison.matches(0, relation),
+            BaseComparison.matches(1, relation)
+        };
+    }
+    
+    protected static TruthValue valueOf(boolean b)
+    {
+        return b ? TruthValue.TRUE : TruthValue.FALSE;
+    }
+    
+    protected interface Node<R,C>
+    {
+        TruthValue eval(ArrayMap<Table<R,C>,R> rowCandidate);
+    }
+    
+    protected interface Value<R,C>
+    {
+        C get(ArrayMap<Table<R,C>,R> rowCandidate);
+    }
+    
+    private static class SlotValue<R,C> implements Value<R,C>
+    {
+        private final int slot;
+        private final ColumnAccessor<R,C> accessor;
+
+        public SlotValue(int slot, ColumnAccessor<R, C> accessor)
+        {
+            this.slot = slot;
+            this.accessor = accessor;
+        }
+
+        @Override
+        public C get(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            R row = rowCandidate.get(slot);
+            if (row != null)
+            {
+                return accessor.get(row);
+            }
+            return null;
+        }
+    }
+    
+    private static class ReferenceValue<R,C> implements Value<R,C>
+    {
+        private final SQLConverter<R,C> converter;
+        private final ColumnReference<R,C> columnReference;
+
+        public ReferenceValue(SQLConverter<R, C> converter, ColumnReference<R, C> columnReference)
+        {
+            this.converter = converter;
+            this.columnReference = columnReference;
+        }
+
+        @Override
+        public C get(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            return columnReference.getValue(converter, rowCandidate);
+        }
+    }
+    
+    private static class AndNode<R,C> implements Node<R,C>
+    {
+        private final Node<R,C> node1;
+        private final Node<R,C> node2;
+
+        public AndNode(Node<R, C> node1, Node<R, C> node2)
+        {
+            this.node1 = node1;
+            this.node2 = node2;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            TruthValue p = node1.eval(rowCandidate);
+            if (p == TruthValue.FALSE)
+            {
+                return TruthValue.FALSE;
+            }
+            TruthValue q = node2.eval(rowCandidate);
+            if (q == TruthValue.FALSE)
+            {
+                return TruthValue.FALSE;
+            }
+            if (p == TruthValue.TRUE)
+            {
+                return q;
+            }
+            return TruthValue.UNKNOWN;
+        }
+    }
+    
+    private static class OrNode<R,C> implements Node<R,C>
+    {
+        private final Node<R,C> node1;
+        private final Node<R,C> node2;
+
+        public OrNode(Node<R, C> node1, Node<R, C> node2)
+        {
+            this.node1 = node1;
+            this.node2 = node2;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            TruthValue p = node1.eval(rowCandidate);
+            if (p == TruthValue.TRUE)
+            {
+                return TruthValue.TRUE;
+            }
+            TruthValue q = node2.eval(rowCandidate);
+            if (q == TruthValue.TRUE)
+            {
+                return TruthValue.TRUE;
+            }
+            if (p == TruthValue.FALSE)
+            {
+                return q;
+            }
+            return TruthValue.UNKNOWN;
+        }
+    }
+    
+    private static class NotNode<R,C> implements Node<R,C>
+    {
+        private final Node<R,C> node;
+
+        public NotNode(Node<R, C> node)
+        {
+            this.node = node;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            switch (node.eval(rowCandidate))
+            {
+                case TRUE:
+                    return TruthValue.FALSE;
+                case FALSE:
+                    return TruthValue.TRUE;
+                default:
+                    return TruthValue.UNKNOWN;
+            }
+        }
+    }
+    
+    private static class BooleanTestNode<R,C> implements Node<R,C>
+    {
+        private final Node<R,C> node;
+        private final boolean is;
+        private final TruthValue truthValue;
+
+        public BooleanTestNode(Node<R, C> node, boolean is, TruthValue truthValue)
+        {
+            this.node = node;
+            this.is = is;
+            this.truthValue = truthValue;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            return valueOf((node.eval(rowCandidate) == truthValue) == is);
+        }
+    }
+    
+    private static class ConstantNode<R,C> implements Node<R,C>
+    {
+        private final TruthValue truthValue;
+
+        public ConstantNode(TruthValue truthValue)
+        {
+            this.truthValue = truthValue;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            return truthValue;
+        }
+    }
+    
+    private static class LiteralComparisonNode<R,C> implements Node<R,C>
+    {
+        private final Value<R,C> value;
+        private final Comparator<C> comparator;
+        private final boolean[] accept;
+        private final C literal;
+
+        public LiteralComparisonNode(Value<R, C> value, Comparator<C> comparator, boolean[] accept, C literal)
+        {
+            this.value = value;
+            this.comparator = comparator;
+            this.accept = accept;
+            this.literal = literal;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            C col = value.get(rowCandidate);
+            if (col == null)
+            {
+                return TruthValue.UNKNOWN;
+            }
+            return valueOf(accept[Integer.signum(comparator.compare(col, literal))+1]);
+        }
+    }
+    
+    private static class ColumnComparisonNode<R,C> implements Node<R,C>
+    {
+        private final Value<R,C> value1;
+        private final Value<R,C> value2;
+        private final Comparator<C> comparator;
+        private final boolean[] accept;
+
+        public ColumnComparisonNode(Value<R, C> value1, Value<R, C> value2, Comparator<C> comparator, boolean[] accept)
+        {
+            this.value1 = value1;
+            this.value2 = value2;
+            this.comparator = comparator;
+            this.accept = accept;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            C col1 = value1.get(rowCandidate);
+            if (col1 == null)
+            {
+                return TruthValue.UNKNOWN;
+            }
+            C col2 = value2.get(rowCandidate);
+            if (col2 == null)
+            {
+                return TruthValue.UNKNOWN;
+            }
+            return valueOf(accept[Integer.signum(comparator.compare(col1, col2))+1]);
+        }
+    }
+    
+    private static class LikeNode<R,C> implements Node<R,C>
+    {
+        private final Value<R,C> value;
+        private final LikeCondition<R,C> like;
+
+        public LikeNode(Value<R, C> value, LikeCondition<R,C> like)
+        {
+            this.value = value;
+            this.like = like;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            C col = value.get(rowCandidate);
+            if (col == null)
+            {
+                return TruthValue.UNKNOWN;
+            }
+            return valueOf(like.isMatch(col.toString()));
+        }
+    }
+    
+    private static class InNode<R,C> implements Node<R,C>
+    {
+        private final Value<R,C> value;
+        private final Set<C> values;
+        private final TruthValue notFound;
+
+        public InNode(Value<R, C> value, Set<C> values, boolean hasNull)
+        {
+            this.value = value;
+            this.values = values;
+            this.notFound = hasNull ? TruthValue.UNKNOWN : TruthValue.FALSE;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            C col = value.get(rowCandidate);
+            if (col == null)
+            {
+                return TruthValue.UNKNOWN;
+            }
+            return values.contains(col) ? TruthValue.TRUE : notFound;
+        }
+    }
+    
+    private static class NullNode<R,C> implements Node<R,C>
+    {
+        private final Value<R,C> value;
+
+        public NullNode(Value<R, C> value)
+        {
+            this.value = value;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            return valueOf(value.get(rowCandidate) == null);
+        }
+    }
+    
+    private static class InterpretedNode<R,C> implements Node<R,C>
+    {
+        private final SQLConverter<R,C> converter;
+        private final Condition<R,C> condition;
+
+        public InterpretedNode(SQLConverter<R, C> converter, Condition<R, C> condition)
+        {
+            this.converter = converter;
+            this.condition = condition;
+        }
+
+        @Override
+        public TruthValue eval(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            return condition.matches(converter, rowCandidate);
+        }
+    }
+    /**
+     * Compiled condition delegates everything except matches to the original
+     * condition.
+     * @param <R>
+     * @param <C> 
+     */
+    private static class CompiledCondition<R,C> extends ParserLocator2Impl implements Condition<R,C>
+    {
+        protected final Condition<R,C> condition;
+        protected final Node<R,C> node;
+
+        public CompiledCondition(Condition<R, C> condition, Node<R, C> node)
+        {
+            this.condition = condition;
+            this.node = node;
+        }
+
+        @Override
+        public void associateCondition(SelectStatement<R, C> select, boolean andPath)
+        {
+            condition.associateCondition(select, andPath);
+        }
+
+        @Override
+        public TruthValue matches(SQLConverter<R, C> selector, ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            return node.eval(rowCandidate);
+        }
+
+        @Override
+        public void walk(ConditionVisitor visitor, boolean andPath)
+        {
+            condition.walk(visitor, andPath);
+        }
+
+        @Override
+        public String toString()
+        {
+            return condition.toString();
+        }
+    }
+    
+    private static class VerifyingCondition<R,C> extends CompiledCondition<R,C>
+    {
+        public VerifyingCondition(Condition<R, C> condition, Node<R, C> node)
+        {
+            super(condition, node);
+        }
+
+        @Override
+        public TruthValue matches(SQLConverter<R, C> selector, ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            TruthValue compiled = node.eval(rowCandidate);
+            TruthValue interpreted = condition.matches(selector, rowCandidate);
+            if (compiled != interpreted)
+            {
+                throw new IllegalStateException("compiled "+compiled+" != interpreted "+interpreted+" in "+condition+" for "+rowCandidate);
+            }
+            return compiled;
+        }
+    }
+}
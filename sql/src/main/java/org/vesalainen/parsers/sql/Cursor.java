@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.vesalainen.parsers.sql.util.ArrayMap;
+
+/**
+ * Cursor returns select results one row at a time. Rows contain referenced
+ * columns in the same order as OrderedFetchResult.
+ * 
+ * <p>If select doesn't have order by clause, rows are produced on demand while
+ * iterating, so that the result is never held in memory. Otherwise the result
+ * is sorted before first row is returned.
+ * 
+ * @author Timo Vesalainen
+ * @see SelectStatement#openCursor() 
+ */
+public class Cursor<R,C> implements Iterator<C[]>, AutoCloseable
+{
+    private Engine<R,C> engine;
+    private List<ColumnReference<R,C>> columnReferences;
+    private Iterator<ArrayMap<Table<R,C>,R>> candidates;
+    private Iterator<C[]> rows;
+    private boolean closed;
+    private long skip;
+    private long remaining = -1;
+
+    Cursor(Engine<R,C> engine, SelectStatement<R,C> select, Iterator<ArrayMap<Table<R,C>,R>> candidates)
+    {
+        this.engine = engine;
+        this.columnReferences = select.getReferencedColumns();
+        this.candidates = candidates;
+        Limit limit = select.getLimit();
+        if (limit != null)
+        {
+            skip = limit.getOffset();
+            remaining = limit.getLimit();
+        }
+    }
+
+    Cursor(Engine<R,C> engine, OrderedFetchResult<R,C> result)
+    {
+        this.engine = engine;
+        this.rows = result.iterator();
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (closed)
+        {
+            return false;
+        }
+        if (rows != null)
+        {
+            return rows.hasNext();
+        }
+        if (remaining == 0)
+        {
+            return false;
+        }
+        while (skip > 0 && candidates.hasNext())
+        {
+            candidates.next();
+            skip--;
+        }
+        return candidates.hasNext();
+    }
+
+    @Override
+    public C[] next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        if (rows != null)
+        {
+            return rows.next();
+        }
+        ArrayMap<Table<R,C>,R> rowCandidate = candidates.next();
+        if (remaining > 0)
+        {
+            remaining--;
+        }
+        C[] row = (C[]) new Object[columnReferences.size()];
+        int index = 0;
+        for (ColumnReference<R,C> cf : columnReferences)
+        {
+            row[index++] = cf.getValue(engine, rowCandidate);
+        }
+        return row;
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+    /**
+     * Releases fetched data.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        candidates = null;
+        rows = null;
+    }
+
+}
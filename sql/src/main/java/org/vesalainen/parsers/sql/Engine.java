@@ -24,14 +24,21 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 import org.vesalainen.parser.GenClassFactory;
 import org.vesalainen.parser.util.InputReader;
+import org.vesalainen.parsers.sql.util.BloomFilter;
 import org.vesalainen.parsers.sql.util.JoinMap;
+import org.vesalainen.parsers.sql.util.KeyFilter;
+import org.vesalainen.parsers.sql.util.SetKeyFilter;
 
 /**
  * 
@@ -41,8 +48,27 @@ import org.vesalainen.parsers.sql.util.JoinMap;
  */
 public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
 {
+    public static final int MAX_PLANNING_LIMIT = 14;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 512;
+    public static final long DEFAULT_INDEX_CACHE_BUDGET = 64*1024*1024;
+    public static final int DEFAULT_KEY_FILTER_THRESHOLD = 4096;
+    public static final double DEFAULT_KEY_FILTER_FPP = 0.01;
     private SqlParser parser;
-    private ArrayMap<Table<R,C>,TableContext<R,C>> others;
+    private int planningLimit = 12;
+    private int parallelism = 1;
+    private int parallelThreshold = 4096;
+    private ForkJoinPool pool;
+    private IndexCache<C> indexCache;
+    private boolean compileConditions = true;
+    private boolean verifyCompiledConditions;
+    private StatementCache statementCache = new StatementCache(DEFAULT_STATEMENT_CACHE_SIZE);
+    private long statementCacheHits;
+    private long statementCacheMisses;
+    private boolean keyFilters = true;
+    private int keyFilterThreshold = DEFAULT_KEY_FILTER_THRESHOLD;
+    private double keyFilterFpp = DEFAULT_KEY_FILTER_FPP;
+    private final Map<String,Long> keyFilterEliminated = new HashMap<>();
+    private final List<ExecutionListener<R,C>> listeners = new CopyOnWriteArrayList<>();
     
     public Engine()
     {
@@ -54,18 +80,131 @@ public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
         parser = (SqlParser) GenClassFactory.getGenInstance(grammar);
     }
 
+    /**
+     * Prepares statement. Parsed statements are cached by sql text. Each call
+     * returns an independent copy of the cached statement with its own 
+     * placeholders and execution state, so returned statements can be bound
+     * and executed concurrently. Cached statement itself is never returned.
+     * @param sql
+     * @return 
+     */
     public Statement prepare(String sql)
     {
+        Statement cached;
+        synchronized(statementCache)
+        {
+            cached = statementCache.get(sql);
+            if (cached != null)
+            {
+                statementCacheHits++;
+            }
+            else
+            {
+                statementCacheMisses++;
+            }
+        }
+        if (cached != null)
+        {
+            return StatementCopier.copyOf(cached);
+        }
         Deque<List<Table<R,C>>> tableListStack = new ArrayDeque<>();
         LinkedHashMap<String,Placeholder> placeholderMap = new LinkedHashMap<>();
-        return parser.parse(sql, this, tableListStack, placeholderMap, null);
+        SqlParseEvent event = SqlParseEvent.start();
+        long start = System.nanoTime();
+        Statement statement = parser.parse(sql, this, tableListStack, placeholderMap, null);
+        statement.setSql(sql);
+        fireParsed(sql, System.nanoTime() - start);
+        if (event != null && event.shouldCommit())
+        {
+            event.sqlHash = sql.hashCode();
+            event.length = sql.length();
+            event.commit();
+        }
+        synchronized(statementCache)
+        {
+            if (statementCache.getMaxSize() > 0)
+            {
+                statementCache.put(sql, statement);
+                cached = statement;
+            }
+        }
+        return cached != null ? StatementCopier.copyOf(cached) : statement;
+    }
+    /**
+     * Returns the maximum number of cached prepared statements.
+     * @return 
+     */
+    public int getStatementCacheSize()
+    {
+        synchronized(statementCache)
+        {
+            return statementCache.getMaxSize();
+        }
+    }
+    /**
+     * Sets the maximum number of cached prepared statements. 0 disables 
+     * caching.
+     * @param size 
+     */
+    public void setStatementCacheSize(int size)
+    {
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("negative cache size "+size);
+        }
+        synchronized(statementCache)
+        {
+            statementCache.setMaxSize(size);
+        }
+    }
+    /**
+     * Removes all cached prepared statements.
+     */
+    public void clearStatementCache()
+    {
+        synchronized(statementCache)
+        {
+            statementCache.clear();
+        }
+    }
+    /**
+     * Returns the number of prepare calls that found the statement in cache.
+     * @return 
+     */
+    public long getStatementCacheHits()
+    {
+        synchronized(statementCache)
+        {
+            return statementCacheHits;
+        }
+    }
+    /**
+     * Returns the number of prepare calls that parsed the statement.
+     * @return 
+     */
+    public long getStatementCacheMisses()
+    {
+        synchronized(statementCache)
+        {
+            return statementCacheMisses;
+        }
     }
     
     public Statement prepare(InputStream is)
     {
         Deque<List<Table<R,C>>> tableListStack = new ArrayDeque<>();
         LinkedHashMap<String,Placeholder> placeholderMap = new LinkedHashMap<>();
-        return parser.parse(is, this, tableListStack, placeholderMap, null);
+        SqlParseEvent event = SqlParseEvent.start();
+        long start = System.nanoTime();
+        Statement statement = parser.parse(is, this, tableListStack, placeholderMap, null);
+        fireParsed(null, System.nanoTime() - start);
+        if (event != null && event.shouldCommit())
+        {
+            event.sqlHash = 0;
+            event.length = -1;
+            event.commit();
+        }
+        return statement;
     }
     
     public FetchResult<R,C> show(String identifier)
@@ -147,19 +286,259 @@ public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
         select(select, result, false);
         return result;
     }
+    /**
+     * Opens a cursor for select. Rows are produced while iterating the cursor.
+     * If select has order by clause, aggregates or distinct, all rows are 
+     * fetched and sorted, grouped or deduplicated before returning the cursor.
+     * @param select
+     * @return 
+     */
+    public Cursor<R,C> openCursor(SelectStatement<R,C> select)
+    {
+        if (select.getSortSpecification() != null || select.isAggregate() || select.isDistinct())
+        {
+            return new Cursor<>(this, select(select));
+        }
+        executeSubQueries(select);
+        startProgressMonitor(0, select.getTableCount()*3+1);
+        TableContext<R,C>[] resultArray = prepareTables(select, false);
+        destroyProgressMonitor();
+        ArrayMap<Table<R,C>,R> rowCandidate = new ArrayMap<>(select.getTables());
+        Condition<R,C> condition = compileCondition(select.getResidualCondition(), rowCandidate);
+        return new Cursor<>(this, select, new CartesianIterator<>(this, condition, resultArray, rowCandidate));
+    }
     private void select(SelectStatement<R,C> select, OrderedFetchResult<R,C> result, boolean update)
     {
+        SqlStatementEvent event = SqlStatementEvent.start();
+        long start = System.nanoTime();
+        executeSubQueries(select);
+        startProgressMonitor(0, select.getTableCount()*3+1);
+        TableContext<R,C>[] resultArray = prepareTables(select, update);
+        boolean streamLimit = select.getLimit() != null && select.getSortSpecification() == null && !select.isAggregate();
+        long enumerateStart = System.nanoTime();
+        long candidates = 0;
+        if (!update && !streamLimit && parallelism > 1 && resultArray[0].getAll().size() >= parallelThreshold)
+        {
+            int capacity = resultArray[0].getAll().capacity();
+            int granularity = Math.max(1, Math.max(parallelThreshold/4, capacity/(parallelism*8)));
+            Condition<R,C> condition = compileCondition(select.getResidualCondition(), new ArrayMap<Table<R,C>,R>(select.getTables()));
+            for (TableContext<R,C> tc : resultArray)
+            {
+                tc.syncSets();
+            }
+            OrderedFetchResult<R,C>.Partition partition = getPool().invoke(new CartesianTask<>(select, condition, resultArray, result, granularity));
+            candidates = partition.getCandidateCount();
+            result.merge(partition);
+        }
+        else
+        {
+            ArrayMap<Table<R,C>,R> rowCandidate = new ArrayMap<>(select.getTables());
+            Condition<R,C> condition = compileCondition(select.getResidualCondition(), rowCandidate);
+            CartesianIterator<R,C> iterator = new CartesianIterator<>(this, condition, resultArray, rowCandidate);
+            while (!result.isLimitReached() && iterator.hasNext())
+            {
+                result.addRow(iterator.next());
+                candidates++;
+            }
+        }
+        destroyProgressMonitor();
+        if (!listeners.isEmpty() || event != null)
+        {
+            long sortStart = System.nanoTime();
+            for (ExecutionListener<R,C> listener : listeners)
+            {
+                listener.enumerated(select, candidates, sortStart - enumerateStart);
+            }
+            int rows = result.getRowCount();
+            long end = System.nanoTime();
+            for (ExecutionListener<R,C> listener : listeners)
+            {
+                listener.sorted(select, rows, end - sortStart);
+                listener.executed(select, rows, end - start);
+            }
+            if (event != null)
+            {
+                event.end();
+                if (event.shouldCommit())
+                {
+                    String sql = select.getSql();
+                    event.sqlHash = sql != null ? sql.hashCode() : 0;
+                    event.tables = resultArray.length;
+                    event.candidates = candidates;
+                    event.rows = rows;
+                    event.commit();
+                }
+            }
+        }
+    }
+    /**
+     * Returns the execution plan of select. Tables are fetched and prepared as
+     * in select because the table order is planned using actual row counts.
+     * Result has a row for each narrowed column range and for each table in
+     * enumeration order with join map type and planned ratio.
+     * 
+     * <p>If analyze is true rows are also enumerated and per phase times and
+     * row counts are reported. Times are in microseconds.
+     * @param select
+     * @param analyze
+     * @return 
+     */
+    public FetchResult<R,C> explain(SelectStatement<R,C> select, boolean analyze)
+    {
+        FetchResult fr = new FetchResult<>(this, "Step", "Table", "Detail", "Rows", "Time");
+        long start = System.nanoTime();
+        executeSubQueries(select);
+        if (analyze)
+        {
+            fr.addRowArray("subqueries", "", "", "", micros(System.nanoTime() - start));
+        }
         startProgressMonitor(0, select.getTableCount()*3+1);
+        try
+        {
+            TableContext<R,C>[] resultArray = fetchTables(select, false);
+            for (int ii=resultArray.length-1;ii>=0;ii--)
+            {
+                TableContext<R,C> tc = resultArray[ii];
+                if (analyze)
+                {
+                    fr.addRowArray("fetch", tc.toString(), "", tc.getFetchedCount(), micros(tc.getFetchTime()));
+                    if (tc.getKeyFilterEliminated() > 0)
+                    {
+                        fr.addRowArray("key filter", tc.toString(), "", tc.getKeyFilterEliminated(), "");
+                    }
+                    fr.addRowArray("null", tc.toString(), "", tc.getNullRemovedCount(), "");
+                    fr.addRowArray("filter", tc.toString(), "", tc.getFilteredCount(), micros(tc.getDataTime()));
+                }
+                for (Map.Entry<String,Range<C>> entry : tc.getColumnRanges().entrySet())
+                {
+                    Range<C> range = entry.getValue();
+                    if (range.isLimited())
+                    {
+                        String lower = range.getLower() != null ? range.getLower().toString() : "";
+                        String upper = range.getUpper() != null ? range.getUpper().toString() : "";
+                        fr.addRowArray("range", tc.toString(), entry.getKey()+" "+lower+" - "+upper, "", "");
+                    }
+                }
+            }
+            JoinPlanner<R,C> planner = sort(resultArray);
+            if (planner != null)
+            {
+                fr.addRowArray("plan", "", (planner.isGreedy() ? "greedy" : "dp")+" cost "+planner.getCost(), "", analyze ? micros(planner.getPlanningTime()) : "");
+            }
+            for (int ii=0;ii<resultArray.length;ii++)
+            {
+                TableContext<R,C> tc = resultArray[ii];
+                String detail = "";
+                if (ii > 0)
+                {
+                    TableContext<R,C> prev = resultArray[ii-1];
+                    JoinMap<R> joinMap = prev.getJoinMapTo(tc.getTable());
+                    detail = joinMap.getClass().getSimpleName()+" ratio "+planner.estimateRatio(prev, tc);
+                }
+                fr.addRowArray("order", tc.toString(), detail, tc.getAll().size(), "");
+            }
+            if (analyze)
+            {
+                OrderedFetchResult<R,C> result = new OrderedFetchResult<>(this, select);
+                long enumerateStart = System.nanoTime();
+                ArrayMap<Table<R,C>,R> rowCandidate = new ArrayMap<>(select.getTables());
+                Condition<R,C> condition = compileCondition(select.getResidualCondition(), rowCandidate);
+                CartesianIterator<R,C> iterator = new CartesianIterator<>(this, condition, resultArray, rowCandidate);
+                int count = 0;
+                while (!result.isLimitReached() && iterator.hasNext())
+                {
+                    result.addRow(iterator.next());
+                    count++;
+                }
+                fr.addRowArray("enumerate", "", "", count, micros(System.nanoTime() - enumerateStart));
+                long sortStart = System.nanoTime();
+                result.materialize();
+                fr.addRowArray("sort", "", "", result.getRowCount(), micros(System.nanoTime() - sortStart));
+                fr.addRowArray("total", "", "", "", micros(System.nanoTime() - start));
+            }
+        }
+        finally
+        {
+            destroyProgressMonitor();
+        }
+        return fr;
+    }
+
+    private static long micros(long nanos)
+    {
+        return nanos/1000;
+    }
+    /**
+     * Executes subqueries of where and having conditions.
+     * @param select 
+     */
+    private void executeSubQueries(SelectStatement<R,C> select)
+    {
+        executeSubQueries(select.getCondition());
+        executeSubQueries(select.getHaving());
+    }
+    /**
+     * Executes subqueries of condition.
+     * @param condition Condition or null
+     */
+    void executeSubQueries(Condition<R,C> condition)
+    {
+        if (condition == null)
+        {
+            return;
+        }
+        ConditionVisitor visitor = new ConditionVisitor() 
+        {
+            @Override
+            public void visit(Condition condition, boolean andPath)
+            {
+                if (condition instanceof SubQueryCondition)
+                {
+                    SubQueryCondition<R,C> sq = (SubQueryCondition<R,C>) condition;
+                    sq.execute(Engine.this);
+                }
+            }
+        };
+        condition.walk(visitor, true);
+    }
+    private synchronized ForkJoinPool getPool()
+    {
+        if (pool == null)
+        {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+    /**
+     * Fetches tables, builds indexes and join maps and sorts tables in
+     * enumeration order.
+     * @param select
+     * @param update
+     * @return 
+     */
+    private TableContext<R,C>[] prepareTables(SelectStatement<R,C> select, boolean update)
+    {
+        TableContext<R,C>[] resultArray = fetchTables(select, update);
+        sort(resultArray);
+        return resultArray;
+    }
+    /**
+     * Fetches tables and builds indexes and join maps. Tables are returned in
+     * reverse fetch order.
+     * @param select
+     * @param update
+     * @return 
+     */
+    private TableContext<R,C>[] fetchTables(SelectStatement<R,C> select, boolean update)
+    {
         int progress = 0;
-        others = new ArrayMap<>(select.getTables());
+        ArrayMap<Table<R,C>,TableContext<R,C>> others = new ArrayMap<>(select.getTables());
         TableContextComparator tableContextComparator = getTableContextComparator();
-        ArrayMap<Table<R,C>,TableContext<R,C>> tableResults = new ArrayMap<>(select.getTables());
         List<TableContext<R,C>> tableList = new ArrayList<>();
         for (Table<R,C> table : select.getTables())
         {
             TableContext<R, C> tc = createTableContext(table, others);
             others.put(table, tc);
-            tableResults.put(table, tc);
             tableList.add(tc);
         }
         Condition condition = select.getCondition();
@@ -168,14 +547,17 @@ public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
             throw new IllegalArgumentException("no conditions");
         }
         int index = tableList.size();
-        TableContext[] resultArray = new TableContext[index];
+        TableContext<R,C>[] resultArray = new TableContext[index];
         while (!tableList.isEmpty())
         {
             updateProgressMonitor(++progress);
             index--;
             Collections.sort(tableList, tableContextComparator);
             TableContext<R,C> currentTable = tableList.get(0);
+            long start = System.nanoTime();
             Collection<R> rows = fetch(currentTable, update);
+            currentTable.setFetchTime(System.nanoTime() - start);
+            fireFetched(currentTable, rows.size(), currentTable.getFetchTime());
             updateProgressMonitor(++progress);
             resultArray[index] = currentTable;
             currentTable.setData(rows);
@@ -183,62 +565,9 @@ public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
             tableList.remove(currentTable);
             currentTable.updateHints(tableList);
         }
-        sort(resultArray);
-        ArrayMap<Table<R,C>,R> rowCandidate = new ArrayMap<>(select.getTables());
-        cartesian(condition, result, resultArray, rowCandidate);
-        destroyProgressMonitor();
+        return resultArray;
     }
     
-    private void cartesian(
-            Condition condition, 
-            OrderedFetchResult results,
-            TableContext[] resultArray,
-            ArrayMap<Table<R,C>,R> rowCandidate
-            )
-    {
-        int level = 0;
-        Iterator[] iterator = new Iterator[resultArray.length];
-        iterator[0] = resultArray[0].getAll().iterator();
-        JoinMap<R>[] joinMap = new JoinMap[resultArray.length-1];
-        for (int ii=0;ii<joinMap.length;ii++)
-        {
-            joinMap[ii] = resultArray[ii].getJoinMapTo(resultArray[ii+1].getTable());
-        }
-        int[] tableIndex = new int[resultArray.length];
-        for (int ii=0;ii<tableIndex.length;ii++)
-        {
-            tableIndex[ii] = rowCandidate.getIndexOf(resultArray[ii].getTable());
-        }
-        while (level >= 0)
-        {
-            while (iterator[level].hasNext())
-            {
-                R row = (R) iterator[level].next();
-                rowCandidate.put(tableIndex[level], row);
-                if (level+1 < resultArray.length)
-                {
-                    Set<R> set = (Set<R>) joinMap[level].get(row);
-                    iterator[level+1] = set.iterator();
-                    level++;
-                }
-                else
-                {
-                    if (condition != null)
-                    {
-                        if (condition.matches(this, rowCandidate) == TruthValue.TRUE)
-                        {
-                            results.addRow(rowCandidate);
-                        }
-                    }
-                    else
-                    {
-                        results.addRow(rowCandidate);
-                    }
-                }
-            }
-            level--;
-        }
-    }
     /**
      * Factory method for creating TableContextComparator
      * @return 
@@ -247,6 +576,14 @@ public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
     {
         return new TableContextComparator(this);
     }
+    /**
+     * Factory method for creating JoinPlanner
+     * @return 
+     */
+    protected JoinPlanner<R,C> createJoinPlanner()
+    {
+        return new JoinPlanner<>(this, planningLimit);
+    }
     /**
      * Factory method for creating Table
      * @return 
@@ -265,6 +602,262 @@ public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
     {
         return new TableContext<>(this, table, others);
     }
+    /**
+     * Factory method for creating ConditionCompiler
+     * @return 
+     */
+    protected ConditionCompiler<R,C> createConditionCompiler()
+    {
+        return new ConditionCompiler<>(this);
+    }
+    /**
+     * Returns condition prepared for evaluation with row candidates having 
+     * same layout. If condition compilation is on, returns compiled condition.
+     * Otherwise returns condition itself.
+     * @param condition
+     * @param layout
+     * @return 
+     */
+    public Condition<R,C> compileCondition(Condition<R,C> condition, ArrayMap<Table<R,C>,R> layout)
+    {
+        if (condition == null || !compileConditions)
+        {
+            return condition;
+        }
+        ConditionCompiler<R,C> compiler = createConditionCompiler();
+        if (verifyCompiledConditions)
+        {
+            return compiler.compileVerifying(condition, layout);
+        }
+        else
+        {
+            return compiler.compile(condition, layout);
+        }
+    }
+    /**
+     * Returns true if conditions are compiled before evaluation.
+     * @return 
+     */
+    public boolean isCompileConditions()
+    {
+        return compileConditions;
+    }
+    /**
+     * Sets condition compilation on or off. Default is on.
+     * @param compileConditions 
+     */
+    public void setCompileConditions(boolean compileConditions)
+    {
+        this.compileConditions = compileConditions;
+    }
+    /**
+     * Returns true if compiled conditions are verified against interpreted.
+     * @return 
+     */
+    public boolean isVerifyCompiledConditions()
+    {
+        return verifyCompiledConditions;
+    }
+    /**
+     * If set, both compiled and interpreted conditions are evaluated and 
+     * IllegalStateException is thrown if results differ. This is meant for 
+     * testing only.
+     * @param verifyCompiledConditions 
+     */
+    public void setVerifyCompiledConditions(boolean verifyCompiledConditions)
+    {
+        this.verifyCompiledConditions = verifyCompiledConditions;
+    }
+    /**
+     * Factory method for creating IndexCache
+     * @return 
+     */
+    protected IndexCache<C> createIndexCache()
+    {
+        return new IndexCache<>(DEFAULT_INDEX_CACHE_BUDGET);
+    }
+    /**
+     * Returns index cache. Column indexes are cached only for tables having
+     * version.
+     * @return 
+     * @see TableMetadata#getVersion() 
+     */
+    public synchronized IndexCache<C> getIndexCache()
+    {
+        if (indexCache == null)
+        {
+            indexCache = createIndexCache();
+        }
+        return indexCache;
+    }
+    /**
+     * Removes cached indexes of table. Cached indexes are validated by table 
+     * version, so this is needed only for releasing memory.
+     * @param tablename 
+     */
+    public void invalidateIndexCache(String tablename)
+    {
+        getIndexCache().invalidate(tablename);
+    }
+    /**
+     * Removes all cached indexes.
+     */
+    public void invalidateIndexCache()
+    {
+        getIndexCache().clear();
+    }
+    /**
+     * Factory method for creating KeyFilter for join key values of a fetched 
+     * table. Below keyFilterThreshold keys an exact filter is created. Above 
+     * it a Bloom filter is created if hash join is supported. Otherwise 
+     * returns null.
+     * @param keys
+     * @return 
+     * @see #supportsHashJoin() 
+     */
+    protected KeyFilter<C> createKeyFilter(Set<C> keys)
+    {
+        if (keys.size() <= keyFilterThreshold)
+        {
+            Set<C> set;
+            if (supportsHashJoin())
+            {
+                set = new HashSet<>(keys);
+            }
+            else
+            {
+                set = new TreeSet<>(getComparator());
+                set.addAll(keys);
+            }
+            return new SetKeyFilter<>(set);
+        }
+        if (supportsHashJoin())
+        {
+            BloomFilter<C> filter = new BloomFilter<>(keys.size(), keyFilterFpp);
+            for (C key : keys)
+            {
+                filter.add(key);
+            }
+            return filter;
+        }
+        return null;
+    }
+    /**
+     * Returns true if key filters are created for tables not yet fetched.
+     * @return 
+     */
+    public boolean isKeyFilters()
+    {
+        return keyFilters;
+    }
+    /**
+     * Enables or disables key filters. Default is true.
+     * @param keyFilters 
+     */
+    public void setKeyFilters(boolean keyFilters)
+    {
+        this.keyFilters = keyFilters;
+    }
+    /**
+     * Returns the maximum number of keys in exact key filter.
+     * @return 
+     */
+    public int getKeyFilterThreshold()
+    {
+        return keyFilterThreshold;
+    }
+    /**
+     * Sets the maximum number of keys in exact key filter. Above this a Bloom
+     * filter is used.
+     * @param keyFilterThreshold 
+     */
+    public void setKeyFilterThreshold(int keyFilterThreshold)
+    {
+        if (keyFilterThreshold < 0)
+        {
+            throw new IllegalArgumentException("negative key filter threshold "+keyFilterThreshold);
+        }
+        this.keyFilterThreshold = keyFilterThreshold;
+    }
+    /**
+     * Returns Bloom filter false positive probability.
+     * @return 
+     */
+    public double getKeyFilterFpp()
+    {
+        return keyFilterFpp;
+    }
+    /**
+     * Sets Bloom filter false positive probability.
+     * @param keyFilterFpp 
+     */
+    public void setKeyFilterFpp(double keyFilterFpp)
+    {
+        if (keyFilterFpp <= 0 || keyFilterFpp >= 1)
+        {
+            throw new IllegalArgumentException("false positive probability "+keyFilterFpp+" not in 0 - 1");
+        }
+        this.keyFilterFpp = keyFilterFpp;
+    }
+    /**
+     * Returns the number of rows eliminated by key filters per table name.
+     * @return 
+     */
+    public Map<String,Long> getKeyFilterEliminated()
+    {
+        synchronized(keyFilterEliminated)
+        {
+            return new HashMap<>(keyFilterEliminated);
+        }
+    }
+    /**
+     * Clears key filter statistics.
+     */
+    public void clearKeyFilterStatistics()
+    {
+        synchronized(keyFilterEliminated)
+        {
+            keyFilterEliminated.clear();
+        }
+    }
+
+    void addKeyFilterEliminated(String tablename, long count)
+    {
+        synchronized(keyFilterEliminated)
+        {
+            Long old = keyFilterEliminated.get(tablename);
+            keyFilterEliminated.put(tablename, old != null ? old+count : count);
+        }
+    }
+    /**
+     * Returns true if column values equals and hashCode methods are consistent
+     * with getComparator. If true, equi-joins are made using hash join. 
+     * Otherwise sorted merge join is used. Default implementation returns 
+     * false because ObjectComparator treats numbers of different classes 
+     * having the same value as equal while their hashCodes differ. Backends
+     * returning a single class for each column value can override this.
+     * @return 
+     * @see java.lang.Object#equals(java.lang.Object) 
+     * @see java.lang.Object#hashCode() 
+     */
+    protected boolean supportsHashJoin()
+    {
+        return false;
+    }
+    /**
+     * Returns true if column values are strings converted with 
+     * convert(String) and ordered by getComparator as strings. If true, LIKE 
+     * pattern prefix narrows column range passed to fetch. Default 
+     * implementation returns false.
+     * @param table
+     * @param column
+     * @return 
+     * @see TableContext#getColumnRanges() 
+     */
+    protected boolean isTextColumn(Table<R,C> table, String column)
+    {
+        return false;
+    }
     /**
      * Begin transaction
      */
@@ -286,8 +879,15 @@ public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
     public abstract Collection<R> fetch(Table<R, C> table);
     /**
      * Joined fetch
+     * 
+     * <p>TableContext getColumnRanges and getKeyFilter contain hints of join 
+     * column values that can match already fetched tables and of IN list 
+     * values. Implementation can use them to filter rows at the source. Rows 
+     * not matching hints are removed after fetch anyway.
      * @param tableContext 
      * @param update If true the resulting rows will be updated.
+     * @see TableContext#getKeyFilter(java.lang.String) 
+     * @see TableContext#mightMatch(java.lang.Object) 
      * @return 
      */
     public abstract Collection<R> fetch(TableContext<R, C> tableContext, boolean update);
@@ -385,6 +985,59 @@ public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
                 throw new IllegalArgumentException("This version doesn't support "+funcName+" function");
         }
     }
+    /**
+     * Returns true if funcName is an aggregate function name. Aggregate 
+     * function names are not reserved words, so they can be used as column 
+     * names.
+     * @param funcName
+     * @return 
+     * @see #createAggregateFunction(java.lang.String, boolean, org.vesalainen.parsers.sql.ColumnReference) 
+     */
+    public boolean isAggregateFunction(String funcName)
+    {
+        for (AggregateFunction.Type type : AggregateFunction.Type.values())
+        {
+            if (type.name().equalsIgnoreCase(funcName))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+    /**
+     * Factory method for creating aggregate function
+     * @param funcName count, sum, min, max or avg
+     * @param distinct If true, only distinct argument values are aggregated
+     * @param inner Argument column or null for count(*)
+     * @return 
+     */
+    public ColumnReference createAggregateFunction(String funcName, boolean distinct, ColumnReference inner)
+    {
+        AggregateFunction.Type type;
+        try
+        {
+            type = AggregateFunction.Type.valueOf(funcName.toUpperCase());
+        }
+        catch (IllegalArgumentException ex)
+        {
+            throw new IllegalArgumentException("This version doesn't support "+funcName+" aggregate function");
+        }
+        return new AggregateFunction<>(type, distinct, inner);
+    }
+    /**
+     * Converts value to number for sum and avg aggregate functions. Default 
+     * implementation accepts only Number values.
+     * @param value
+     * @return 
+     */
+    protected Number toNumber(C value)
+    {
+        if (value instanceof Number)
+        {
+            return (Number) value;
+        }
+        throw new IllegalArgumentException(value+" is not a number");
+    }
     protected void check(String funcName, int len, int min, int max)
     {
         if (len < min || len > max)
@@ -393,91 +1046,162 @@ public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
         }
     }
 
-    private void sort(TableContext[] resultArray)
+    private JoinPlanner<R,C> sort(TableContext[] resultArray)
     {
         if (resultArray.length == 1)
         {
-            return;
+            return null;
         }
-        HashSet<TableContext> rest = new HashSet<>();
-        for (TableContext tc : resultArray)
+        JoinPlanner<R,C> planner = createJoinPlanner();
+        planner.plan(resultArray);
+        for (ExecutionListener<R,C> listener : listeners)
         {
-            rest.add(tc);
+            listener.planned(resultArray, planner.getCost(), planner.getPlanningTime());
         }
-        OptRes min = findMin(Float.MAX_VALUE, 0, rest, new ArrayDeque<TableContext>());
-        for (int ii=resultArray.length-1;ii>=0;ii--)
+        return planner;
+    }
+    /**
+     * Adds listener for execution phase timings and row counts.
+     * @param listener 
+     */
+    public void addExecutionListener(ExecutionListener<R,C> listener)
+    {
+        listeners.add(listener);
+    }
+    /**
+     * Removes execution listener.
+     * @param listener 
+     */
+    public void removeExecutionListener(ExecutionListener<R,C> listener)
+    {
+        listeners.remove(listener);
+    }
+    /**
+     * Returns true if there are execution listeners.
+     * @return 
+     */
+    public boolean hasExecutionListeners()
+    {
+        return !listeners.isEmpty();
+    }
+
+    private void fireParsed(String sql, long time)
+    {
+        for (ExecutionListener<R,C> listener : listeners)
         {
-            resultArray[ii] = min.stack.pop();
+            listener.parsed(sql, time);
         }
     }
-    private OptRes findMin(
-            float lastMin,
-            float cum,
-            HashSet<TableContext> rest,
-            ArrayDeque<TableContext> stack
-            )
+
+    private void fireFetched(TableContext<R,C> table, int rows, long time)
     {
-        OptRes best = null;
-        if (stack.isEmpty())
+        for (ExecutionListener<R,C> listener : listeners)
         {
-            for (TableContext tc : rest)
-            {
-                HashSet<TableContext> clone = (HashSet<TableContext>) rest.clone();
-                clone.remove(tc);
-                stack.push(tc);
-                OptRes res = findMin(lastMin, 0, clone, stack);
-                stack.pop();
-                if (res != null && res.min < lastMin)
-                {
-                    lastMin = res.min;
-                    best = res;
-                }
-            }
+            listener.fetched(table, rows, time);
         }
-        else
+    }
+
+    void fireIndexBuilt(TableContext<R,C> table, String column, int rows, int keys, boolean cached, long time)
+    {
+        for (ExecutionListener<R,C> listener : listeners)
         {
-            if (!rest.isEmpty())
-            {
-                TableContext prev = stack.peek();
-                for (TableContext tc : rest)
-                {
-                    JoinMap joinMapTo = prev.getJoinMapTo(tc.getTable());
-                    float cur = cum + joinMapTo.getRatio();
-                    if (cur < lastMin)
-                    {
-                        HashSet<TableContext> clone = (HashSet<TableContext>) rest.clone();
-                        clone.remove(tc);
-                        stack.push(tc);
-                        OptRes res = findMin(lastMin, cur, clone, stack);
-                        stack.pop();
-                        if (res != null && res.min < lastMin)
-                        {
-                            lastMin = res.min;
-                            best = res;
-                        }
-                    }
-                }
-            }
-            else
-            {
-                return new OptRes(stack.clone(), cum);
-            }
+            listener.indexBuilt(table, column, rows, keys, cached, time);
         }
-        return best;
     }
 
-    private class OptRes
+    void fireMerged(TableContext<R,C> table, TableContext<R,C> other, int rows, long time)
     {
-        private ArrayDeque<TableContext> stack;
-        private float min;
+        for (ExecutionListener<R,C> listener : listeners)
+        {
+            listener.merged(table, other, rows, time);
+        }
+    }
 
-        public OptRes(ArrayDeque<TableContext> stack, float min)
+    void fireFiltered(TableContext<R,C> table, String step, String column, int before, int after)
+    {
+        for (ExecutionListener<R,C> listener : listeners)
         {
-            this.stack = stack;
-            this.min = min;
+            listener.filtered(table, step, column, before, after);
         }
-        
     }
+    /**
+     * Returns the maximum number of tables that are ordered using dynamic 
+     * programming. Tables above that are ordered using greedy heuristic.
+     * @return 
+     */
+    public int getPlanningLimit()
+    {
+        return planningLimit;
+    }
+    /**
+     * Sets the maximum number of tables that are ordered using dynamic 
+     * programming. Planning time and memory grow exponentially with this 
+     * number. Dynamic programming tables have 2^n rows, so the limit is at 
+     * most MAX_PLANNING_LIMIT.
+     * @param planningLimit 
+     */
+    public void setPlanningLimit(int planningLimit)
+    {
+        if (planningLimit < 1 || planningLimit > MAX_PLANNING_LIMIT)
+        {
+            throw new IllegalArgumentException("planning limit "+planningLimit+" not in 1 - "+MAX_PLANNING_LIMIT);
+        }
+        this.planningLimit = planningLimit;
+    }
+    /**
+     * Returns the number of threads used in enumerating joined rows.
+     * @return 
+     */
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+    /**
+     * Sets the number of threads used in enumerating joined rows. Default is 1
+     * meaning sequential enumeration. Parallel enumeration is used only in 
+     * non-update selects where the first enumerated table has at least
+     * parallelThreshold rows.
+     * 
+     * <p>In parallel enumeration SQLConverter.get, getComparator and the
+     * conditions are called from several threads at the same time. They have
+     * to be thread safe.
+     * @param parallelism 
+     * @see #setParallelThreshold(int) 
+     */
+    public synchronized void setParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("parallelism "+parallelism+" < 1");
+        }
+        if (parallelism != this.parallelism && pool != null)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+        this.parallelism = parallelism;
+    }
+    /**
+     * Returns the minimum number of first table rows for parallel enumeration.
+     * @return 
+     */
+    public int getParallelThreshold()
+    {
+        return parallelThreshold;
+    }
+    /**
+     * Sets the minimum number of first table rows for parallel enumeration.
+     * @param parallelThreshold 
+     */
+    public void setParallelThreshold(int parallelThreshold)
+    {
+        if (parallelThreshold < 1)
+        {
+            throw new IllegalArgumentException("parallel threshold "+parallelThreshold+" < 1");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
     /**
      * Creates progress monitor. Default implementation does nothing.
      * @param parent
@@ -514,4 +1238,36 @@ public abstract class Engine<R,C> implements SQLConverter<R, C>, Metadata
     public void destroyProgressMonitor()
     {
     }
+    private class StatementCache extends LinkedHashMap<String,Statement>
+    {
+        private static final long serialVersionUID = 1L;
+        private int maxSize;
+
+        public StatementCache(int maxSize)
+        {
+            super(16, 0.75F, true);
+            this.maxSize = maxSize;
+        }
+
+        public int getMaxSize()
+        {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize)
+        {
+            this.maxSize = maxSize;
+            while (size() > maxSize)
+            {
+                remove(keySet().iterator().next());
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Statement> eldest)
+        {
+            return size() > maxSize;
+        }
+        
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+/**
+ * ExecutionAdapter implements all ExecutionListener methods doing nothing.
+ * @author Timo Vesalainen
+ */
+public class ExecutionAdapter<R,C> implements ExecutionListener<R,C>
+{
+
+    @Override
+    public void parsed(String sql, long time)
+    {
+    }
+
+    @Override
+    public void fetched(TableContext<R, C> table, int rows, long time)
+    {
+    }
+
+    @Override
+    public void indexBuilt(TableContext<R, C> table, String column, int rows, int keys, boolean cached, long time)
+    {
+    }
+
+    @Override
+    public void merged(TableContext<R, C> table, TableContext<R, C> other, int rows, long time)
+    {
+    }
+
+    @Override
+    public void filtered(TableContext<R, C> table, String step, String column, int before, int after)
+    {
+    }
+
+    @Override
+    public void planned(TableContext<R, C>[] order, double cost, long time)
+    {
+    }
+
+    @Override
+    public void enumerated(SelectStatement<R, C> select, long rows, long time)
+    {
+    }
+
+    @Override
+    public void sorted(SelectStatement<R, C> select, int rows, long time)
+    {
+    }
+
+    @Override
+    public void executed(SelectStatement<R, C> select, int rows, long time)
+    {
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+/**
+ * ExecutionListener receives timings and row counts of statement execution 
+ * phases. Times are in nanoseconds. Listeners are called in the executing 
+ * thread and should return quickly.
+ * @author Timo Vesalainen
+ * @see Engine#addExecutionListener(org.vesalainen.parsers.sql.ExecutionListener) 
+ * @see ExecutionAdapter
+ */
+public interface ExecutionListener<R,C>
+{
+    /**
+     * Called after sql text is parsed.
+     * @param sql Sql text or null if parsed from stream
+     * @param time 
+     */
+    void parsed(String sql, long time);
+    /**
+     * Called after table is fetched.
+     * @param table
+     * @param rows Number of fetched rows
+     * @param time 
+     */
+    void fetched(TableContext<R,C> table, int rows, long time);
+    /**
+     * Called after column index is built or restored from index cache.
+     * @param table
+     * @param column
+     * @param rows Number of indexed rows
+     * @param keys Number of distinct keys
+     * @param cached True if index was restored from index cache
+     * @param time 
+     */
+    void indexBuilt(TableContext<R,C> table, String column, int rows, int keys, boolean cached, long time);
+    /**
+     * Called after equi or band join of two tables is merged.
+     * @param table
+     * @param other
+     * @param rows Number of table rows after merge
+     * @param time 
+     */
+    void merged(TableContext<R,C> table, TableContext<R,C> other, int rows, long time);
+    /**
+     * Called after table rows are narrowed by single table conditions before
+     * enumeration.
+     * @param table
+     * @param step Narrowing step, e.g. range, in, like, condition or mask
+     * @param column Narrowed column or null if step is not column specific
+     * @param before Number of rows before narrowing
+     * @param after Number of rows after narrowing
+     */
+    void filtered(TableContext<R,C> table, String step, String column, int before, int after);
+    /**
+     * Called after tables are ordered for enumeration.
+     * @param order Tables in enumeration order
+     * @param cost Estimated cost
+     * @param time 
+     */
+    void planned(TableContext<R,C>[] order, double cost, long time);
+    /**
+     * Called after row candidates are enumerated.
+     * @param select
+     * @param rows Number of row candidates passing where condition
+     * @param time 
+     */
+    void enumerated(SelectStatement<R,C> select, long rows, long time);
+    /**
+     * Called after result is sorted, grouped or made distinct.
+     * @param select
+     * @param rows Number of result rows
+     * @param time 
+     */
+    void sorted(SelectStatement<R,C> select, int rows, long time);
+    /**
+     * Called after select is executed.
+     * @param select
+     * @param rows Number of result rows
+     * @param time Total time including subqueries, fetch and sort
+     */
+    void executed(SelectStatement<R,C> select, int rows, long time);
+}
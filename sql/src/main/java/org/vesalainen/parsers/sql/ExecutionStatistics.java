@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * ExecutionStatistics is an ExecutionListener which aggregates latency 
+ * histograms and counters per execution phase and per statement shape.
+ * 
+ * <p>Statement shape is the sql text with string and number literals replaced
+ * with '?' and white space collapsed. Statements without sql text, like 
+ * subqueries, are counted only in phases. Number of shapes is limited by
+ * maxStatements. Shapes above that are counted in 'other' shape.
+ * 
+ * <p>After register, phases and shapes are available as LatencyStatisticsMXBean
+ * in platform MBeanServer with object names 
+ * org.vesalainen.parsers.sql:type=ExecutionStatistics,name=&lt;name&gt;,phase=&lt;phase&gt;
+ * and ...,statement=&lt;number&gt;.
+ * @author Timo Vesalainen
+ */
+public class ExecutionStatistics<R,C> implements ExecutionListener<R,C>
+{
+    public static final String DOMAIN = "org.vesalainen.parsers.sql";
+    public static final int DEFAULT_MAX_STATEMENTS = 256;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'([^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b[0-9]+(\\.[0-9]+)?\\b");
+    private static final Pattern WHITE_SPACE = Pattern.compile("\\s+");
+    
+    private final String name;
+    private final int maxStatements;
+    private final Map<String,LatencyStatistics> phases = new LinkedHashMap<>();
+    private final LatencyStatistics parse = addPhase("parse");
+    private final LatencyStatistics fetch = addPhase("fetch");
+    private final LatencyStatistics index = addPhase("index");
+    private final LatencyStatistics merge = addPhase("merge");
+    private final LatencyStatistics plan = addPhase("plan");
+    private final LatencyStatistics enumerate = addPhase("enumerate");
+    private final LatencyStatistics sort = addPhase("sort");
+    private final LatencyStatistics execute = addPhase("execute");
+    private final ConcurrentMap<String,LatencyStatistics> statements = new ConcurrentHashMap<>();
+    private final LatencyStatistics other = new LatencyStatistics("other");
+    private final AtomicInteger statementNumber = new AtomicInteger();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private volatile MBeanServer server;
+
+    public ExecutionStatistics(String name)
+    {
+        this(name, DEFAULT_MAX_STATEMENTS);
+    }
+
+    public ExecutionStatistics(String name, int maxStatements)
+    {
+        this.name = name;
+        this.maxStatements = maxStatements;
+    }
+
+    private LatencyStatistics addPhase(String phase)
+    {
+        LatencyStatistics ls = new LatencyStatistics(phase);
+        phases.put(phase, ls);
+        return ls;
+    }
+    /**
+     * Registers phase and statement statistics in platform MBeanServer. 
+     * Statements seen later are registered when they are first executed.
+     */
+    public synchronized void register()
+    {
+        if (server != null)
+        {
+            return;
+        }
+        server = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<String,LatencyStatistics> entry : phases.entrySet())
+        {
+            register(entry.getValue(), "phase", entry.getKey());
+        }
+        register(other, "statement", "other");
+        for (LatencyStatistics ls : statements.values())
+        {
+            register(ls, "statement", String.valueOf(statementNumber.incrementAndGet()));
+        }
+    }
+    /**
+     * Unregisters all MBeans registered by this instance.
+     */
+    public synchronized void unregister()
+    {
+        if (server == null)
+        {
+            return;
+        }
+        try
+        {
+            for (ObjectName on : registered)
+            {
+                server.unregisterMBean(on);
+            }
+        }
+        catch (JMException ex)
+        {
+            throw new IllegalArgumentException(ex);
+        }
+        registered.clear();
+        server = null;
+    }
+
+    private synchronized void register(LatencyStatistics ls, String key, String value)
+    {
+        if (server == null)
+        {
+            return;
+        }
+        try
+        {
+            ObjectName on = new ObjectName(DOMAIN+":type=ExecutionStatistics,name="+ObjectName.quote(name)+","+key+"="+value);
+            server.registerMBean(ls, on);
+            registered.add(on);
+        }
+        catch (JMException ex)
+        {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+    /**
+     * Returns statement shape of sql text.
+     * @param sql
+     * @return 
+     */
+    public static String shape(String sql)
+    {
+        String s = STRING_LITERAL.matcher(sql).replaceAll("?");
+        s = NUMBER_LITERAL.matcher(s).replaceAll("?");
+        return WHITE_SPACE.matcher(s).replaceAll(" ").trim();
+    }
+    /**
+     * Returns phase statistics by phase name.
+     * @return 
+     */
+    public Map<String,LatencyStatistics> getPhases()
+    {
+        return Collections.unmodifiableMap(phases);
+    }
+    /**
+     * Returns statement statistics by statement shape.
+     * @return 
+     */
+    public Map<String,LatencyStatistics> getStatements()
+    {
+        return Collections.unmodifiableMap(statements);
+    }
+    /**
+     * Resets all counters.
+     */
+    public void reset()
+    {
+        for (LatencyStatistics ls : phases.values())
+        {
+            ls.reset();
+        }
+        for (LatencyStatistics ls : statements.values())
+        {
+            ls.reset();
+        }
+        other.reset();
+    }
+
+    private LatencyStatistics getStatement(String sql)
+    {
+        String shape = shape(sql);
+        LatencyStatistics ls = statements.get(shape);
+        if (ls == null)
+        {
+            if (statements.size() >= maxStatements)
+            {
+                return other;
+            }
+            LatencyStatistics nls = new LatencyStatistics(shape);
+            ls = statements.putIfAbsent(shape, nls);
+            if (ls == null)
+            {
+                ls = nls;
+                register(ls, "statement", String.valueOf(statementNumber.incrementAndGet()));
+            }
+        }
+        return ls;
+    }
+
+    @Override
+    public void parsed(String sql, long time)
+    {
+        parse.record(0, time);
+    }
+
+    @Override
+    public void fetched(TableContext<R, C> table, int rows, long time)
+    {
+        fetch.record(rows, time);
+    }
+
+    @Override
+    public void indexBuilt(TableContext<R, C> table, String column, int rows, int keys, boolean cached, long time)
+    {
+        index.record(rows, time);
+    }
+
+    @Override
+    public void merged(TableContext<R, C> table, TableContext<R, C> other, int rows, long time)
+    {
+        merge.record(rows, time);
+    }
+
+    @Override
+    public void filtered(TableContext<R, C> table, String step, String column, int before, int after)
+    {
+    }
+
+    @Override
+    public void planned(TableContext<R, C>[] order, double cost, long time)
+    {
+        plan.record(order.length, time);
+    }
+
+    @Override
+    public void enumerated(SelectStatement<R, C> select, long rows, long time)
+    {
+        enumerate.record(rows, time);
+    }
+
+    @Override
+    public void sorted(SelectStatement<R, C> select, int rows, long time)
+    {
+        sort.record(rows, time);
+    }
+
+    @Override
+    public void executed(SelectStatement<R, C> select, int rows, long time)
+    {
+        execute.record(rows, time);
+        String sql = select.getSql();
+        if (sql != null)
+        {
+            getStatement(sql).record(rows, time);
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.LinkedHashMap;
+
+/**
+ * ExplainStatement returns the execution plan of select. With analyze the 
+ * select is also executed and phase times and row counts are reported.
+ * @author Timo Vesalainen
+ * @see Engine#explain(org.vesalainen.parsers.sql.SelectStatement, boolean) 
+ */
+public class ExplainStatement<R,C> extends  Statement<R,C>
+{
+    private SelectStatement<R,C> select;
+    private boolean analyze;
+
+    public ExplainStatement(Engine<R, C> engine, LinkedHashMap<String, Placeholder<R,C>> placeholderMap, SelectStatement<R,C> select, boolean analyze)
+    {
+        super(engine, placeholderMap);
+        this.select = select;
+        this.analyze = analyze;
+    }
+
+    @Override
+    public FetchResult<R, C> execute()
+    {
+        return engine.explain(select, analyze);
+    }
+    @Override
+    public void check(Metadata metadata, ErrorReporter reporter)
+    {
+        select.check(metadata, reporter);
+    }
+
+    public SelectStatement<R, C> getSelect()
+    {
+        return select;
+    }
+
+    public boolean isAnalyze()
+    {
+        return analyze;
+    }
+
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        select = copier.copy(select);
+    }
+
+}
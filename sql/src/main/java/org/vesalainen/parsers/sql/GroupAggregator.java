@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import org.vesalainen.parsers.sql.util.ArrayMap;
+
+/**
+ * GroupAggregator is a hash aggregation operator. Row candidates are grouped 
+ * by group by column values. Only one accumulator per aggregate function and 
+ * group is kept. Other columns get their value from the first row of the 
+ * group.
+ * 
+ * <p>In parallel execution each partition has its own partial aggregator
+ * which are merged.
+ * @author Timo Vesalainen
+ * @see AggregateFunction
+ */
+public class GroupAggregator<R,C>
+{
+    private Engine<R,C> engine;
+    private List<ColumnReference<R,C>> columns;
+    private List<ColumnReference<R,C>> groupBy;
+    private Condition<R,C> having;
+    private AggregateFunction<R,C>[] functions;
+    private Map<List<C>,Group> groups;
+    private C[] current;
+    /**
+     * Creates aggregator.
+     * @param engine
+     * @param columns Layout of group rows.
+     * @param groupBy Group by columns or null
+     * @param having Having condition or null. Having condition can refer
+     * only to columns in layout.
+     */
+    public GroupAggregator(Engine<R,C> engine, List<ColumnReference<R,C>> columns, List<ColumnReference<R,C>> groupBy, Condition<R,C> having)
+    {
+        this.engine = engine;
+        this.columns = columns;
+        this.groupBy = groupBy != null ? groupBy : Collections.EMPTY_LIST;
+        functions = new AggregateFunction[columns.size()];
+        for (int ii=0;ii<functions.length;ii++)
+        {
+            ColumnReference<R,C> cf = columns.get(ii);
+            if (cf instanceof AggregateFunction)
+            {
+                functions[ii] = (AggregateFunction<R,C>) cf;
+            }
+        }
+        if (having != null)
+        {
+            this.having = new HavingCompiler().compile(having, null);
+        }
+        groups = createMap();
+    }
+
+    private GroupAggregator(GroupAggregator<R,C> other)
+    {
+        this.engine = other.engine;
+        this.columns = other.columns;
+        this.groupBy = other.groupBy;
+        this.functions = other.functions;
+        groups = createMap();
+    }
+    
+    private Map<List<C>,Group> createMap()
+    {
+        if (engine.supportsHashJoin())
+        {
+            return new LinkedHashMap<>();
+        }
+        else
+        {
+            return new TreeMap<>(new KeyComparator<>(engine.getComparator()));
+        }
+    }
+    /**
+     * Creates empty aggregator having the same layout. Partial aggregator 
+     * doesn't evaluate having condition.
+     * @return 
+     */
+    public GroupAggregator<R,C> createPartial()
+    {
+        return new GroupAggregator<>(this);
+    }
+    /**
+     * Adds row candidate to its group.
+     * @param rowCandidate 
+     */
+    public void add(ArrayMap<Table<R, C>, R> rowCandidate)
+    {
+        List<C> key = key(rowCandidate);
+        Group group = groups.get(key);
+        if (group == null)
+        {
+            group = new Group(rowCandidate);
+            groups.put(key, group);
+        }
+        group.add(rowCandidate);
+    }
+    /**
+     * Merges groups of other aggregator.
+     * @param other 
+     */
+    public void merge(GroupAggregator<R,C> other)
+    {
+        for (Entry<List<C>,Group> entry : other.groups.entrySet())
+        {
+            Group group = groups.get(entry.getKey());
+            if (group == null)
+            {
+                groups.put(entry.getKey(), entry.getValue());
+            }
+            else
+            {
+                group.merge(entry.getValue());
+            }
+        }
+    }
+    /**
+     * Returns group rows that match having condition. Without group by 
+     * columns there is always one group.
+     * @return 
+     */
+    public List<C[]> getRows()
+    {
+        List<C[]> list = new ArrayList<>();
+        if (groups.isEmpty() && groupBy.isEmpty())
+        {
+            groups.put(Collections.EMPTY_LIST, new Group(null));
+        }
+        for (Group group : groups.values())
+        {
+            C[] row = group.getRow();
+            if (having != null)
+            {
+                current = row;
+                if (having.matches(engine, null) != TruthValue.TRUE)
+                {
+                    continue;
+                }
+            }
+            list.add(row);
+        }
+        current = null;
+        return list;
+    }
+    /**
+     * Returns the number of groups.
+     * @return 
+     */
+    public int getGroupCount()
+    {
+        return groups.size();
+    }
+
+    private List<C> key(ArrayMap<Table<R, C>, R> rowCandidate)
+    {
+        switch (groupBy.size())
+        {
+            case 0:
+                return Collections.EMPTY_LIST;
+            case 1:
+                return Collections.singletonList(groupBy.get(0).getValue(engine, rowCandidate));
+            default:
+                C[] key = (C[]) new Object[groupBy.size()];
+                for (int ii=0;ii<key.length;ii++)
+                {
+                    key[ii] = groupBy.get(ii).getValue(engine, rowCandidate);
+                }
+                return Arrays.asList(key);
+        }
+    }
+    
+    private class Group
+    {
+        private C[] row;
+        private AggregateFunction.Accumulator<C>[] accumulators;
+        /**
+         * Creates group. Non-aggregated columns are read from the first row.
+         * @param rowCandidate First row or null for empty group.
+         */
+        public Group(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            row = (C[]) new Object[functions.length];
+            accumulators = new AggregateFunction.Accumulator[functions.length];
+            for (int ii=0;ii<functions.length;ii++)
+            {
+                if (functions[ii] != null)
+                {
+                    accumulators[ii] = functions[ii].createAccumulator(engine);
+                }
+                else
+                {
+                    if (rowCandidate != null)
+                    {
+                        row[ii] = columns.get(ii).getValue(engine, rowCandidate);
+                    }
+                }
+            }
+        }
+        
+        public void add(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            for (int ii=0;ii<functions.length;ii++)
+            {
+                if (functions[ii] != null)
+                {
+                    accumulators[ii].add(functions[ii].getValue(engine, rowCandidate));
+                }
+            }
+        }
+        
+        public void merge(Group other)
+        {
+            for (int ii=0;ii<functions.length;ii++)
+            {
+                if (functions[ii] != null)
+                {
+                    accumulators[ii].merge(other.accumulators[ii]);
+                }
+            }
+        }
+        
+        public C[] getRow()
+        {
+            C[] result = Arrays.copyOf(row, row.length);
+            for (int ii=0;ii<functions.length;ii++)
+            {
+                if (functions[ii] != null)
+                {
+                    result[ii] = accumulators[ii].getResult();
+                }
+            }
+            return result;
+        }
+    }
+    /**
+     * Compiles having condition to read values from current group row.
+     */
+    private class HavingCompiler extends ConditionCompiler<R,C>
+    {
+        public HavingCompiler()
+        {
+            super(engine);
+        }
+
+        @Override
+        protected Node<R, C> node(Condition<R, C> condition, ArrayMap<Table<R, C>, R> layout)
+        {
+            if (
+                    (condition instanceof AndCondition) ||
+                    (condition instanceof OrCondition) ||
+                    (condition instanceof NotCondition) ||
+                    (condition instanceof BooleanTestCondition) ||
+                    (condition instanceof BaseComparison) ||
+                    (condition instanceof LikeCondition) ||
+                    (condition instanceof InCondition) ||
+                    (condition instanceof NullCondition)
+                    )
+            {
+                return super.node(condition, layout);
+            }
+            throw new IllegalArgumentException(condition+" not supported in having clause");
+        }
+
+        @Override
+        protected Value<R, C> value(ColumnReference<R, C> cf, ArrayMap<Table<R, C>, R> layout)
+        {
+            final int index = columns.indexOf(cf);
+            if (index == -1)
+            {
+                throw new IllegalArgumentException(cf+" in having clause is not in select list or group by");
+            }
+            return new Value<R,C>() 
+            {
+                @Override
+                public C get(ArrayMap<Table<R, C>, R> rowCandidate)
+                {
+                    return current[index];
+                }
+            };
+        }
+    }
+    
+    static class KeyComparator<C> implements Comparator<List<C>>
+    {
+        private Comparator<C> comparator;
+
+        public KeyComparator(Comparator<C> comparator)
+        {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare(List<C> o1, List<C> o2)
+        {
+            for (int ii=0;ii<o1.size();ii++)
+            {
+                C c1 = o1.get(ii);
+                C c2 = o2.get(ii);
+                if (c1 != c2)
+                {
+                    if (c1 == null)
+                    {
+                        return -1;
+                    }
+                    if (c2 == null)
+                    {
+                        return 1;
+                    }
+                    int cmp = comparator.compare(c1, c2);
+                    if (cmp != 0)
+                    {
+                        return cmp;
+                    }
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import org.vesalainen.parsers.sql.util.ArrayMap;
+
+/**
+ * InCondition implements column IN (value, ...) predicate. Values are 
+ * collected in a set so that row evaluation doesn't depend on the number of 
+ * values. Set is rebuilt when a placeholder in value list is bound to a new
+ * value. 
+ * 
+ * <p>With uncorrelated subquery, the subquery is executed once to get the 
+ * value set.
+ * 
+ * <p>In and path the value set is used to select rows from column index and
+ * to narrow column range for fetch.
+ * @author Timo Vesalainen
+ */
+public class InCondition<R,C> extends ParserLocator2Impl implements ColumnCondition<R,C>, SubQueryCondition<R,C>
+{
+    private ColumnReference<R,C> columnReference;
+    private SelectStatement<R,C> select;
+    private Literal<R,C>[] literals;
+    private int[] placeholders;
+    private C[] bound;
+    private volatile Set<C> values;
+    private volatile boolean hasNull;
+
+    public InCondition(ColumnReference<R,C> columnReference, Collection<Literal<R,C>> literals)
+    {
+        this.columnReference = columnReference;
+        this.literals = literals.toArray(new Literal[literals.size()]);
+        int count = 0;
+        for (Literal<R,C> literal : literals)
+        {
+            if (literal instanceof Placeholder)
+            {
+                count++;
+            }
+        }
+        placeholders = new int[count];
+        count = 0;
+        for (int ii=0;ii<this.literals.length;ii++)
+        {
+            if (this.literals[ii] instanceof Placeholder)
+            {
+                placeholders[count++] = ii;
+            }
+        }
+        bound = (C[]) new Object[count];
+    }
+    /**
+     * Creates condition for uncorrelated subquery returning one column.
+     * @param columnReference
+     * @param select 
+     */
+    public InCondition(ColumnReference<R,C> columnReference, SelectStatement<R,C> select)
+    {
+        this.columnReference = columnReference;
+        this.select = select;
+        this.literals = new Literal[0];
+        this.placeholders = new int[0];
+        this.bound = (C[]) new Object[0];
+    }
+
+    @Override
+    public void execute(Engine<R, C> engine)
+    {
+        if (select != null)
+        {
+            Set<C> set = createSet(engine);
+            boolean nul = false;
+            try (Cursor<R,C> cursor = engine.openCursor(select))
+            {
+                while (cursor.hasNext())
+                {
+                    C value = cursor.next()[0];
+                    if (value != null)
+                    {
+                        set.add(value);
+                    }
+                    else
+                    {
+                        nul = true;
+                    }
+                }
+            }
+            hasNull = nul;
+            values = set;
+        }
+    }
+
+    @Override
+    public void associateCondition(SelectStatement select, boolean andPath)
+    {
+        columnReference.associateCondition(this, andPath);
+    }
+    /**
+     * Returns set of non null values. Set is consistent with converters 
+     * comparator.
+     * @param converter
+     * @return 
+     */
+    public Set<C> getValues(SQLConverter<R,C> converter)
+    {
+        Set<C> set = values;
+        if (select != null)
+        {
+            if (set == null)
+            {
+                throw new IllegalStateException("subquery not executed");
+            }
+            return set;
+        }
+        if (set == null || isRebound())
+        {
+            set = createValues(converter);
+        }
+        return set;
+    }
+    /**
+     * Returns true if value list contains null. In that case not matching 
+     * value is UNKNOWN instead of FALSE.
+     * @param converter
+     * @return 
+     */
+    public boolean hasNull(SQLConverter<R,C> converter)
+    {
+        getValues(converter);
+        return hasNull;
+    }
+    
+    private boolean isRebound()
+    {
+        for (int ii=0;ii<placeholders.length;ii++)
+        {
+            if (literals[placeholders[ii]].getValue() != bound[ii])
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized Set<C> createValues(SQLConverter<R,C> converter)
+    {
+        if (values != null && !isRebound())
+        {
+            return values;
+        }
+        Set<C> set = createSet(converter);
+        boolean nul = false;
+        for (Literal<R,C> literal : literals)
+        {
+            C value = literal.getValue();
+            if (value != null)
+            {
+                set.add(value);
+            }
+            else
+            {
+                nul = true;
+            }
+        }
+        for (int ii=0;ii<placeholders.length;ii++)
+        {
+            bound[ii] = literals[placeholders[ii]].getValue();
+        }
+        hasNull = nul;
+        values = set;
+        return set;
+    }
+
+    private Set<C> createSet(SQLConverter<R,C> converter)
+    {
+        if ((converter instanceof Engine) && ((Engine)converter).supportsHashJoin())
+        {
+            return new HashSet<>();
+        }
+        else
+        {
+            return new TreeSet<>(converter.getComparator());
+        }
+    }
+
+    @Override
+    public TruthValue matches(SQLConverter<R, C> selector, R row)
+    {
+        return match(selector, columnReference.getValue(selector, row));
+    }
+
+    @Override
+    public TruthValue matches(SQLConverter<R, C> selector, ArrayMap<Table<R,C>, R> rowCandidate)
+    {
+        return match(selector, columnReference.getValue(selector, rowCandidate));
+    }
+
+    private TruthValue match(SQLConverter<R, C> selector, C col)
+    {
+        if (col == null)
+        {
+            return TruthValue.UNKNOWN;
+        }
+        if (getValues(selector).contains(col))
+        {
+            return TruthValue.TRUE;
+        }
+        if (hasNull)
+        {
+            return TruthValue.UNKNOWN;
+        }
+        return TruthValue.FALSE;
+    }
+    /**
+     * Narrows range to smallest and greatest value.
+     * @param selector
+     * @param range 
+     */
+    @Override
+    public void narrow(SQLConverter<R, C> selector, Range<C> range)
+    {
+        C min = null;
+        C max = null;
+        for (C value : getValues(selector))
+        {
+            if (min == null || selector.getComparator().compare(value, min) < 0)
+            {
+                min = value;
+            }
+            if (max == null || selector.getComparator().compare(value, max) > 0)
+            {
+                max = value;
+            }
+        }
+        if (min != null)
+        {
+            range.narrow(min, max);
+        }
+    }
+
+    @Override
+    public void walk(ConditionVisitor visitor, boolean andPath)
+    {
+        visitor.visit(this, andPath);
+    }
+
+    @Override
+    public String getColumn()
+    {
+        return columnReference.getColumn();
+    }
+
+    @Override
+    public ColumnReference<R, C> getColumnReference()
+    {
+        return columnReference;
+    }
+
+    @Override
+    public String toString()
+    {
+        if (select != null)
+        {
+            return columnReference+" in (subquery)";
+        }
+        return columnReference+" in ("+literals.length+" values)";
+    }
+
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        columnReference = copier.copy(columnReference);
+        select = copier.copy(select);
+        literals = copier.copyArray(literals);
+        bound = bound.clone();
+    }
+
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * IndexCache keeps column indexes between statements. Index is stored as value
+ * to row position map, where positions are indexes of fetched rows. Indexes 
+ * are cached by table and column. Cached index is used only if table version 
+ * and fetched row count are the same. Index of older version is replaced when
+ * a newer one is stored.
+ * 
+ * <p>Least recently used indexes are evicted when estimated memory use exceeds
+ * the budget.
+ * @author Timo Vesalainen
+ * @see TableMetadata#getVersion() 
+ */
+public class IndexCache<C>
+{
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int MAP_ENTRY_OVERHEAD = 48;
+    private static final int KEY_ESTIMATE = 24;
+    private LinkedHashMap<Key,CachedIndex<C>> map = new LinkedHashMap<>(16, 0.75F, true);
+    private long budget;
+    private long memory;
+    private long hits;
+    private long misses;
+
+    public IndexCache(long budget)
+    {
+        this.budget = budget;
+    }
+    /**
+     * Returns cached index or null. Index of other version is removed.
+     * @param table Table name
+     * @param column Column name
+     * @param version Table version
+     * @param rowCount Number of fetched rows
+     * @return 
+     */
+    public synchronized CachedIndex<C> get(String table, String column, long version, int rowCount)
+    {
+        Key key = new Key(table, column);
+        CachedIndex<C> ci = map.get(key);
+        if (ci != null)
+        {
+            if (ci.version == version && ci.rowCount == rowCount)
+            {
+                hits++;
+                return ci;
+            }
+            if (ci.version != version)
+            {
+                map.remove(key);
+                memory -= ci.memory;
+            }
+        }
+        misses++;
+        return null;
+    }
+    /**
+     * Stores index replacing earlier index of the same column.
+     * @param table Table name
+     * @param column Column name
+     * @param index 
+     */
+    public synchronized void put(String table, String column, CachedIndex<C> index)
+    {
+        if (index.memory > budget)
+        {
+            return;
+        }
+        CachedIndex<C> old = map.put(new Key(table, column), index);
+        if (old != null)
+        {
+            memory -= old.memory;
+        }
+        memory += index.memory;
+        evict();
+    }
+    /**
+     * Removes all indexes of table.
+     * @param table 
+     */
+    public synchronized void invalidate(String table)
+    {
+        Iterator<Map.Entry<Key, CachedIndex<C>>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry<Key, CachedIndex<C>> entry = iterator.next();
+            if (entry.getKey().table.equalsIgnoreCase(table))
+            {
+                memory -= entry.getValue().memory;
+                iterator.remove();
+            }
+        }
+    }
+    /**
+     * Removes all indexes.
+     */
+    public synchronized void clear()
+    {
+        map.clear();
+        memory = 0;
+    }
+
+    public synchronized void setBudget(long budget)
+    {
+        this.budget = budget;
+        evict();
+    }
+
+    public synchronized long getBudget()
+    {
+        return budget;
+    }
+    /**
+     * Returns estimated memory retained by cached indexes.
+     * @return 
+     */
+    public synchronized long getMemory()
+    {
+        return memory;
+    }
+
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    private void evict()
+    {
+        Iterator<CachedIndex<C>> iterator = map.values().iterator();
+        while (memory > budget && iterator.hasNext())
+        {
+            memory -= iterator.next().memory;
+            iterator.remove();
+        }
+    }
+    /**
+     * Returns size of int array in bytes.
+     * @param length
+     * @return 
+     */
+    private static long arraySize(int length)
+    {
+        return (16L + 4L*length + 7L) & ~7L;
+    }
+    /**
+     * Cached column index. Index doesn't reference rows. Retained memory is 
+     * estimated from position arrays and map entries. Key values are 
+     * estimated to be small objects.
+     * @param <C> 
+     */
+    public static class CachedIndex<C>
+    {
+        private long version;
+        private int rowCount;
+        private Map<C,int[]> positions;
+        private int[] nulls;
+        private long memory;
+        /**
+         * Creates cached index.
+         * @param version Table version
+         * @param rowCount Number of fetched rows
+         * @param positions Value to row positions map
+         * @param nulls Positions of rows having null value
+         */
+        public CachedIndex(long version, int rowCount, Map<C, int[]> positions, int[] nulls)
+        {
+            this.version = version;
+            this.rowCount = rowCount;
+            this.positions = positions;
+            this.nulls = nulls;
+            memory = ENTRY_OVERHEAD + arraySize(nulls.length);
+            for (int[] arr : positions.values())
+            {
+                memory += MAP_ENTRY_OVERHEAD + KEY_ESTIMATE + arraySize(arr.length);
+            }
+        }
+        /**
+         * Returns value to row position map.
+         * @return 
+         */
+        public Map<C, int[]> getPositions()
+        {
+            return positions;
+        }
+        /**
+         * Returns positions of rows having null value.
+         * @return 
+         */
+        public int[] getNulls()
+        {
+            return nulls;
+        }
+
+        public long getVersion()
+        {
+            return version;
+        }
+
+        public int getRowCount()
+        {
+            return rowCount;
+        }
+
+    }
+    private static class Key
+    {
+        private String table;
+        private String column;
+
+        public Key(String table, String column)
+        {
+            this.table = table;
+            this.column = column;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = 7;
+            hash = 29 * hash + Objects.hashCode(this.table.toLowerCase());
+            hash = 29 * hash + Objects.hashCode(this.column);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (obj == null)
+            {
+                return false;
+            }
+            if (getClass() != obj.getClass())
+            {
+                return false;
+            }
+            final Key other = (Key) obj;
+            if (!this.table.equalsIgnoreCase(other.table))
+            {
+                return false;
+            }
+            return Objects.equals(this.column, other.column);
+        }
+
+    }
+}
@@ -22,7 +22,7 @@ import java.util.List;
 /**
  * @author Timo Vesalainen
  */
-public class InsertColumnsAndSource<R,C> 
+public class InsertColumnsAndSource<R,C> implements Cloneable
 {
     private List<String> columnList;
     private List<Literal<R,C>> valueList;
@@ -54,5 +54,28 @@ public class InsertColumnsAndSource<R,C>
     {
         return select;
     }
-    
+
+    /**
+     * Returns a shallow copy.
+     * @return 
+     * @see StatementCopier
+     */
+    InsertColumnsAndSource<R,C> shallowCopy()
+    {
+        try
+        {
+            return (InsertColumnsAndSource<R,C>) clone();
+        }
+        catch (CloneNotSupportedException ex)
+        {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
+    void copyFields(StatementCopier copier)
+    {
+        valueList = copier.copyList(valueList);
+        select = copier.copy(select);
+    }
+
 }
@@ -79,4 +79,12 @@ public class InsertStatement<R,C> extends Statement<R,C>
     {
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        table = copier.copy(table);
+        insertColumnsAndSource = copier.copy(insertColumnsAndSource);
+    }
+
 }
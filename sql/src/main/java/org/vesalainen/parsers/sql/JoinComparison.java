@@ -36,7 +36,7 @@ public class JoinComparison<R,C> extends BaseComparison<R, C> implements JoinCon
 
     private JoinComparison(JoinComparison<R,C> pair)
     {
-        super(pair.columnReference2, pair.relation);
+        super(pair.columnReference2, pair.relation.swap());
         this.columnReference2 = pair.columnReference;
         this.pair = pair;
     }
@@ -85,23 +85,48 @@ public class JoinComparison<R,C> extends BaseComparison<R, C> implements JoinCon
         columnReference2.associateCondition(pair, andPath);
     }
 
+    /**
+     * Narrows the range of this column when joined column in fromTable has
+     * values between lower and upper.
+     * @param selector
+     * @param range Range of this column or null
+     * @param fromTable
+     * @param column
+     * @param lower
+     * @param upper
+     * @return 
+     */
     @Override
     public Range<C> narrow(SQLConverter<R, C> selector, Range<C> range, Table fromTable, String column, C lower, C upper)
     {
-        range = narrow(columnReference, selector, range, fromTable, column, lower, upper);
-        range = narrow(columnReference2, selector, range, fromTable, column, lower, upper);
+        if (fromTable.equals(columnReference2.getTable()) && column.equals(columnReference2.getColumn()))
+        {
+            switch (relation)
+            {
+                case EQ:
+                    range = range(selector, range);
+                    range.narrow(lower, upper);
+                    break;
+                case LT:
+                case LE:
+                    range = range(selector, range);
+                    range.upper(upper);
+                    break;
+                case GT:
+                case GE:
+                    range = range(selector, range);
+                    range.lower(lower);
+                    break;
+            }
+        }
         return range;
     }
 
-    private Range<C> narrow(ColumnReference cf, SQLConverter<R, C> selector, Range<C> range, Table fromTable, String column, C lower, C upper)
+    private Range<C> range(SQLConverter<R, C> selector, Range<C> range)
     {
-        if (fromTable.equals(cf.getTable()) && column.equals(cf.getColumn()))
+        if (range == null)
         {
-            if (range == null)
-            {
-                range = new Range(selector.getComparator());
-            }
-            range.narrow(lower, upper);
+            range = new Range(selector.getComparator());
         }
         return range;
     }
@@ -135,4 +160,12 @@ public class JoinComparison<R,C> extends BaseComparison<R, C> implements JoinCon
         return columnReference;
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        pair = copier.copy(pair);
+        columnReference2 = copier.copy(columnReference2);
+    }
+
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for equi join merge of two tables.
+ * @author Timo Vesalainen
+ */
+@Name("org.vesalainen.parsers.sql.Join")
+@Label("SQL Join")
+@Description("Equi join of two fetched tables")
+@Category({"Parsers", "SQL"})
+@StackTrace(false)
+public class JoinEvent extends jdk.jfr.Event
+{
+    private static final EventType TYPE = EventType.getEventType(JoinEvent.class);
+    @Label("Table")
+    String table;
+    @Label("Other Table")
+    String otherTable;
+    @Label("Hash Join")
+    @Description("True for hash join, false for sorted merge")
+    boolean hashJoin;
+    @Label("Rows")
+    @Description("Number of table rows after join")
+    int rows;
+    @Label("Other Rows")
+    @Description("Number of other table rows after join")
+    int otherRows;
+    /**
+     * Returns begun event or null if the event is not enabled in any running
+     * recording. Disabled events are not allocated.
+     * @return 
+     */
+    static JoinEvent start()
+    {
+        if (TYPE.isEnabled())
+        {
+            JoinEvent event = new JoinEvent();
+            event.begin();
+            return event;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.Arrays;
+import org.vesalainen.parsers.sql.util.CartesianMap;
+import org.vesalainen.parsers.sql.util.JoinMap;
+
+/**
+ * JoinPlanner orders fetched tables for enumeration.
+ *
+ * <p>Cost of an order is the sum of estimated intermediate row counts. Row
+ * count of first table is exact. Following tables multiply it with the ratio of
+ * joining JoinMap. If tables are joined only with CartesianMap, ratio is
+ * estimated using ColumnMetadata selectivity or count.
+ *
+ * <p>Up to planningLimit tables the best order is searched with dynamic
+ * programming over table subsets (Selinger). Above that a greedy heuristic is
+ * used.
+ * @author Timo Vesalainen
+ */
+public class JoinPlanner<R,C>
+{
+    protected static final double DEFAULT_EQ_SELECTIVITY = 0.1;
+    protected static final double DEFAULT_RANGE_SELECTIVITY = 1.0/3.0;
+
+    protected Engine<R,C> engine;
+    protected int planningLimit;
+    private double[][] ratio;
+    private double[] rows;
+    private long planningTime;
+    private boolean greedy;
+    private double cost;
+
+    public JoinPlanner(Engine<R, C> engine, int planningLimit)
+    {
+        this.engine = engine;
+        this.planningLimit = planningLimit;
+    }
+    /**
+     * Sorts tables in enumeration order.
+     * @param tables
+     */
+    public void plan(TableContext<R,C>[] tables)
+    {
+        long start = System.nanoTime();
+        int count = tables.length;
+        rows = new double[count];
+        ratio = new double[count][count];
+        for (int ii=0;ii<count;ii++)
+        {
+            rows[ii] = tables[ii].getAll().size();
+            for (int jj=0;jj<count;jj++)
+            {
+                if (ii != jj)
+                {
+                    ratio[ii][jj] = estimateRatio(tables[ii], tables[jj]);
+                }
+            }
+        }
+        int[] order;
+        greedy = count > Math.min(planningLimit, Engine.MAX_PLANNING_LIMIT);
+        if (greedy)
+        {
+            order = greedy(count);
+        }
+        else
+        {
+            order = dynamic(count);
+        }
+        TableContext<R,C>[] copy = Arrays.copyOf(tables, count);
+        for (int ii=0;ii<count;ii++)
+        {
+            tables[ii] = copy[order[ii]];
+        }
+        planningTime = System.nanoTime() - start;
+    }
+    /**
+     * Returns planning time of last plan in nanoseconds.
+     * @return
+     */
+    public long getPlanningTime()
+    {
+        return planningTime;
+    }
+    /**
+     * Returns true if last plan was made using greedy heuristic.
+     * @return
+     */
+    public boolean isGreedy()
+    {
+        return greedy;
+    }
+    /**
+     * Returns estimated cost of last plan.
+     * @return
+     */
+    public double getCost()
+    {
+        return cost;
+    }
+
+    private int[] dynamic(int count)
+    {
+        int size = 1<<count;
+        double[][] costs = new double[size][count];
+        double[][] cards = new double[size][count];
+        int[][] prev = new int[size][count];
+        for (double[] c : costs)
+        {
+            Arrays.fill(c, Double.MAX_VALUE);
+        }
+        for (int ii=0;ii<count;ii++)
+        {
+            costs[1<<ii][ii] = rows[ii];
+            cards[1<<ii][ii] = rows[ii];
+            prev[1<<ii][ii] = -1;
+        }
+        for (int mask=1;mask<size;mask++)
+        {
+            for (int last=0;last<count;last++)
+            {
+                double c = costs[mask][last];
+                if (c == Double.MAX_VALUE)
+                {
+                    continue;
+                }
+                for (int next=0;next<count;next++)
+                {
+                    if ((mask & (1<<next)) == 0)
+                    {
+                        int nmask = mask | (1<<next);
+                        double card = cards[mask][last]*ratio[last][next];
+                        double ncost = c + card;
+                        if (ncost < costs[nmask][next])
+                        {
+                            costs[nmask][next] = ncost;
+                            cards[nmask][next] = card;
+                            prev[nmask][next] = last;
+                        }
+                    }
+                }
+            }
+        }
+        int full = size-1;
+        int last = 0;
+        for (int ii=1;ii<count;ii++)
+        {
+            if (costs[full][ii] < costs[full][last])
+            {
+                last = ii;
+            }
+        }
+        cost = costs[full][last];
+        int[] order = new int[count];
+        int mask = full;
+        for (int ii=count-1;ii>=0;ii--)
+        {
+            order[ii] = last;
+            int p = prev[mask][last];
+            mask &= ~(1<<last);
+            last = p;
+        }
+        return order;
+    }
+
+    private int[] greedy(int count)
+    {
+        int[] best = null;
+        cost = Double.MAX_VALUE;
+        for (int first=0;first<count;first++)
+        {
+            int[] order = new int[count];
+            boolean[] used = new boolean[count];
+            order[0] = first;
+            used[first] = true;
+            double card = rows[first];
+            double c = card;
+            for (int ii=1;ii<count;ii++)
+            {
+                int last = order[ii-1];
+                int next = -1;
+                for (int jj=0;jj<count;jj++)
+                {
+                    if (!used[jj] && (next == -1 || ratio[last][jj] < ratio[last][next]))
+                    {
+                        next = jj;
+                    }
+                }
+                order[ii] = next;
+                used[next] = true;
+                card *= ratio[last][next];
+                c += card;
+            }
+            if (c < cost)
+            {
+                cost = c;
+                best = order;
+            }
+        }
+        return best;
+    }
+    /**
+     * Returns estimated number of 'to' rows for each 'from' row.
+     * @param from
+     * @param to
+     * @return
+     */
+    protected double estimateRatio(TableContext<R,C> from, TableContext<R,C> to)
+    {
+        JoinMap<R> joinMap = from.getJoinMapTo(to.getTable());
+        if (joinMap instanceof CartesianMap)
+        {
+            return to.getAll().size()*selectivity(from, to);
+        }
+        int fromCount = from.getAll().size();
+        if (fromCount == 0 || joinMap.isEmpty())
+        {
+            return 0;
+        }
+        return joinMap.getRatio()*joinMap.size()/fromCount;
+    }
+    /**
+     * Returns estimated selectivity of join conditions from 'from' table to
+     * 'to' table.
+     * @param from
+     * @param to
+     * @return
+     */
+    protected double selectivity(TableContext<R,C> from, TableContext<R,C> to)
+    {
+        double selectivity = 1.0;
+        Table<R,C> table = from.getTable();
+        for (ColumnCondition<R,C> cc : table.getAndConditions())
+        {
+            if (cc instanceof JoinCondition)
+            {
+                JoinCondition jc = (JoinCondition) cc;
+                ColumnReference cr2 = jc.getColumnReference2();
+                if (to.getTable().equals(cr2.getTable()))
+                {
+                    selectivity *= selectivity(to.getTable(), cr2.getColumn(), jc.getRelation());
+                }
+            }
+        }
+        return selectivity;
+    }
+
+    private double selectivity(Table<R,C> table, String column, Relation relation)
+    {
+        double eq = DEFAULT_EQ_SELECTIVITY;
+        TableMetadata tm = engine.getTableMetadata(table.getName());
+        if (tm != null)
+        {
+            ColumnMetadata cm = tm.getColumnMetadata(column);
+            if (cm != null)
+            {
+                if (cm.getSelectivity() > 0 && cm.getSelectivity() <= 1)
+                {
+                    eq = cm.getSelectivity();
+                }
+                else
+                {
+                    if (cm.getCount() > 0)
+                    {
+                        eq = 1.0/cm.getCount();
+                    }
+                }
+            }
+        }
+        switch (relation)
+        {
+            case EQ:
+                return eq;
+            case NE:
+                return 1.0-eq;
+            default:
+                return DEFAULT_RANGE_SELECTIVITY;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyStatistics counts calls, rows and times and keeps a log2 latency 
+ * histogram. Recording is thread safe and lock free.
+ * @author Timo Vesalainen
+ */
+public class LatencyStatistics implements LatencyStatisticsMXBean
+{
+    private static final int BUCKETS = 64;
+    private final String description;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalTime = new LongAdder();
+    private final AtomicLong maxTime = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    public LatencyStatistics(String description)
+    {
+        this.description = description;
+    }
+    /**
+     * Records one call.
+     * @param rowCount
+     * @param time Nanoseconds
+     */
+    public void record(long rowCount, long time)
+    {
+        count.increment();
+        rows.add(rowCount);
+        totalTime.add(time);
+        long max = maxTime.get();
+        while (time > max && !maxTime.compareAndSet(max, time))
+        {
+            max = maxTime.get();
+        }
+        histogram.incrementAndGet(bucket(time));
+    }
+
+    private static int bucket(long time)
+    {
+        return time > 0 ? BUCKETS - Long.numberOfLeadingZeros(time) : 0;
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return description;
+    }
+
+    @Override
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    @Override
+    public long getRows()
+    {
+        return rows.sum();
+    }
+
+    @Override
+    public long getTotalTime()
+    {
+        return totalTime.sum();
+    }
+
+    @Override
+    public long getMaxTime()
+    {
+        return maxTime.get();
+    }
+
+    @Override
+    public double getMeanTime()
+    {
+        long c = count.sum();
+        return c > 0 ? (double)totalTime.sum()/c : 0;
+    }
+
+    @Override
+    public long getMedianTime()
+    {
+        return getPercentile(0.5);
+    }
+
+    @Override
+    public long getPercentile95Time()
+    {
+        return getPercentile(0.95);
+    }
+
+    @Override
+    public long getPercentile99Time()
+    {
+        return getPercentile(0.99);
+    }
+    /**
+     * Returns the upper bound of histogram bucket containing percentile.
+     * @param percentile 0 - 1
+     * @return 
+     */
+    public long getPercentile(double percentile)
+    {
+        long[] hist = getHistogram();
+        long total = 0;
+        for (long c : hist)
+        {
+            total += c;
+        }
+        if (total == 0)
+        {
+            return 0;
+        }
+        long limit = (long) Math.ceil(total*percentile);
+        long sum = 0;
+        for (int ii=0;ii<BUCKETS;ii++)
+        {
+            sum += hist[ii];
+            if (sum >= limit)
+            {
+                return Math.min((1L<<ii)-1, maxTime.get());
+            }
+        }
+        return maxTime.get();
+    }
+
+    @Override
+    public long[] getHistogram()
+    {
+        long[] hist = new long[BUCKETS];
+        for (int ii=0;ii<BUCKETS;ii++)
+        {
+            hist[ii] = histogram.get(ii);
+        }
+        return hist;
+    }
+
+    @Override
+    public void reset()
+    {
+        count.reset();
+        rows.reset();
+        totalTime.reset();
+        maxTime.set(0);
+        for (int ii=0;ii<BUCKETS;ii++)
+        {
+            histogram.set(ii, 0);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return description+" count="+getCount()+" rows="+getRows()+" mean="+(long)getMeanTime()+" p99="+getPercentile99Time();
+    }
+
+}
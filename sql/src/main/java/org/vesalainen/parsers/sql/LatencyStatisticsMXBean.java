@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+/**
+ * Management interface of LatencyStatistics. Times are in nanoseconds.
+ * @author Timo Vesalainen
+ */
+public interface LatencyStatisticsMXBean
+{
+    /**
+     * Returns statement shape or phase name.
+     * @return 
+     */
+    String getDescription();
+    long getCount();
+    long getRows();
+    long getTotalTime();
+    long getMaxTime();
+    double getMeanTime();
+    long getMedianTime();
+    long getPercentile95Time();
+    long getPercentile99Time();
+    /**
+     * Returns histogram counts. Bucket n counts times from 2^(n-1) to 2^n-1 
+     * nanoseconds.
+     * @return 
+     */
+    long[] getHistogram();
+    void reset();
+}
@@ -19,44 +19,179 @@ package org.vesalainen.parsers.sql;
 
 import org.vesalainen.parsers.sql.util.ArrayMap;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 import org.vesalainen.regex.Regex;
 
 /**
+ * LikeCondition matches column string value to pattern.
+ * 
+ * <p>Patterns without '_' and having '%' only at start and/or end are matched
+ * with String equals, startsWith, endsWith or contains. Other patterns are 
+ * matched with regular expression. Compiled regular expressions are cached
+ * by expression.
+ * 
+ * <p>Literal prefix of pattern is used to select matching keys from sorted
+ * column index.
  * @author Timo Vesalainen
  */
 public class LikeCondition<R,C> extends ParserLocator2Impl implements ColumnCondition<R,C> 
 {
+    private static final int CACHE_SIZE = 256;
+    private static final Map<String,Regex> CACHE = new LinkedHashMap<String,Regex>(CACHE_SIZE, 0.75F, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Entry<String, Regex> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private enum Kind {EXACT, PREFIX, SUFFIX, CONTAINS, REGEX}
+    
     private ColumnReference<R,C> columnReference;
+    private String expression;
     private Regex pattern;
+    private Kind kind;
+    private String literal;
+    private String prefix;
+    
     public LikeCondition(ColumnReference<R,C> rv, String pattern)
     {
         this.columnReference = rv;
-        try
+        this.expression = Regex.escape(pattern).replace("%", ".*").replace("_", ".?");
+        analyze(pattern);
+    }
+
+    public LikeCondition(ColumnReference<R,C> rv, String pattern, String escape)
+    {
+        this.columnReference = rv;
+        this.expression = Regex.escape(pattern).replace(escape, ".*").replace("_", ".?");
+        this.kind = Kind.REGEX;
+        this.pattern = compile(expression);
+    }
+
+    private void analyze(String pattern)
+    {
+        int wild = firstWildcard(pattern);
+        if (wild == -1)
         {
-            this.pattern = Regex.compile(Regex.escape(pattern).replace("%", ".*").replace("_", ".?"));
+            kind = Kind.EXACT;
+            literal = pattern;
+            prefix = pattern;
+            return;
         }
-        catch (IOException ex)
+        prefix = pattern.substring(0, wild);
+        if (pattern.indexOf('_') == -1)
         {
-            throw new IllegalArgumentException(ex);
+            boolean starts = pattern.startsWith("%");
+            boolean ends = pattern.length() > 1 && pattern.endsWith("%");
+            String inner = pattern.substring(starts ? 1 : 0, ends ? pattern.length()-1 : pattern.length());
+            if (inner.indexOf('%') == -1)
+            {
+                literal = inner;
+                if (starts)
+                {
+                    kind = ends || inner.isEmpty() ? Kind.CONTAINS : Kind.SUFFIX;
+                }
+                else
+                {
+                    kind = Kind.PREFIX;
+                }
+                return;
+            }
         }
+        kind = Kind.REGEX;
+        this.pattern = compile(expression);
     }
 
-    public LikeCondition(ColumnReference<R,C> rv, String pattern, String escape)
+    private static int firstWildcard(String pattern)
     {
-        this.columnReference = rv;
-        try
+        for (int ii=0;ii<pattern.length();ii++)
+        {
+            char cc = pattern.charAt(ii);
+            if (cc == '%' || cc == '_')
+            {
+                return ii;
+            }
+        }
+        return -1;
+    }
+
+    private static Regex compile(String expression)
+    {
+        synchronized(CACHE)
+        {
+            Regex regex = CACHE.get(expression);
+            if (regex == null)
+            {
+                try
+                {
+                    regex = Regex.compile(expression);
+                }
+                catch (IOException ex)
+                {
+                    throw new IllegalArgumentException(ex);
+                }
+                CACHE.put(expression, regex);
+            }
+            return regex;
+        }
+    }
+    /**
+     * Returns true if text matches the pattern.
+     * @param text
+     * @return 
+     */
+    public boolean isMatch(String text)
+    {
+        switch (kind)
+        {
+            case EXACT:
+                return text.equals(literal);
+            case PREFIX:
+                return text.startsWith(literal);
+            case SUFFIX:
+                return text.endsWith(literal);
+            case CONTAINS:
+                return text.contains(literal);
+            default:
+                return pattern.isMatch(text);
+        }
+    }
+    /**
+     * Returns the literal start of pattern before first wildcard or null if 
+     * not known. Every matching value starts with prefix.
+     * @return 
+     */
+    public String getPrefix()
+    {
+        return prefix;
+    }
+    /**
+     * Returns the least string greater than all strings starting with prefix or 
+     * null if there is no such string or prefix is empty.
+     * @return 
+     */
+    public String getPrefixLimit()
+    {
+        if (prefix == null || prefix.isEmpty())
         {
-            this.pattern = Regex.compile(Regex.escape(pattern).replace(escape, ".*").replace("_", ".?"));
+            return null;
         }
-        catch (IOException ex)
+        int last = prefix.length()-1;
+        char cc = prefix.charAt(last);
+        if (cc == Character.MAX_VALUE)
         {
-            throw new IllegalArgumentException(ex);
+            return null;
         }
+        return prefix.substring(0, last)+(char)(cc+1);
     }
 
     @Override
     public void associateCondition(SelectStatement select, boolean andPath)
     {
+        columnReference.associateCondition(this, andPath);
     }
 
     @Override
@@ -67,7 +202,7 @@ public class LikeCondition<R,C> extends ParserLocator2Impl implements ColumnCond
         {
             return TruthValue.UNKNOWN;
         }
-        if (pattern.isMatch(col.toString()))
+        if (isMatch(col.toString()))
         {
             return TruthValue.TRUE;
         }
@@ -85,7 +220,7 @@ public class LikeCondition<R,C> extends ParserLocator2Impl implements ColumnCond
         {
             return TruthValue.UNKNOWN;
         }
-        if (pattern.isMatch(col.toString()))
+        if (isMatch(col.toString()))
         {
             return TruthValue.TRUE;
         }
@@ -95,10 +230,25 @@ public class LikeCondition<R,C> extends ParserLocator2Impl implements ColumnCond
         }
     }
 
-
+    /**
+     * Narrows range to strings starting with prefix if engine tells that the
+     * column is ordered as text.
+     * @param selector
+     * @param range 
+     * @see Engine#isTextColumn(org.vesalainen.parsers.sql.Table, java.lang.String) 
+     */
     @Override
     public void narrow(SQLConverter<R, C> selector, Range<C> range)
     {
+        String limit = getPrefixLimit();
+        if (limit != null && (selector instanceof Engine))
+        {
+            Engine<R,C> engine = (Engine<R,C>) selector;
+            if (engine.isTextColumn(columnReference.getTable(), getColumn()))
+            {
+                range.narrow(selector.convert(prefix), selector.convert(limit));
+            }
+        }
     }
 
     @Override
@@ -112,11 +262,29 @@ public class LikeCondition<R,C> extends ParserLocator2Impl implements ColumnCond
     {
         return columnReference.getColumn();
     }
-
+    /**
+     * Returns regular expression of pattern.
+     * @return 
+     */
+    public Regex getPattern()
+    {
+        if (pattern == null)
+        {
+            pattern = compile(expression);
+        }
+        return pattern;
+    }
     @Override
     public ColumnReference<R, C> getColumnReference()
     {
         return columnReference;
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        columnReference = copier.copy(columnReference);
+    }
+
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+/**
+ * Limit holds LIMIT n [OFFSET m] clause values.
+ * @author Timo Vesalainen
+ */
+public class Limit 
+{
+    private long limit;
+    private long offset;
+
+    public Limit(long limit, long offset)
+    {
+        if (limit < 0)
+        {
+            throw new IllegalArgumentException("negative limit "+limit);
+        }
+        if (offset < 0)
+        {
+            throw new IllegalArgumentException("negative offset "+offset);
+        }
+        this.limit = limit;
+        this.offset = offset;
+    }
+    /**
+     * Returns the maximum number of returned rows.
+     * @return 
+     */
+    public long getLimit()
+    {
+        return limit;
+    }
+    /**
+     * Returns the number of skipped rows.
+     * @return 
+     */
+    public long getOffset()
+    {
+        return offset;
+    }
+    
+}
@@ -97,6 +97,10 @@ public class LiteralComparison<R,C> extends BaseComparison<R, C> implements Valu
         }
     }
 
+    public Literal<R, C> getLiteral()
+    {
+        return literal;
+    }
     @Override
     public C getValue()
     {
@@ -115,4 +119,11 @@ public class LiteralComparison<R,C> extends BaseComparison<R, C> implements Valu
         visitor.visit(this, andPath);
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        literal = copier.copy(literal);
+    }
+
 }
@@ -32,6 +32,11 @@ class NotCondition<R,C> extends ParserLocator2Impl implements Condition<R,C>
         this.test = test;
     }
 
+    public Condition<R,C> getTest()
+    {
+        return test;
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -91,4 +96,12 @@ class NotCondition<R,C> extends ParserLocator2Impl implements Condition<R,C>
         visitor.visit(this, andPath);
         test.walk(visitor, false);
     }
+
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        test = copier.copy(test);
+    }
+
 }
@@ -87,4 +87,11 @@ public class NullCondition<R,C> extends ParserLocator2Impl implements ColumnCond
         visitor.visit(this, andPath);
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        columnReference = copier.copy(columnReference);
+    }
+
 }
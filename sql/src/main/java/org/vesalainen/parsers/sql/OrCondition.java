@@ -34,6 +34,16 @@ public class OrCondition<R,C> extends ParserLocator2Impl implements Condition<R,
         this.condition2 = condition2;
     }
 
+    public Condition<R,C> getCondition1()
+    {
+        return condition1;
+    }
+
+    public Condition<R,C> getCondition2()
+    {
+        return condition2;
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -119,4 +129,13 @@ public class OrCondition<R,C> extends ParserLocator2Impl implements Condition<R,
         condition1.walk(visitor, false);
         condition2.walk(visitor, false);
     }
+
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        condition1 = copier.copy(condition1);
+        condition2 = copier.copy(condition2);
+    }
+
 }
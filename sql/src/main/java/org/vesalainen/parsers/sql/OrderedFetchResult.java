@@ -23,8 +23,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * @author Timo Vesalainen
@@ -34,6 +38,15 @@ public class OrderedFetchResult<R,C> extends FetchResult<R,C>
     protected List<ColumnReference<R,C>> columnReferences;
     protected boolean sorted;
     protected final List<SortSpecification> sortSpecification;
+    protected final long limit;
+    protected final long offset;
+    protected long skipped;
+    private PriorityQueue<C[]> heap;
+    private GroupAggregator<R,C> aggregator;
+    private boolean aggregated;
+    private int distinctLength;
+    private Set<List<C>> distinctSet;
+    private TreeSet<C[]> distinctSorted;
 
     public OrderedFetchResult(Engine<R,C> engine, SelectStatement<R,C> select)
     {
@@ -43,21 +56,191 @@ public class OrderedFetchResult<R,C> extends FetchResult<R,C>
         length = columnReferences.size();
         columnLength = Arrays.copyOf(columnLength, length);
         sortSpecification = select.getSortSpecification();
+        Limit lim = select.getLimit();
+        if (lim != null)
+        {
+            limit = lim.getLimit();
+            offset = lim.getOffset();
+        }
+        else
+        {
+            limit = -1;
+            offset = 0;
+        }
+        if (select.isAggregate())
+        {
+            aggregator = new GroupAggregator<>(engine, columnReferences, select.getGroupBy(), select.getHaving());
+        }
+        if (select.isDistinct())
+        {
+            distinctLength = select.getSelectList().size();
+            if (sortSpecification != null)
+            {
+                distinctSorted = new TreeSet<>(new ArrayComparator(engine.getComparator(), columnReferences, sortSpecification, distinctLength));
+            }
+            else
+            {
+                if (engine.supportsHashJoin())
+                {
+                    distinctSet = new HashSet<>();
+                }
+                else
+                {
+                    distinctSet = new TreeSet<>(new GroupAggregator.KeyComparator<>(engine.getComparator()));
+                }
+            }
+        }
+    }
+    /**
+     * Returns true if select doesn't have order by clause or aggregates and 
+     * limit rows have been added. Rest of the rows can be discarded.
+     * @return 
+     */
+    public boolean isLimitReached()
+    {
+        return limit >= 0 && sortSpecification == null && aggregator == null && data.size() >= limit;
     }
     
     public void addRow(ArrayMap<Table<R, C>, R> rowCandidate)
+    {
+        if (aggregator != null)
+        {
+            aggregator.add(rowCandidate);
+        }
+        else
+        {
+            addRow(createRow(rowCandidate));
+        }
+    }
+    /**
+     * Creates result row from row candidate.
+     * @param rowCandidate
+     * @return 
+     */
+    protected C[] createRow(ArrayMap<Table<R, C>, R> rowCandidate)
     {
         C[] row = (C[]) new Object[length];
-        data.add(row);
         int index = 0;
         for (ColumnReference<R, C> cf : columnReferences)
         {
-            C col = cf.getValue(engine, rowCandidate);
+            row[index++] = cf.getValue(engine, rowCandidate);
+        }
+        return row;
+    }
+    /**
+     * Adds created row
+     * @param row 
+     */
+    protected void addRow(C[] row)
+    {
+        if (distinctSorted != null)
+        {
+            addToSorted(row);
+            return;
+        }
+        if (distinctSet != null && !distinctSet.add(distinctKey(row)))
+        {
+            return;
+        }
+        if (limit >= 0)
+        {
+            if (sortSpecification != null)
+            {
+                addToHeap(row);
+                return;
+            }
+            if (skipped < offset)
+            {
+                skipped++;
+                return;
+            }
+        }
+        data.add(row);
+        updateColumnLength(row);
+    }
+    /**
+     * Keeps only limit+offset best rows in a heap having the worst row on top.
+     * @param row 
+     */
+    private void addToHeap(C[] row)
+    {
+        if (heap == null)
+        {
+            ArrayComparator comparator = new ArrayComparator(engine.getComparator(), columnReferences, sortSpecification);
+            heap = new PriorityQueue<>((int)Math.min(limit+offset+1, 1024), Collections.reverseOrder(comparator));
+        }
+        heap.offer(row);
+        if (heap.size() > limit+offset)
+        {
+            heap.poll();
+        }
+        sorted = false;
+    }
+    /**
+     * Returns projected values of row.
+     * @param row
+     * @return 
+     */
+    private List<C> distinctKey(C[] row)
+    {
+        if (row.length == distinctLength)
+        {
+            return Arrays.asList(row);
+        }
+        return Arrays.asList(Arrays.copyOf(row, distinctLength));
+    }
+    /**
+     * Keeps distinct rows in sort order. Duplicates compare equal and are
+     * discarded on insert. If select has limit, only limit+offset first rows
+     * are kept.
+     * @param row 
+     */
+    private void addToSorted(C[] row)
+    {
+        if (distinctSorted.add(row))
+        {
+            if (limit >= 0 && distinctSorted.size() > limit+offset)
+            {
+                distinctSorted.pollLast();
+            }
+            sorted = false;
+        }
+    }
+    private void updateColumnLength(C[] row)
+    {
+        for (int index=0;index<length;index++)
+        {
+            C col = row[index];
             if (col != null)
             {
                 columnLength[index] = Math.max(columnLength[index], col.toString().length());
             }
-            row[index++] = col;
+        }
+    }
+    /**
+     * Creates a partition for collecting rows in parallel execution.
+     * @return 
+     */
+    public Partition createPartition()
+    {
+        return new Partition();
+    }
+    /**
+     * Adds rows collected in partition.
+     * @param partition 
+     */
+    public void merge(Partition partition)
+    {
+        if (aggregator != null)
+        {
+            aggregator.merge(partition.partial);
+        }
+        else
+        {
+            for (C[] row : partition.rows)
+            {
+                addRow(row);
+            }
         }
     }
 
@@ -89,24 +272,151 @@ public class OrderedFetchResult<R,C> extends FetchResult<R,C>
         return data.iterator();
     }
 
+    @Override
+    public int getRowCount()
+    {
+        checkSorting();
+        return super.getRowCount();
+    }
+
+    /**
+     * Aggregates, deduplicates and sorts collected rows. This is otherwise 
+     * done on first access of the result.
+     */
+    void materialize()
+    {
+        checkSorting();
+    }
+
     private void checkSorting()
     {
+        checkAggregation();
+        if (!sorted && distinctSorted != null)
+        {
+            data = new ArrayList<>();
+            long skip = limit >= 0 ? offset : 0;
+            for (C[] row : distinctSorted)
+            {
+                if (skip > 0)
+                {
+                    skip--;
+                }
+                else
+                {
+                    data.add(row);
+                    updateColumnLength(row);
+                }
+            }
+            sorted = true;
+        }
         if (!sorted && sortSpecification != null)
         {
             ArrayComparator comparator = new ArrayComparator(engine.getComparator(), columnReferences, sortSpecification);
-            Collections.sort(data, comparator);
+            if (heap != null)
+            {
+                data.addAll(heap);
+                heap.clear();
+                Collections.sort(data, comparator);
+                int from = (int) Math.min(offset, data.size());
+                int to = (int) Math.min(offset+limit, data.size());
+                data = new ArrayList<>(data.subList(from, to));
+                for (C[] row : data)
+                {
+                    updateColumnLength(row);
+                }
+            }
+            else
+            {
+                Collections.sort(data, comparator);
+            }
             sorted = true;
         }
     }
+    /**
+     * Adds group rows after all rows have been aggregated.
+     */
+    private void checkAggregation()
+    {
+        if (aggregator != null && !aggregated)
+        {
+            aggregated = true;
+            for (C[] row : aggregator.getRows())
+            {
+                addRow(row);
+            }
+        }
+    }
+    /**
+     * Partition collects rows of one part of parallel execution. Partitions
+     * are used by one thread only. In aggregate select partition aggregates 
+     * rows to partial groups.
+     */
+    public class Partition
+    {
+        protected List<C[]> rows = new ArrayList<>();
+        protected GroupAggregator<R,C> partial = aggregator != null ? aggregator.createPartial() : null;
+        protected long candidates;
+        
+        public void addRow(ArrayMap<Table<R, C>, R> rowCandidate)
+        {
+            candidates++;
+            if (partial != null)
+            {
+                partial.add(rowCandidate);
+            }
+            else
+            {
+                rows.add(createRow(rowCandidate));
+            }
+        }
+        /**
+         * Appends rows from other partition. Other partition should contain 
+         * rows following this partitions rows.
+         * @param other 
+         */
+        public void merge(Partition other)
+        {
+            candidates += other.candidates;
+            if (partial != null)
+            {
+                partial.merge(other.partial);
+            }
+            else
+            {
+                rows.addAll(other.rows);
+            }
+        }
+        /**
+         * Returns the number of added row candidates.
+         * @return 
+         */
+        public long getCandidateCount()
+        {
+            return candidates;
+        }
+    }
     private class ArrayComparator implements Comparator<C[]>
     {
         private Comparator<C> comp;
         private int[] cols;
         private int[] signs;
+        private int tieBreak;
 
         public ArrayComparator(Comparator<C> comp, List<ColumnReference<R,C>> columnReferences, List<SortSpecification> sortSpecification)
+        {
+            this(comp, columnReferences, sortSpecification, 0);
+        }
+        /**
+         * @param comp
+         * @param columnReferences
+         * @param sortSpecification
+         * @param tieBreak Number of first columns compared in order when sort 
+         * columns are equal.
+         */
+        public ArrayComparator(Comparator<C> comp, List<ColumnReference<R,C>> columnReferences, List<SortSpecification> sortSpecification, int tieBreak)
         {
             this.comp = comp;
+            this.tieBreak = tieBreak;
             cols = new int[sortSpecification.size()];
             signs = new int[sortSpecification.size()];
             int index = 0;
@@ -134,7 +444,28 @@ public class OrderedFetchResult<R,C> extends FetchResult<R,C>
                 cmp = signs[ii]*comp.compare(o1[cols[ii]], o2[cols[ii]]);
                 if (cmp != 0)
                 {
-                    break;
+                    return cmp;
+                }
+            }
+            for (int ii=0;ii<tieBreak;ii++)
+            {
+                C c1 = o1[ii];
+                C c2 = o2[ii];
+                if (c1 != c2)
+                {
+                    if (c1 == null)
+                    {
+                        return -1;
+                    }
+                    if (c2 == null)
+                    {
+                        return 1;
+                    }
+                    cmp = comp.compare(c1, c2);
+                    if (cmp != 0)
+                    {
+                        return cmp;
+                    }
                 }
             }
             return cmp;
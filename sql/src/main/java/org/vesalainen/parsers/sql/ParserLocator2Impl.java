@@ -23,7 +23,7 @@ import org.vesalainen.parser.util.OffsetLocatorException;
 /**
  * @author Timo Vesalainen
  */
-public class ParserLocator2Impl implements ParserLocator2
+public class ParserLocator2Impl implements ParserLocator2, Cloneable
 {
     private String source;
     private int start;
@@ -61,4 +61,30 @@ public class ParserLocator2Impl implements ParserLocator2
         return start;
     }
 
+    /**
+     * Returns a shallow copy.
+     * @return 
+     * @see StatementCopier
+     */
+    ParserLocator2Impl shallowCopy()
+    {
+        try
+        {
+            return (ParserLocator2Impl) clone();
+        }
+        catch (CloneNotSupportedException ex)
+        {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+    /**
+     * Replaces statement node fields of a shallow copy with their copies. 
+     * Subclasses having node fields override this and call super.
+     * @param copier 
+     * @see StatementCopier
+     */
+    void copyFields(StatementCopier copier)
+    {
+    }
+
 }
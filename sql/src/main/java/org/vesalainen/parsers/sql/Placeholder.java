@@ -28,4 +28,8 @@ public interface Placeholder<R,C> extends Literal<R,C>
     void setType(Class<? extends C> type);
     Class<?>  getType();
     Object getDefaultValue();
+    /**
+     * Restores the value the placeholder had after parsing.
+     */
+    void reset();
 }
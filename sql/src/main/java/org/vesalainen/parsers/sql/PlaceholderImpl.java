@@ -28,6 +28,7 @@ public class PlaceholderImpl<R,C> extends LiteralImpl<R,C> implements Placeholde
     private String name;
     private Class<?> type;
     private SelectStatement<R,C> select;
+    private C initialValue;
     
     public PlaceholderImpl(String name, Class<? extends C> type)
     {
@@ -46,6 +47,7 @@ public class PlaceholderImpl<R,C> extends LiteralImpl<R,C> implements Placeholde
             throw new IllegalArgumentException("Placeholder :"+name+" default value = null! Nested placeholders not supported!");
         }
         this.value = val;
+        this.initialValue = val;
         this.type = (Class<? extends C>) val.getClass();
     }
 
@@ -90,6 +92,12 @@ public class PlaceholderImpl<R,C> extends LiteralImpl<R,C> implements Placeholde
         }
     }
 
+    @Override
+    public void reset()
+    {
+        this.value = initialValue;
+    }
+
     @Override
     public void setType(Class<? extends C> type)
     {
@@ -114,4 +122,11 @@ public class PlaceholderImpl<R,C> extends LiteralImpl<R,C> implements Placeholde
         return type;
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        select = copier.copy(select);
+    }
+
 }
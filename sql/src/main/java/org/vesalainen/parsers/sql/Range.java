@@ -75,6 +75,38 @@ public class Range<C>
         return (this.lower == null || comparator.compare(this.lower, item) <= 0) &&
                (this.upper == null || comparator.compare(this.upper, item) >= 0);
     }
+    /**
+     * Returns lower bound or null if not limited.
+     * @return 
+     */
+    public C getLower()
+    {
+        return lower;
+    }
+    /**
+     * Returns upper bound or null if not limited.
+     * @return 
+     */
+    public C getUpper()
+    {
+        return upper;
+    }
+    /**
+     * Returns true if range is limited.
+     * @return 
+     */
+    public boolean isLimited()
+    {
+        return lower != null || upper != null;
+    }
+    /**
+     * Returns true if lower bound is greater than upper bound.
+     * @return 
+     */
+    public boolean isEmpty()
+    {
+        return lower != null && upper != null && comparator.compare(lower, upper) > 0;
+    }
     public boolean isSingle()
     {
         return this.lower != null && this.lower.equals(this.upper);
@@ -22,6 +22,25 @@ package org.vesalainen.parsers.sql;
  */
 public enum Relation
 {
-    EQ, NE, LT, GT, LE, GE
-    
+    EQ, NE, LT, GT, LE, GE;
+    /**
+     * Returns relation with swapped operands. E.g. a &lt; b is b &gt; a.
+     * @return 
+     */
+    public Relation swap()
+    {
+        switch (this)
+        {
+            case LT:
+                return GT;
+            case GT:
+                return LT;
+            case LE:
+                return GE;
+            case GE:
+                return LE;
+            default:
+                return this;
+        }
+    }
 }
@@ -37,6 +37,24 @@ public interface SQLConverter<R, C>
     C convertTimestamp(Date date);
 
     C get(R r, String column);
+    /**
+     * Returns accessor for column. Default implementation returns accessor
+     * that calls get(r, column). Implementations can return faster accessor, 
+     * e.g. one that reads the value by array index.
+     * @param column Column name
+     * @return 
+     */
+    default ColumnAccessor<R,C> accessor(final String column)
+    {
+        return new ColumnAccessor<R,C>() 
+        {
+            @Override
+            public C get(R row)
+            {
+                return SQLConverter.this.get(row, column);
+            }
+        };
+    }
     /**
      * Returns Updateable instance.
      * @param r Row
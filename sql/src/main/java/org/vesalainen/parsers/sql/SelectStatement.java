@@ -21,7 +21,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.List;
+import java.util.Objects;
 
 /**
  * @author Timo Vesalainen
@@ -31,7 +31,17 @@ public class SelectStatement<R,C> extends Statement<R,C>
     private List<ColumnReference<R,C>> subList;
     private List<Table<R,C>> tableList;
     private Condition<R,C> condition;
+    private Condition<R,C> residualCondition;
+    private List<ColumnReference<R,C>> groupBy;
+    private Condition<R,C> having;
+    private List<ColumnReference<R,C>> havingColumns = new ArrayList<>();
+    private boolean aggregate;
+    private boolean scalarAggregate;
+    private boolean distinct;
+    private List<ColumnReference<R,C>> correlationColumns = new ArrayList<>();
+    private List<ColumnReference<R,C>> outerColumns = new ArrayList<>();
     private List<SortSpecification> sortSpecification;
+    private Limit limit;
     private Metadata metadata;
     private ErrorReporter reporter;
 
@@ -41,16 +51,41 @@ public class SelectStatement<R,C> extends Statement<R,C>
             List<ColumnReference<R,C>> selectList, 
             TableExpression tableExpression
             )
+    {
+        this(engine, placeholderMap, false, selectList, tableExpression);
+    }
+
+    public SelectStatement(
+            Engine<R, C> engine, 
+            LinkedHashMap<String, Placeholder<R,C>> placeholderMap, 
+            boolean distinct,
+            List<ColumnReference<R,C>> selectList, 
+            TableExpression tableExpression
+            )
     {
         super(engine, placeholderMap);
+        this.distinct = distinct;
         this.subList = selectList;
         this.tableList = tableExpression.getTableList();
         this.condition = tableExpression.getCondition();
+        this.groupBy = tableExpression.getGroupBy();
+        this.having = tableExpression.getHaving();
         this.sortSpecification = tableExpression.getSortSpecificationList();
+        this.limit = tableExpression.getLimit();
+        if (condition != null)
+        {
+            condition = decorrelate(condition);
+            if (isCorrelated() && limit != null)
+            {
+                throw new IllegalArgumentException("limit not supported in correlated subquery");
+            }
+        }
         resolv();
         if (condition != null)
         {
             condition.associateCondition(this, true);
+            addMaskConditions(condition);
+            residualCondition = residual(condition);
         }
         if (subList == null)
         {
@@ -63,11 +98,290 @@ public class SelectStatement<R,C> extends Statement<R,C>
                 {
                     for (ColumnMetadata cm : tm.getColumns())
                     {
-                        subList.add(new ColumnReferenceImpl(table, cm.getName()));
+                        ColumnReferenceImpl<R,C> cf = new ColumnReferenceImpl<>(table, cm.getName());
+                        cf.resolvAccessor(engine);
+                        subList.add(cf);
                     }
                 }
             }
         }
+        aggregate = groupBy != null || having != null;
+        for (ColumnReference<R,C> cf : getReferencedColumns())
+        {
+            if (cf instanceof AggregateFunction)
+            {
+                aggregate = true;
+            }
+        }
+        scalarAggregate = aggregate && groupBy == null;
+        if (aggregate && isCorrelated())
+        {
+            if (scalarAggregate && having != null)
+            {
+                throw new IllegalArgumentException("having without group by not supported in correlated subquery");
+            }
+            List<ColumnReference<R,C>> list = new ArrayList<>();
+            if (groupBy != null)
+            {
+                list.addAll(groupBy);
+            }
+            list.addAll(correlationColumns);
+            groupBy = list;
+        }
+        if (aggregate)
+        {
+            checkGrouping();
+        }
+        if (distinct && sortSpecification != null)
+        {
+            for (SortSpecification ss : sortSpecification)
+            {
+                if (!subList.contains(ss.getRv()))
+                {
+                    throw new IllegalArgumentException("for select distinct, order by expression "+ss.getRv()+" must appear in select list");
+                }
+            }
+        }
+    }
+    /**
+     * Removes equal comparisons between this select table and enclosing select
+     * table from and path. Compared columns are collected to 
+     * correlationColumns and outerColumns. Other references to enclosing 
+     * select tables are not supported.
+     * @param condition
+     * @return Condition without correlation or null
+     */
+    private Condition<R,C> decorrelate(Condition<R,C> condition)
+    {
+        if (condition instanceof AndCondition)
+        {
+            AndCondition<R,C> and = (AndCondition<R,C>) condition;
+            Condition<R,C> c1 = decorrelate(and.getCondition1());
+            Condition<R,C> c2 = decorrelate(and.getCondition2());
+            if (c1 == null)
+            {
+                return c2;
+            }
+            if (c2 == null)
+            {
+                return c1;
+            }
+            if (c1 == and.getCondition1() && c2 == and.getCondition2())
+            {
+                return and;
+            }
+            return new AndCondition<>(c1, c2);
+        }
+        if (condition instanceof JoinCondition)
+        {
+            JoinCondition<R,C> jc = (JoinCondition<R,C>) condition;
+            ColumnReference<R,C> cf1 = jc.getColumnReference();
+            ColumnReference<R,C> cf2 = jc.getColumnReference2();
+            boolean outer1 = isOuter(cf1);
+            boolean outer2 = isOuter(cf2);
+            if (outer1 != outer2 && Relation.EQ.equals(jc.getRelation()))
+            {
+                if (outer1)
+                {
+                    correlationColumns.add(cf2);
+                    outerColumns.add(cf1);
+                }
+                else
+                {
+                    correlationColumns.add(cf1);
+                    outerColumns.add(cf2);
+                }
+                return null;
+            }
+        }
+        condition.walk(new CorrelationChecker(), true);
+        return condition;
+    }
+
+    /**
+     * Adds or and not conditions in and path to tables as mask conditions. 
+     * Condition is projected to each table by replacing conditions not of 
+     * that table with true. Projection is implied by the condition.
+     * @param condition 
+     */
+    private void addMaskConditions(Condition<R,C> condition)
+    {
+        if (condition instanceof AndCondition)
+        {
+            AndCondition<R,C> and = (AndCondition<R,C>) condition;
+            addMaskConditions(and.getCondition1());
+            addMaskConditions(and.getCondition2());
+            return;
+        }
+        if ((condition instanceof OrCondition) || (condition instanceof NotCondition))
+        {
+            for (Table<R,C> table : tableList)
+            {
+                Condition<R,C> projection = project(condition, table);
+                if (projection != null)
+                {
+                    table.addMaskCondition(projection);
+                }
+            }
+        }
+    }
+    /**
+     * Returns condition without and path conditions that are applied to table
+     * rows before enumeration.
+     * @param condition
+     * @return Residual condition or null
+     */
+    private Condition<R,C> residual(Condition<R,C> condition)
+    {
+        if (condition instanceof AndCondition)
+        {
+            AndCondition<R,C> and = (AndCondition<R,C>) condition;
+            Condition<R,C> c1 = residual(and.getCondition1());
+            Condition<R,C> c2 = residual(and.getCondition2());
+            if (c1 == null)
+            {
+                return c2;
+            }
+            if (c2 == null)
+            {
+                return c1;
+            }
+            if (c1 == and.getCondition1() && c2 == and.getCondition2())
+            {
+                return and;
+            }
+            return new AndCondition<>(c1, c2);
+        }
+        if (isTableCondition(condition))
+        {
+            return null;
+        }
+        return condition;
+    }
+    /**
+     * Returns true if condition is a table and condition or a mask condition 
+     * of one table.
+     * @param condition
+     * @return 
+     * @see TableContext#setData(java.util.Collection) 
+     */
+    private boolean isTableCondition(Condition<R,C> condition)
+    {
+        if ((condition instanceof ColumnCondition) && !(condition instanceof JoinCondition))
+        {
+            ColumnCondition<R,C> cc = (ColumnCondition<R,C>) condition;
+            Table<R,C> table = cc.getColumnReference().getTable();
+            return table != null && table.getAndConditions().contains(cc);
+        }
+        if ((condition instanceof OrCondition) || (condition instanceof NotCondition))
+        {
+            for (Table<R,C> table : tableList)
+            {
+                if (project(condition, table) == condition)
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    /**
+     * Returns condition of table columns implied by condition or null if 
+     * there is none.
+     * @param condition
+     * @param table
+     * @return 
+     */
+    private Condition<R,C> project(Condition<R,C> condition, Table<R,C> table)
+    {
+        if (condition instanceof AndCondition)
+        {
+            AndCondition<R,C> and = (AndCondition<R,C>) condition;
+            Condition<R,C> c1 = project(and.getCondition1(), table);
+            Condition<R,C> c2 = project(and.getCondition2(), table);
+            if (c1 == null)
+            {
+                return c2;
+            }
+            if (c2 == null)
+            {
+                return c1;
+            }
+            if (c1 == and.getCondition1() && c2 == and.getCondition2())
+            {
+                return and;
+            }
+            return new AndCondition<>(c1, c2);
+        }
+        if (condition instanceof OrCondition)
+        {
+            OrCondition<R,C> or = (OrCondition<R,C>) condition;
+            Condition<R,C> c1 = project(or.getCondition1(), table);
+            Condition<R,C> c2 = project(or.getCondition2(), table);
+            if (c1 == null || c2 == null)
+            {
+                return null;
+            }
+            if (c1 == or.getCondition1() && c2 == or.getCondition2())
+            {
+                return or;
+            }
+            return new OrCondition<>(c1, c2);
+        }
+        if (condition instanceof NotCondition)
+        {
+            NotCondition<R,C> not = (NotCondition<R,C>) condition;
+            if (project(not.getTest(), table) == not.getTest())
+            {
+                return not;
+            }
+            return null;
+        }
+        if ((condition instanceof ColumnCondition) && !(condition instanceof JoinCondition))
+        {
+            ColumnCondition<R,C> cc = (ColumnCondition<R,C>) condition;
+            if (table.equals(cc.getColumnReference().getTable()))
+            {
+                return condition;
+            }
+        }
+        return null;
+    }
+
+    private boolean isOuter(ColumnReference<R,C> cf)
+    {
+        return cf.getTable() != null && !tableList.contains(cf.getTable());
+    }
+    /**
+     * Checks that every non aggregated column is a group by column.
+     */
+    private void checkGrouping()
+    {
+        for (ColumnReference<R,C> cf : getReferencedColumns())
+        {
+            if (!(cf instanceof AggregateFunction) && !isGroupColumn(cf))
+            {
+                throw new IllegalArgumentException(cf+" must appear in group by clause or be used in aggregate function");
+            }
+        }
+    }
+
+    private boolean isGroupColumn(ColumnReference<R,C> cf)
+    {
+        if (groupBy != null)
+        {
+            for (ColumnReference<R,C> gc : groupBy)
+            {
+                if (
+                        gc.equals(cf) || 
+                        (Objects.equals(gc.getTable(), cf.getTable()) && gc.getColumn().equals(cf.getColumn()))
+                        )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     private void resolv()
@@ -76,15 +390,32 @@ public class SelectStatement<R,C> extends Statement<R,C>
         {
             for (ColumnReference<R,C> cf : subList)
             {
-                resolvColumnReference(cf);
-                Table table = cf.getTable();
-                table.addSelectListColumn(cf.getColumn());
+                resolvSelectListColumn(cf);
             }
         }
         if (condition != null)
         {
             condition.walk(new Resolver(), true);
         }
+        for (ColumnReference<R,C> cf : correlationColumns)
+        {
+            resolvSelectListColumn(cf);
+        }
+        for (ColumnReference<R,C> cf : outerColumns)
+        {
+            cf.resolvAccessor(engine);
+        }
+        if (groupBy != null)
+        {
+            for (ColumnReference<R,C> cf : groupBy)
+            {
+                resolvSelectListColumn(cf);
+            }
+        }
+        if (having != null)
+        {
+            having.walk(new HavingResolver(), true);
+        }
         if (sortSpecification != null)
         {
             for (SortSpecification ss : sortSpecification)
@@ -94,8 +425,12 @@ public class SelectStatement<R,C> extends Statement<R,C>
                 {
                     ColumnReference cf = (ColumnReference) rv;
                     resolvColumnReference(cf);
-                    Table table = cf.getTable();
-                    table.addSortColumn(cf.getColumn());
+                    cf = fetched(cf);
+                    if (cf != null)
+                    {
+                        Table table = cf.getTable();
+                        table.addSortColumn(cf.getColumn());
+                    }
                 }
             }
         }
@@ -103,6 +438,33 @@ public class SelectStatement<R,C> extends Statement<R,C>
     private void resolvColumnReference(ColumnReference<R, C> cf)
     {
         cf.resolvTable(tableList);
+        cf.resolvAccessor(engine);
+    }
+
+    private void resolvSelectListColumn(ColumnReference<R, C> cf)
+    {
+        resolvColumnReference(cf);
+        cf = fetched(cf);
+        if (cf != null)
+        {
+            Table table = cf.getTable();
+            table.addSelectListColumn(cf.getColumn());
+        }
+    }
+    /**
+     * Returns the column reference whose column is fetched. For aggregate 
+     * function this is the argument or null for count(*)
+     * @param cf
+     * @return 
+     */
+    private ColumnReference<R,C> fetched(ColumnReference<R,C> cf)
+    {
+        if (cf instanceof AggregateFunction)
+        {
+            AggregateFunction<R,C> af = (AggregateFunction<R,C>) cf;
+            return af.getInner();
+        }
+        return cf;
     }
 
     @Override
@@ -154,6 +516,11 @@ public class SelectStatement<R,C> extends Statement<R,C>
     }
     private void checkColumnReference(ColumnReference<R,C> cf, Metadata metadata, ErrorReporter reporter)
     {
+        cf = fetched(cf);
+        if (cf == null)
+        {
+            return;
+        }
         Table table = cf.getTable();
         if (table.getName() == null)
         {
@@ -195,6 +562,16 @@ public class SelectStatement<R,C> extends Statement<R,C>
         return engine.select(this);
     }
     
+    /**
+     * Opens a cursor for this select. Cursor should be closed after use.
+     * @return 
+     * @see Cursor
+     */
+    public Cursor<R,C> openCursor()
+    {
+        return engine.openCursor(this);
+    }
+    
     public UpdateableFetchResult selectForUpdate()
     {
         engine.beginTransaction();
@@ -220,20 +597,116 @@ public class SelectStatement<R,C> extends Statement<R,C>
     {
         return condition;
     }
+    /**
+     * Returns the part of condition that is not applied to single table rows
+     * before enumeration, i.e. join conditions and conditions referring to 
+     * several tables. 
+     * @return Residual condition or null
+     */
+    public Condition<R,C> getResidualCondition()
+    {
+        return residualCondition;
+    }
 
     public List<SortSpecification> getSortSpecification()
     {
         return sortSpecification;
     }
 
+    /**
+     * Returns limit clause or null if not present.
+     * @return 
+     */
+    public Limit getLimit()
+    {
+        return limit;
+    }
+
     public List<ColumnReference<R,C>> getSelectList()
     {
         return subList;
     }
 
+    /**
+     * Returns group by columns or null.
+     * @return 
+     */
+    public List<ColumnReference<R,C>> getGroupBy()
+    {
+        return groupBy;
+    }
+    /**
+     * Returns having condition or null.
+     * @return 
+     */
+    public Condition<R,C> getHaving()
+    {
+        return having;
+    }
+    /**
+     * Returns true if select is a subquery having equal comparisons to 
+     * enclosing select columns.
+     * @return 
+     */
+    public boolean isCorrelated()
+    {
+        return !correlationColumns.isEmpty();
+    }
+    /**
+     * Returns true if select is an aggregate select without group by. Such 
+     * select returns exactly one row. When correlated, correlation columns are
+     * grouped and an outer row without group gets the aggregates over empty 
+     * input.
+     * @return 
+     */
+    public boolean isScalarAggregate()
+    {
+        return scalarAggregate;
+    }
+    /**
+     * Returns this select columns compared to enclosing select columns. 
+     * Correlation columns are included in referenced columns.
+     * @return 
+     * @see #getReferencedColumns() 
+     */
+    public List<ColumnReference<R,C>> getCorrelationColumns()
+    {
+        return correlationColumns;
+    }
+    /**
+     * Returns enclosing select columns in the same order as correlation 
+     * columns.
+     * @return 
+     */
+    public List<ColumnReference<R,C>> getOuterColumns()
+    {
+        return outerColumns;
+    }
+    /**
+     * Returns true if select has distinct set quantifier.
+     * @return 
+     */
+    public boolean isDistinct()
+    {
+        return distinct;
+    }
+    /**
+     * Returns true if select has group by or having clause or aggregate 
+     * functions.
+     * @return 
+     */
+    public boolean isAggregate()
+    {
+        return aggregate;
+    }
+    /**
+     * Returns select list columns followed by order by and having columns not
+     * in select list.
+     * @return 
+     */
     public List<ColumnReference<R,C>> getReferencedColumns()
     {
-        if (sortSpecification == null || sortSpecification.isEmpty())
+        if ((sortSpecification == null || sortSpecification.isEmpty()) && havingColumns.isEmpty() && correlationColumns.isEmpty())
         {
             return subList;
         }
@@ -241,11 +714,28 @@ public class SelectStatement<R,C> extends Statement<R,C>
         {
             List<ColumnReference<R,C>> list = new ArrayList<>();
             list.addAll(subList);
-            for (SortSpecification ss : sortSpecification)
+            if (sortSpecification != null)
             {
-                if (!list.contains(ss.getRv()))
+                for (SortSpecification ss : sortSpecification)
                 {
-                    list.add((ColumnReference)ss.getRv());
+                    if (!list.contains(ss.getRv()))
+                    {
+                        list.add((ColumnReference)ss.getRv());
+                    }
+                }
+            }
+            for (ColumnReference<R,C> cf : havingColumns)
+            {
+                if (!list.contains(cf))
+                {
+                    list.add(cf);
+                }
+            }
+            for (ColumnReference<R,C> cf : correlationColumns)
+            {
+                if (!list.contains(cf))
+                {
+                    list.add(cf);
                 }
             }
             return list;
@@ -272,6 +762,10 @@ public class SelectStatement<R,C> extends Statement<R,C>
             {
                 ColumnCondition cc = (ColumnCondition) condition;
                 ColumnReference cf = cc.getColumnReference();
+                if (cf instanceof AggregateFunction)
+                {
+                    throw new IllegalArgumentException("aggregate function "+cf+" not allowed in where clause");
+                }
                 resolvColumnReference(cf);
                 Table table = cf.getTable();
                 table.addConditionColumn(cf.getColumn());
@@ -284,9 +778,80 @@ public class SelectStatement<R,C> extends Statement<R,C>
                 Table table = cf.getTable();
                 table.addConditionColumn(cf.getColumn());
             }
+            if (condition instanceof SemiJoinCondition)
+            {
+                SemiJoinCondition<R,C> sc = (SemiJoinCondition<R,C>) condition;
+                for (ColumnReference<R,C> cf : sc.getColumnReferences())
+                {
+                    resolvColumnReference(cf);
+                    Table table = cf.getTable();
+                    table.addConditionColumn(cf.getColumn());
+                }
+            }
         }
 
     }
+    private class CorrelationChecker implements ConditionVisitor
+    {
+        @Override
+        public void visit(Condition condition, boolean andPath)
+        {
+            if (condition instanceof ColumnCondition)
+            {
+                ColumnCondition cc = (ColumnCondition) condition;
+                check(cc.getColumnReference());
+            }
+            if (condition instanceof JoinCondition)
+            {
+                JoinCondition jc = (JoinCondition) condition;
+                check(jc.getColumnReference2());
+            }
+            if (condition instanceof ColumnComparisonInOneTable)
+            {
+                ColumnComparisonInOneTable cc = (ColumnComparisonInOneTable) condition;
+                check(cc.getColumnReference2());
+            }
+        }
+
+        private void check(ColumnReference<R,C> cf)
+        {
+            if (isOuter(cf))
+            {
+                throw new IllegalArgumentException("correlated reference "+cf+" is supported only in equal comparison in and path");
+            }
+        }
+    }
+    private class HavingResolver implements ConditionVisitor
+    {
+        @Override
+        public void visit(Condition condition, boolean andPath)
+        {
+            if (condition instanceof ColumnCondition)
+            {
+                ColumnCondition cc = (ColumnCondition) condition;
+                add(cc.getColumnReference());
+            }
+            if (condition instanceof JoinCondition)
+            {
+                JoinCondition jc = (JoinCondition) condition;
+                add(jc.getColumnReference2());
+            }
+            if (condition instanceof ColumnComparisonInOneTable)
+            {
+                ColumnComparisonInOneTable cc = (ColumnComparisonInOneTable) condition;
+                add(cc.getColumnReference2());
+            }
+        }
+
+        private void add(ColumnReference<R,C> cf)
+        {
+            resolvSelectListColumn(cf);
+            if (!havingColumns.contains(cf))
+            {
+                havingColumns.add(cf);
+            }
+        }
+    }
     private class Checker implements ConditionVisitor
     {
         @Override
@@ -307,4 +872,21 @@ public class SelectStatement<R,C> extends Statement<R,C>
         }
 
     }
+
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        subList = copier.copyList(subList);
+        tableList = copier.copyList(tableList);
+        condition = copier.copy(condition);
+        residualCondition = copier.copy(residualCondition);
+        groupBy = copier.copyList(groupBy);
+        having = copier.copy(having);
+        havingColumns = copier.copyList(havingColumns);
+        correlationColumns = copier.copyList(correlationColumns);
+        outerColumns = copier.copyList(outerColumns);
+        sortSpecification = copier.copyList(sortSpecification);
+    }
+
 }
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.vesalainen.parsers.sql.util.ArrayMap;
+
+/**
+ * SemiJoinCondition implements EXISTS (subquery) and value IN (subquery) 
+ * predicates as hash semi-joins.
+ * 
+ * <p>Correlated subquery is decorrelated by SelectStatement. Its equality 
+ * correlation conditions are removed and the inner correlation columns are 
+ * fetched instead. Subquery is executed once and rows are collected into key
+ * sets of correlation column values. Outer row is tested by looking up the 
+ * outer correlation column values.
+ * 
+ * <p>Correlated aggregate subquery without group by returns one row for every
+ * outer row. Outer row without group is compared to aggregates over empty
+ * input, e.g. count 0.
+ * @author Timo Vesalainen
+ * @see SelectStatement#getCorrelationColumns() 
+ */
+public class SemiJoinCondition<R,C> extends ParserLocator2Impl implements SubQueryCondition<R,C>
+{
+    private RowValue<R,C> rowValue;
+    private SelectStatement<R,C> select;
+    private volatile Set<List<C>> groups;
+    private volatile Set<List<C>> keys;
+    private volatile Set<List<C>> nullKeys;
+    private C emptyValue;
+    /**
+     * @param rowValue Tested value of IN predicate or null for EXISTS
+     * @param select 
+     */
+    public SemiJoinCondition(RowValue<R,C> rowValue, SelectStatement<R,C> select)
+    {
+        this.rowValue = rowValue;
+        this.select = select;
+    }
+
+    @Override
+    public void execute(Engine<R,C> engine)
+    {
+        List<ColumnReference<R,C>> columns = select.getReferencedColumns();
+        List<ColumnReference<R,C>> correlationColumns = select.getCorrelationColumns();
+        int[] keyIndex = new int[correlationColumns.size()];
+        for (int ii=0;ii<keyIndex.length;ii++)
+        {
+            keyIndex[ii] = columns.indexOf(correlationColumns.get(ii));
+        }
+        Set<List<C>> g = createSet(engine);
+        Set<List<C>> k = createSet(engine);
+        Set<List<C>> n = createSet(engine);
+        try (Cursor<R,C> cursor = engine.openCursor(select))
+        {
+            while (cursor.hasNext())
+            {
+                C[] row = cursor.next();
+                List<C> key = new ArrayList<>(keyIndex.length+1);
+                for (int index : keyIndex)
+                {
+                    C value = row[index];
+                    if (value == null)
+                    {
+                        key = null;
+                        break;
+                    }
+                    key.add(value);
+                }
+                if (key == null)
+                {
+                    continue;
+                }
+                g.add(key);
+                if (rowValue == null)
+                {
+                    if (keyIndex.length == 0)
+                    {
+                        break;
+                    }
+                }
+                else
+                {
+                    C value = row[0];
+                    if (value == null)
+                    {
+                        n.add(key);
+                    }
+                    else
+                    {
+                        List<C> valueKey = new ArrayList<>(key);
+                        valueKey.add(value);
+                        k.add(valueKey);
+                    }
+                }
+            }
+        }
+        if (select.isScalarAggregate())
+        {
+            ColumnReference<R,C> first = select.getSelectList().get(0);
+            if (first instanceof AggregateFunction)
+            {
+                emptyValue = ((AggregateFunction<R,C>)first).getEmptyValue(engine);
+            }
+        }
+        groups = g;
+        keys = k;
+        nullKeys = n;
+    }
+
+    private Set<List<C>> createSet(Engine<R,C> engine)
+    {
+        if (engine.supportsHashJoin())
+        {
+            return new HashSet<>();
+        }
+        else
+        {
+            return new TreeSet<>(new GroupAggregator.KeyComparator<>(engine.getComparator()));
+        }
+    }
+
+    @Override
+    public void associateCondition(SelectStatement<R, C> select, boolean andPath)
+    {
+    }
+
+    @Override
+    public TruthValue matches(SQLConverter<R, C> selector, ArrayMap<Table<R, C>, R> rowCandidate)
+    {
+        if (groups == null)
+        {
+            throw new IllegalStateException("subquery not executed");
+        }
+        if (rowValue == null && select.isScalarAggregate())
+        {
+            return TruthValue.TRUE;
+        }
+        List<ColumnReference<R,C>> outerColumns = select.getOuterColumns();
+        List<C> key = new ArrayList<>(outerColumns.size()+1);
+        for (ColumnReference<R,C> cf : outerColumns)
+        {
+            C value = cf.getValue(selector, rowCandidate);
+            if (value == null)
+            {
+                return noGroup(selector, rowCandidate);
+            }
+            key.add(value);
+        }
+        if (!groups.contains(key))
+        {
+            return noGroup(selector, rowCandidate);
+        }
+        if (rowValue == null)
+        {
+            return TruthValue.TRUE;
+        }
+        C value = getValue(selector, rowCandidate);
+        if (value == null)
+        {
+            return TruthValue.UNKNOWN;
+        }
+        boolean nul = nullKeys.contains(key);
+        key.add(value);
+        if (keys.contains(key))
+        {
+            return TruthValue.TRUE;
+        }
+        return nul ? TruthValue.UNKNOWN : TruthValue.FALSE;
+    }
+
+    /**
+     * Returns truth value for outer row having no group in subquery.
+     */
+    private TruthValue noGroup(SQLConverter<R, C> selector, ArrayMap<Table<R, C>, R> rowCandidate)
+    {
+        if (!select.isScalarAggregate())
+        {
+            return TruthValue.FALSE;
+        }
+        C value = getValue(selector, rowCandidate);
+        if (value == null || emptyValue == null)
+        {
+            return TruthValue.UNKNOWN;
+        }
+        return selector.getComparator().compare(value, emptyValue) == 0 ? TruthValue.TRUE : TruthValue.FALSE;
+    }
+
+    private C getValue(SQLConverter<R, C> selector, ArrayMap<Table<R, C>, R> rowCandidate)
+    {
+        if (rowValue instanceof ColumnReference)
+        {
+            ColumnReference<R,C> cf = (ColumnReference<R,C>) rowValue;
+            return cf.getValue(selector, rowCandidate);
+        }
+        Literal<R,C> literal = (Literal<R,C>) rowValue;
+        return literal.getValue();
+    }
+    /**
+     * Returns outer query columns referenced by this condition.
+     * @return 
+     */
+    public List<ColumnReference<R,C>> getColumnReferences()
+    {
+        List<ColumnReference<R,C>> list = new ArrayList<>(select.getOuterColumns());
+        if (rowValue instanceof ColumnReference)
+        {
+            list.add((ColumnReference<R,C>) rowValue);
+        }
+        return list;
+    }
+
+    public SelectStatement<R, C> getSelect()
+    {
+        return select;
+    }
+
+    @Override
+    public void walk(ConditionVisitor visitor, boolean andPath)
+    {
+        visitor.visit(this, andPath);
+    }
+
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        rowValue = copier.copy(rowValue);
+        select = copier.copy(select);
+    }
+
+}
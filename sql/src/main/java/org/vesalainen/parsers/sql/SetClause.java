@@ -20,7 +20,7 @@ package org.vesalainen.parsers.sql;
 /**
  * @author Timo Vesalainen
  */
-public class SetClause<R,C> 
+public class SetClause<R,C> implements Cloneable
 {
     private String identifier;
     private Literal<R,C> literal;
@@ -40,5 +40,27 @@ public class SetClause<R,C>
     {
         return literal;
     }
-    
+
+    /**
+     * Returns a shallow copy.
+     * @return 
+     * @see StatementCopier
+     */
+    SetClause<R,C> shallowCopy()
+    {
+        try
+        {
+            return (SetClause<R,C>) clone();
+        }
+        catch (CloneNotSupportedException ex)
+        {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
+    void copyFields(StatementCopier copier)
+    {
+        literal = copier.copy(literal);
+    }
+
 }
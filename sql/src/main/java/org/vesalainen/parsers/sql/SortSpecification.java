@@ -20,7 +20,7 @@ package org.vesalainen.parsers.sql;
 /**
  * @author Timo Vesalainen
  */
-public class SortSpecification 
+public class SortSpecification implements Cloneable
 {
     private RowValue rv;
     private boolean ascending;
@@ -40,5 +40,27 @@ public class SortSpecification
     {
         return rv;
     }
-    
+
+    /**
+     * Returns a shallow copy.
+     * @return 
+     * @see StatementCopier
+     */
+    SortSpecification shallowCopy()
+    {
+        try
+        {
+            return (SortSpecification) clone();
+        }
+        catch (CloneNotSupportedException ex)
+        {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
+    void copyFields(StatementCopier copier)
+    {
+        rv = copier.copy(rv);
+    }
+
 }
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for parsed sql statement.
+ * @author Timo Vesalainen
+ */
+@Name("org.vesalainen.parsers.sql.Parse")
+@Label("SQL Parse")
+@Category({"Parsers", "SQL"})
+@StackTrace(false)
+public class SqlParseEvent extends jdk.jfr.Event
+{
+    private static final EventType TYPE = EventType.getEventType(SqlParseEvent.class);
+    @Label("SQL Hash")
+    @Description("Hash of sql text or 0 when parsed from stream")
+    int sqlHash;
+    @Label("Length")
+    @Description("Length of sql text or -1 when parsed from stream")
+    int length;
+    /**
+     * Returns begun event or null if the event is not enabled in any running
+     * recording. Disabled events are not allocated.
+     * @return 
+     */
+    static SqlParseEvent start()
+    {
+        if (TYPE.isEnabled())
+        {
+            SqlParseEvent event = new SqlParseEvent();
+            event.begin();
+            return event;
+        }
+        return null;
+    }
+}
@@ -162,7 +162,8 @@ public abstract class SqlParser<R, C>
         @Rule("insertStatement"),
         @Rule("querySpecification"),
         @Rule("showSpecification"),
-        @Rule("describeSpecification")
+        @Rule("describeSpecification"),
+        @Rule("explainSpecification")
     })
     protected abstract Statement<R, C> statement(Statement<R, C> statement);
 
@@ -374,8 +375,26 @@ public abstract class SqlParser<R, C>
         return new DescribeStatement(engine, placeholderMap, identifier);
     }
 
-    @Rule("selectStart selectList tableExpression")
+    @Rule("explain analyzeOption? querySpecification")
+    protected Statement explainSpecification(
+            Boolean analyze,
+            Statement select,
+            @ParserContext("placeholderMap") LinkedHashMap<String,Placeholder> placeholderMap,
+            @ParserContext("engine") Engine<R, C> engine
+            )
+    {
+        return new ExplainStatement(engine, placeholderMap, (SelectStatement) select, analyze != null);
+    }
+
+    @Rule("analyze")
+    protected Boolean analyzeOption()
+    {
+        return Boolean.TRUE;
+    }
+
+    @Rule("selectStart setQuantifier? selectList tableExpression")
     protected Statement querySpecification(
+            Boolean distinct,
             List<ColumnReference> selectList,
             TableExpression tableExpression,
             @ParserContext("placeholderMap") LinkedHashMap<String,Placeholder> placeholderMap,
@@ -384,7 +403,7 @@ public abstract class SqlParser<R, C>
             )
     {
         tableListStack.pop();
-        return new SelectStatement(engine, placeholderMap, selectList, tableExpression);
+        return new SelectStatement(engine, placeholderMap, distinct != null, selectList, tableExpression);
     }
 
     @Rule("select")
@@ -418,9 +437,97 @@ public abstract class SqlParser<R, C>
     {
     }
 
-    @Rule("columnReference")
+    @Rules(
+    {
+        @Rule("columnReference"),
+        @Rule("aggregate")
+    })
     protected abstract ColumnReference selectSublist(ColumnReference columnReference);
 
+    @Rule("function '\\(' '\\*' '\\)' string?")
+    protected ColumnReference aggregate(
+            String funcName,
+            String title,
+            @ParserContext(ParserConstants.INPUTREADER) InputReader reader,
+            @ParserContext("engine") Engine<R, C> engine
+            )
+    {
+        return aggregate(funcName, false, null, title, reader, engine);
+    }
+
+    @Rule("function '\\(' setQuantifier selectSublist '\\)' string?")
+    protected ColumnReference aggregate(
+            String funcName,
+            Boolean distinct,
+            ColumnReference inner,
+            String title,
+            @ParserContext(ParserConstants.INPUTREADER) InputReader reader,
+            @ParserContext("engine") Engine<R, C> engine
+            )
+    {
+        return aggregate(funcName, true, inner, title, reader, engine);
+    }
+    /**
+     * Function with one argument. Aggregate function names are resolved with
+     * Engine.isAggregateFunction. Other names create scalar functions.
+     */
+    @Rule("function '\\(' selectSublist '\\)' string?")
+    protected ColumnReference aggregate(
+            String funcName,
+            ColumnReference inner,
+            String title,
+            @ParserContext(ParserConstants.INPUTREADER) InputReader reader,
+            @ParserContext("engine") Engine<R, C> engine
+            )
+    {
+        if (engine.isAggregateFunction(funcName))
+        {
+            return aggregate(funcName, false, inner, title, reader, engine);
+        }
+        try
+        {
+            ColumnReference cf = engine.createFunction(inner, funcName);
+            cf.setTitle(title);
+            return cf;
+        }
+        catch (IllegalArgumentException ex)
+        {
+            reader.throwSyntaxErrorException(ex.getMessage(), "");
+            return null;
+        }
+    }
+
+    private ColumnReference aggregate(
+            String funcName,
+            boolean distinct,
+            ColumnReference inner,
+            String title,
+            InputReader reader,
+            Engine<R, C> engine
+            )
+    {
+        try
+        {
+            ColumnReference cf = engine.createAggregateFunction(funcName, distinct, inner);
+            if (title != null)
+            {
+                cf.setTitle(title);
+            }
+            return cf;
+        }
+        catch (IllegalArgumentException ex)
+        {
+            reader.throwSyntaxErrorException(ex.getMessage(), "");
+            return null;
+        }
+    }
+
+    @Rule("distinct")
+    protected Boolean setQuantifier()
+    {
+        return Boolean.TRUE;
+    }
+
     @Rule("identifier ('\\.' identifier)* string?")
     protected ColumnReference columnReference(String part, List<String> list, String title)
     {
@@ -428,16 +535,18 @@ public abstract class SqlParser<R, C>
         return new ColumnReferenceImpl(list, title);
     }
 
-    @Rule("function '\\(' selectSublist ('\\,' string)* '\\)' string?")
+    @Rule("function '\\(' selectSublist '\\,' string ('\\,' string)* '\\)' string?")
     protected ColumnReference selectSublist(
             String funcName,
             ColumnReference inner,
+            String arg,
             List<String> args,
             String title,
             @ParserContext(ParserConstants.INPUTREADER) InputReader reader,
             @ParserContext("engine") Engine<R, C> engine
             )
     {
+        args.add(0, arg);
         try
         {
             ColumnReference cf = engine.createFunction(inner, funcName, args.toArray(new String[args.size()]));
@@ -491,14 +600,43 @@ public abstract class SqlParser<R, C>
             "<p>substring(col, begin, length) Converts to substring. Note begin starts at 0")
     protected abstract String function(String func);
     
-    @Rule("fromClause whereClause? orderByClause?")
+    @Rule("fromClause whereClause? groupByClause? havingClause? orderByClause? limitClause?")
     protected TableExpression tableExpression(
             Condition condition, 
+            List<ColumnReference> groupBy,
+            Condition having,
             List<SortSpecification> sortSpecificationList,
+            Limit limit,
             @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack
             )
     {
-        return new TableExpression(tableListStack.peek(), condition, sortSpecificationList);
+        return new TableExpression(tableListStack.peek(), condition, groupBy, having, sortSpecificationList, limit);
+    }
+
+    @Rule("group by columnReference ('\\,' columnReference)*")
+    protected List<ColumnReference> groupByClause(ColumnReference columnReference, List<ColumnReference> list)
+    {
+        list.add(0, columnReference);
+        return list;
+    }
+
+    @Rule(value="having searchCondition", doc="Having condition can refer to aggregate functions and group by columns")
+    protected Condition havingClause(Condition condition)
+    {
+        return condition;
+    }
+
+    @Rule(value="limit integer (offset integer)?", doc="Returns at most limit rows skipping offset rows")
+    protected Limit limitClause(Number limit, Number offset)
+    {
+        if (offset != null)
+        {
+            return new Limit(limit.longValue(), offset.longValue());
+        }
+        else
+        {
+            return new Limit(limit.longValue(), 0);
+        }
     }
 
     @Rule("from tableReference ('\\,' tableReference)*")
@@ -628,51 +766,52 @@ public abstract class SqlParser<R, C>
         @Rule("betweenPredicate"),
         @Rule("inPredicate"),
         @Rule("likePredicate"),
-        @Rule("nullPredicate")
+        @Rule("nullPredicate"),
+        @Rule("existsPredicate")
     })
     protected abstract Condition predicate(Condition predicate);
 
     @Rule(left = "comparisonPredicate", value = "rowValuePredicant '=' rowValuePredicant")
     protected Condition comparisonPredicate1(RowValue rv1, RowValue rv2, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
     {
-        return newComparisonCondition(rv1, Relation.EQ, rv2, tableListStack.peek());
+        return newComparisonCondition(rv1, Relation.EQ, rv2, tableListStack);
     }
 
     @Rule(left = "comparisonPredicate", value = "rowValuePredicant '<>' rowValuePredicant")
     protected Condition comparisonPredicate2(RowValue rv1, RowValue rv2, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
     {
-        return newComparisonCondition(rv1, Relation.NE, rv2, tableListStack.peek());
+        return newComparisonCondition(rv1, Relation.NE, rv2, tableListStack);
     }
 
     @Rule(left = "comparisonPredicate", value = "rowValuePredicant '<' rowValuePredicant")
     protected Condition comparisonPredicate3(RowValue rv1, RowValue rv2, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
     {
-        return newComparisonCondition(rv1, Relation.LT, rv2, tableListStack.peek());
+        return newComparisonCondition(rv1, Relation.LT, rv2, tableListStack);
     }
 
     @Rule(left = "comparisonPredicate", value = "rowValuePredicant '>' rowValuePredicant")
     protected Condition comparisonPredicate4(RowValue rv1, RowValue rv2, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
     {
-        return newComparisonCondition(rv1, Relation.GT, rv2, tableListStack.peek());
+        return newComparisonCondition(rv1, Relation.GT, rv2, tableListStack);
     }
 
     @Rule(left = "comparisonPredicate", value = "rowValuePredicant '<=' rowValuePredicant")
     protected Condition comparisonPredicate5(RowValue rv1, RowValue rv2, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
     {
-        return newComparisonCondition(rv1, Relation.LE, rv2, tableListStack.peek());
+        return newComparisonCondition(rv1, Relation.LE, rv2, tableListStack);
     }
 
     @Rule(left = "comparisonPredicate", value = "rowValuePredicant '>=' rowValuePredicant")
     protected Condition comparisonPredicate6(RowValue rv1, RowValue rv2, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
     {
-        return newComparisonCondition(rv1, Relation.GE, rv2, tableListStack.peek());
+        return newComparisonCondition(rv1, Relation.GE, rv2, tableListStack);
     }
 
     protected Condition newComparisonCondition(
             RowValue rv1, 
             Relation relation, 
             RowValue rv2,
-            List<Table<R, C>> tableList
+            Deque<List<Table<R, C>>> tableListStack
             )
     {
         if ((rv1 instanceof Literal) && (rv2 instanceof Literal))
@@ -683,9 +822,13 @@ public abstract class SqlParser<R, C>
         {
             ColumnReference cf1 = (ColumnReference) rv1;
             ColumnReference cf2 = (ColumnReference) rv2;
-            cf1.resolvTable(tableList);
-            cf2.resolvTable(tableList);
-            if (cf1.getTable().equals(cf2.getTable()))
+            resolvTable(cf1, tableListStack);
+            resolvTable(cf2, tableListStack);
+            if (
+                    (cf1 instanceof AggregateFunction) || 
+                    (cf2 instanceof AggregateFunction) || 
+                    cf1.getTable().equals(cf2.getTable())
+                    )
             {
                 return new ColumnComparisonInOneTable<>(cf1, relation, cf2);
             }
@@ -697,7 +840,7 @@ public abstract class SqlParser<R, C>
         if ((rv1 instanceof ColumnReference) && (rv2 instanceof Literal))
         {
             ColumnReference cf1 = (ColumnReference) rv1;
-            cf1.resolvTable(tableList);
+            resolvTable(cf1, tableListStack);
             Literal cf2 = (Literal) rv2;
             return new LiteralComparison<>(cf1, relation, cf2);
         }
@@ -705,11 +848,34 @@ public abstract class SqlParser<R, C>
         {
             Literal cf1 = (Literal) rv1;
             ColumnReference cf2 = (ColumnReference) rv2;
-            cf2.resolvTable(tableList);
+            resolvTable(cf2, tableListStack);
             return new LiteralComparison<>(cf2, relation, cf1);
         }
         throw new UnsupportedOperationException("unsupported comparison???");
     }
+    /**
+     * Resolves column table from current select tables. If not found, tries
+     * enclosing select tables for correlated subquery.
+     * @param cf
+     * @param tableListStack 
+     */
+    private void resolvTable(ColumnReference cf, Deque<List<Table<R, C>>> tableListStack)
+    {
+        Iterator<List<Table<R, C>>> iterator = tableListStack.iterator();
+        List<Table<R, C>> tableList = iterator.next();
+        try
+        {
+            cf.resolvTable(tableList);
+        }
+        catch (OffsetLocatorException ex)
+        {
+            if (!iterator.hasNext())
+            {
+                throw ex;
+            }
+            cf.resolvTable(iterator.next());
+        }
+    }
 
     @Rule(left = "rowValuePredicant", value = "columnReference")
     protected RowValue rowValuePredicant1(ColumnReference columnReference)
@@ -717,6 +883,19 @@ public abstract class SqlParser<R, C>
         return columnReference;
     }
 
+    @Rule(left = "rowValuePredicant", value = "aggregate")
+    protected RowValue rowValuePredicant2(
+            ColumnReference aggregate,
+            @ParserContext(ParserConstants.INPUTREADER) InputReader reader
+            )
+    {
+        if (!(aggregate instanceof AggregateFunction))
+        {
+            reader.throwSyntaxErrorException("function not allowed in condition", "");
+        }
+        return aggregate;
+    }
+
     @Rule(left = "rowValuePredicant", value = "literal")
     protected RowValue rowValuePredicant3(Literal<R, C> literal, @ParserContext("engine") Engine<R, C> engine)
     {
@@ -727,23 +906,27 @@ public abstract class SqlParser<R, C>
     protected Condition betweenPredicate1(RowValue rv1, RowValue rv2, RowValue rv3, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
     {
         return new AndCondition<>(
-                newComparisonCondition(rv1, Relation.GE, rv2, tableListStack.peek()),
-                newComparisonCondition(rv1, Relation.LE, rv3, tableListStack.peek()));
+                newComparisonCondition(rv1, Relation.GE, rv2, tableListStack),
+                newComparisonCondition(rv1, Relation.LE, rv3, tableListStack));
     }
 
     @Rule(left = "betweenPredicate", value = "rowValuePredicant not between rowValuePredicant and rowValuePredicant")
     protected Condition betweenPredicate2(RowValue rv1, RowValue rv2, RowValue rv3, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
     {
         return new OrCondition<>(
-                newComparisonCondition(rv1, Relation.LT, rv2, tableListStack.peek()),
-                newComparisonCondition(rv1, Relation.GT, rv3, tableListStack.peek()));
+                newComparisonCondition(rv1, Relation.LT, rv2, tableListStack),
+                newComparisonCondition(rv1, Relation.GT, rv3, tableListStack));
     }
 
     @Rule(left = "inPredicate", value = "rowValuePredicant in inPredicateValue")
     protected Condition inPredicate1(RowValue rv, Collection<RowValue> inValues, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
     {
+        if (inValues.size() > 1 && (rv instanceof ColumnReference) && isLiterals(inValues))
+        {
+            return new InCondition((ColumnReference) rv, (Collection) inValues);
+        }
         Iterator<RowValue> iterator = inValues.iterator();
-        Condition<R, C> comp1 = newComparisonCondition(rv, Relation.EQ, iterator.next(), tableListStack.peek());
+        Condition<R, C> comp1 = newComparisonCondition(rv, Relation.EQ, iterator.next(), tableListStack);
         if (inValues.size() == 1)
         {
             return comp1;
@@ -751,7 +934,7 @@ public abstract class SqlParser<R, C>
         OrCondition<R, C> orCond = null;
         while (iterator.hasNext())
         {
-            Condition<R, C> comp2 = newComparisonCondition(rv, Relation.EQ, iterator.next(), tableListStack.peek());
+            Condition<R, C> comp2 = newComparisonCondition(rv, Relation.EQ, iterator.next(), tableListStack);
             if (orCond == null)
             {
                 orCond = new OrCondition<>(comp1, comp2);
@@ -764,6 +947,65 @@ public abstract class SqlParser<R, C>
         return orCond;
     }
 
+    @Rule(left = "inPredicate", value = "rowValuePredicant in '\\(' querySpecification '\\)'")
+    protected Condition inPredicate3(RowValue rv, Statement query, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
+    {
+        SelectStatement<R,C> select = subQuery(query, tableListStack);
+        if (select.getSelectList().size() != 1)
+        {
+            select.throwException("subquery must return one column");
+        }
+        if ((rv instanceof ColumnReference) && !select.isCorrelated())
+        {
+            return new InCondition((ColumnReference) rv, select);
+        }
+        return new SemiJoinCondition(rv, select);
+    }
+
+    @Rule(left = "inPredicate", value = "rowValuePredicant not in '\\(' querySpecification '\\)'")
+    protected Condition inPredicate4(RowValue rv, Statement query, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
+    {
+        return new NotCondition(inPredicate3(rv, query, tableListStack));
+    }
+
+    @Rule(left = "existsPredicate", value = "exists '\\(' querySpecification '\\)'")
+    protected Condition existsPredicate(Statement query, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
+    {
+        return new SemiJoinCondition(null, subQuery(query, tableListStack));
+    }
+    /**
+     * Checks that correlated subquery refers only to the enclosing select 
+     * tables.
+     * @param query
+     * @param tableListStack
+     * @return 
+     */
+    private SelectStatement<R,C> subQuery(Statement query, Deque<List<Table<R, C>>> tableListStack)
+    {
+        SelectStatement<R,C> select = (SelectStatement<R,C>) query;
+        List<Table<R, C>> tableList = tableListStack.peek();
+        for (ColumnReference<R,C> cf : select.getOuterColumns())
+        {
+            if (tableList == null || !tableList.contains(cf.getTable()))
+            {
+                select.throwException("correlation to "+cf+" not in enclosing select");
+            }
+        }
+        return select;
+    }
+
+    private boolean isLiterals(Collection<RowValue> values)
+    {
+        for (RowValue rv : values)
+        {
+            if (!(rv instanceof Literal))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Rule(left = "inPredicate", value = "rowValuePredicant not in inPredicateValue")
     protected Condition inPredicate2(RowValue rv, Collection<RowValue> inValues, @ParserContext("tableListStack") Deque<List<Table<R, C>>> tableListStack)
     {
@@ -874,6 +1116,10 @@ public abstract class SqlParser<R, C>
             )
     {
         SelectStatement select = (SelectStatement) query;
+        if (select.isCorrelated())
+        {
+            select.throwException("correlated query not supported in placeholder");
+        }
         Placeholder placeholder = new PlaceholderImpl<>(identifier, select);
         placeholderMap.put(identifier, placeholder);
         return placeholder;
@@ -1004,6 +1250,10 @@ public abstract class SqlParser<R, C>
         "null",
         "asc",
         "desc",
+        "group",
+        "having",
+        "distinct",
+        "exists",
         "date",
         "time",
         "timestamp",
@@ -1073,6 +1323,65 @@ public abstract class SqlParser<R, C>
         return TruthValue.UNKNOWN;
     }
 
+    /**
+     * Limit is a keyword only where limit clause can start. Elsewhere it is
+     * an identifier.
+     */
+    @Terminal(left = "limit", expression = "limit", options =
+    {
+        Regex.Option.CASE_INSENSITIVE
+    }, priority = 1)
+    protected void limitKeyword(
+            @ParserContext(ParserConstants.INPUTREADER) InputReader reader,
+            @ParserContext("locator") SQLLocator locator
+            )
+    {
+        reservedWords(reader, locator);
+    }
+    /**
+     * Offset is a keyword only after limit.
+     */
+    @Terminal(left = "offset", expression = "offset", options =
+    {
+        Regex.Option.CASE_INSENSITIVE
+    }, priority = 1)
+    protected void offsetKeyword(
+            @ParserContext(ParserConstants.INPUTREADER) InputReader reader,
+            @ParserContext("locator") SQLLocator locator
+            )
+    {
+        reservedWords(reader, locator);
+    }
+
+    /**
+     * Explain is a keyword only at the start of statement.
+     */
+    @Terminal(left = "explain", expression = "explain", options =
+    {
+        Regex.Option.CASE_INSENSITIVE
+    }, priority = 1)
+    protected void explainKeyword(
+            @ParserContext(ParserConstants.INPUTREADER) InputReader reader,
+            @ParserContext("locator") SQLLocator locator
+            )
+    {
+        reservedWords(reader, locator);
+    }
+    /**
+     * Analyze is a keyword only after explain.
+     */
+    @Terminal(left = "analyze", expression = "analyze", options =
+    {
+        Regex.Option.CASE_INSENSITIVE
+    }, priority = 1)
+    protected void analyzeKeyword(
+            @ParserContext(ParserConstants.INPUTREADER) InputReader reader,
+            @ParserContext("locator") SQLLocator locator
+            )
+    {
+        reservedWords(reader, locator);
+    }
+
     @Rule(left="stringConstant", value="identifier")
     protected abstract String stringConstant1(String str);
     
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for executed select statement.
+ * @author Timo Vesalainen
+ */
+@Name("org.vesalainen.parsers.sql.Statement")
+@Label("SQL Statement")
+@Description("Select statement executed by Engine")
+@Category({"Parsers", "SQL"})
+@StackTrace(false)
+public class SqlStatementEvent extends jdk.jfr.Event
+{
+    private static final EventType TYPE = EventType.getEventType(SqlStatementEvent.class);
+    @Label("SQL Hash")
+    @Description("Hash code of sql text or 0 if not prepared from text")
+    int sqlHash;
+    @Label("Tables")
+    int tables;
+    @Label("Candidates")
+    @Description("Number of row candidates passing where condition")
+    long candidates;
+    @Label("Rows")
+    int rows;
+    /**
+     * Returns begun event or null if the event is not enabled in any running
+     * recording. Disabled events are not allocated.
+     * @return 
+     */
+    static SqlStatementEvent start()
+    {
+        if (TYPE.isEnabled())
+        {
+            SqlStatementEvent event = new SqlStatementEvent();
+            event.begin();
+            return event;
+        }
+        return null;
+    }
+}
@@ -27,6 +27,7 @@ public abstract class Statement<R,C> extends ParserLocator2Impl
 {
     protected Engine<R,C> engine;
     protected LinkedHashMap<String,Placeholder<R,C>> placeholderMap;
+    private String sql;
 
     public Statement(Engine<R, C> engine, LinkedHashMap<String, Placeholder<R,C>> placeholderMap)
     {
@@ -48,6 +49,16 @@ public abstract class Statement<R,C> extends ParserLocator2Impl
         }
         ph.bindValue(value);
     }
+    /**
+     * Resets placeholders to their parsed state.
+     */
+    public void resetPlaceholders()
+    {
+        for (Placeholder<R,C> ph : placeholderMap.values())
+        {
+            ph.reset();
+        }
+    }
     public void check(Metadata metadata, ErrorReporter reporter)
     {
     }
@@ -62,5 +73,26 @@ public abstract class Statement<R,C> extends ParserLocator2Impl
     {
         return engine;
     }
+    /**
+     * Returns the sql text this statement was prepared from or null.
+     * @return 
+     */
+    public String getSql()
+    {
+        return sql;
+    }
+
+    void setSql(String sql)
+    {
+        this.sql = sql;
+    }
     
+
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        placeholderMap = copier.copyMap(placeholderMap);
+    }
+
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Deep copies a parsed statement graph. Statement nodes are shallow copied 
+ * and then replace their node fields with copies in copyFields. Shared 
+ * objects like engine, metadata and values are not copied. Used to hand out 
+ * an independent statement, with own placeholders, for each prepare of 
+ * cached sql.
+ * @author Timo Vesalainen
+ * @see ParserLocator2Impl#copyFields(org.vesalainen.parsers.sql.StatementCopier) 
+ */
+class StatementCopier
+{
+    private final Map<Object,Object> copies = new IdentityHashMap<>();
+
+    static <T extends Statement> T copyOf(T statement)
+    {
+        StatementCopier copier = new StatementCopier();
+        return copier.copy(statement);
+    }
+    /**
+     * Returns copy of statement node. Other objects are returned as is.
+     * @param <T>
+     * @param obj
+     * @return 
+     */
+    <T> T copy(T obj)
+    {
+        if (obj == null)
+        {
+            return null;
+        }
+        Object copy = copies.get(obj);
+        if (copy != null)
+        {
+            return (T) copy;
+        }
+        if (obj instanceof ParserLocator2Impl)
+        {
+            ParserLocator2Impl node = ((ParserLocator2Impl)obj).shallowCopy();
+            copies.put(obj, node);
+            node.copyFields(this);
+            return (T) node;
+        }
+        if (obj instanceof SortSpecification)
+        {
+            SortSpecification ss = ((SortSpecification)obj).shallowCopy();
+            copies.put(obj, ss);
+            ss.copyFields(this);
+            return (T) ss;
+        }
+        if (obj instanceof SetClause)
+        {
+            SetClause sc = ((SetClause)obj).shallowCopy();
+            copies.put(obj, sc);
+            sc.copyFields(this);
+            return (T) sc;
+        }
+        if (obj instanceof InsertColumnsAndSource)
+        {
+            InsertColumnsAndSource ics = ((InsertColumnsAndSource)obj).shallowCopy();
+            copies.put(obj, ics);
+            ics.copyFields(this);
+            return (T) ics;
+        }
+        return obj;
+    }
+
+    <T> List<T> copyList(List<T> list)
+    {
+        if (list == null)
+        {
+            return null;
+        }
+        List<T> copy = (List<T>) copies.get(list);
+        if (copy == null)
+        {
+            copy = new ArrayList<>(list.size());
+            copies.put(list, copy);
+            for (T t : list)
+            {
+                copy.add(copy(t));
+            }
+        }
+        return copy;
+    }
+
+    <T> Set<T> copySet(Set<T> set)
+    {
+        if (set == null)
+        {
+            return null;
+        }
+        Set<T> copy = (Set<T>) copies.get(set);
+        if (copy == null)
+        {
+            if (set instanceof SortedSet)
+            {
+                copy = new TreeSet<>(((SortedSet<T>)set).comparator());
+            }
+            else
+            {
+                copy = new LinkedHashSet<>();
+            }
+            copies.put(set, copy);
+            for (T t : set)
+            {
+                copy.add(copy(t));
+            }
+        }
+        return copy;
+    }
+
+    <K,V> LinkedHashMap<K,V> copyMap(LinkedHashMap<K,V> map)
+    {
+        if (map == null)
+        {
+            return null;
+        }
+        LinkedHashMap<K,V> copy = (LinkedHashMap<K,V>) copies.get(map);
+        if (copy == null)
+        {
+            copy = new LinkedHashMap<>();
+            copies.put(map, copy);
+            for (Map.Entry<K,V> entry : map.entrySet())
+            {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+        }
+        return copy;
+    }
+
+    <T> T[] copyArray(T[] array)
+    {
+        if (array == null)
+        {
+            return null;
+        }
+        T[] copy = (T[]) copies.get(array);
+        if (copy == null)
+        {
+            copy = array.clone();
+            copies.put(array, copy);
+            for (int ii=0;ii<copy.length;ii++)
+            {
+                copy[ii] = copy(copy[ii]);
+            }
+        }
+        return copy;
+    }
+}
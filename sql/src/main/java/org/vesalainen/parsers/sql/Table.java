@@ -17,7 +17,9 @@
 
 package org.vesalainen.parsers.sql;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -35,6 +37,7 @@ public class Table<R,C> extends ParserLocator2Impl
     protected Set<String> sortColumns = new HashSet<>();
     protected Set<ColumnCondition<R,C>> andConditions = new HashSet<>();
     protected Set<ColumnCondition<R,C>> conditions = new HashSet<>();
+    protected List<Condition<R,C>> maskConditions = new ArrayList<>();
 
     protected Table(Engine<R,C> engine, String schema, String tablename, String correlationName)
     {
@@ -132,6 +135,24 @@ public class Table<R,C> extends ParserLocator2Impl
     {
         return andConditions;
     }
+    /**
+     * Adds and/or/not condition of this table columns which is implied by 
+     * select condition. 
+     * @param condition 
+     */
+    public void addMaskCondition(Condition<R,C> condition)
+    {
+        maskConditions.add(condition);
+    }
+    /**
+     * Returns and/or/not conditions of this table columns which are implied by
+     * select condition. Rows not matching them can be removed.
+     * @return 
+     */
+    public List<Condition<R,C>> getMaskConditions()
+    {
+        return maskConditions;
+    }
 
     @Override
     public String toString()
@@ -149,4 +170,17 @@ public class Table<R,C> extends ParserLocator2Impl
         return sortColumns;
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        selectListColumns = copier.copySet(selectListColumns);
+        conditionColumns = copier.copySet(conditionColumns);
+        andColumns = copier.copySet(andColumns);
+        sortColumns = copier.copySet(sortColumns);
+        andConditions = copier.copySet(andConditions);
+        conditions = copier.copySet(conditions);
+        maskConditions = copier.copyList(maskConditions);
+    }
+
 }
@@ -18,36 +18,59 @@
 package org.vesalainen.parsers.sql;
 
 import org.vesalainen.parsers.sql.util.ArrayMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import org.vesalainen.parsers.sql.util.BandJoinMap;
 import org.vesalainen.parsers.sql.util.CartesianMap;
 import org.vesalainen.parsers.sql.util.FastSet;
+import org.vesalainen.parsers.sql.util.GroupJoinMap;
+import org.vesalainen.parsers.sql.util.IndexedSet;
+import org.vesalainen.parsers.sql.util.IndexJoinMap;
 import org.vesalainen.parsers.sql.util.JoinMap;
-import org.vesalainen.parsers.sql.util.JoinMapImpl;
+import org.vesalainen.parsers.sql.util.KeyFilter;
+import org.vesalainen.parsers.sql.util.RoaringSubSet;
+import org.vesalainen.parsers.sql.util.SingleSubSet;
+import org.vesalainen.parsers.sql.util.SubSet;
 
 /**
  * @author Timo Vesalainen
  */
 public class TableContext<R,C> 
 {
+    private static final int CONTAINER_OVERHEAD = 64;
     private Engine<R,C> selector;
     private Table<R,C> table;
     private Map<String,Range<C>> columnRanges = new HashMap<>();
-    private Map<String,NavigableMap<C,Set<R>>> indexes = new HashMap<>();
+    private Map<String,Map<C,Set<R>>> indexes = new HashMap<>();
     private FastSet<R> all;
     private ArrayMap<Table<R,C>,TableContext<R,C>> others;
     private Map<Table,JoinMap<R>> joinMaps = new HashMap<>();   // TODO use ArrayMap!!!
     private TableMetadata metadata;
+    private Map<String,KeyFilter<C>> keyFilters = new HashMap<>();
+    private Map<String,ColumnAccessor<R,C>> keyFilterAccessors = new HashMap<>();
+    private long keyFilterEliminated;
+    private int fetchedCount;
+    private int nullRemovedCount;
+    private int filteredCount;
+    private long fetchTime;
+    private long dataTime;
+    
+    private enum SetType {SINGLE, BITMAP, ROARING}
 
     public TableContext(Engine<R,C> selector, Table<R,C> table, ArrayMap<Table<R,C>, TableContext<R, C>> others)
     {
@@ -65,6 +88,15 @@ public class TableContext<R,C>
                 columnRanges.put(column, range);
             }
             cc.narrow(selector, range);
+            if ((cc instanceof InCondition) && selector.isKeyFilters())
+            {
+                InCondition<R,C> ic = (InCondition<R,C>) cc;
+                KeyFilter<C> filter = selector.createKeyFilter(ic.getValues(selector));
+                if (filter != null)
+                {
+                    addKeyFilter(column, filter);
+                }
+            }
         }
     }
 
@@ -80,6 +112,32 @@ public class TableContext<R,C>
             return map;
         }
     }
+    /**
+     * Syncs lazily synced row sets of this table and its join maps. After 
+     * this enumeration only reads them, so they can be enumerated by several
+     * threads.
+     * @see SubSet#sync() 
+     */
+    void syncSets()
+    {
+        if (all instanceof SubSet)
+        {
+            ((SubSet<R>) all).sync();
+        }
+        for (JoinMap<R> map : joinMaps.values())
+        {
+            if (!(map instanceof IndexJoinMap))
+            {
+                for (Set<R> set : map.values())
+                {
+                    if (set instanceof SubSet)
+                    {
+                        ((SubSet<R>) set).sync();
+                    }
+                }
+            }
+        }
+    }
     public TableContext<R,C> getOther(Table table)
     {
         return others.get(table);
@@ -88,59 +146,100 @@ public class TableContext<R,C>
     public void setData(Collection<R> rows)
     {
         assert all == null;
+        long start = System.nanoTime();
+        fetchedCount = rows.size();
+        if (!keyFilters.isEmpty())
+        {
+            rows = applyKeyFilters(rows);
+            selector.addKeyFilterEliminated(table.getName(), keyFilterEliminated);
+        }
         all = new FastSet<>(rows, true);
         for (String column : table.getAndColumns())
         {
-            NavigableMap<C,Set<R>> map = new TreeMap<>(selector.getComparator());
-            indexes.put(column, map);
+            if (needsOrdering(column))
+            {
+                indexes.put(column, new TreeMap<C,Set<R>>(selector.getComparator()));
+            }
+            else
+            {
+                indexes.put(column, new HashMap<C,Set<R>>());
+            }
+        }
+        IndexCache<C> cache = selector.getIndexCache();
+        long version = -1;
+        if (cache != null && metadata != null && metadata.getCount() == all.capacity())
+        {
+            version = metadata.getVersion();
         }
         for (String column : indexes.keySet())
         {
-            boolean unique = false;
+            SetType setType = SetType.BITMAP;
             if (metadata != null)
             {
                 ColumnMetadata columnMetadata = metadata.getColumnMetadata(column);
                 if (columnMetadata != null)
                 {
-                    unique = columnMetadata.isUnique();
-                }
-            }
-            NavigableMap<C,Set<R>> map = indexes.get(column);
-            int rowCount = rows.size();
-            Iterator<R> iterator = rows.iterator();
-            while (iterator.hasNext())
-            {
-                R row = iterator.next();
-                C value = selector.get(row, column);
-                if (value != null)
-                {
-                    Set<R> set = map.get(value);
-                    if (set == null)
+                    if (columnMetadata.isUnique())
                     {
-                        if (unique)
-                        {
-                            set = all.singleSub();
-                        }
-                        else
+                        setType = SetType.SINGLE;
+                    }
+                    else
+                    {
+                        if (isSparse(columnMetadata.getCount()))
                         {
-                            set = all.sub();
+                            setType = SetType.ROARING;
                         }
-                        map.put(value, set);
                     }
-                    set.add(row);
                 }
-                else
+            }
+            Map<C,Set<R>> map = indexes.get(column);
+            int rowCount = all.size();
+            IndexBuildEvent indexEvent = IndexBuildEvent.start();
+            long indexStart = System.nanoTime();
+            IndexCache.CachedIndex<C> cached = null;
+            if (version >= 0)
+            {
+                cached = cache.get(table.getName(), column, version, all.capacity());
+            }
+            boolean restored = cached != null;
+            if (restored)
+            {
+                restoreIndex(cached, map, setType);
+            }
+            else
+            {
+                cached = buildIndex(column, map, setType, version);
+                if (cached != null)
                 {
-                    iterator.remove();
-                    all.remove(row);
+                    cache.put(table.getName(), column, cached);
                 }
             }
-            int nrowCount = rows.size();
+            int nrowCount = all.size();
+            if (selector.hasExecutionListeners())
+            {
+                selector.fireIndexBuilt(this, column, rowCount, map.size(), restored, System.nanoTime() - indexStart);
+            }
+            if (indexEvent != null && indexEvent.shouldCommit())
+            {
+                indexEvent.table = table.getName();
+                indexEvent.column = column;
+                indexEvent.rows = rowCount;
+                indexEvent.keys = map.size();
+                indexEvent.cached = restored;
+                indexEvent.commit();
+            }
             if (rowCount != nrowCount)
             {
+                nullRemovedCount += rowCount - nrowCount;
                 selector.progressNote("removed because null "+column+" from "+rowCount+" to "+nrowCount);
             }
         }
+        applyRanges();
+        applyInConditions();
+        applyLikeConditions();
+        applyTableConditions();
+        applyMaskConditions();
+        filteredCount = all.size();
         for (ColumnCondition cc : table.getAndConditions())
         {
             if (cc instanceof JoinCondition)
@@ -155,9 +254,9 @@ public class TableContext<R,C>
                     {
                         ColumnReference thisCr = jc.getColumnReference();
                         String thisColumn = thisCr.getColumn();
-                        NavigableMap<C,Set<R>> thisMap = indexes.get(thisColumn);
+                        Map<C,Set<R>> thisMap = indexes.get(thisColumn);
                         String otherColumn = otherCr.getColumn();
-                        NavigableMap<C,Set<R>> otherMap = otherCtx.indexes.get(otherColumn);
+                        Map<C,Set<R>> otherMap = otherCtx.indexes.get(otherColumn);
                         if (thisMap.isEmpty() || otherMap.isEmpty())
                         {
                             removeAll();
@@ -165,16 +264,40 @@ public class TableContext<R,C>
                         }
                         else
                         {
-                            JoinMap<R>[] mergeMaps = merge(thisMap, otherMap);
+                            JoinEvent joinEvent = JoinEvent.start();
+                            long mergeStart = System.nanoTime();
+                            JoinMap<R>[] mergeMaps;
+                            boolean hashJoin = !(thisMap instanceof NavigableMap) || !(otherMap instanceof NavigableMap);
+                            if (!hashJoin)
+                            {
+                                mergeMaps = merge((NavigableMap<C,Set<R>>)thisMap, (NavigableMap<C,Set<R>>)otherMap, otherCtx.all);
+                            }
+                            else
+                            {
+                                mergeMaps = hashJoin(thisMap, otherMap, otherCtx.all);
+                            }
                             JoinMap<R> oldMapOther = joinMaps.get(otherTable);
                             if (oldMapOther == null || oldMapOther.size() > mergeMaps[0].size())
                             {
                                 joinMaps.put(otherTable, mergeMaps[0]);
                             }
-                            JoinMap<R> oldMapThis = joinMaps.get(table);
+                            JoinMap<R> oldMapThis = otherCtx.joinMaps.get(table);
                             if (oldMapThis == null || oldMapThis.size() > mergeMaps[1].size())
                             {
-                                joinMaps.put(table, mergeMaps[1]);
+                                otherCtx.joinMaps.put(table, mergeMaps[1]);
+                            }
+                            if (selector.hasExecutionListeners())
+                            {
+                                selector.fireMerged(this, otherCtx, all.size(), System.nanoTime() - mergeStart);
+                            }
+                            if (joinEvent != null && joinEvent.shouldCommit())
+                            {
+                                joinEvent.table = table.getName();
+                                joinEvent.otherTable = otherTable.getName();
+                                joinEvent.hashJoin = hashJoin;
+                                joinEvent.rows = all.size();
+                                joinEvent.otherRows = otherCtx.all.size();
+                                joinEvent.commit();
                             }
                             selector.progressNote("merged "+table+" to "+this.all.size());
                             selector.progressNote("merged "+otherTable+" to "+otherCtx.all.size());
@@ -183,11 +306,764 @@ public class TableContext<R,C>
                 }
             }
         }
+        bandJoins();
+        dataTime = System.nanoTime() - start;
     }
-    private JoinMap<R>[] merge(NavigableMap<C,Set<R>> thisMap, NavigableMap<C,Set<R>> otherMap)
+    /**
+     * Creates BandJoinMaps for non-equal join conditions to fetched tables that
+     * are not joined with equal join. Target rows are a key range of target 
+     * sorted index. Of several target columns the one producing the least
+     * joined rows is used. Rows without joined rows are removed.
+     */
+    private void bandJoins()
     {
-        JoinMap<R> mapThis = new JoinMapImpl<>();
-        JoinMap<R> mapOther = new JoinMapImpl<>();
+        Map<Table,List<JoinCondition<R,C>>> bandMap = new HashMap<>();
+        for (ColumnCondition cc : table.getAndConditions())
+        {
+            if (cc instanceof JoinCondition)
+            {
+                JoinCondition<R,C> jc = (JoinCondition) cc;
+                Table otherTable = jc.getColumnReference2().getTable();
+                if (isBand(jc.getRelation()) && others.get(otherTable).hasData() && !joinMaps.containsKey(otherTable))
+                {
+                    List<JoinCondition<R,C>> list = bandMap.get(otherTable);
+                    if (list == null)
+                    {
+                        list = new ArrayList<>();
+                        bandMap.put(otherTable, list);
+                    }
+                    list.add(jc);
+                }
+            }
+        }
+        for (Entry<Table,List<JoinCondition<R,C>>> entry : bandMap.entrySet())
+        {
+            long mergeStart = System.nanoTime();
+            Table otherTable = entry.getKey();
+            TableContext<R,C> otherCtx = others.get(otherTable);
+            List<JoinCondition<R,C>> list = entry.getValue();
+            BandJoinMap<R,C> mapThis = null;
+            BandJoinMap<R,C> mapOther = null;
+            for (JoinCondition<R,C> jc : list)
+            {
+                BandJoinMap<R,C> map = bandJoin(this, otherCtx, jc.getColumnReference2().getColumn(), list, false);
+                if (map != null && (mapThis == null || map.getValueCount() < mapThis.getValueCount()))
+                {
+                    mapThis = map;
+                }
+                map = bandJoin(otherCtx, this, jc.getColumn(), list, true);
+                if (map != null && (mapOther == null || map.getValueCount() < mapOther.getValueCount()))
+                {
+                    mapOther = map;
+                }
+            }
+            if (mapThis != null)
+            {
+                mapThis.retainMatched();
+                joinMaps.put(otherTable, mapThis);
+                if (selector.hasExecutionListeners())
+                {
+                    selector.fireMerged(this, otherCtx, all.size(), System.nanoTime() - mergeStart);
+                }
+            }
+            if (mapOther != null && !otherCtx.joinMaps.containsKey(table))
+            {
+                otherCtx.joinMaps.put(table, mapOther);
+            }
+        }
+    }
+    /**
+     * Creates BandJoinMap from source to target. Conditions are in this table 
+     * perspective.
+     * @param source
+     * @param target
+     * @param targetColumn
+     * @param list
+     * @param reverse If true source is the other table.
+     * @return Null if target index is not sorted.
+     */
+    private BandJoinMap<R,C> bandJoin(TableContext<R,C> source, TableContext<R,C> target, String targetColumn, List<JoinCondition<R,C>> list, boolean reverse)
+    {
+        Map<C,Set<R>> targetIndex = target.indexes.get(targetColumn);
+        if (!(targetIndex instanceof NavigableMap))
+        {
+            return null;
+        }
+        BandJoinMap<R,C> map = new BandJoinMap<>(source.all, target.all, (NavigableMap<C,Set<R>>)targetIndex);
+        for (JoinCondition<R,C> jc : list)
+        {
+            String thisColumn = jc.getColumn();
+            String otherColumn = jc.getColumnReference2().getColumn();
+            if (reverse)
+            {
+                if (targetColumn.equals(thisColumn))
+                {
+                    bound(map, source.indexes.get(otherColumn), jc.getRelation());
+                }
+            }
+            else
+            {
+                if (targetColumn.equals(otherColumn))
+                {
+                    bound(map, source.indexes.get(thisColumn), jc.getRelation().swap());
+                }
+            }
+        }
+        return map;
+    }
+    /**
+     * Adds bound to map.
+     * @param map
+     * @param sourceIndex
+     * @param relation Relation of target column to source column
+     */
+    private void bound(BandJoinMap<R,C> map, Map<C,Set<R>> sourceIndex, Relation relation)
+    {
+        if (sourceIndex == null)
+        {
+            return;
+        }
+        switch (relation)
+        {
+            case GT:
+                map.lower(sourceIndex, false);
+                break;
+            case GE:
+                map.lower(sourceIndex, true);
+                break;
+            case LT:
+                map.upper(sourceIndex, false);
+                break;
+            case LE:
+                map.upper(sourceIndex, true);
+                break;
+        }
+    }
+
+    private static boolean isBand(Relation relation)
+    {
+        switch (relation)
+        {
+            case LT:
+            case LE:
+            case GT:
+            case GE:
+                return true;
+            default:
+                return false;
+        }
+    }
+    /**
+     * Removes rows that are not in column ranges. Range rows are collected 
+     * from sorted index using subMap and anded to all rows. Index keys outside
+     * the range are dropped. 
+     */
+    private void applyRanges()
+    {
+        for (Entry<String,Range<C>> entry : columnRanges.entrySet())
+        {
+            String column = entry.getKey();
+            Range<C> range = entry.getValue();
+            Map<C,Set<R>> map = indexes.get(column);
+            if (map == null || range == null || !range.isLimited())
+            {
+                continue;
+            }
+            int rowCount = all.size();
+            Map<C,Set<R>> inRange;
+            if (map instanceof NavigableMap)
+            {
+                if (range.isEmpty())
+                {
+                    inRange = new TreeMap<>(selector.getComparator());
+                }
+                else
+                {
+                    inRange = subMap((NavigableMap<C,Set<R>>) map, range);
+                }
+            }
+            else
+            {
+                inRange = new HashMap<>();
+                for (Entry<C,Set<R>> e : map.entrySet())
+                {
+                    if (range.inRange(e.getKey()))
+                    {
+                        inRange.put(e.getKey(), e.getValue());
+                    }
+                }
+            }
+            if (inRange.size() == map.size())
+            {
+                continue;
+            }
+            FastSet<R> mask = all.copy();
+            mask.clear();
+            for (Set<R> set : inRange.values())
+            {
+                or(mask, set);
+            }
+            all.and(mask);
+            if (map instanceof NavigableMap)
+            {
+                indexes.put(column, new TreeMap<>((SortedMap<C,Set<R>>) inRange));
+            }
+            else
+            {
+                indexes.put(column, inRange);
+            }
+            selector.fireFiltered(this, "range", column, rowCount, all.size());
+        }
+    }
+    /**
+     * Removes rows not matching in conditions in and path. Matching rows are
+     * collected from column index by or-ing index sets and anded to all rows.
+     * Index keys not in value set are dropped.
+     */
+    private void applyInConditions()
+    {
+        for (ColumnCondition<R,C> cc : table.getAndConditions())
+        {
+            if (cc instanceof InCondition)
+            {
+                InCondition<R,C> ic = (InCondition<R,C>) cc;
+                String column = ic.getColumn();
+                Map<C,Set<R>> map = indexes.get(column);
+                if (map == null)
+                {
+                    continue;
+                }
+                Set<C> values = ic.getValues(selector);
+                Map<C,Set<R>> matching;
+                if (map instanceof NavigableMap)
+                {
+                    matching = new TreeMap<>(selector.getComparator());
+                }
+                else
+                {
+                    matching = new HashMap<>();
+                }
+                if (values.size() < map.size())
+                {
+                    for (C value : values)
+                    {
+                        Set<R> set = map.get(value);
+                        if (set != null)
+                        {
+                            matching.put(value, set);
+                        }
+                    }
+                }
+                else
+                {
+                    for (Entry<C,Set<R>> e : map.entrySet())
+                    {
+                        if (values.contains(e.getKey()))
+                        {
+                            matching.put(e.getKey(), e.getValue());
+                        }
+                    }
+                }
+                retainKeys(column, map, matching, "in");
+            }
+        }
+    }
+    /**
+     * Removes rows not matching like conditions in and path. Pattern is 
+     * matched once for each distinct index key. If pattern has literal prefix
+     * and index is sorted, only keys starting with prefix are matched.
+     */
+    private void applyLikeConditions()
+    {
+        for (ColumnCondition<R,C> cc : table.getAndConditions())
+        {
+            if (cc instanceof LikeCondition)
+            {
+                LikeCondition<R,C> lc = (LikeCondition<R,C>) cc;
+                String column = lc.getColumn();
+                Map<C,Set<R>> map = indexes.get(column);
+                if (map == null || map.isEmpty())
+                {
+                    continue;
+                }
+                Map<C,Set<R>> candidates = map;
+                String limit = lc.getPrefixLimit();
+                if (limit != null && (map instanceof NavigableMap))
+                {
+                    NavigableMap<C,Set<R>> nm = (NavigableMap<C,Set<R>>) map;
+                    C lower = selector.convert(lc.getPrefix());
+                    if (lower != null && lower.getClass().equals(nm.firstKey().getClass()))
+                    {
+                        candidates = nm.subMap(lower, true, selector.convert(limit), false);
+                    }
+                }
+                Map<C,Set<R>> matching;
+                if (map instanceof NavigableMap)
+                {
+                    matching = new TreeMap<>(selector.getComparator());
+                }
+                else
+                {
+                    matching = new HashMap<>();
+                }
+                for (Entry<C,Set<R>> e : candidates.entrySet())
+                {
+                    if (lc.isMatch(e.getKey().toString()))
+                    {
+                        matching.put(e.getKey(), e.getValue());
+                    }
+                }
+                retainKeys(column, map, matching, "like");
+            }
+        }
+    }
+    /**
+     * Removes rows not matching single table conditions in and path. Ranges 
+     * are inclusive, so comparisons are evaluated here exactly, once per 
+     * index key. In and like conditions are already applied exactly. After
+     * this the conditions are not evaluated during enumeration.
+     * @see SelectStatement#getResidualCondition() 
+     */
+    private void applyTableConditions()
+    {
+        for (ColumnCondition<R,C> cc : table.getAndConditions())
+        {
+            if (
+                    !(cc instanceof JoinCondition) &&
+                    !(cc instanceof InCondition) &&
+                    !(cc instanceof LikeCondition)
+                    )
+            {
+                int rowCount = all.size();
+                if (all.and(mask(cc)[0]))
+                {
+                    selector.fireFiltered(this, "condition", cc.getColumn(), rowCount, all.size());
+                }
+            }
+        }
+    }
+    /**
+     * Removes rows not matching mask conditions. Rows where condition is true
+     * and rows where it is false are computed as bitmaps. And, or and not are
+     * then word level operations on bitmaps.
+     * @see Table#getMaskConditions() 
+     */
+    private void applyMaskConditions()
+    {
+        for (Condition<R,C> condition : table.getMaskConditions())
+        {
+            int rowCount = all.size();
+            FastSet<R>[] masks = mask(condition);
+            all.and(masks[0]);
+            selector.fireFiltered(this, "mask", null, rowCount, all.size());
+        }
+    }
+    /**
+     * Returns rows where condition is true and rows where it is false.
+     * @param condition
+     * @return 
+     */
+    private FastSet<R>[] mask(Condition<R,C> condition)
+    {
+        if (condition instanceof AndCondition)
+        {
+            AndCondition<R,C> and = (AndCondition<R,C>) condition;
+            FastSet<R>[] m1 = mask(and.getCondition1());
+            FastSet<R>[] m2 = mask(and.getCondition2());
+            m1[0].and(m2[0]);
+            m1[1].or(m2[1]);
+            return m1;
+        }
+        if (condition instanceof OrCondition)
+        {
+            OrCondition<R,C> or = (OrCondition<R,C>) condition;
+            FastSet<R>[] m1 = mask(or.getCondition1());
+            FastSet<R>[] m2 = mask(or.getCondition2());
+            m1[0].or(m2[0]);
+            m1[1].and(m2[1]);
+            return m1;
+        }
+        if (condition instanceof NotCondition)
+        {
+            NotCondition<R,C> not = (NotCondition<R,C>) condition;
+            FastSet<R>[] m = mask(not.getTest());
+            return new FastSet[] {m[1], m[0]};
+        }
+        return mask((ColumnCondition<R,C>) condition);
+    }
+    /**
+     * Returns rows where column condition is true and rows where it is false.
+     * Single column condition is evaluated once for each index key or, if 
+     * column is not indexed, once for each distinct value.
+     * @param cc
+     * @return 
+     */
+    private FastSet<R>[] mask(ColumnCondition<R,C> cc)
+    {
+        FastSet<R> t = all.copy();
+        t.clear();
+        FastSet<R> f = t.copy();
+        boolean singleColumn = !(cc instanceof ColumnComparisonInOneTable);
+        Map<C,Set<R>> map = indexes.get(cc.getColumn());
+        if (singleColumn && map != null)
+        {
+            for (Set<R> set : map.values())
+            {
+                if (!set.isEmpty())
+                {
+                    FastSet<R> target = target(cc.matches(selector, first(set)), t, f);
+                    if (target != null)
+                    {
+                        or(target, set);
+                    }
+                }
+            }
+        }
+        else
+        {
+            Map<C,TruthValue> cache = null;
+            if (singleColumn && selector.supportsHashJoin())
+            {
+                cache = new HashMap<>();
+            }
+            ColumnReference<R,C> cf = cc.getColumnReference();
+            for (int ii=all.nextIndex(0);ii!=-1;ii=all.nextIndex(ii+1))
+            {
+                R row = all.get(ii);
+                TruthValue tv;
+                if (cache != null)
+                {
+                    C value = cf.getValue(selector, row);
+                    tv = cache.get(value);
+                    if (tv == null)
+                    {
+                        tv = cc.matches(selector, row);
+                        cache.put(value, tv);
+                    }
+                }
+                else
+                {
+                    tv = cc.matches(selector, row);
+                }
+                FastSet<R> target = target(tv, t, f);
+                if (target != null)
+                {
+                    target.addIndex(ii);
+                }
+            }
+        }
+        t.and(all);
+        f.and(all);
+        return new FastSet[] {t, f};
+    }
+
+    private static <R> FastSet<R> target(TruthValue tv, FastSet<R> t, FastSet<R> f)
+    {
+        switch (tv)
+        {
+            case TRUE:
+                return t;
+            case FALSE:
+                return f;
+            default:
+                return null;
+        }
+    }
+    /**
+     * Retains rows of matching index entries. Other index keys are dropped.
+     * @param column
+     * @param map Column index
+     * @param matching Retained entries of map
+     * @param step Filtering step reported to execution listeners
+     */
+    private void retainKeys(String column, Map<C,Set<R>> map, Map<C,Set<R>> matching, String step)
+    {
+        if (matching.size() == map.size())
+        {
+            return;
+        }
+        int rowCount = all.size();
+        FastSet<R> mask = all.copy();
+        mask.clear();
+        for (Set<R> set : matching.values())
+        {
+            or(mask, set);
+        }
+        all.and(mask);
+        indexes.put(column, matching);
+        selector.fireFiltered(this, step, column, rowCount, all.size());
+    }
+    private NavigableMap<C,Set<R>> subMap(NavigableMap<C,Set<R>> map, Range<C> range)
+    {
+        C lower = range.getLower();
+        C upper = range.getUpper();
+        if (lower != null && upper != null)
+        {
+            return map.subMap(lower, true, upper, true);
+        }
+        if (lower != null)
+        {
+            return map.tailMap(lower, true);
+        }
+        return map.headMap(upper, true);
+    }
+    /**
+     * Builds column index. Rows having null value are removed.
+     * @param column
+     * @param map
+     * @param setType
+     * @param version Table version. If non negative, all fetched rows are 
+     * indexed and the index is returned for caching.
+     * @return Index for caching or null
+     */
+    private IndexCache.CachedIndex<C> buildIndex(String column, Map<C,Set<R>> map, SetType setType, long version)
+    {
+        boolean cacheable = version >= 0;
+        Map<C,int[]> positions = null;
+        int[] nulls = null;
+        if (cacheable)
+        {
+            if (map instanceof NavigableMap)
+            {
+                positions = new TreeMap<>(selector.getComparator());
+            }
+            else
+            {
+                positions = new HashMap<>();
+            }
+            nulls = new int[1];
+        }
+        ColumnAccessor<R,C> accessor = selector.accessor(column);
+        int capacity = all.capacity();
+        for (int ii=0;ii<capacity;ii++)
+        {
+            boolean contains = all.containsIndex(ii);
+            if (!contains && !cacheable)
+            {
+                continue;
+            }
+            R row = all.get(ii);
+            C value = accessor.get(row);
+            if (value != null)
+            {
+                if (contains)
+                {
+                    Set<R> set = map.get(value);
+                    if (set == null)
+                    {
+                        set = createSet(setType);
+                        map.put(value, set);
+                    }
+                    addIndex(set, ii);
+                }
+                if (cacheable)
+                {
+                    int[] arr = positions.get(value);
+                    if (arr == null)
+                    {
+                        arr = new int[2];
+                    }
+                    positions.put(value, append(arr, ii));
+                }
+            }
+            else
+            {
+                all.removeIndex(ii);
+                if (cacheable)
+                {
+                    nulls = append(nulls, ii);
+                }
+            }
+        }
+        if (cacheable)
+        {
+            for (Entry<C,int[]> entry : positions.entrySet())
+            {
+                entry.setValue(trim(entry.getValue()));
+            }
+            return new IndexCache.CachedIndex<>(version, all.capacity(), positions, trim(nulls));
+        }
+        return null;
+    }
+    /**
+     * Restores column index from cache.
+     * @param cached
+     * @param map
+     * @param setType 
+     */
+    private void restoreIndex(IndexCache.CachedIndex<C> cached, Map<C,Set<R>> map, SetType setType)
+    {
+        for (int index : cached.getNulls())
+        {
+            all.removeIndex(index);
+        }
+        for (Entry<C,int[]> entry : cached.getPositions().entrySet())
+        {
+            Set<R> set = null;
+            for (int index : entry.getValue())
+            {
+                if (all.containsIndex(index))
+                {
+                    if (set == null)
+                    {
+                        set = createSet(setType);
+                        map.put(entry.getKey(), set);
+                    }
+                    addIndex(set, index);
+                }
+            }
+        }
+    }
+    /**
+     * Returns true if compressed sets use less memory than bitmaps when 
+     * column has count distinct values. Bitmap uses capacity bits. Compressed
+     * set uses 16 bits per row and a container overhead.
+     * @param count Distinct values in column. 0 if not known
+     * @return 
+     */
+    private boolean isSparse(long count)
+    {
+        if (count <= 0)
+        {
+            return false;
+        }
+        int capacity = all.capacity();
+        return 2.0*capacity/count + CONTAINER_OVERHEAD < capacity/8.0;
+    }
+    private Set<R> createSet(SetType setType)
+    {
+        switch (setType)
+        {
+            case SINGLE:
+                return all.singleSub();
+            case ROARING:
+                return all.roaringSub();
+            default:
+                return all.sub();
+        }
+    }
+    private void addIndex(Set<R> set, int index)
+    {
+        if (set instanceof SingleSubSet)
+        {
+            SingleSubSet<R> sss = (SingleSubSet<R>) set;
+            sss.addIndex(index);
+        }
+        else
+        {
+            if (set instanceof RoaringSubSet)
+            {
+                RoaringSubSet<R> rss = (RoaringSubSet<R>) set;
+                rss.addIndex(index);
+            }
+            else
+            {
+                FastSet<R> fs = (FastSet<R>) set;
+                fs.addIndex(index);
+            }
+        }
+    }
+    /**
+     * Appends value to array. First item in array is the number of values.
+     * @param arr
+     * @param value
+     * @return 
+     */
+    private static int[] append(int[] arr, int value)
+    {
+        int count = arr[0]+1;
+        if (count >= arr.length)
+        {
+            arr = Arrays.copyOf(arr, arr.length*2);
+        }
+        arr[count] = value;
+        arr[0] = count;
+        return arr;
+    }
+    private static int[] trim(int[] arr)
+    {
+        return Arrays.copyOfRange(arr, 1, arr[0]+1);
+    }
+    /**
+     * Returns true if column index has to be sorted. Sorted index is needed
+     * when a range relation is used with the column or when engine doesn't
+     * support hash join. Otherwise index is hashed and equi-joins using it
+     * are made with hash join.
+     * @param column
+     * @return 
+     */
+    private boolean needsOrdering(String column)
+    {
+        if (!selector.supportsHashJoin())
+        {
+            return true;
+        }
+        for (ColumnCondition cc : table.getAndConditions())
+        {
+            if (column.equals(cc.getColumn()))
+            {
+                if ((cc instanceof LikeCondition) && ((LikeCondition)cc).getPrefixLimit() != null)
+                {
+                    return true;
+                }
+                if ((cc instanceof ValueComparisonCondition) || (cc instanceof JoinCondition))
+                {
+                    ColumnComparisonCondition ccc = (ColumnComparisonCondition) cc;
+                    if (!Relation.EQ.equals(ccc.getRelation()))
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+    /**
+     * Joins two indexes using hashCode/equals. Unmatched keys are removed and 
+     * their row sets are cleared.
+     * @param thisMap
+     * @param otherMap
+     * @param otherAll
+     * @return 
+     */
+    private JoinMap<R>[] hashJoin(Map<C,Set<R>> thisMap, Map<C,Set<R>> otherMap, FastSet<R> otherAll)
+    {
+        GroupJoinMap<R> mapThis = new GroupJoinMap<>(all, otherAll);
+        GroupJoinMap<R> mapOther = new GroupJoinMap<>(otherAll, all);
+        Iterator<Entry<C,Set<R>>> thisIterator = thisMap.entrySet().iterator();
+        while (thisIterator.hasNext())
+        {
+            Entry<C,Set<R>> entry = thisIterator.next();
+            Set<R> thisSet = entry.getValue();
+            Set<R> otherSet = otherMap.get(entry.getKey());
+            if (otherSet != null)
+            {
+                // accept the pair
+                mapThis.addGroup(thisSet, otherSet);
+                mapOther.addGroup(otherSet, thisSet);
+            }
+            else
+            {
+                thisSet.clear();
+                thisIterator.remove();
+            }
+        }
+        Iterator<Entry<C,Set<R>>> otherIterator = otherMap.entrySet().iterator();
+        while (otherIterator.hasNext())
+        {
+            Entry<C,Set<R>> entry = otherIterator.next();
+            if (!thisMap.containsKey(entry.getKey()))
+            {
+                entry.getValue().clear();
+                otherIterator.remove();
+            }
+        }
+        return new JoinMap[] {mapThis, mapOther};
+    }
+    private JoinMap<R>[] merge(NavigableMap<C,Set<R>> thisMap, NavigableMap<C,Set<R>> otherMap, FastSet<R> otherAll)
+    {
+        GroupJoinMap<R> mapThis = new GroupJoinMap<>(all, otherAll);
+        GroupJoinMap<R> mapOther = new GroupJoinMap<>(otherAll, all);
         Comparator<? super C> comparator = thisMap.comparator();
         Iterator<C> thisIterator = thisMap.keySet().iterator();
         Iterator<C> otherIterator = otherMap.keySet().iterator();
@@ -225,14 +1101,8 @@ public class TableContext<R,C>
                     // accept the pair
                     Set<R> thisSet = thisMap.get(thisValue);
                     Set<R> otherSet = otherMap.get(otherValue);
-                    for (R row : thisSet)
-                    {
-                        mapThis.put(row, otherSet);
-                    }
-                    for (R row : otherSet)
-                    {
-                        mapOther.put(row, thisSet);
-                    }
+                    mapThis.addGroup(thisSet, otherSet);
+                    mapOther.addGroup(otherSet, thisSet);
                     if (!thisIterator.hasNext() || !otherIterator.hasNext())
                     {
                         break;
@@ -265,7 +1135,14 @@ public class TableContext<R,C>
 
     public NavigableSet<C> getColumnValues(String column)
     {
-        return indexes.get(column).navigableKeySet();
+        Map<C,Set<R>> map = indexes.get(column);
+        if (map instanceof NavigableMap)
+        {
+            return ((NavigableMap<C,Set<R>>)map).navigableKeySet();
+        }
+        NavigableSet<C> set = new TreeSet<>(selector.getComparator());
+        set.addAll(map.keySet());
+        return set;
     }
     
     public boolean hasData()
@@ -273,39 +1150,265 @@ public class TableContext<R,C>
         return all != null && !all.isEmpty();
     }
 
+    /**
+     * Updates column range and key filter hints of tables not yet fetched.
+     * Only keys having rows left after filtering are used.
+     * @param tableRanges 
+     */
     public void updateHints(List<TableContext<R,C>> tableRanges)
     {
-        for (TableContext th : tableRanges)
+        Map<String,KeyFilter<C>> filters = new HashMap<>();
+        Map<String,List<C>> liveKeys = new HashMap<>();
+        for (TableContext<R,C> th : tableRanges)
         {
             if (!table.equals(th.getTable()))
             {
                 for (String column : indexes.keySet())
                 {
-                    SortedMap<C,Set<R>> map = indexes.get(column);
-                    if (!map.isEmpty())
+                    List<C> keys = liveKeys.get(column);
+                    if (keys == null)
                     {
-                        th.narrow(table, column, map.firstKey(), map.lastKey());
+                        keys = getLiveKeys(indexes.get(column));
+                        liveKeys.put(column, keys);
+                    }
+                    if (!keys.isEmpty())
+                    {
+                        if (selector.isKeyFilters())
+                        {
+                            for (String thColumn : th.getEquiJoinColumns(table, column))
+                            {
+                                if (!filters.containsKey(column))
+                                {
+                                    filters.put(column, selector.createKeyFilter(new HashSet<>(keys)));
+                                }
+                                KeyFilter<C> filter = filters.get(column);
+                                if (filter != null)
+                                {
+                                    th.addKeyFilter(thColumn, filter);
+                                }
+                            }
+                        }
+                        if (indexes.get(column) instanceof NavigableMap)
+                        {
+                            th.narrow(table, column, keys.get(0), keys.get(keys.size()-1));
+                        }
+                        else
+                        {
+                            Comparator<C> comparator = selector.getComparator();
+                            C min = keys.get(0);
+                            C max = min;
+                            for (int ii=1;ii<keys.size();ii++)
+                            {
+                                C key = keys.get(ii);
+                                if (comparator.compare(key, min) < 0)
+                                {
+                                    min = key;
+                                }
+                                if (comparator.compare(key, max) > 0)
+                                {
+                                    max = key;
+                                }
+                            }
+                            th.narrow(table, column, min, max);
+                        }
                     }
                 }
             }
         }
     }
 
-    public void narrow(Table fromTable, String column, C lower, C upper)
+    /**
+     * Returns index keys in index order having rows. Index sets follow rows 
+     * removed from this table, so keys of removed rows have empty sets.
+     * @param map
+     * @return 
+     */
+    private List<C> getLiveKeys(Map<C,Set<R>> map)
+    {
+        List<C> keys = new ArrayList<>();
+        for (Entry<C,Set<R>> entry : map.entrySet())
+        {
+            if (!entry.getValue().isEmpty())
+            {
+                keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Returns columns joined with equal relation to fromTable column.
+     * @param fromTable
+     * @param column
+     * @return 
+     */
+    private List<String> getEquiJoinColumns(Table fromTable, String column)
     {
+        List<String> list = new ArrayList<>();
         for (ColumnCondition tc : table.getAndConditions())
         {
             if (tc instanceof JoinCondition)
             {
-                JoinCondition jc = (JoinCondition) tc;
-                Range<C> range = columnRanges.get(column);
-                if (range == null)
+                JoinCondition<R,C> jc = (JoinCondition) tc;
+                ColumnReference<R,C> cr2 = jc.getColumnReference2();
+                if (
+                        Relation.EQ.equals(jc.getRelation()) && 
+                        fromTable.equals(cr2.getTable()) && 
+                        column.equals(cr2.getColumn())
+                        )
                 {
-                    columnRanges.put(column, jc.narrow(selector, range, fromTable, column, lower, upper));
+                    list.add(jc.getColumn());
                 }
-                else
+            }
+        }
+        return list;
+    }
+    /**
+     * Adds key filter for column. Filters for the same column are anded.
+     * @param column
+     * @param filter 
+     */
+    public void addKeyFilter(String column, KeyFilter<C> filter)
+    {
+        KeyFilter<C> old = keyFilters.get(column);
+        if (old != null)
+        {
+            keyFilters.put(column, old.and(filter));
+        }
+        else
+        {
+            keyFilters.put(column, filter);
+            keyFilterAccessors.put(column, selector.accessor(column));
+        }
+    }
+    /**
+     * Returns key filter for column or null. Column values rejected by filter
+     * have no matching rows in already fetched tables.
+     * @param column
+     * @return 
+     */
+    public KeyFilter<C> getKeyFilter(String column)
+    {
+        return keyFilters.get(column);
+    }
+
+    public Map<String, KeyFilter<C>> getKeyFilters()
+    {
+        return keyFilters;
+    }
+    /**
+     * Returns false if row is rejected by any key filter. Rejected rows are 
+     * counted. Fetch implementation can call this to filter rows before 
+     * returning them.
+     * @param row
+     * @return 
+     */
+    public boolean mightMatch(R row)
+    {
+        for (Entry<String,KeyFilter<C>> entry : keyFilters.entrySet())
+        {
+            C value = keyFilterAccessors.get(entry.getKey()).get(row);
+            if (!entry.getValue().mightContain(value))
+            {
+                keyFilterEliminated++;
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Returns the number of rows rejected by key filters.
+     * @return 
+     */
+    public long getKeyFilterEliminated()
+    {
+        return keyFilterEliminated;
+    }
+
+    /**
+     * Returns the number of fetched rows.
+     * @return 
+     */
+    public int getFetchedCount()
+    {
+        return fetchedCount;
+    }
+    /**
+     * Returns the number of rows removed because of null join or condition 
+     * column.
+     * @return 
+     */
+    public int getNullRemovedCount()
+    {
+        return nullRemovedCount;
+    }
+    /**
+     * Returns the number of rows after single table conditions and before 
+     * joins.
+     * @return 
+     */
+    public int getFilteredCount()
+    {
+        return filteredCount;
+    }
+    /**
+     * Returns the fetch time in nanoseconds.
+     * @return 
+     */
+    public long getFetchTime()
+    {
+        return fetchTime;
+    }
+
+    void setFetchTime(long fetchTime)
+    {
+        this.fetchTime = fetchTime;
+    }
+    /**
+     * Returns the time spent in setData in nanoseconds.
+     * @return 
+     */
+    public long getDataTime()
+    {
+        return dataTime;
+    }
+
+    private Collection<R> applyKeyFilters(Collection<R> rows)
+    {
+        List<R> list = new ArrayList<>(rows.size());
+        for (R row : rows)
+        {
+            if (mightMatch(row))
+            {
+                list.add(row);
+            }
+        }
+        if (list.size() == rows.size())
+        {
+            return rows;
+        }
+        selector.fireFiltered(this, "key filter", null, rows.size(), list.size());
+        return list;
+    }
+    /**
+     * Narrows column ranges of columns joined to fromTable column.
+     * @param fromTable
+     * @param column fromTable column
+     * @param lower fromTable column minimum
+     * @param upper fromTable column maximum
+     */
+    public void narrow(Table fromTable, String column, C lower, C upper)
+    {
+        for (ColumnCondition tc : table.getAndConditions())
+        {
+            if (tc instanceof JoinCondition)
+            {
+                JoinCondition<R,C> jc = (JoinCondition) tc;
+                String thisColumn = jc.getColumn();
+                Range<C> range = jc.narrow(selector, columnRanges.get(thisColumn), fromTable, column, lower, upper);
+                if (range != null)
                 {
-                    jc.narrow(selector, range, fromTable, column, lower, upper);
+                    columnRanges.put(thisColumn, range);
                 }
             }
         }
@@ -358,7 +1461,7 @@ public class TableContext<R,C>
         return all;
     }
 
-    public Map<String, NavigableMap<C, Set<R>>> getIndexes()
+    public Map<String, Map<C, Set<R>>> getIndexes()
     {
         return indexes;
     }
@@ -373,10 +1476,57 @@ public class TableContext<R,C>
         return selector;
     }
 
+    /**
+     * Returns first member of non empty set. Indexed sets are accessed by 
+     * member index.
+     * @param set
+     * @return 
+     */
+    private R first(Set<R> set)
+    {
+        if (set instanceof IndexedSet)
+        {
+            int index = ((IndexedSet<R>) set).nextIndex(0);
+            if (index >= 0)
+            {
+                return all.get(index);
+            }
+        }
+        return set.iterator().next();
+    }
+    /**
+     * Adds members of set to target. Indexed sets are added by member index
+     * without hashing the rows.
+     * @param target
+     * @param set Member of target's initial collection
+     */
+    private static <R> void or(FastSet<R> target, Set<R> set)
+    {
+        if (set instanceof FastSet)
+        {
+            target.or((FastSet<R>) set);
+        }
+        else
+        {
+            if (set instanceof IndexedSet)
+            {
+                IndexedSet<R> is = (IndexedSet<R>) set;
+                for (int ii=is.nextIndex(0);ii>=0;ii=is.nextIndex(ii+1))
+                {
+                    target.addIndex(ii);
+                }
+            }
+            else
+            {
+                target.addAll(set);
+            }
+        }
+    }
+
     private void removeAll()
     {
         all.clear();
-        for (NavigableMap<C, Set<R>> map : indexes.values())
+        for (Map<C, Set<R>> map : indexes.values())
         {
             map.clear();
         }
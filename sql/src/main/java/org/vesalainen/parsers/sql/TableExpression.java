@@ -26,14 +26,20 @@ import java.util.List;
 public class TableExpression<R,C> 
 {
     private Condition condition;
+    private List<ColumnReference<R,C>> groupBy;
+    private Condition having;
     private List<SortSpecification> sortSpecificationList;
     private List<Table<R,C>> tableList;
+    private Limit limit;
 
-    TableExpression(List<Table<R,C>> tableList, Condition condition, List<SortSpecification> sortSpecificationList)
+    TableExpression(List<Table<R,C>> tableList, Condition condition, List<ColumnReference<R,C>> groupBy, Condition having, List<SortSpecification> sortSpecificationList, Limit limit)
     {
         this.tableList = tableList;
         this.condition = condition;
+        this.groupBy = groupBy;
+        this.having = having;
         this.sortSpecificationList = sortSpecificationList;
+        this.limit = limit;
     }
 
     public List<Table<R,C>> getTableList()
@@ -46,9 +52,24 @@ public class TableExpression<R,C>
         return condition;
     }
 
+    public List<ColumnReference<R,C>> getGroupBy()
+    {
+        return groupBy;
+    }
+
+    public Condition getHaving()
+    {
+        return having;
+    }
+
     public List<SortSpecification> getSortSpecificationList()
     {
         return sortSpecificationList;
     }
 
+    public Limit getLimit()
+    {
+        return limit;
+    }
+
 }
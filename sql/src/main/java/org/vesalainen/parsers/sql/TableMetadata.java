@@ -28,4 +28,16 @@ public interface TableMetadata
     long getCount();
     ColumnMetadata getColumnMetadata(String name);
     Iterable<ColumnMetadata> getColumns();
+    /**
+     * Returns data version of table. Version must change when table data 
+     * changes, also when changed outside of this engine. Column indexes of 
+     * tables having non negative version are cached between statements when 
+     * all table rows are fetched. Rows fetched for the same version must be 
+     * in the same order. Default implementation returns -1.
+     * @return 
+     */
+    default long getVersion()
+    {
+        return -1;
+    }
 }
@@ -59,4 +59,11 @@ public class UpdateStatement<R,C> extends WhereStatement<R,C>
     {
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        setClauseList = copier.copyList(setClauseList);
+    }
+
 }
@@ -39,11 +39,30 @@ public class UpdateableFetchResult<R,C> extends OrderedFetchResult<R,C>
     public UpdateableFetchResult(Engine<R, C> engine, SelectStatement<R,C> select)
     {
         super(engine, select);
+        if (select.isAggregate())
+        {
+            throw new IllegalArgumentException("aggregate select is not updateable");
+        }
+        if (select.isDistinct())
+        {
+            throw new IllegalArgumentException("select distinct is not updateable");
+        }
         updateable = new ArrayList<>();
     }
     
+    @Override
+    public boolean isLimitReached()
+    {
+        return limit >= 0 && sortSpecification == null && updateable.size() >= limit;
+    }
+    
     public void addRow(ArrayMap<Table<R, C>, R> rowCandidate)
     {
+        if (limit >= 0 && sortSpecification == null && skipped < offset)
+        {
+            skipped++;
+            return;
+        }
         Updateable<R,C>[] row = (Updateable<R,C>[]) new Updateable[length];
         updateable.add(row);
         int index = 0;
@@ -65,6 +84,12 @@ public class UpdateableFetchResult<R,C> extends OrderedFetchResult<R,C>
         {
             ArrayComparator comparator = new ArrayComparator(engine.getComparator(), columnReferences, sortSpecification);
             Collections.sort(updateable, comparator);
+            if (limit >= 0)
+            {
+                int from = (int) Math.min(offset, updateable.size());
+                int to = (int) Math.min(offset+limit, updateable.size());
+                updateable = new ArrayList<>(updateable.subList(from, to));
+            }
             sorted = true;
         }
         return new DataIterator();
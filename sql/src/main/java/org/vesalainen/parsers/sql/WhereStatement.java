@@ -51,15 +51,17 @@ public abstract class WhereStatement<R, C> extends Statement<R, C> implements Co
     
     protected Collection<R> getTarget()
     {
+        engine.executeSubQueries(condition);
         Collection<R> rows = engine.fetch(table);
         ArrayMap<Table<R,C>,R> rowCandidate = new ArrayMap<>(table);
         int index = rowCandidate.getIndexOf(table);
+        Condition<R,C> compiled = engine.compileCondition(condition, rowCandidate);
         Iterator<R> iterator = rows.iterator();
         while (iterator.hasNext())
         {
             R row = iterator.next();
             rowCandidate.put(index, row);
-            if (condition != null && condition.matches(engine, rowCandidate) != TruthValue.TRUE)
+            if (compiled != null && compiled.matches(engine, rowCandidate) != TruthValue.TRUE)
             {
                 iterator.remove();
             }
@@ -84,7 +86,16 @@ public abstract class WhereStatement<R, C> extends Statement<R, C> implements Co
         {
             ColumnCondition cc = (ColumnCondition) condition;
             table.associateCondition(cc, andPath);
+            cc.getColumnReference().resolvAccessor(engine);
         }
     }
 
+    @Override
+    void copyFields(StatementCopier copier)
+    {
+        super.copyFields(copier);
+        table = copier.copy(table);
+        condition = copier.copy(condition);
+    }
+
 }
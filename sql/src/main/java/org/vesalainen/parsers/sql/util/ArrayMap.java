@@ -20,8 +20,6 @@ package org.vesalainen.parsers.sql.util;
 import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -30,40 +28,58 @@ import java.util.Set;
  */
 public class ArrayMap<T,V> extends AbstractMap<T,V> implements Cloneable
 {
-    private Map<T,Integer> map;
+    private T[] keys;
     private V[] array;
 
+    // arrays are only accessed through T and V typed methods
+    @SuppressWarnings("unchecked")
     public ArrayMap(Collection<T> init)
     {
-        this.array = (V[]) new Object[init.size()];
-        map = new HashMap<>(init.size()*2);
-        int index = 0;
-        for (T t : init)
-        {
-            map.put(t, index++);
-        }
+        this.keys = (T[]) init.toArray();
+        this.array = (V[]) new Object[keys.length];
     }
 
+    @SafeVarargs
+    @SuppressWarnings({"unchecked", "varargs"})
     public ArrayMap(T... init)
     {
-        this.array = (V[]) new Object[init.length];
-        map = new HashMap<>(init.length*2);
-        int index = 0;
-        for (T t : init)
-        {
-            map.put(t, index++);
-        }
+        this.keys = Arrays.copyOf(init, init.length);
+        this.array = (V[]) new Object[keys.length];
     }
 
     public int getIndexOf(T key)
     {
-        Integer index = map.get(key);
-        if (index != null)
+        int index = indexOf(key);
+        if (index != -1)
         {
             return index;
         }
         throw new IllegalArgumentException(key+" unknown");
     }
+    /**
+     * Returns index of key or -1. Keys are few, so they are scanned linearly.
+     * Identity is checked before equals.
+     * @param key
+     * @return 
+     */
+    private int indexOf(Object key)
+    {
+        for (int ii=0;ii<keys.length;ii++)
+        {
+            if (keys[ii] == key)
+            {
+                return ii;
+            }
+        }
+        for (int ii=0;ii<keys.length;ii++)
+        {
+            if (keys[ii].equals(key))
+            {
+                return ii;
+            }
+        }
+        return -1;
+    }
     
     @Override
     public int size()
@@ -88,8 +104,8 @@ public class ArrayMap<T,V> extends AbstractMap<T,V> implements Cloneable
     @Override
     public boolean containsKey(Object key)
     {
-        Integer index = map.get(key);
-        if (index != null)
+        int index = indexOf(key);
+        if (index != -1)
         {
             return array[index] != null;
         }
@@ -112,8 +128,8 @@ public class ArrayMap<T,V> extends AbstractMap<T,V> implements Cloneable
     @Override
     public V get(Object key)
     {
-        Integer index = map.get(key);
-        if (index != null)
+        int index = indexOf(key);
+        if (index != -1)
         {
             return array[index];
         }
@@ -122,7 +138,7 @@ public class ArrayMap<T,V> extends AbstractMap<T,V> implements Cloneable
 
     public V get(int index)
     {
-        return (V) array[index];
+        return array[index];
     }
 
     public int capacity()
@@ -133,10 +149,10 @@ public class ArrayMap<T,V> extends AbstractMap<T,V> implements Cloneable
     @Override
     public V put(T key, V value)
     {
-        Integer index = map.get(key);
-        if (index != null)
+        int index = indexOf(key);
+        if (index != -1)
         {
-            V v = (V) array[index];
+            V v = array[index];
             array[index] = value;
             return v;
         }
@@ -145,7 +161,7 @@ public class ArrayMap<T,V> extends AbstractMap<T,V> implements Cloneable
 
     public V put(int index, V value)
     {
-        V v = (V) array[index];
+        V v = array[index];
         array[index] = value;
         return v;
     }
@@ -153,10 +169,10 @@ public class ArrayMap<T,V> extends AbstractMap<T,V> implements Cloneable
     @Override
     public V remove(Object key)
     {
-        Integer index = map.get(key);
-        if (index != null)
+        int index = indexOf(key);
+        if (index != -1)
         {
-            V v = (V) array[index];
+            V v = array[index];
             array[index] = null;
             return v;
         }
@@ -165,7 +181,7 @@ public class ArrayMap<T,V> extends AbstractMap<T,V> implements Cloneable
 
     public V remove(int index)
     {
-        V v = (V) array[index];
+        V v = array[index];
         array[index] = null;
         return v;
     }
@@ -184,7 +200,7 @@ public class ArrayMap<T,V> extends AbstractMap<T,V> implements Cloneable
     @Override
     public String toString()
     {
-        return "ArrayMap{" + "map=" + map + '}';
+        return "ArrayMap{" + "keys=" + Arrays.toString(keys) + '}';
     }
 
 }
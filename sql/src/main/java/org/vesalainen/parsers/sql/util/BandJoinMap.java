@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * BandJoinMap is a JoinMap for non-equal joins. Target rows are ordered by 
+ * sorted target index keys. Target rows of a source row are the rows having 
+ * key between the lower and upper bound set by source row values. Bounds 
+ * are stored as key positions, so matching rows are enumerated without 
+ * comparing.
+ * 
+ * <p>Several bounds can be set. E.g. target.time &gt;= source.start and 
+ * target.time &lt;= source.end.
+ * @author Timo Vesalainen
+ * @param <T> Row
+ * @param <C> Column
+ */
+public class BandJoinMap<T,C> implements Map<T,Set<T>>, IndexJoinMap<T> 
+{
+    private FastSet<T> source;
+    private FastSet<T> target;
+    private Comparator<? super C> comparator;
+    private C[] keys;
+    private int[] keyOffsets;
+    private int[] targets;
+    private int[] lower;
+    private int[] upper;
+    private int size = -1;
+    private long valueCount;
+    /**
+     * Creates BandJoinMap without bounds. Every source row is joined to every
+     * target row.
+     * @param source
+     * @param target
+     * @param targetIndex Sorted index of target column
+     */
+    public BandJoinMap(FastSet<T> source, FastSet<T> target, NavigableMap<C,? extends Set<T>> targetIndex)
+    {
+        this.source = source;
+        this.target = target;
+        this.comparator = targetIndex.comparator();
+        @SuppressWarnings("unchecked")
+        C[] k = (C[]) targetIndex.keySet().toArray();    // read only through C typed compare
+        keys = k;
+        keyOffsets = new int[keys.length+1];
+        targets = new int[Math.max(16, target.size())];
+        int count = 0;
+        int key = 0;
+        for (Set<T> set : targetIndex.values())
+        {
+            keyOffsets[key++] = count;
+            for (int index : indexes(set, target))
+            {
+                if (count == targets.length)
+                {
+                    targets = Arrays.copyOf(targets, count*2);
+                }
+                targets[count++] = index;
+            }
+        }
+        keyOffsets[key] = count;
+        lower = new int[source.capacity()];
+        upper = new int[source.capacity()];
+        Arrays.fill(upper, keys.length);
+    }
+    /**
+     * Limits target keys from below.
+     * @param sourceIndex Index of source column
+     * @param inclusive If true target key &gt;= source value. Otherwise
+     * target key &gt; source value.
+     */
+    public void lower(Map<C,? extends Set<T>> sourceIndex, boolean inclusive)
+    {
+        for (Entry<C,? extends Set<T>> entry : sourceIndex.entrySet())
+        {
+            int pos = inclusive ? lowerBound(entry.getKey()) : upperBound(entry.getKey());
+            for (int index : indexes(entry.getValue(), source))
+            {
+                if (lower[index] < pos)
+                {
+                    lower[index] = pos;
+                }
+            }
+        }
+        size = -1;
+    }
+    /**
+     * Limits target keys from above.
+     * @param sourceIndex Index of source column
+     * @param inclusive If true target key &lt;= source value. Otherwise
+     * target key &lt; source value.
+     */
+    public void upper(Map<C,? extends Set<T>> sourceIndex, boolean inclusive)
+    {
+        for (Entry<C,? extends Set<T>> entry : sourceIndex.entrySet())
+        {
+            int pos = inclusive ? upperBound(entry.getKey()) : lowerBound(entry.getKey());
+            for (int index : indexes(entry.getValue(), source))
+            {
+                if (upper[index] > pos)
+                {
+                    upper[index] = pos;
+                }
+            }
+        }
+        size = -1;
+    }
+    /**
+     * Removes source rows having no target rows from source set and target 
+     * rows not joined to any source row from target set.
+     */
+    public void retainMatched()
+    {
+        int[] cover = new int[keys.length+1];
+        int index = source.nextIndex(0);
+        while (index != -1)
+        {
+            if (lower[index] < upper[index])
+            {
+                cover[lower[index]]++;
+                cover[upper[index]]--;
+            }
+            else
+            {
+                source.removeIndex(index);
+            }
+            index = source.nextIndex(index+1);
+        }
+        int sum = 0;
+        for (int key=0;key<keys.length;key++)
+        {
+            sum += cover[key];
+            if (sum == 0)
+            {
+                for (int ii=keyOffsets[key];ii<keyOffsets[key+1];ii++)
+                {
+                    if (target.containsIndex(targets[ii]))
+                    {
+                        target.removeIndex(targets[ii]);
+                    }
+                }
+            }
+        }
+        size = -1;
+    }
+    /**
+     * Returns index of first key &gt;= value.
+     */
+    private int lowerBound(C value)
+    {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (compare(keys[mid], value) < 0)
+            {
+                lo = mid+1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+    /**
+     * Returns index of first key &gt; value.
+     */
+    private int upperBound(C value)
+    {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            if (compare(keys[mid], value) <= 0)
+            {
+                lo = mid+1;
+            }
+            else
+            {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // without comparator keys are Comparable as in TreeMap
+    @SuppressWarnings("unchecked")
+    private int compare(C c1, C c2)
+    {
+        if (comparator != null)
+        {
+            return comparator.compare(c1, c2);
+        }
+        return ((Comparable<C>)c1).compareTo(c2);
+    }
+
+    private static <T> int[] indexes(Set<T> set, FastSet<T> base)
+    {
+        int[] arr = new int[set.size()];
+        int count = 0;
+        if (set instanceof IndexedSet)
+        {
+            IndexedSet<T> is = (IndexedSet<T>) set;
+            int index = is.nextIndex(0);
+            while (index != -1)
+            {
+                if (count == arr.length)
+                {
+                    arr = Arrays.copyOf(arr, count*2+1);
+                }
+                arr[count++] = index;
+                index = is.nextIndex(index+1);
+            }
+        }
+        else
+        {
+            for (T t : set)
+            {
+                if (count == arr.length)
+                {
+                    arr = Arrays.copyOf(arr, count*2+1);
+                }
+                arr[count++] = base.getIndexOf(t);
+            }
+        }
+        return count == arr.length ? arr : Arrays.copyOf(arr, count);
+    }
+
+    private void count()
+    {
+        if (size == -1)
+        {
+            int count = 0;
+            long values = 0;
+            int index = source.nextIndex(0);
+            while (index != -1)
+            {
+                int len = last(index) - first(index);
+                if (len > 0)
+                {
+                    count++;
+                    values += len;
+                }
+                index = source.nextIndex(index+1);
+            }
+            size = count;
+            valueCount = values;
+        }
+    }
+
+    @Override
+    public int first(int sourceIndex)
+    {
+        return keyOffsets[lower[sourceIndex]];
+    }
+
+    @Override
+    public int last(int sourceIndex)
+    {
+        if (lower[sourceIndex] < upper[sourceIndex])
+        {
+            return keyOffsets[upper[sourceIndex]];
+        }
+        return keyOffsets[lower[sourceIndex]];
+    }
+
+    @Override
+    public int target(int position)
+    {
+        return targets[position];
+    }
+    /**
+     * Returns the number of joined target rows of all source rows.
+     * @return 
+     */
+    public long getValueCount()
+    {
+        count();
+        return valueCount;
+    }
+
+    @Override
+    public float getRatio()
+    {
+        count();
+        return (float)valueCount/(float)size;
+    }
+
+    @Override
+    public int size()
+    {
+        count();
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        int index = source.indexOf(key);
+        return index >= 0 && first(index) < last(index);
+    }
+
+    @Override
+    public boolean containsValue(Object value)
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Set<T> get(Object key)
+    {
+        int index = source.indexOf(key);
+        if (index >= 0)
+        {
+            return new PositionSet<>(this, target, first(index), last(index));
+        }
+        return null;
+    }
+
+    @Override
+    public Set<T> put(T key, Set<T> value)
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Set<T> remove(Object key)
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void putAll(Map<? extends T, ? extends Set<T>> m)
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void clear()
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Set<T> keySet()
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Collection<Set<T>> values()
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Set<Entry<T, Set<T>>> entrySet()
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+/**
+ * Bloom filter KeyFilter. Keys are hashed using hashCode, so it can be used 
+ * only when key equals and hashCode are consistent.
+ * @author Timo Vesalainen
+ * @param <C>
+ */
+public class BloomFilter<C> implements KeyFilter<C>
+{
+    private long[] bits;
+    private int bitCount;
+    private int hashCount;
+    /**
+     * Creates Bloom filter sized for expected number of keys.
+     * @param expected Expected number of keys
+     * @param fpp Wanted false positive probability 0 - 1
+     */
+    public BloomFilter(int expected, double fpp)
+    {
+        if (fpp <= 0 || fpp >= 1)
+        {
+            throw new IllegalArgumentException("false positive probability "+fpp+" not in 0 - 1");
+        }
+        expected = Math.max(1, expected);
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-expected*Math.log(fpp)/(ln2*ln2));
+        m = Math.max(64, Math.min(m, Integer.MAX_VALUE-63));
+        bits = new long[(int) ((m+63)/64)];
+        bitCount = bits.length*64;
+        hashCount = Math.max(1, (int) Math.round((double)m/expected*ln2));
+    }
+
+    public void add(C key)
+    {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash>>>32);
+        for (int ii=1;ii<=hashCount;ii++)
+        {
+            int index = index(h1 + ii*h2);
+            bits[index>>>6] |= 1L<<index;
+        }
+    }
+
+    @Override
+    public boolean mightContain(C key)
+    {
+        if (key == null)
+        {
+            return false;
+        }
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash>>>32);
+        for (int ii=1;ii<=hashCount;ii++)
+        {
+            int index = index(h1 + ii*h2);
+            if ((bits[index>>>6] & 1L<<index) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int index(int combined)
+    {
+        if (combined < 0)
+        {
+            combined = ~combined;
+        }
+        return combined % bitCount;
+    }
+    /**
+     * Spreads hashCode to 64 bits (MurmurHash3 finalizer).
+     * @param key
+     * @return 
+     */
+    private static long hash(Object key)
+    {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+        h ^= h>>>33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h>>>33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h>>>33;
+        return h;
+    }
+
+    public int getBitCount()
+    {
+        return bitCount;
+    }
+
+    public int getHashCount()
+    {
+        return hashCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BloomFilter{" + "bits=" + bitCount + ", hashes=" + hashCount + '}';
+    }
+
+}
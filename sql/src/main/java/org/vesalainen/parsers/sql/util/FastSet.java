@@ -24,43 +24,48 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
  * @author Timo Vesalainen
  */
-public class FastSet<T> extends AbstractSet<T>
+public class FastSet<T> extends AbstractSet<T> implements IndexedSet<T>
 {
-    private Map<T,Integer> map;
+    private Base<T> base;
     private T[] array;
     private long[] bits;
+    private long lastWordMask;
+    private int cardinality;
+    int modCount;
     
     public FastSet(Collection<T> all)
     {
         this(all, false);
     }
+    // array is only accessed through T typed methods
+    @SuppressWarnings("unchecked")
     public FastSet(Collection<T> all, boolean fill)
     {
-        map = new HashMap<>();
-        array = (T[]) new Object[all.size()];
+        array = (T[]) all.toArray();
+        base = new Base<>(array);
         bits = new long[array.length / 64 + 1];
+        lastWordMask = (1L<<(array.length % 64))-1;
         if (fill)
         {
-            Arrays.fill(bits, 0xffffffff);
-        }
-        int index = 0;
-        for (T t : all)
-        {
-            map.put(t, index);
-            array[index++] = t;
+            Arrays.fill(bits, -1L);
+            bits[bits.length-1] = lastWordMask;
+            cardinality = array.length;
         }
     }
 
     protected FastSet(FastSet<T> other)
     {
-        map = other.map;
+        base = other.base;
         array = other.array;
         bits = Arrays.copyOf(other.bits, other.bits.length);
+        lastWordMask = other.lastWordMask;
+        cardinality = other.cardinality;
     }
     
     public FastSet<T> copy()
@@ -77,93 +82,224 @@ public class FastSet<T> extends AbstractSet<T>
     {
         return new SingleSubSet<>(this);
     }
-    
-    public void and(FastSet<T> other)
+    /**
+     * Returns compressed subset. Compressed subset uses less memory than
+     * sub() when the subset is sparse.
+     * @return 
+     */
+    public RoaringSubSet<T> roaringSub()
+    {
+        return new RoaringSubSet<>(this);
+    }
+    /**
+     * Retains only members contained in other set.
+     * @param other
+     * @return true if this set changed
+     */
+    public boolean and(FastSet<T> other)
     {
-        if (map != other.map)
+        checkBase(other);
+        long[] ob = other.bits;
+        boolean changed = false;
+        int count = 0;
+        for (int ii=0;ii<bits.length;ii++)
         {
-            throw new IllegalArgumentException("objects are not from the same base collection");
+            long b = bits[ii];
+            long n = b & ob[ii];
+            if (n != b)
+            {
+                bits[ii] = n;
+                changed = true;
+            }
+            count += Long.bitCount(n);
         }
+        return modified(changed, count);
+    }
+    /**
+     * Adds members contained in other set.
+     * @param other
+     * @return true if this set changed
+     */
+    public boolean or(FastSet<T> other)
+    {
+        checkBase(other);
+        long[] ob = other.bits;
+        boolean changed = false;
+        int count = 0;
         for (int ii=0;ii<bits.length;ii++)
         {
-            bits[ii] &= other.bits[ii];
+            long b = bits[ii];
+            long n = b | ob[ii];
+            if (n != b)
+            {
+                bits[ii] = n;
+                changed = true;
+            }
+            count += Long.bitCount(n);
         }
+        return modified(changed, count);
     }
-
-    public void or(FastSet<T> other)
+    /**
+     * Removes members contained in other set.
+     * @param other
+     * @return true if this set changed
+     */
+    public boolean andNot(FastSet<T> other)
     {
-        if (map != other.map)
+        checkBase(other);
+        long[] ob = other.bits;
+        boolean changed = false;
+        int count = 0;
+        for (int ii=0;ii<bits.length;ii++)
         {
-            throw new IllegalArgumentException("objects are not from the same base collection");
+            long b = bits[ii];
+            long n = b & ~ob[ii];
+            if (n != b)
+            {
+                bits[ii] = n;
+                changed = true;
+            }
+            count += Long.bitCount(n);
         }
+        return modified(changed, count);
+    }
+    /**
+     * Returns true if this set and other set have common members. Returns at 
+     * first common word.
+     * @param other
+     * @return 
+     */
+    public boolean intersects(FastSet<T> other)
+    {
+        checkBase(other);
+        long[] ob = other.bits;
         for (int ii=0;ii<bits.length;ii++)
         {
-            bits[ii] |= other.bits[ii];
+            if ((bits[ii] & ob[ii]) != 0)
+            {
+                return true;
+            }
         }
+        return false;
     }
 
     void clear(FastSet<T> other)
     {
-        if (map != other.map)
+        andNot(other);
+    }
+
+    private boolean modified(boolean changed, int count)
+    {
+        if (changed)
+        {
+            modCount++;
+        }
+        cardinality = count;
+        return changed;
+    }
+    
+    private void checkBase(FastSet<T> other)
+    {
+        if (base != other.base)
         {
             throw new IllegalArgumentException("objects are not from the same base collection");
         }
-        for (int ii=0;ii<bits.length;ii++)
+    }
+    
+    private void checkIndex(int index)
+    {
+        if (index < 0 || index >= array.length)
         {
-            bits[ii] &= ~other.bits[ii];
+            throw new IndexOutOfBoundsException(index+" negative or >= "+array.length);
         }
     }
 
-    void setBit(int index)
+    boolean setBit(int index)
     {
-        if (index < 0 || index > array.length)
+        checkIndex(index);
+        long mask = 1L<<index;
+        int w = index>>>6;
+        long b = bits[w];
+        if ((b & mask) == 0)
         {
-            throw new IndexOutOfBoundsException(index+" negative or > "+array.length);
+            bits[w] = b | mask;
+            cardinality++;
+            modCount++;
+            return true;
         }
-        bits[index / 64] |= 1L<<(index % 64);
+        return false;
     }
-    void resetBit(int index)
+    boolean resetBit(int index)
     {
-        if (index < 0 || index > array.length)
+        checkIndex(index);
+        long mask = 1L<<index;
+        int w = index>>>6;
+        long b = bits[w];
+        if ((b & mask) != 0)
         {
-            throw new IndexOutOfBoundsException(index+" negative or > "+array.length);
+            bits[w] = b & ~mask;
+            cardinality--;
+            modCount++;
+            return true;
         }
-        bits[index / 64] &= ~(1L<<(index % 64));
+        return false;
     }
     boolean isSet(int index)
     {
-        if (index < 0 || index > array.length)
-        {
-            throw new IndexOutOfBoundsException(index+" negative or > "+array.length);
-        }
-        return (bits[index / 64] & 1L<<(index % 64)) != 0;
+        checkIndex(index);
+        return (bits[index>>>6] & 1L<<index) != 0;
     }
-
-    @Override
-    public int size()
+    /**
+     * Returns the index of first member having index &gt;= from and &lt; to
+     * or -1.
+     * @param from
+     * @param to
+     * @return 
+     */
+    public int nextSetBit(int from, int to)
     {
-        int count = 0;
-        int c = 0;
-        int max = array.length;
-        for (int ii=0;ii<bits.length && c < max;ii++)
+        if (from >= to)
         {
-            long b = bits[ii];
-            if (b != 0)
+            return -1;
+        }
+        int w = from>>>6;
+        long word = bits[w] & (-1L<<from);
+        while (true)
+        {
+            if (word != 0)
             {
-                for (int jj=0;jj<64 && c < max;jj++,c++)
-                {
-                    if ((b & 1L<<jj) != 0)
-                    {
-                        count++;
-                    }
-                }
+                int index = (w<<6) + Long.numberOfTrailingZeros(word);
+                return index < to ? index : -1;
             }
-            else
+            w++;
+            if (w >= bits.length || (w<<6) >= to)
             {
-                c += 64;
+                return -1;
             }
+            word = bits[w];
         }
-        return count;
+    }
+
+    /**
+     * Returns the index of first member having index &gt;= from or -1.
+     * @param from
+     * @return 
+     */
+    @Override
+    public int nextIndex(int from)
+    {
+        return nextSetBit(from, array.length);
+    }
+
+    /**
+     * Returns number of members. Cardinality is maintained in every 
+     * modification, so this doesn't count bits.
+     * @return 
+     */
+    @Override
+    public int size()
+    {
+        return cardinality;
     }
 
     @Override
@@ -175,8 +311,8 @@ public class FastSet<T> extends AbstractSet<T>
     @Override
     public boolean contains(Object o)
     {
-        Integer index = map.get(o);
-        if (index != null)
+        int index = indexOf(o);
+        if (index >= 0)
         {
             return isSet(index);
         }
@@ -185,18 +321,66 @@ public class FastSet<T> extends AbstractSet<T>
 
     int getIndexOf(T e)
     {
-        return map.get(e);
+        int index = indexOf(e);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException(e+" was not in initial collection");
+        }
+        return index;
+    }
+    /**
+     * Returns index of object in initial collection or -1.
+     * @param o
+     * @return 
+     */
+    public int indexOf(Object o)
+    {
+        return base.indexOf(o);
+    }
+    /**
+     * Returns member of initial collection at index. Returned object is not 
+     * necessarily contained in this set.
+     * @param index
+     * @return 
+     */
+    public T get(int index)
+    {
+        return array[index];
+    }
+    /**
+     * Returns true if initial collection member at index is contained in this 
+     * set.
+     * @param index
+     * @return 
+     */
+    public boolean containsIndex(int index)
+    {
+        return isSet(index);
+    }
+    /**
+     * Adds initial collection member at index.
+     * @param index 
+     */
+    public void addIndex(int index)
+    {
+        setBit(index);
+    }
+    /**
+     * Removes initial collection member at index.
+     * @param index 
+     */
+    public void removeIndex(int index)
+    {
+        resetBit(index);
     }
     
     @Override
     public boolean add(T e)
     {
-        Integer index = map.get(e);
-        if (index != null)
+        int index = indexOf(e);
+        if (index >= 0)
         {
-            boolean wasSet = isSet(index);
-            setBit(index);
-            return !wasSet;
+            return setBit(index);
         }
         throw new IllegalArgumentException(e+" was not in initial collection");
     }
@@ -204,12 +388,10 @@ public class FastSet<T> extends AbstractSet<T>
     @Override
     public boolean remove(Object o)
     {
-        Integer index = map.get(o);
-        if (index != null)
+        int index = indexOf(o);
+        if (index >= 0)
         {
-            boolean wasSet = isSet(index);
-            resetBit(index);
-            return wasSet;
+            return resetBit(index);
         }
         throw new IllegalArgumentException(o+" was not in initial collection");
     }
@@ -218,37 +400,48 @@ public class FastSet<T> extends AbstractSet<T>
     public void clear()
     {
         Arrays.fill(bits, 0);
+        cardinality = 0;
+        modCount++;
     }
 
     @Override
     public Iterator<T> iterator()
     {
-        return new Iter();
+        return new Iter(0, array.length);
+    }
+    /**
+     * Returns iterator for members having index in range.
+     * @param from Inclusive start index
+     * @param to Exclusive end index
+     * @return 
+     * @see #capacity() 
+     */
+    public Iterator<T> iterator(int from, int to)
+    {
+        if (from < 0 || to > array.length || from > to)
+        {
+            throw new IndexOutOfBoundsException(from+" - "+to+" not in 0 - "+array.length);
+        }
+        return new Iter(from, to);
+    }
+    /**
+     * Returns the size of initial collection. Indexes are in range 0 - capacity-1
+     * @return 
+     */
+    public int capacity()
+    {
+        return array.length;
     }
     
     private class Iter implements Iterator<T>
     {
         private int next;
+        private int length;
 
-        public Iter()
+        public Iter(int from, int to)
         {
-            skipUnset();
-        }
-        
-        private void skipUnset()
-        {
-            int length = array.length;
-            while (
-                    next < length &&
-                    (bits[next / 64] & 1L<<(next % 64)) == 0
-                    )
-            {
-                next++;
-            }
-            if (next == length)
-            {
-                next = -1;
-            }
+            length = to;
+            next = nextSetBit(from, length);
         }
         
         @Override
@@ -260,8 +453,12 @@ public class FastSet<T> extends AbstractSet<T>
         @Override
         public T next()
         {
-            T t = array[next++];
-            skipUnset();
+            if (next == -1)
+            {
+                throw new NoSuchElementException();
+            }
+            T t = array[next];
+            next = nextSetBit(next+1, length);
             return t;
         }
 
@@ -272,6 +469,46 @@ public class FastSet<T> extends AbstractSet<T>
         }
 
     }
+    /**
+     * Base is the initial collection shared by all sets created from it. Object
+     * to index map is created when it is first needed. Sets iterated by index 
+     * never need it.
+     */
+    private static class Base<T>
+    {
+        private T[] array;
+        private volatile Map<T,Integer> map;
+
+        public Base(T[] array)
+        {
+            this.array = array;
+        }
+
+        public int indexOf(Object o)
+        {
+            Map<T,Integer> m = map;
+            if (m == null)
+            {
+                m = createMap();
+            }
+            Integer index = m.get(o);
+            return index != null ? index : -1;
+        }
+
+        private synchronized Map<T,Integer> createMap()
+        {
+            if (map == null)
+            {
+                Map<T,Integer> m = new HashMap<>(array.length*2);
+                for (int ii=0;ii<array.length;ii++)
+                {
+                    m.put(array[ii], ii);
+                }
+                map = m;
+            }
+            return map;
+        }
+    }
     /**
      * @param args the command line arguments
      */
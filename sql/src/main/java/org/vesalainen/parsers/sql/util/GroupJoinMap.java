@@ -0,0 +1,235 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GroupJoinMap is a JoinMap stored as int arrays. Rows having the same join key
+ * form a group. Source row index points to group and group points to a range
+ * of target row indexes (compressed sparse row). 
+ * 
+ * <p>Target indexes are stored at creation time. Enumeration skips targets 
+ * that have been removed from target set since.
+ * @author Timo Vesalainen
+ * @param <T>
+ */
+public class GroupJoinMap<T> implements Map<T,Set<T>>, IndexJoinMap<T> 
+{
+    private FastSet<T> source;
+    private FastSet<T> target;
+    private int[] rowGroup;
+    private int[] offsets = new int[16];
+    private int[] targets = new int[16];
+    private int groups;
+    private int size;
+    private int valueCount;
+
+    public GroupJoinMap(FastSet<T> source, FastSet<T> target)
+    {
+        this.source = source;
+        this.target = target;
+        rowGroup = new int[source.capacity()];
+        Arrays.fill(rowGroup, -1);
+    }
+    /**
+     * Adds a group. Every source row is joined to every target row.
+     * @param sources
+     * @param targetRows 
+     */
+    public void addGroup(Set<T> sources, Set<T> targetRows)
+    {
+        if (groups+2 > offsets.length)
+        {
+            offsets = Arrays.copyOf(offsets, offsets.length*2);
+        }
+        int count = offsets[groups];
+        if (targetRows instanceof IndexedSet)
+        {
+            IndexedSet<T> is = (IndexedSet<T>) targetRows;
+            int index = is.nextIndex(0);
+            while (index != -1)
+            {
+                count = append(count, index);
+                index = is.nextIndex(index+1);
+            }
+        }
+        else
+        {
+            for (T t : targetRows)
+            {
+                count = append(count, target.getIndexOf(t));
+            }
+        }
+        int targetCount = count - offsets[groups];
+        if (sources instanceof IndexedSet)
+        {
+            IndexedSet<T> is = (IndexedSet<T>) sources;
+            int index = is.nextIndex(0);
+            while (index != -1)
+            {
+                setGroup(index, targetCount);
+                index = is.nextIndex(index+1);
+            }
+        }
+        else
+        {
+            for (T t : sources)
+            {
+                setGroup(source.getIndexOf(t), targetCount);
+            }
+        }
+        groups++;
+        offsets[groups] = count;
+    }
+
+    private int append(int count, int index)
+    {
+        if (count == targets.length)
+        {
+            targets = Arrays.copyOf(targets, count*2);
+        }
+        targets[count] = index;
+        return count+1;
+    }
+
+    private void setGroup(int index, int targetCount)
+    {
+        if (rowGroup[index] == -1)
+        {
+            size++;
+        }
+        rowGroup[index] = groups;
+        valueCount += targetCount;
+    }
+    @Override
+    public int first(int sourceIndex)
+    {
+        int group = rowGroup[sourceIndex];
+        return group != -1 ? offsets[group] : 0;
+    }
+    @Override
+    public int last(int sourceIndex)
+    {
+        int group = rowGroup[sourceIndex];
+        return group != -1 ? offsets[group+1] : 0;
+    }
+    @Override
+    public int target(int position)
+    {
+        return targets[position];
+    }
+
+    public FastSet<T> getSource()
+    {
+        return source;
+    }
+
+    public FastSet<T> getTarget()
+    {
+        return target;
+    }
+
+    @Override
+    public float getRatio()
+    {
+        return (float)valueCount/(float)size;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        int index = source.indexOf(key);
+        return index >= 0 && rowGroup[index] != -1;
+    }
+
+    @Override
+    public boolean containsValue(Object value)
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Set<T> get(Object key)
+    {
+        int index = source.indexOf(key);
+        if (index >= 0 && rowGroup[index] != -1)
+        {
+            return new PositionSet<>(this, target, first(index), last(index));
+        }
+        return null;
+    }
+
+    @Override
+    public Set<T> put(T key, Set<T> value)
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Set<T> remove(Object key)
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void putAll(Map<? extends T, ? extends Set<T>> m)
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public void clear()
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Set<T> keySet()
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Collection<Set<T>> values()
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Set<Entry<T, Set<T>>> entrySet()
+    {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+/**
+ * IndexJoinMap is a JoinMap that can be enumerated by row indexes. Target row
+ * indexes of a source row are at positions first - last-1.
+ * @author Timo Vesalainen
+ * @param <T>
+ */
+public interface IndexJoinMap<T> extends JoinMap<T>
+{
+    /**
+     * Returns first target position of source row. 
+     * @param sourceIndex
+     * @return 
+     * @see #target(int) 
+     */
+    int first(int sourceIndex);
+    /**
+     * Returns target position following the last target position of source row.
+     * @param sourceIndex
+     * @return 
+     * @see #target(int) 
+     */
+    int last(int sourceIndex);
+    /**
+     * Returns target row index at position. Target row is not necessarily 
+     * contained in target set anymore.
+     * @param position
+     * @return 
+     */
+    int target(int position);
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.Set;
+
+/**
+ * IndexedSet is a set of initial collection members that can be iterated by 
+ * member index without hashing the members.
+ * @author Timo Vesalainen
+ * @param <T>
+ */
+public interface IndexedSet<T> extends Set<T>
+{
+    /**
+     * Returns the smallest member index &gt;= from or -1.
+     * @param from
+     * @return 
+     */
+    int nextIndex(int from);
+}
@@ -25,6 +25,7 @@ import java.util.Set;
  */
 public class JoinMapImpl<R> extends HashMap<R, Set<R>> implements JoinMap<R>
 {
+    private static final long serialVersionUID = 1L;
     int valueCount;
     
     @Override
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+/**
+ * KeyFilter tells if a join key value can have matching rows in already 
+ * fetched tables. False positives are possible. False negatives are not.
+ * @author Timo Vesalainen
+ * @param <C>
+ */
+public interface KeyFilter<C>
+{
+    /**
+     * Returns false if key has definitely no match.
+     * @param key
+     * @return 
+     */
+    boolean mightContain(C key);
+    /**
+     * Returns filter that accepts keys accepted by both filters.
+     * @param other
+     * @return 
+     */
+    default KeyFilter<C> and(final KeyFilter<C> other)
+    {
+        final KeyFilter<C> first = this;
+        return new KeyFilter<C>() 
+        {
+            @Override
+            public boolean mightContain(C key)
+            {
+                return first.mightContain(key) && other.mightContain(key);
+            }
+        };
+    }
+}
@@ -64,7 +64,7 @@ public class Pair<T>
         {
             return false;
         }
-        final Pair<T> other = (Pair<T>) obj;
+        final Pair<?> other = (Pair<?>) obj;
         if (!Objects.equals(this.item1, other.item1))
         {
             return false;
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only view to target rows of IndexJoinMap positions first - last-1.
+ * Targets not contained in target set are skipped.
+ * @author Timo Vesalainen
+ */
+class PositionSet<T> extends AbstractSet<T>
+{
+    private IndexJoinMap<T> map;
+    private FastSet<T> target;
+    private int first;
+    private int last;
+
+    PositionSet(IndexJoinMap<T> map, FastSet<T> target, int first, int last)
+    {
+        this.map = map;
+        this.target = target;
+        this.first = first;
+        this.last = last;
+    }
+
+    @Override
+    public int size()
+    {
+        int count = 0;
+        for (int ii=first;ii<last;ii++)
+        {
+            if (target.containsIndex(map.target(ii)))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new Iterator<T>() 
+        {
+            private int position = skip(first);
+
+            @Override
+            public boolean hasNext()
+            {
+                return position < last;
+            }
+
+            @Override
+            public T next()
+            {
+                if (position >= last)
+                {
+                    throw new NoSuchElementException();
+                }
+                T t = target.get(map.target(position));
+                position = skip(position+1);
+                return t;
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException("Not supported.");
+            }
+        };
+    }
+
+    private int skip(int position)
+    {
+        while (position < last && !target.containsIndex(map.target(position)))
+        {
+            position++;
+        }
+        return position;
+    }
+}
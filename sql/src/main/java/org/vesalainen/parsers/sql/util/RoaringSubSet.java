@@ -0,0 +1,456 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * RoaringSubSet is a compressed SubSet for sparse subsets. Member indexes are
+ * split to 16 bit chunks. Each chunk is stored in a container which is a 
+ * sorted char array for small cardinalities and a 65536 bit bitmap for dense 
+ * chunks. 
+ * 
+ * <p>Like SubSet, this set doesn't contain any member that parent set doesn't
+ * contain, and clear removes members also from parent.
+ * @author Timo Vesalainen
+ * @see SubSet
+ */
+public class RoaringSubSet<T> extends AbstractSet<T> implements IndexedSet<T>
+{
+    private static final int ARRAY_LIMIT = 4096;
+    private FastSet<T> parent;
+    private char[] keys = new char[4];
+    private Container[] containers = new Container[4];
+    private int length;
+    private int modCount;
+    private int size;
+    private int parentModCount = -1;
+    private int ownModCount = -1;
+
+    RoaringSubSet(FastSet<T> parent)
+    {
+        this.parent = parent;
+    }
+    /**
+     * Adds parent initial collection member at index.
+     * @param index 
+     * @return true if set changed
+     */
+    public boolean addIndex(int index)
+    {
+        char key = (char) (index>>>16);
+        int pos = find(key);
+        if (pos < 0)
+        {
+            pos = -pos-1;
+            if (length == keys.length)
+            {
+                keys = Arrays.copyOf(keys, length*2);
+                containers = Arrays.copyOf(containers, length*2);
+            }
+            System.arraycopy(keys, pos, keys, pos+1, length-pos);
+            System.arraycopy(containers, pos, containers, pos+1, length-pos);
+            keys[pos] = key;
+            containers[pos] = new ArrayContainer();
+            length++;
+        }
+        Container container = containers[pos];
+        int count = container.cardinality();
+        containers[pos] = container.add((char) index);
+        if (containers[pos].cardinality() != count)
+        {
+            modCount++;
+            return true;
+        }
+        return false;
+    }
+    /**
+     * Returns true if parent initial collection member at index is contained
+     * in this set.
+     * @param index
+     * @return 
+     */
+    public boolean containsIndex(int index)
+    {
+        int pos = find((char) (index>>>16));
+        return pos >= 0 && containers[pos].contains((char) index) && parent.isSet(index);
+    }
+
+    @Override
+    public int nextIndex(int from)
+    {
+        int pos = find((char) (from>>>16));
+        int low = from & 0xffff;
+        if (pos < 0)
+        {
+            pos = -pos-1;
+            low = 0;
+        }
+        while (pos < length)
+        {
+            Container container = containers[pos];
+            low = container.next(low);
+            while (low != -1)
+            {
+                int index = (keys[pos]<<16) | low;
+                if (parent.isSet(index))
+                {
+                    return index;
+                }
+                low = container.next(low+1);
+            }
+            pos++;
+            low = 0;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        int index = parent.indexOf(o);
+        return index >= 0 && containsIndex(index);
+    }
+
+    @Override
+    public boolean add(T e)
+    {
+        int index = parent.indexOf(e);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException(e+" was not in initial collection");
+        }
+        return addIndex(index);
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        int index = parent.indexOf(o);
+        if (index < 0)
+        {
+            throw new IllegalArgumentException(o+" was not in initial collection");
+        }
+        int pos = find((char) (index>>>16));
+        if (pos >= 0 && containers[pos].remove((char) index))
+        {
+            if (containers[pos].cardinality() == 0)
+            {
+                System.arraycopy(keys, pos+1, keys, pos, length-pos-1);
+                System.arraycopy(containers, pos+1, containers, pos, length-pos-1);
+                length--;
+                containers[length] = null;
+            }
+            modCount++;
+            return true;
+        }
+        return false;
+    }
+    /**
+     * Returns number of members that are also in parent. Members are counted 
+     * only if either set has been modified.
+     * @return 
+     */
+    @Override
+    public int size()
+    {
+        if (parentModCount != parent.modCount || ownModCount != modCount)
+        {
+            int count = 0;
+            for (int ii=0;ii<length;ii++)
+            {
+                int high = keys[ii]<<16;
+                Container container = containers[ii];
+                int low = container.next(0);
+                while (low != -1)
+                {
+                    if (parent.isSet(high | low))
+                    {
+                        count++;
+                    }
+                    low = container.next(low+1);
+                }
+            }
+            size = count;
+            parentModCount = parent.modCount;
+            ownModCount = modCount;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+    /**
+     * Removes members from this set and parent set.
+     */
+    @Override
+    public void clear()
+    {
+        for (int ii=0;ii<length;ii++)
+        {
+            int high = keys[ii]<<16;
+            Container container = containers[ii];
+            int low = container.next(0);
+            while (low != -1)
+            {
+                parent.resetBit(high | low);
+                low = container.next(low+1);
+            }
+            containers[ii] = null;
+        }
+        length = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new Iter();
+    }
+    
+    private int find(char key)
+    {
+        return Arrays.binarySearch(keys, 0, length, key);
+    }
+    
+    private class Iter implements Iterator<T>
+    {
+        private int pos;
+        private int low = -1;
+        private int next = -1;
+
+        public Iter()
+        {
+            advance();
+        }
+        
+        private void advance()
+        {
+            while (pos < length)
+            {
+                low = containers[pos].next(low+1);
+                while (low != -1)
+                {
+                    int index = (keys[pos]<<16) | low;
+                    if (parent.isSet(index))
+                    {
+                        next = index;
+                        return;
+                    }
+                    low = containers[pos].next(low+1);
+                }
+                pos++;
+                low = -1;
+            }
+            next = -1;
+        }
+        
+        @Override
+        public boolean hasNext()
+        {
+            return next != -1;
+        }
+
+        @Override
+        public T next()
+        {
+            if (next == -1)
+            {
+                throw new NoSuchElementException();
+            }
+            T t = parent.get(next);
+            advance();
+            return t;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Not supported.");
+        }
+        
+    }
+    
+    private interface Container
+    {
+        /**
+         * Adds value and returns container containing the value.
+         * @param value
+         * @return 
+         */
+        Container add(char value);
+        boolean contains(char value);
+        boolean remove(char value);
+        int cardinality();
+        /**
+         * Returns smallest member &gt;= from or -1
+         * @param from
+         * @return 
+         */
+        int next(int from);
+    }
+    
+    private static class ArrayContainer implements Container
+    {
+        private char[] values = new char[4];
+        private int count;
+
+        @Override
+        public Container add(char value)
+        {
+            int pos = Arrays.binarySearch(values, 0, count, value);
+            if (pos >= 0)
+            {
+                return this;
+            }
+            if (count >= ARRAY_LIMIT)
+            {
+                BitmapContainer bc = new BitmapContainer();
+                for (int ii=0;ii<count;ii++)
+                {
+                    bc.add(values[ii]);
+                }
+                return bc.add(value);
+            }
+            pos = -pos-1;
+            if (count == values.length)
+            {
+                values = Arrays.copyOf(values, Math.min(count*2, ARRAY_LIMIT));
+            }
+            System.arraycopy(values, pos, values, pos+1, count-pos);
+            values[pos] = value;
+            count++;
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value)
+        {
+            return Arrays.binarySearch(values, 0, count, value) >= 0;
+        }
+
+        @Override
+        public boolean remove(char value)
+        {
+            int pos = Arrays.binarySearch(values, 0, count, value);
+            if (pos >= 0)
+            {
+                System.arraycopy(values, pos+1, values, pos, count-pos-1);
+                count--;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int cardinality()
+        {
+            return count;
+        }
+
+        @Override
+        public int next(int from)
+        {
+            if (from > Character.MAX_VALUE)
+            {
+                return -1;
+            }
+            int pos = Arrays.binarySearch(values, 0, count, (char) from);
+            if (pos < 0)
+            {
+                pos = -pos-1;
+            }
+            return pos < count ? values[pos] : -1;
+        }
+    }
+    
+    private static class BitmapContainer implements Container
+    {
+        private long[] bits = new long[1024];
+        private int count;
+
+        @Override
+        public Container add(char value)
+        {
+            long mask = 1L<<value;
+            int w = value>>>6;
+            if ((bits[w] & mask) == 0)
+            {
+                bits[w] |= mask;
+                count++;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value)
+        {
+            return (bits[value>>>6] & 1L<<value) != 0;
+        }
+
+        @Override
+        public boolean remove(char value)
+        {
+            long mask = 1L<<value;
+            int w = value>>>6;
+            if ((bits[w] & mask) != 0)
+            {
+                bits[w] &= ~mask;
+                count--;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int cardinality()
+        {
+            return count;
+        }
+
+        @Override
+        public int next(int from)
+        {
+            int w = from>>>6;
+            if (w >= bits.length)
+            {
+                return -1;
+            }
+            long word = bits[w] & (-1L<<from);
+            while (true)
+            {
+                if (word != 0)
+                {
+                    return (w<<6) + Long.numberOfTrailingZeros(word);
+                }
+                w++;
+                if (w >= bits.length)
+                {
+                    return -1;
+                }
+                word = bits[w];
+            }
+        }
+    }
+}
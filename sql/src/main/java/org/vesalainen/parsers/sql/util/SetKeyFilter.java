@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Exact KeyFilter backed by a set of keys.
+ * @author Timo Vesalainen
+ * @param <C>
+ */
+public class SetKeyFilter<C> implements KeyFilter<C>
+{
+    private Set<C> keys;
+
+    public SetKeyFilter(Set<C> keys)
+    {
+        this.keys = keys;
+    }
+
+    @Override
+    public boolean mightContain(C key)
+    {
+        return key != null && keys.contains(key);
+    }
+    /**
+     * Returns the accepted keys. Fetch implementation can use them as an 
+     * IN list.
+     * @return 
+     */
+    public Set<C> getKeys()
+    {
+        return Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SetKeyFilter{" + "keys=" + keys.size() + '}';
+    }
+
+}
@@ -23,7 +23,7 @@ import java.util.Iterator;
 /**
  * @author Timo Vesalainen
  */
-public class SingleSubSet<T> extends AbstractSet<T> 
+public class SingleSubSet<T> extends AbstractSet<T> implements IndexedSet<T>
 {
     private FastSet<T> parent;
     private T item;
@@ -80,6 +80,16 @@ public class SingleSubSet<T> extends AbstractSet<T>
         return new Iter(item);
     }
 
+    @Override
+    public int nextIndex(int from)
+    {
+        if (item != null && index >= from && parent.isSet(index))
+        {
+            return index;
+        }
+        return -1;
+    }
+
     @Override
     public boolean add(T e)
     {
@@ -99,6 +109,26 @@ public class SingleSubSet<T> extends AbstractSet<T>
         }
     }
 
+    /**
+     * Adds parent initial collection member at index.
+     * @param idx 
+     */
+    public void addIndex(int idx)
+    {
+        if (item == null)
+        {
+            item = parent.get(idx);
+            index = idx;
+        }
+        else
+        {
+            if (index != idx)
+            {
+                throw new IllegalArgumentException("set capasity (1) exceeded");
+            }
+        }
+    }
+
     @Override
     public boolean remove(Object o)
     {
@@ -29,6 +29,8 @@ import java.util.Iterator;
 public class SubSet<T> extends FastSet<T> 
 {
     private FastSet<T> parent;
+    private int parentModCount = -1;
+    private int ownModCount = -1;
     
     protected SubSet(FastSet<T> parent)
     {
@@ -36,6 +38,20 @@ public class SubSet<T> extends FastSet<T>
         this.parent = parent;
         super.clear();
     }
+    /**
+     * Ands parent set if either set has been modified after last sync. Reading
+     * methods sync lazily. A set shared by several reading threads has to be 
+     * synced before sharing, after which reading doesn't modify it.
+     */
+    public void sync()
+    {
+        if (parentModCount != parent.modCount || ownModCount != modCount)
+        {
+            and(parent);
+            parentModCount = parent.modCount;
+            ownModCount = modCount;
+        }
+    }
 
     @Override
     protected boolean isSet(int index)
@@ -43,17 +59,31 @@ public class SubSet<T> extends FastSet<T>
         return super.isSet(index) && parent.isSet(index);
     }
 
+    @Override
+    public int nextSetBit(int from, int to)
+    {
+        sync();
+        return super.nextSetBit(from, to);
+    }
+
     @Override
     public Iterator<T> iterator()
     {
-        and(parent);
+        sync();
         return super.iterator();
     }
 
+    @Override
+    public Iterator<T> iterator(int from, int to)
+    {
+        sync();
+        return super.iterator(from, to);
+    }
+
     @Override
     public int size()
     {
-        and(parent);
+        sync();
         return super.size();
     }
 
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class BandJoinTest extends SqlTestBase
+{
+    private final List<String> merged = new ArrayList<>();
+
+    @Before
+    public void addTables()
+    {
+        engine.addTable("event", new String[] {"id", "t"},
+                new Object[] {1L, 5L},
+                new Object[] {2L, 10L},
+                new Object[] {3L, 15L},
+                new Object[] {4L, 20L},
+                new Object[] {5L, 95L}
+        );
+        engine.addTable("win", new String[] {"name", "lo", "hi"},
+                new Object[] {"a", 0L, 10L},
+                new Object[] {"b", 10L, 20L},
+                new Object[] {"c", 50L, 60L}
+        );
+        engine.addExecutionListener(new ExecutionAdapter<Map<String,Object>,Object>()
+        {
+            @Override
+            public void merged(TableContext<Map<String, Object>, Object> table, TableContext<Map<String, Object>, Object> other, int rows, long time)
+            {
+                merged.add(table.getTable().getName()+" "+other.getTable().getName()+" "+rows);
+            }
+        });
+    }
+
+    @Test
+    public void testTimeWindow()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select w.name, e.id from win w, event e where e.t >= w.lo and e.t < w.hi order by w.name, e.id;");
+        assertEquals(list(list("a", 1L), list("b", 2L), list("b", 3L)), rows(result));
+        assertEquals(1, merged.size());
+    }
+    @Test
+    public void testUnmatchedRowsRemoved()
+    {
+        execute("select w.name, e.id from win w, event e where e.t > w.lo and e.t <= w.hi;");
+        assertEquals(1, merged.size());
+        String m = merged.get(0);
+        // event 5 and window c have no match
+        assertTrue(m, m.equals("event win 4") || m.equals("win event 2"));
+    }
+    @Test
+    public void testSingleBound()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select w.name, e.id from win w, event e where e.t > w.hi order by w.name, e.id;");
+        assertEquals(list(
+                list("a", 3L), list("a", 4L), list("a", 5L), 
+                list("b", 5L), 
+                list("c", 5L)), 
+                rows(result));
+        assertEquals(1, merged.size());
+    }
+    @Test
+    public void testNotEqualIsCartesian()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select w.name, e.id from win w, event e where e.t <> w.lo and e.id < 2 order by w.name;");
+        assertEquals(list(list("a", 1L), list("b", 1L), list("c", 1L)), rows(result));
+        assertTrue(merged.isEmpty());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class CompiledConditionTest extends SqlTestBase
+{
+    private static final String[] SQL = new String[] {
+        "select e.id, d.id from emp e, dept d where e.salary > d.budget;",
+        "select e.id, d.id from emp e, dept d where e.dept = d.id and (e.salary > d.budget or d.name = 'Sales');",
+        "select e.id, d.id from emp e, dept d where e.dept = d.id and not (e.salary <= d.budget);",
+        "select e.id, d.id from emp e, dept d where e.dept = d.id and (e.salary < d.budget or e.name like 'M%');",
+        "select e.id, d.id from emp e, dept d where e.dept = d.id and (d.budget is null or e.salary >= d.budget);",
+        "select e.id, d.id from emp e, dept d where e.dept = d.id and (d.budget is not null and e.id in (1, 3, 5));",
+        "select e.id, d.id from emp e, dept d where e.dept <> d.id and e.salary between d.budget and 4000;",
+        "select e.id, d.id from emp e, dept d where e.dept = d.id and not (e.salary > d.budget or e.salary < 2500);",
+    };
+
+    @Before
+    public void addBudget()
+    {
+        engine.addTable("dept", new String[] {"id", "name", "budget"},
+                new Object[] {10L, "Sales", 3500L},
+                new Object[] {20L, "R&D", null},
+                new Object[] {30L, "Support", 1000L},
+                new Object[] {40L, "Empty", 9000L}
+        );
+    }
+    private Set<List<Object>> result(String sql)
+    {
+        return new HashSet<>(rows(execute(sql)));
+    }
+
+    @Test
+    public void testCompiledEqualsInterpreted()
+    {
+        for (String sql : SQL)
+        {
+            engine.setCompileConditions(false);
+            Set<List<Object>> interpreted = result(sql);
+            engine.setCompileConditions(true);
+            engine.setVerifyCompiledConditions(false);
+            Set<List<Object>> compiled = result(sql);
+            engine.setVerifyCompiledConditions(true);
+            Set<List<Object>> verified = result(sql);
+            assertEquals(sql, interpreted, compiled);
+            assertEquals(sql, interpreted, verified);
+        }
+    }
+    @Test
+    public void testNullComparison()
+    {
+        assertEquals(set(list(1L, 30L), list(2L, 30L), list(3L, 30L), list(5L, 30L), list(6L, 30L)), result("select e.id, d.id from emp e, dept d where e.salary > d.budget and e.salary < 5000 and d.id = 30;"));
+        assertTrue(result("select e.id, d.id from emp e, dept d where e.dept = d.id and e.salary > d.budget and d.id = 20;").isEmpty());
+        assertTrue(result("select e.id, d.id from emp e, dept d where e.dept = d.id and not (e.salary > d.budget) and d.id = 20;").isEmpty());
+    }
+    @Test
+    public void testCompileSwitch()
+    {
+        assertTrue(engine.isCompileConditions());
+        assertFalse(engine.isVerifyCompiledConditions());
+        Condition<Map<String,Object>,Object> condition = select(SQL[1]).getCondition();
+        engine.setCompileConditions(false);
+        assertSame(condition, engine.compileCondition(condition, null));
+        assertNull(engine.compileCondition(null, null));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class CursorTest extends SqlTestBase
+{
+    private List<List<Object>> read(Cursor<Map<String,Object>,Object> cursor)
+    {
+        List<List<Object>> list = new ArrayList<>();
+        while (cursor.hasNext())
+        {
+            list.add(Arrays.asList(cursor.next()));
+        }
+        return list;
+    }
+
+    @Test
+    public void testStreaming()
+    {
+        String sql = "select e.id, d.name from emp e, dept d where e.dept = d.id and e.salary > 2500;";
+        List<List<Object>> expected = rows(execute(sql));
+        assertEquals(5, expected.size());
+        try (Cursor<Map<String,Object>,Object> cursor = select(sql).openCursor())
+        {
+            List<List<Object>> streamed = read(cursor);
+            assertEquals(expected.size(), streamed.size());
+            assertEquals(new HashSet<>(expected), new HashSet<>(streamed));
+            assertFalse(cursor.hasNext());
+            try
+            {
+                cursor.next();
+                fail();
+            }
+            catch (NoSuchElementException ex)
+            {
+            }
+        }
+    }
+    @Test
+    public void testOrdered()
+    {
+        String sql = "select id from emp where dept = 10 order by salary desc, id;";
+        try (Cursor<Map<String,Object>,Object> cursor = select(sql).openCursor())
+        {
+            List<Object> ids = new ArrayList<>();
+            for (List<Object> row : read(cursor))
+            {
+                ids.add(row.get(0));
+            }
+            assertEquals(list(2L, 6L, 1L), ids);
+        }
+    }
+    @Test
+    public void testStreamingLimit()
+    {
+        try (Cursor<Map<String,Object>,Object> cursor = select("select id from emp limit 2 offset 3;").openCursor())
+        {
+            assertEquals(2, read(cursor).size());
+        }
+        try (Cursor<Map<String,Object>,Object> cursor = select("select id from emp limit 10 offset 5;").openCursor())
+        {
+            assertEquals(1, read(cursor).size());
+        }
+    }
+    @Test
+    public void testClose()
+    {
+        Cursor<Map<String,Object>,Object> cursor = select("select id from emp;").openCursor();
+        assertTrue(cursor.hasNext());
+        cursor.next();
+        cursor.close();
+        assertFalse(cursor.hasNext());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class DistinctTest extends SqlTestBase
+{
+    @Test
+    public void testDistinct()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select distinct dept from emp;");
+        assertEquals(3, result.getRowCount());
+        assertEquals(set(10L, 20L, 30L), set(column(result, 0).toArray()));
+        result = execute("select distinct dept, salary from emp where dept = 10;");
+        assertEquals(2, result.getRowCount());
+    }
+    @Test
+    public void testDistinctOrderBy()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select distinct salary from emp order by salary desc;");
+        assertEquals(list(5000L, 4000L, 3500L, 3000L, 2000L), column(result, 0));
+        result = execute("select distinct dept from emp order by dept limit 2;");
+        assertEquals(list(10L, 20L), column(result, 0));
+    }
+    @Test
+    public void testDistinctJoin()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select distinct d.name from emp e, dept d where e.dept = d.id order by d.name;");
+        assertEquals(list("R&D", "Sales", "Support"), column(result, 0));
+    }
+    @Test
+    public void testDistinctNull()
+    {
+        engine.addTable("bonus", new String[] {"emp", "amount"},
+                new Object[] {1L, null},
+                new Object[] {2L, null},
+                new Object[] {3L, 100L}
+        );
+        FetchResult<Map<String,Object>,Object> result = execute("select distinct amount from bonus;");
+        assertEquals(2, result.getRowCount());
+        assertTrue(column(result, 0).contains(null));
+    }
+    @Test
+    public void testDistinctCursor()
+    {
+        List<Object> depts = new ArrayList<>();
+        try (Cursor<Map<String,Object>,Object> cursor = select("select distinct dept from emp;").openCursor())
+        {
+            while (cursor.hasNext())
+            {
+                depts.add(cursor.next()[0]);
+            }
+        }
+        assertEquals(3, depts.size());
+        assertEquals(set(10L, 20L, 30L), set(depts.toArray()));
+    }
+    @Test
+    public void testDistinctParallel()
+    {
+        Object[][] rows = new Object[2000][];
+        for (int ii=0;ii<rows.length;ii++)
+        {
+            rows[ii] = new Object[] {(long)ii, (long)(ii%13)};
+        }
+        engine.addTable("big", new String[] {"id", "grp"}, rows);
+        engine.setParallelism(4);
+        engine.setParallelThreshold(1);
+        FetchResult<Map<String,Object>,Object> result = execute("select distinct grp from big order by grp;");
+        assertEquals(13, result.getRowCount());
+        assertEquals(0L, result.getValueAt(0, 0));
+        assertEquals(12L, result.getValueAt(12, 0));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class ExecutionListenerTest extends SqlTestBase
+{
+    private final List<String> events = new ArrayList<>();
+    private final List<Long> times = new ArrayList<>();
+    private ExecutionListener<Map<String,Object>,Object> listener;
+
+    @Before
+    public void addListener()
+    {
+        listener = new ExecutionListener<Map<String,Object>,Object>()
+        {
+            @Override
+            public void parsed(String sql, long time)
+            {
+                add("parsed "+sql, time);
+            }
+
+            @Override
+            public void fetched(TableContext<Map<String, Object>, Object> table, int rows, long time)
+            {
+                add("fetched "+table.getTable().getName()+" "+rows, time);
+            }
+
+            @Override
+            public void indexBuilt(TableContext<Map<String, Object>, Object> table, String column, int rows, int keys, boolean cached, long time)
+            {
+                add("index "+table.getTable().getName()+"."+column+" "+rows+" "+keys+" "+cached, time);
+            }
+
+            @Override
+            public void merged(TableContext<Map<String, Object>, Object> table, TableContext<Map<String, Object>, Object> other, int rows, long time)
+            {
+                add("merged", time);
+            }
+
+            @Override
+            public void filtered(TableContext<Map<String, Object>, Object> table, String step, String column, int before, int after)
+            {
+                add("filtered "+step+" "+table.getTable().getName()+" "+before+"->"+after, 0);
+            }
+
+            @Override
+            public void planned(TableContext<Map<String, Object>, Object>[] order, double cost, long time)
+            {
+                add("planned "+order.length, time);
+            }
+
+            @Override
+            public void enumerated(SelectStatement<Map<String, Object>, Object> select, long rows, long time)
+            {
+                add("enumerated "+rows, time);
+            }
+
+            @Override
+            public void sorted(SelectStatement<Map<String, Object>, Object> select, int rows, long time)
+            {
+                add("sorted "+rows, time);
+            }
+
+            @Override
+            public void executed(SelectStatement<Map<String, Object>, Object> select, int rows, long time)
+            {
+                add("executed "+select.getSql()+" "+rows, time);
+            }
+        };
+        engine.addExecutionListener(listener);
+    }
+    private void add(String event, long time)
+    {
+        synchronized(events)
+        {
+            events.add(event);
+            times.add(time);
+        }
+    }
+
+    @Test
+    public void testSingleTable()
+    {
+        String sql = "select id from emp where salary > 3000 order by id;";
+        execute(sql);
+        assertEquals("parsed "+sql, events.get(0));
+        assertTrue(events.toString(), events.contains("fetched emp 6"));
+        assertTrue(events.toString(), events.contains("filtered condition emp 5->4"));
+        assertTrue(events.toString(), events.contains("enumerated 4"));
+        assertTrue(events.toString(), events.contains("sorted 4"));
+        assertEquals("executed "+sql+" 4", events.get(events.size()-1));
+        assertTrue(events.indexOf("fetched emp 6") < events.indexOf("enumerated 4"));
+        assertTrue(events.indexOf("enumerated 4") < events.indexOf("sorted 4"));
+        for (long time : times)
+        {
+            assertTrue(time >= 0);
+        }
+    }
+    @Test
+    public void testJoin()
+    {
+        execute("select e.id, d.name from emp e, dept d where e.dept = d.id;");
+        assertTrue(events.toString(), events.contains("fetched emp 6") || events.contains("fetched emp 4"));
+        assertTrue(events.toString(), events.contains("fetched dept 4"));
+        assertTrue(events.toString(), events.contains("planned 2"));
+        assertTrue(events.toString(), events.contains("merged"));
+        assertTrue(events.toString(), events.contains("enumerated 6"));
+        int index = 0;
+        for (String event : events)
+        {
+            if (event.startsWith("index "))
+            {
+                index++;
+            }
+        }
+        assertTrue(events.toString(), index >= 2);
+    }
+    @Test
+    public void testCachedIndex()
+    {
+        engine.setVersioned(true);
+        String sql = "select e.id, d.name from emp e, dept d where e.dept = d.id;";
+        execute(sql);
+        assertTrue(events.toString(), events.contains("index dept.id 4 4 false"));
+        events.clear();
+        execute(sql);
+        assertTrue(events.toString(), events.contains("index dept.id 4 4 true"));
+    }
+    @Test
+    public void testRemove()
+    {
+        engine.removeExecutionListener(listener);
+        execute("select id from emp;");
+        assertTrue(events.isEmpty());
+    }
+    @Test
+    public void testStatistics()
+    {
+        engine.removeExecutionListener(listener);
+        ExecutionStatistics<Map<String,Object>,Object> statistics = new ExecutionStatistics<>("test");
+        engine.addExecutionListener(statistics);
+        execute("select id from emp where salary > 3000;");
+        execute("select id from emp where salary > 4000;");
+        execute("select e.id from emp e, dept d where e.dept = d.id;");
+        Map<String,LatencyStatistics> phases = statistics.getPhases();
+        assertEquals(3, phases.get("parse").getCount());
+        assertEquals(3, phases.get("execute").getCount());
+        assertEquals(3+2+6, phases.get("execute").getRows());
+        assertEquals(4, phases.get("fetch").getCount());
+        assertEquals(1, phases.get("plan").getCount());
+        Map<String,LatencyStatistics> statements = statistics.getStatements();
+        assertEquals(2, statements.size());
+        LatencyStatistics ls = statements.get("select id from emp where salary > ?;");
+        assertNotNull(statements.keySet().toString(), ls);
+        assertEquals(2, ls.getCount());
+        assertEquals(5, ls.getRows());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class ExecutionStatisticsTest extends SqlTestBase
+{
+    @Test
+    public void testShape()
+    {
+        assertEquals("select a from t where b = ? and c = ?;", ExecutionStatistics.shape("select a from t\n  where b = 'it''s'  and c = 12.5;"));
+        assertEquals("select a1 from t2;", ExecutionStatistics.shape("select a1 from t2;"));
+    }
+    @Test
+    public void testMaxStatements()
+    {
+        ExecutionStatistics<Map<String,Object>,Object> statistics = new ExecutionStatistics<>("max", 1);
+        engine.addExecutionListener(statistics);
+        execute("select id from emp where id = 1;");
+        execute("select name from emp where id = 2;");
+        execute("select id from emp where id = 3;");
+        assertEquals(1, statistics.getStatements().size());
+        assertEquals(2, statistics.getStatements().get("select id from emp where id = ?;").getCount());
+        assertEquals(3, statistics.getPhases().get("execute").getCount());
+        statistics.reset();
+        assertEquals(0, statistics.getStatements().get("select id from emp where id = ?;").getCount());
+        assertEquals(0, statistics.getPhases().get("execute").getCount());
+    }
+    @Test
+    public void testRegister() throws Exception
+    {
+        ExecutionStatistics<Map<String,Object>,Object> statistics = new ExecutionStatistics<>("registered");
+        engine.addExecutionListener(statistics);
+        statistics.register();
+        try
+        {
+            execute("select id from emp;");
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName phase = new ObjectName(ExecutionStatistics.DOMAIN+":type=ExecutionStatistics,name="+ObjectName.quote("registered")+",phase=execute");
+            assertEquals(1L, server.getAttribute(phase, "Count"));
+            assertEquals(6L, server.getAttribute(phase, "Rows"));
+            ObjectName statement = new ObjectName(ExecutionStatistics.DOMAIN+":type=ExecutionStatistics,name="+ObjectName.quote("registered")+",statement=1");
+            assertEquals("select id from emp;", server.getAttribute(statement, "Description"));
+            statistics.unregister();
+            assertFalse(server.isRegistered(phase));
+            assertFalse(server.isRegistered(statement));
+        }
+        finally
+        {
+            statistics.unregister();
+        }
+    }
+    @Test
+    public void testLatencyStatistics()
+    {
+        LatencyStatistics ls = new LatencyStatistics("test");
+        for (int ii=0;ii<98;ii++)
+        {
+            ls.record(1, 1000);
+        }
+        ls.record(1, 100000);
+        ls.record(1, 1000000);
+        assertEquals(100, ls.getCount());
+        assertEquals(100, ls.getRows());
+        assertEquals(98*1000+100000+1000000, ls.getTotalTime());
+        assertEquals(1000000, ls.getMaxTime());
+        assertEquals(1023, ls.getMedianTime());
+        assertEquals(1023, ls.getPercentile95Time());
+        assertEquals(131071, ls.getPercentile99Time());
+        assertEquals(1000000, ls.getPercentile(1.0));
+        assertEquals(98, ls.getHistogram()[10]);
+        ls.reset();
+        assertEquals(0, ls.getCount());
+        assertEquals(0, ls.getMedianTime());
+    }
+}
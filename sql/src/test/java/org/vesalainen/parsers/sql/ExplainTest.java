@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class ExplainTest extends SqlTestBase
+{
+    private static final String JOIN = "select e.id, d.name from emp e, dept d where e.dept = d.id and d.name <> 'Empty';";
+    /**
+     * Returns rows of step.
+     * @param result
+     * @param step
+     * @return 
+     */
+    private static List<List<Object>> steps(FetchResult<Map<String,Object>,Object> result, String step)
+    {
+        List<List<Object>> list = new ArrayList<>();
+        for (List<Object> row : rows(result))
+        {
+            if (step.equals(row.get(0)))
+            {
+                list.add(row);
+            }
+        }
+        return list;
+    }
+    @Test
+    public void testExplain()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("explain "+JOIN);
+        assertEquals(5, result.getColumnCount());
+        assertEquals("Step", result.getColumnName(0));
+        List<List<Object>> order = steps(result, "order");
+        assertEquals(2, order.size());
+        assertEquals("", order.get(0).get(2));
+        assertTrue(order.get(1).get(2).toString(), order.get(1).get(2).toString().matches("\\w*JoinMap\\w* ratio [0-9.]+"));
+        assertEquals(1, steps(result, "plan").size());
+        assertTrue(steps(result, "fetch").isEmpty());
+        assertTrue(steps(result, "enumerate").isEmpty());
+        assertTrue(steps(result, "sort").isEmpty());
+    }
+    @Test
+    public void testExplainRange()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("explain select id from emp where salary >= 3000 and salary < 4000;");
+        List<List<Object>> range = steps(result, "range");
+        assertEquals(1, range.size());
+        assertEquals("salary 3000 - 4000", range.get(0).get(2));
+        assertEquals(1, steps(result, "order").size());
+        assertEquals(2, steps(result, "order").get(0).get(3));
+    }
+    @Test
+    public void testExplainCartesian()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("explain select e.id, d.name from emp e, dept d where e.salary > 4500;");
+        List<List<Object>> order = steps(result, "order");
+        assertEquals(2, order.size());
+        assertTrue(order.get(1).get(2).toString(), order.get(1).get(2).toString().startsWith("CartesianMap ratio "));
+    }
+    @Test
+    public void testExplainAnalyze()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("explain analyze "+JOIN);
+        List<List<Object>> fetch = steps(result, "fetch");
+        assertEquals(2, fetch.size());
+        List<Object> counts = new ArrayList<>();
+        for (List<Object> row : fetch)
+        {
+            counts.add(row.get(3));
+        }
+        assertTrue(counts.toString(), counts.contains(6) && counts.contains(4));
+        assertEquals(2, steps(result, "null").size());
+        assertEquals(2, steps(result, "filter").size());
+        assertEquals(6, steps(result, "enumerate").get(0).get(3));
+        assertEquals(6, steps(result, "sort").get(0).get(3));
+        List<List<Object>> total = steps(result, "total");
+        assertEquals(1, total.size());
+        assertTrue(((Number)total.get(0).get(4)).longValue() >= 0);
+    }
+    @Test
+    public void testExplainAnalyzeLimit()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("explain analyze select id from emp order by salary desc limit 2;");
+        assertEquals(2, steps(result, "sort").get(0).get(3));
+    }
+    @Test
+    public void testExplainDoesNotChangeResult()
+    {
+        execute("explain analyze "+JOIN);
+        assertEquals(6, execute(JOIN).getRowCount());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class FlightRecorderTest extends SqlTestBase
+{
+    private static final String JOIN = "select e.id, d.name from emp e, dept d where e.dept = d.id;";
+    /**
+     * Executes sql while recording sql events and returns recorded events.
+     * @param sql
+     * @return
+     * @throws IOException 
+     */
+    private List<RecordedEvent> record(String sql) throws IOException
+    {
+        Path file = Files.createTempFile("sql", ".jfr");
+        try
+        {
+            try (Recording recording = new Recording())
+            {
+                for (String name : new String[] {"Parse", "Statement", "Join", "IndexBuild"})
+                {
+                    recording.enable("org.vesalainen.parsers.sql."+name).withoutThreshold();
+                }
+                recording.start();
+                execute(sql);
+                recording.stop();
+                recording.dump(file);
+            }
+            return RecordingFile.readAllEvents(file);
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name)
+    {
+        List<RecordedEvent> list = new ArrayList<>();
+        for (RecordedEvent event : events)
+        {
+            if (event.getEventType().getName().equals("org.vesalainen.parsers.sql."+name))
+            {
+                list.add(event);
+            }
+        }
+        return list;
+    }
+    @Test
+    public void testEvents() throws IOException
+    {
+        List<RecordedEvent> events = record(JOIN);
+        List<RecordedEvent> parse = events(events, "Parse");
+        assertEquals(1, parse.size());
+        assertEquals(JOIN.hashCode(), parse.get(0).getInt("sqlHash"));
+        assertEquals(JOIN.length(), parse.get(0).getInt("length"));
+        List<RecordedEvent> statement = events(events, "Statement");
+        assertEquals(1, statement.size());
+        assertEquals(JOIN.hashCode(), statement.get(0).getInt("sqlHash"));
+        assertEquals(2, statement.get(0).getInt("tables"));
+        assertEquals(6, statement.get(0).getInt("rows"));
+        assertFalse(events(events, "Join").isEmpty());
+        assertFalse(events(events, "IndexBuild").isEmpty());
+    }
+    @Test
+    public void testCachedStatement() throws IOException
+    {
+        execute(JOIN);
+        List<RecordedEvent> events = record(JOIN);
+        assertTrue(events(events, "Parse").isEmpty());
+        assertEquals(JOIN.hashCode(), events(events, "Statement").get(0).getInt("sqlHash"));
+    }
+    @Test
+    public void testDisabled()
+    {
+        assertNull(SqlStatementEvent.start());
+        assertNull(SqlParseEvent.start());
+        assertNull(JoinEvent.start());
+        assertNull(IndexBuildEvent.start());
+    }
+}
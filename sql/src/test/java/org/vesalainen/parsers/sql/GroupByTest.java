@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class GroupByTest extends SqlTestBase
+{
+    /**
+     * Returns result rows mapped by first column.
+     * @param result
+     * @return 
+     */
+    private static Map<Object,List<Object>> groups(FetchResult<Map<String,Object>,Object> result)
+    {
+        Map<Object,List<Object>> map = new HashMap<>();
+        for (List<Object> row : rows(result))
+        {
+            assertNull(map.put(row.get(0), row));
+        }
+        return map;
+    }
+    private static long longValue(Object value)
+    {
+        return ((Number)value).longValue();
+    }
+    @Test
+    public void testGroupByHaving()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select dept, count(*), sum(salary) from emp group by dept having count(*) > 1;");
+        Map<Object,List<Object>> map = groups(result);
+        assertEquals(2, map.size());
+        assertEquals(3L, longValue(map.get(10L).get(1)));
+        assertEquals(11000L, longValue(map.get(10L).get(2)));
+        assertEquals(2L, longValue(map.get(20L).get(1)));
+        assertEquals(8500L, longValue(map.get(20L).get(2)));
+    }
+    @Test
+    public void testMinMaxAvg()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select dept, min(salary), max(salary), avg(salary) from emp group by dept;");
+        Map<Object,List<Object>> map = groups(result);
+        assertEquals(3, map.size());
+        assertEquals(3000L, longValue(map.get(10L).get(1)));
+        assertEquals(4000L, longValue(map.get(10L).get(2)));
+        assertEquals(11000.0/3, ((Number)map.get(10L).get(3)).doubleValue(), 1e-6);
+        assertEquals(2000L, longValue(map.get(30L).get(1)));
+        assertEquals(2000L, longValue(map.get(30L).get(2)));
+    }
+    @Test
+    public void testCountDistinct()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select dept, count(distinct salary), sum(distinct salary) from emp group by dept;");
+        Map<Object,List<Object>> map = groups(result);
+        assertEquals(2L, longValue(map.get(10L).get(1)));
+        assertEquals(7000L, longValue(map.get(10L).get(2)));
+        assertEquals(2L, longValue(map.get(20L).get(1)));
+    }
+    @Test
+    public void testNullValues()
+    {
+        engine.addTable("bonus", new String[] {"emp", "amount"},
+                new Object[] {1L, 100L},
+                new Object[] {1L, null},
+                new Object[] {2L, null}
+        );
+        FetchResult<Map<String,Object>,Object> result = execute("select emp, count(*), count(amount), sum(amount) from bonus group by emp;");
+        Map<Object,List<Object>> map = groups(result);
+        assertEquals(2L, longValue(map.get(1L).get(1)));
+        assertEquals(1L, longValue(map.get(1L).get(2)));
+        assertEquals(100L, longValue(map.get(1L).get(3)));
+        assertEquals(1L, longValue(map.get(2L).get(1)));
+        assertEquals(0L, longValue(map.get(2L).get(2)));
+        assertNull(map.get(2L).get(3));
+    }
+    @Test
+    public void testGroupByJoin()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select d.name, count(*) from emp e, dept d where e.dept = d.id group by d.name order by d.name;");
+        assertEquals(list(list("R&D", 2L), list("Sales", 3L), list("Support", 1L)), rows(result));
+    }
+    @Test
+    public void testAggregateWithoutGroupBy()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select count(*), max(salary) from emp;");
+        assertEquals(1, result.getRowCount());
+        assertEquals(6L, longValue(result.getValueAt(0, 0)));
+        assertEquals(5000L, longValue(result.getValueAt(0, 1)));
+        result = execute("select count(*), max(salary) from emp where salary > 9000;");
+        assertEquals(1, result.getRowCount());
+        assertEquals(0L, longValue(result.getValueAt(0, 0)));
+        assertNull(result.getValueAt(0, 1));
+    }
+    @Test
+    public void testParallelPartialAggregation()
+    {
+        Object[][] rows = new Object[3000][];
+        for (int ii=0;ii<rows.length;ii++)
+        {
+            rows[ii] = new Object[] {(long)ii, (long)(ii%7)};
+        }
+        engine.addTable("big", new String[] {"id", "grp"}, rows);
+        String sql = "select grp, count(*), sum(id), count(distinct id) from big group by grp order by grp;";
+        FetchResult<Map<String,Object>,Object> serial = execute(sql);
+        engine.setParallelism(4);
+        engine.setParallelThreshold(1);
+        FetchResult<Map<String,Object>,Object> parallel = execute(sql);
+        assertEquals(7, parallel.getRowCount());
+        assertEquals(rows(serial), rows(parallel));
+        long count = 0;
+        for (Object c : column(parallel, 1))
+        {
+            count += longValue(c);
+        }
+        assertEquals(3000L, count);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class HashJoinTest extends SqlTestBase
+{
+    private static final String JOIN = "select e.id, d.name from emp e, dept d where e.dept = d.id order by e.id;";
+
+    @Test
+    public void testHashJoin()
+    {
+        assertFalse(engine.supportsHashJoin());
+        FetchResult<Map<String,Object>,Object> merged = execute(JOIN);
+        engine.setHashJoin(true);
+        FetchResult<Map<String,Object>,Object> hashed = execute(JOIN);
+        assertEquals(6, hashed.getRowCount());
+        assertEquals(rows(merged), rows(hashed));
+        assertEquals(list(1L, "Sales"), rows(hashed).get(0));
+        assertEquals(list(5L, "Support"), rows(hashed).get(4));
+    }
+    @Test
+    public void testHashJoinThreeTables()
+    {
+        engine.addTable("project", new String[] {"id", "emp"},
+                new Object[] {100L, 1L},
+                new Object[] {101L, 4L},
+                new Object[] {102L, 4L},
+                new Object[] {103L, 9L}
+        );
+        String sql = "select p.id, d.name from project p, emp e, dept d where p.emp = e.id and e.dept = d.id order by p.id;";
+        FetchResult<Map<String,Object>,Object> merged = execute(sql);
+        engine.setHashJoin(true);
+        FetchResult<Map<String,Object>,Object> hashed = execute(sql);
+        assertEquals(rows(merged), rows(hashed));
+        assertEquals(list(100L, 101L, 102L), column(hashed, 0));
+        assertEquals(list("Sales", "R&D", "R&D"), column(hashed, 1));
+    }
+    @Test
+    public void testMixedNumberClasses()
+    {
+        engine.addTable("office", new String[] {"dept", "city"},
+                new Object[] {10, "Helsinki"},
+                new Object[] {20, "Espoo"}
+        );
+        FetchResult<Map<String,Object>,Object> result = execute("select d.name, o.city from dept d, office o where d.id = o.dept order by d.name;");
+        assertEquals(list("R&D", "Sales"), column(result, 0));
+        assertEquals(list("Espoo", "Helsinki"), column(result, 1));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class InListTest extends SqlTestBase
+{
+    private final List<String> filtered = new ArrayList<>();
+    private final Map<String,Range<Object>> ranges = new HashMap<>();
+
+    @Before
+    public void addListener()
+    {
+        engine.addExecutionListener(new ExecutionAdapter<Map<String,Object>,Object>()
+        {
+            @Override
+            public void fetched(TableContext<Map<String, Object>, Object> table, int rows, long time)
+            {
+                for (Map.Entry<String,Range<Object>> entry : table.getColumnRanges().entrySet())
+                {
+                    ranges.put(table.getTable().getName()+"."+entry.getKey(), entry.getValue());
+                }
+            }
+
+            @Override
+            public void filtered(TableContext<Map<String, Object>, Object> table, String step, String column, int before, int after)
+            {
+                if ("in".equals(step) || "key filter".equals(step))
+                {
+                    filtered.add(step+" "+table.getTable().getName()+(column != null ? "."+column : "")+" "+before+"->"+after);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testIndexedInList()
+    {
+        engine.setKeyFilters(false);
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where dept in (10, 30) order by id;");
+        assertEquals(list(1L, 2L, 5L, 6L), column(result, 0));
+        assertEquals(list("in emp.dept 6->4"), new ArrayList<Object>(filtered));
+        Range<Object> range = ranges.get("emp.dept");
+        assertEquals(10L, range.getLower());
+        assertEquals(30L, range.getUpper());
+    }
+    @Test
+    public void testKeyFilterInList()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where dept in (10, 30) order by id;");
+        assertEquals(list(1L, 2L, 5L, 6L), column(result, 0));
+        assertEquals(list("key filter emp 6->4"), new ArrayList<Object>(filtered));
+    }
+    @Test
+    public void testLargeInList()
+    {
+        StringBuilder sb = new StringBuilder("select id from emp where id in (");
+        for (int ii=0;ii<2000;ii++)
+        {
+            if (ii > 0)
+            {
+                sb.append(", ");
+            }
+            sb.append(ii*2+2);
+        }
+        sb.append(") order by id;");
+        FetchResult<Map<String,Object>,Object> result = execute(sb.toString());
+        assertEquals(list(2L, 4L, 6L), column(result, 0));
+        // in list is pushed to fetch as key filter
+        assertEquals(list("key filter emp 6->3"), new ArrayList<Object>(filtered));
+        Range<Object> range = ranges.get("emp.id");
+        assertEquals(2L, range.getLower());
+        assertEquals(4000L, range.getUpper());
+    }
+    @Test
+    public void testInListOrPath()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where id in (1, 2) or salary > 4500 order by id;");
+        assertEquals(list(1L, 2L, 4L), column(result, 0));
+        assertTrue(filtered.isEmpty());
+    }
+    @Test
+    public void testNotIn()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where dept not in (10, 20) order by id;");
+        assertEquals(list(5L), column(result, 0));
+    }
+    @Test
+    public void testPlaceholderRebind()
+    {
+        Statement statement = engine.prepare("select id from emp where dept in (:d1, :d2) order by id;");
+        statement.bindValue("d1", 20L);
+        statement.bindValue("d2", 30L);
+        assertEquals(list(3L, 4L, 5L), column(statement.execute(), 0));
+        statement.bindValue("d2", 10L);
+        assertEquals(list(1L, 2L, 3L, 4L, 6L), column(statement.execute(), 0));
+    }
+    @Test
+    public void testNullColumn()
+    {
+        engine.addTable("bonus", new String[] {"emp", "amount"},
+                new Object[] {1L, null},
+                new Object[] {2L, 100L},
+                new Object[] {3L, 200L}
+        );
+        FetchResult<Map<String,Object>,Object> result = execute("select emp from bonus where amount in (100, 300);");
+        assertEquals(list(2L), column(result, 0));
+        result = execute("select emp from bonus where amount not in (100, 300);");
+        assertEquals(list(3L), column(result, 0));
+    }
+}
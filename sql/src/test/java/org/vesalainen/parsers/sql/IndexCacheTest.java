@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class IndexCacheTest extends SqlTestBase
+{
+    private static final String JOIN = "select e.id, d.name from emp e, dept d where e.dept = d.id order by e.id;";
+
+    private final Map<String,Boolean> cached = new HashMap<>();
+
+    @Before
+    public void addListener()
+    {
+        engine.addExecutionListener(new ExecutionAdapter<Map<String,Object>,Object>()
+        {
+            @Override
+            public void indexBuilt(TableContext<Map<String, Object>, Object> table, String column, int rows, int keys, boolean restored, long time)
+            {
+                cached.put(table.getTable().getName()+"."+column, restored);
+            }
+        });
+    }
+
+    @Test
+    public void testUnversioned()
+    {
+        execute(JOIN);
+        execute(JOIN);
+        assertEquals(Boolean.FALSE, cached.get("emp.dept"));
+        assertEquals(Boolean.FALSE, cached.get("dept.id"));
+        assertEquals(0, engine.getIndexCache().getHits());
+    }
+    @Test
+    public void testCacheHit()
+    {
+        engine.setVersioned(true);
+        FetchResult<Map<String,Object>,Object> first = execute(JOIN);
+        assertEquals(Boolean.FALSE, cached.get("emp.dept"));
+        FetchResult<Map<String,Object>,Object> second = execute(JOIN);
+        assertEquals(Boolean.TRUE, cached.get("emp.dept"));
+        assertEquals(Boolean.TRUE, cached.get("dept.id"));
+        assertEquals(rows(first), rows(second));
+        assertTrue(engine.getIndexCache().getHits() >= 2);
+        assertTrue(engine.getIndexCache().getMemory() > 0);
+    }
+    @Test
+    public void testVersionChange()
+    {
+        engine.setVersioned(true);
+        execute(JOIN);
+        engine.touch("dept");
+        execute(JOIN);
+        assertEquals(Boolean.TRUE, cached.get("emp.dept"));
+        assertEquals(Boolean.FALSE, cached.get("dept.id"));
+        execute("update emp set dept = 30 where id = 1;");
+        FetchResult<Map<String,Object>,Object> result = execute(JOIN);
+        assertEquals(Boolean.FALSE, cached.get("emp.dept"));
+        assertEquals(list(1L, "Support"), rows(result).get(0));
+    }
+    @Test
+    public void testInvalidate()
+    {
+        engine.setVersioned(true);
+        execute(JOIN);
+        engine.invalidateIndexCache("emp");
+        execute(JOIN);
+        assertEquals(Boolean.FALSE, cached.get("emp.dept"));
+        assertEquals(Boolean.TRUE, cached.get("dept.id"));
+        engine.invalidateIndexCache();
+        assertEquals(0, engine.getIndexCache().getMemory());
+    }
+    @Test
+    public void testBudget()
+    {
+        engine.setVersioned(true);
+        engine.getIndexCache().setBudget(0);
+        execute(JOIN);
+        execute(JOIN);
+        assertEquals(Boolean.FALSE, cached.get("emp.dept"));
+        assertEquals(0, engine.getIndexCache().getMemory());
+    }
+}
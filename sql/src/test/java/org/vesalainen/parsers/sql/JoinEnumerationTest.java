@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class JoinEnumerationTest extends SqlTestBase
+{
+    private Object[][] a;
+    private Object[][] b;
+    private Object[][] c;
+    private final List<String> filtered = new ArrayList<>();
+
+    @Before
+    public void addTables()
+    {
+        a = new Object[200][];
+        for (int ii=0;ii<a.length;ii++)
+        {
+            a[ii] = new Object[] {(long)ii, (long)(ii%7), (long)(ii%13)};
+        }
+        b = new Object[70][];
+        for (int ii=0;ii<b.length;ii++)
+        {
+            b[ii] = new Object[] {(long)ii, (long)(ii%7), (long)(ii%5)};
+        }
+        c = new Object[10][];
+        for (int ii=0;ii<c.length;ii++)
+        {
+            c[ii] = new Object[] {(long)(ii%5), "c"+ii};
+        }
+        engine.addTable("a", new String[] {"id", "k", "v"}, a);
+        engine.addTable("b", new String[] {"id", "k", "g"}, b);
+        engine.addTable("c", new String[] {"g", "name"}, c);
+        engine.addExecutionListener(new ExecutionAdapter<Map<String,Object>,Object>()
+        {
+            @Override
+            public void filtered(TableContext<Map<String, Object>, Object> table, String step, String column, int before, int after)
+            {
+                filtered.add(table.getTable().getName()+" "+step+" "+column+" "+before+"->"+after);
+            }
+        });
+    }
+
+    @Test
+    public void testManyToMany()
+    {
+        Set<List<Object>> expected = new HashSet<>();
+        for (Object[] ra : a)
+        {
+            for (Object[] rb : b)
+            {
+                if (ra[1].equals(rb[1]) && (Long)ra[2] < 3)
+                {
+                    expected.add(Arrays.asList(ra[0], rb[0]));
+                }
+            }
+        }
+        FetchResult<Map<String,Object>,Object> result = execute("select a.id, b.id from a, b where a.k = b.k and a.v < 3;");
+        assertEquals(expected.size(), result.getRowCount());
+        assertEquals(expected, new HashSet<>(rows(result)));
+    }
+    @Test
+    public void testThreeTables()
+    {
+        Set<List<Object>> expected = new HashSet<>();
+        for (Object[] ra : a)
+        {
+            for (Object[] rb : b)
+            {
+                for (Object[] rc : c)
+                {
+                    if (ra[1].equals(rb[1]) && rb[2].equals(rc[0]) && (Long)ra[0] < 20)
+                    {
+                        expected.add(Arrays.asList(ra[0], rb[0], rc[1]));
+                    }
+                }
+            }
+        }
+        FetchResult<Map<String,Object>,Object> result = execute("select a.id, b.id, c.name from a, b, c where a.k = b.k and b.g = c.g and a.id < 20;");
+        assertEquals(expected.size(), result.getRowCount());
+        assertEquals(expected, new HashSet<>(rows(result)));
+    }
+    @Test
+    public void testConditionFilter()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where salary > 3000 and name <> 'Maija' order by id;");
+        assertEquals(list(3L, 4L, 6L), column(result, 0));
+        assertEquals(3, filtered.size());
+        assertEquals("emp range salary 6->5", filtered.get(0));
+        Set<String> conditions = new HashSet<>(filtered.subList(1, 3));
+        assertTrue(conditions.toString(), 
+                conditions.equals(new HashSet<>(Arrays.asList("emp condition salary 5->4", "emp condition name 4->3"))) ||
+                conditions.equals(new HashSet<>(Arrays.asList("emp condition name 5->4", "emp condition salary 4->3")))
+                );
+    }
+}
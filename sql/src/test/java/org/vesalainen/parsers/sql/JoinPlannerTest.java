@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class JoinPlannerTest extends SqlTestBase
+{
+    private static final String JOIN = "select p.id, e.name, d.name, o.city from project p, emp e, dept d, office o where p.emp = e.id and e.dept = d.id and o.dept = d.id order by p.id;";
+
+    private TestPlanner planner;
+
+    @Override
+    protected MemoryEngine createEngine()
+    {
+        return new MemoryEngine()
+        {
+            @Override
+            protected JoinPlanner<Map<String, Object>, Object> createJoinPlanner()
+            {
+                planner = new TestPlanner(this, getPlanningLimit());
+                return planner;
+            }
+        };
+    }
+    @Before
+    public void addTables()
+    {
+        engine.addTable("project", new String[] {"id", "emp"},
+                new Object[] {100L, 1L},
+                new Object[] {101L, 4L},
+                new Object[] {102L, 4L},
+                new Object[] {103L, 5L}
+        );
+        engine.addTable("office", new String[] {"dept", "city"},
+                new Object[] {10L, "Helsinki"},
+                new Object[] {10L, "Tampere"},
+                new Object[] {20L, "Espoo"}
+        );
+    }
+
+    @Test
+    public void testDynamicPlanIsOptimal()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute(JOIN);
+        assertFalse(planner.isGreedy());
+        assertEquals(planner.bruteForce, planner.getCost(), 1e-9*planner.bruteForce);
+        assertEquals(list(100L, 100L, 101L, 102L), column(result, 0));
+        assertEquals(set("Helsinki", "Tampere"), set(result.getValueAt(0, 3), result.getValueAt(1, 3)));
+    }
+    @Test
+    public void testGreedyAbovePlanningLimit()
+    {
+        FetchResult<Map<String,Object>,Object> planned = execute(JOIN);
+        engine.setPlanningLimit(2);
+        FetchResult<Map<String,Object>,Object> greedy = execute(JOIN);
+        assertTrue(planner.isGreedy());
+        assertTrue(planner.getCost() >= planner.bruteForce*(1-1e-9));
+        assertEquals(rows(planned).size(), rows(greedy).size());
+        assertEquals(column(planned, 0), column(greedy, 0));
+    }
+    @Test
+    public void testPlanningLimitRange()
+    {
+        try
+        {
+            engine.setPlanningLimit(0);
+            fail();
+        }
+        catch (IllegalArgumentException ex)
+        {
+        }
+        try
+        {
+            engine.setPlanningLimit(Engine.MAX_PLANNING_LIMIT+1);
+            fail();
+        }
+        catch (IllegalArgumentException ex)
+        {
+        }
+        engine.setPlanningLimit(Engine.MAX_PLANNING_LIMIT);
+        assertEquals(Engine.MAX_PLANNING_LIMIT, engine.getPlanningLimit());
+    }
+    /**
+     * Computes the minimum cost over all table orders before planning.
+     */
+    private static class TestPlanner extends JoinPlanner<Map<String,Object>,Object>
+    {
+        private double bruteForce;
+
+        public TestPlanner(Engine<Map<String, Object>, Object> engine, int planningLimit)
+        {
+            super(engine, planningLimit);
+        }
+
+        @Override
+        public void plan(TableContext<Map<String, Object>, Object>[] tables)
+        {
+            bruteForce = Double.MAX_VALUE;
+            permute(tables, new int[tables.length], new boolean[tables.length], 0);
+            super.plan(tables);
+        }
+
+        private void permute(TableContext<Map<String, Object>, Object>[] tables, int[] order, boolean[] used, int index)
+        {
+            if (index == order.length)
+            {
+                double card = tables[order[0]].getAll().size();
+                double cost = card;
+                for (int ii=1;ii<order.length;ii++)
+                {
+                    card *= estimateRatio(tables[order[ii-1]], tables[order[ii]]);
+                    cost += card;
+                }
+                bruteForce = Math.min(bruteForce, cost);
+                return;
+            }
+            for (int ii=0;ii<order.length;ii++)
+            {
+                if (!used[ii])
+                {
+                    used[ii] = true;
+                    order[index] = ii;
+                    permute(tables, order, used, index+1);
+                    used[ii] = false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import org.vesalainen.parsers.sql.util.BloomFilter;
+import org.vesalainen.parsers.sql.util.SetKeyFilter;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class KeyFilterTest extends SqlTestBase
+{
+    private static final String JOIN = "select e.id from emp e, dept d where e.dept = d.id and d.name = 'Sales' order by e.id;";
+
+    private final List<String> filtered = new ArrayList<>();
+    private final Map<String,Integer> fetched = new HashMap<>();
+
+    @Before
+    public void addListener()
+    {
+        engine.addExecutionListener(new ExecutionAdapter<Map<String,Object>,Object>()
+        {
+            @Override
+            public void fetched(TableContext<Map<String, Object>, Object> table, int rows, long time)
+            {
+                fetched.put(table.getTable().getName(), rows);
+            }
+
+            @Override
+            public void filtered(TableContext<Map<String, Object>, Object> table, String step, String column, int before, int after)
+            {
+                if ("key filter".equals(step))
+                {
+                    filtered.add(table.getTable().getName()+" "+before+"->"+after);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testEliminatedAfterFetch()
+    {
+        assertEquals(list(1L, 2L, 6L), column(execute(JOIN), 0));
+        assertEquals(list("emp 6->3"), new ArrayList<Object>(filtered));
+        assertEquals(Long.valueOf(3), engine.getKeyFilterEliminated().get("emp"));
+        engine.clearKeyFilterStatistics();
+        assertTrue(engine.getKeyFilterEliminated().isEmpty());
+    }
+    @Test
+    public void testEliminatedAtSource()
+    {
+        engine.setFilterAtSource(true);
+        assertEquals(list(1L, 2L, 6L), column(execute(JOIN), 0));
+        assertTrue(filtered.isEmpty());
+        assertEquals(Integer.valueOf(3), fetched.get("emp"));
+        assertEquals(Long.valueOf(3), engine.getKeyFilterEliminated().get("emp"));
+    }
+    @Test
+    public void testKeyFiltersOff()
+    {
+        engine.setKeyFilters(false);
+        engine.setFilterAtSource(true);
+        assertEquals(list(1L, 2L, 6L), column(execute(JOIN), 0));
+        assertTrue(filtered.isEmpty());
+        assertEquals(Integer.valueOf(6), fetched.get("emp"));
+        assertNull(engine.getKeyFilterEliminated().get("emp"));
+    }
+    @Test
+    public void testCreateKeyFilter()
+    {
+        Set<Object> keys = new HashSet<>();
+        for (long ii=0;ii<10;ii++)
+        {
+            keys.add(ii);
+        }
+        assertTrue(engine.createKeyFilter(keys) instanceof SetKeyFilter);
+        engine.setKeyFilterThreshold(5);
+        assertNull(engine.createKeyFilter(keys));
+        engine.setHashJoin(true);
+        assertTrue(engine.createKeyFilter(keys) instanceof BloomFilter);
+        for (Object key : keys)
+        {
+            assertTrue(engine.createKeyFilter(keys).mightContain(key));
+        }
+    }
+}
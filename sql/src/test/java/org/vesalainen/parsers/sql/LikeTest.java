@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class LikeTest extends SqlTestBase
+{
+    private final List<String> filtered = new ArrayList<>();
+    private final Map<String,Range<Object>> ranges = new HashMap<>();
+
+    @Before
+    public void addListener()
+    {
+        engine.addExecutionListener(new ExecutionAdapter<Map<String,Object>,Object>()
+        {
+            @Override
+            public void fetched(TableContext<Map<String, Object>, Object> table, int rows, long time)
+            {
+                for (Map.Entry<String,Range<Object>> entry : table.getColumnRanges().entrySet())
+                {
+                    ranges.put(table.getTable().getName()+"."+entry.getKey(), entry.getValue());
+                }
+            }
+
+            @Override
+            public void filtered(TableContext<Map<String, Object>, Object> table, String step, String column, int before, int after)
+            {
+                filtered.add(step+" "+table.getTable().getName()+"."+column+" "+before+"->"+after);
+            }
+        });
+    }
+
+    @Test
+    public void testLikePrefix()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where name like 'Ma%' order by id;");
+        assertEquals(list(1L, 2L, 6L), column(result, 0));
+        Range<Object> range = ranges.get("emp.name");
+        assertEquals("Ma", range.getLower());
+        assertEquals("Mb", range.getUpper());
+        assertEquals(list("range emp.name 6->3"), new ArrayList<Object>(filtered));
+    }
+    @Test
+    public void testPrefixPattern()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where name like 'Ma_ti' order by id;");
+        assertEquals(list(1L), column(result, 0));
+        assertEquals(list("range emp.name 6->3", "like emp.name 3->1"), new ArrayList<Object>(filtered));
+    }
+    @Test
+    public void testNoPrefix()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where name like '%a' order by id;");
+        assertEquals(list(2L, 3L, 4L, 6L), column(result, 0));
+        assertNull(ranges.get("emp.name").getLower());
+        assertEquals(list("like emp.name 6->4"), new ArrayList<Object>(filtered));
+        result = execute("select id from emp where name like '%ai%' order by id;");
+        assertEquals(list(2L), column(result, 0));
+    }
+    @Test
+    public void testNotLike()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where name not like 'Ma%' order by id;");
+        assertEquals(list(3L, 4L, 5L), column(result, 0));
+    }
+    @Test
+    public void testNonTextColumn()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where salary like '40%' order by id;");
+        assertEquals(list(2L, 6L), column(result, 0));
+        assertNull(ranges.get("emp.salary").getLower());
+    }
+    @Test
+    public void testMatch()
+    {
+        assertTrue(new LikeCondition<>(null, "Matti").isMatch("Matti"));
+        assertFalse(new LikeCondition<>(null, "Matti").isMatch("Matt"));
+        assertTrue(new LikeCondition<>(null, "Ma%").isMatch("Ma"));
+        assertTrue(new LikeCondition<>(null, "%ti").isMatch("Matti"));
+        assertTrue(new LikeCondition<>(null, "%").isMatch(""));
+        assertTrue(new LikeCondition<>(null, "M%t_").isMatch("Matti"));
+        assertFalse(new LikeCondition<>(null, "M%t_").isMatch("Maija"));
+        assertEquals("Mb", new LikeCondition<>(null, "Ma%").getPrefixLimit());
+        assertNull(new LikeCondition<>(null, "%a").getPrefixLimit());
+    }
+    @Test
+    public void testPatternCache()
+    {
+        LikeCondition<Map<String,Object>,Object> lc1 = new LikeCondition<>(null, "M%t_");
+        LikeCondition<Map<String,Object>,Object> lc2 = new LikeCondition<>(null, "M%t_");
+        assertNotNull(lc1.getPattern());
+        assertSame(lc1.getPattern(), lc2.getPattern());
+    }
+}
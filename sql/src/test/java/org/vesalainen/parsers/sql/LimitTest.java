@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class LimitTest extends SqlTestBase
+{
+    @Test
+    public void testLimitOffset()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp order by id limit 2 offset 1;");
+        assertEquals(list(2L, 3L), column(result, 0));
+    }
+    @Test
+    public void testLimitWithoutOrder()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp limit 4;");
+        assertEquals(4, result.getRowCount());
+        result = execute("select id from emp limit 10 offset 4;");
+        assertEquals(2, result.getRowCount());
+        result = execute("select id from emp limit 0;");
+        assertEquals(0, result.getRowCount());
+        result = execute("select id from emp limit 3 offset 6;");
+        assertEquals(0, result.getRowCount());
+    }
+    @Test
+    public void testTopN()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp order by salary desc, id limit 3;");
+        assertEquals(list(4L, 2L, 6L), column(result, 0));
+        result = execute("select id from emp order by salary limit 2 offset 1;");
+        assertEquals(list(1L, 3L), column(result, 0));
+    }
+    @Test
+    public void testTopNMatchesFullSort()
+    {
+        List<Object> all = column(execute("select e.id from emp e, dept d where e.dept = d.id order by d.name, e.salary desc, e.id;"), 0);
+        for (int offset=0;offset<=all.size();offset++)
+        {
+            for (int limit=0;limit<=all.size()+1;limit++)
+            {
+                FetchResult<Map<String,Object>,Object> result = execute("select e.id from emp e, dept d where e.dept = d.id order by d.name, e.salary desc, e.id limit "+limit+" offset "+offset+";");
+                List<Object> expected = all.subList(offset, Math.min(all.size(), offset+limit));
+                assertEquals("limit "+limit+" offset "+offset, expected, column(result, 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class MaskTest extends SqlTestBase
+{
+    private final List<String> masked = new ArrayList<>();
+
+    @Before
+    public void addListener()
+    {
+        engine.addExecutionListener(new ExecutionAdapter<Map<String,Object>,Object>()
+        {
+            @Override
+            public void filtered(TableContext<Map<String, Object>, Object> table, String step, String column, int before, int after)
+            {
+                if ("mask".equals(step))
+                {
+                    masked.add(table.getTable().getName()+" "+before+"->"+after);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testOrSameColumn()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where dept = 20 or dept = 30 order by id;");
+        assertEquals(list(3L, 4L, 5L), column(result, 0));
+        assertEquals(list("emp 6->3"), new ArrayList<Object>(masked));
+    }
+    @Test
+    public void testOrColumns()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where dept = 30 or salary >= 4000 order by id;");
+        assertEquals(list(2L, 4L, 5L, 6L), column(result, 0));
+        assertEquals(list("emp 6->4"), new ArrayList<Object>(masked));
+    }
+    @Test
+    public void testNot()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where not (dept = 10) order by id;");
+        assertEquals(list(3L, 4L, 5L), column(result, 0));
+        assertEquals(list("emp 6->3"), new ArrayList<Object>(masked));
+    }
+    @Test
+    public void testNotUnknown()
+    {
+        engine.addTable("bonus", new String[] {"emp", "amount"},
+                new Object[] {1L, null},
+                new Object[] {2L, 100L},
+                new Object[] {3L, 10L}
+        );
+        FetchResult<Map<String,Object>,Object> result = execute("select emp from bonus where not (amount > 50);");
+        assertEquals(list(3L), column(result, 0));
+        result = execute("select emp from bonus where amount > 50 or not (amount > 50) order by emp;");
+        assertEquals(list(2L, 3L), column(result, 0));
+    }
+    @Test
+    public void testMixedAndOr()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where (dept = 10 and salary > 3000) or (dept = 20 and not (salary > 4000)) order by id;");
+        assertEquals(list(2L, 3L, 6L), column(result, 0));
+        assertEquals(list("emp 6->3"), new ArrayList<Object>(masked));
+    }
+    @Test
+    public void testOrInLike()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where id in (1, 3) or name like 'Li%' order by id;");
+        assertEquals(list(1L, 3L, 4L), column(result, 0));
+        assertEquals(list("emp 6->3"), new ArrayList<Object>(masked));
+    }
+    @Test
+    public void testOrAcrossTables()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select e.id from emp e, dept d where e.dept = d.id and (e.salary > 4500 or d.name = 'Support') order by e.id;");
+        assertEquals(list(4L, 5L), column(result, 0));
+        assertTrue(masked.isEmpty());
+        result = execute("select e.id from emp e, dept d where e.dept = d.id and ((e.salary > 4500 and d.id = 20) or (e.salary < 2500 and d.id = 30)) order by e.id;");
+        assertEquals(list(4L, 5L), column(result, 0));
+        // implied projections e.salary > 4500 or e.salary < 2500 and d.id = 20 or d.id = 30
+        assertEquals(masked.toString(), 2, masked.size());
+        for (String m : masked)
+        {
+            assertTrue(m, m.endsWith("->2"));
+        }
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In memory engine for tests. Rows are maps from column name to value.
+ * @author Timo Vesalainen
+ */
+public class MemoryEngine extends Engine<Map<String,Object>,Object>
+{
+    private Map<String,MemoryTable> tables = new LinkedHashMap<>();
+    private boolean hashJoin;
+    private boolean versioned;
+    private boolean filterAtSource;
+    /**
+     * Adds table.
+     * @param name Table name
+     * @param columns Column names
+     * @param rows Rows as column values in column order
+     */
+    public void addTable(String name, String[] columns, Object[]... rows)
+    {
+        MemoryTable table = new MemoryTable(name, columns);
+        for (Object[] arr : rows)
+        {
+            Map<String,Object> row = new HashMap<>();
+            for (int ii=0;ii<columns.length;ii++)
+            {
+                row.put(columns[ii], arr[ii]);
+            }
+            table.rows.add(row);
+        }
+        tables.put(name.toLowerCase(), table);
+    }
+
+    /**
+     * Sets hash join support. Values of the same column must then be of the 
+     * same class.
+     * @param hashJoin 
+     * @see Engine#supportsHashJoin() 
+     */
+    public void setHashJoin(boolean hashJoin)
+    {
+        this.hashJoin = hashJoin;
+    }
+
+    /**
+     * Sets table versioning. Versioned tables have their column indexes 
+     * cached between statements.
+     * @param versioned 
+     * @see TableMetadata#getVersion() 
+     */
+    public void setVersioned(boolean versioned)
+    {
+        this.versioned = versioned;
+    }
+    /**
+     * Sets key filters applied while fetching as a database backend would.
+     * @param filterAtSource 
+     * @see TableContext#mightMatch(java.lang.Object) 
+     */
+    public void setFilterAtSource(boolean filterAtSource)
+    {
+        this.filterAtSource = filterAtSource;
+    }
+    /**
+     * Changes table version as if table was changed outside of engine.
+     * @param name 
+     */
+    public void touch(String name)
+    {
+        tables.get(name.toLowerCase()).version++;
+    }
+
+    @Override
+    protected boolean supportsHashJoin()
+    {
+        return hashJoin;
+    }
+
+    /**
+     * Returns true if all non null column values are strings.
+     * @param table
+     * @param column
+     * @return 
+     */
+    @Override
+    protected boolean isTextColumn(Table<Map<String, Object>, Object> table, String column)
+    {
+        for (Map<String,Object> row : tables.get(table.getName().toLowerCase()).rows)
+        {
+            Object value = row.get(column);
+            if (value != null && !(value instanceof String))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void progressNote(String note)
+    {
+    }
+
+    @Override
+    public Collection<Map<String, Object>> fetch(Table<Map<String, Object>, Object> table)
+    {
+        return new ArrayList<>(tables.get(table.getName().toLowerCase()).rows);
+    }
+
+    @Override
+    public Collection<Map<String, Object>> fetch(TableContext<Map<String, Object>, Object> tableContext, boolean update)
+    {
+        if (!filterAtSource)
+        {
+            return fetch(tableContext.getTable());
+        }
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Map<String, Object> row : tables.get(tableContext.getTable().getName().toLowerCase()).rows)
+        {
+            if (tableContext.mightMatch(row))
+            {
+                list.add(row);
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void beginTransaction()
+    {
+    }
+
+    @Override
+    public void commitTransaction()
+    {
+    }
+
+    @Override
+    public void rollbackTransaction()
+    {
+    }
+
+    @Override
+    public void delete(Collection<Map<String, Object>> rows)
+    {
+        for (MemoryTable table : tables.values())
+        {
+            if (table.rows.removeAll(rows))
+            {
+                table.version++;
+            }
+        }
+    }
+
+    @Override
+    public void insert(InsertStatement<Map<String, Object>, Object> insertStatement)
+    {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
+    @Override
+    public void update(Collection<Map<String, Object>> rows)
+    {
+        for (MemoryTable table : tables.values())
+        {
+            for (Map<String,Object> row : rows)
+            {
+                if (table.rows.contains(row))
+                {
+                    table.version++;
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void exit()
+    {
+    }
+
+    @Override
+    public Class<? extends Object> getDefaultPlaceholderType()
+    {
+        return Object.class;
+    }
+
+    @Override
+    public Object convert(String string)
+    {
+        return string;
+    }
+
+    @Override
+    public Object convert(Number number)
+    {
+        if ((number instanceof Double) || (number instanceof Float))
+        {
+            return number.doubleValue();
+        }
+        return number.longValue();
+    }
+
+    @Override
+    public Object convertDate(Date date)
+    {
+        return date;
+    }
+
+    @Override
+    public Object convertTime(Date date)
+    {
+        return date;
+    }
+
+    @Override
+    public Object convertTimestamp(Date date)
+    {
+        return date;
+    }
+
+    @Override
+    public Object get(Map<String, Object> r, String column)
+    {
+        return r.get(column);
+    }
+
+    @Override
+    public Updateable<Map<String, Object>, Object> getUpdateable(final Map<String, Object> r, final String column, final Object value)
+    {
+        return new Updateable<Map<String, Object>, Object>() 
+        {
+            @Override
+            public Map<String, Object> getRow()
+            {
+                return r;
+            }
+
+            @Override
+            public Object getValue()
+            {
+                return value;
+            }
+
+            @Override
+            public Map<String, Object> setValue(Object value)
+            {
+                r.put(column, value);
+                return r;
+            }
+        };
+    }
+
+    @Override
+    public void set(Map<String, Object> r, String column, Object value)
+    {
+        r.put(column, value);
+    }
+
+    @Override
+    public Comparator<Object> getComparator()
+    {
+        return ObjectComparator.STATIC;
+    }
+
+    @Override
+    public TableMetadata getTableMetadata(String tablename)
+    {
+        return tables.get(tablename.toLowerCase());
+    }
+
+    @Override
+    public Iterable<TableMetadata> getTables()
+    {
+        return new ArrayList<TableMetadata>(tables.values());
+    }
+
+    private class MemoryTable implements TableMetadata
+    {
+        private String name;
+        private long version;
+        private Map<String,ColumnMetadata> columns = new LinkedHashMap<>();
+        private List<Map<String,Object>> rows = new ArrayList<>();
+
+        public MemoryTable(String name, String[] columns)
+        {
+            this.name = name;
+            for (String column : columns)
+            {
+                this.columns.put(column, new MemoryColumn(column));
+            }
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public long getCount()
+        {
+            return rows.size();
+        }
+
+        @Override
+        public ColumnMetadata getColumnMetadata(String name)
+        {
+            return columns.get(name);
+        }
+
+        @Override
+        public Iterable<ColumnMetadata> getColumns()
+        {
+            return columns.values();
+        }
+
+        @Override
+        public long getVersion()
+        {
+            return versioned ? version : -1;
+        }
+
+    }
+    private static class MemoryColumn implements ColumnMetadata
+    {
+        private String name;
+
+        public MemoryColumn(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public boolean isIndexed()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isUnique()
+        {
+            return false;
+        }
+
+        @Override
+        public float getSelectivity()
+        {
+            return 0;
+        }
+
+        @Override
+        public long getCount()
+        {
+            return 0;
+        }
+
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class ParallelTest extends SqlTestBase
+{
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    @Override
+    protected MemoryEngine createEngine()
+    {
+        return new MemoryEngine()
+        {
+            @Override
+            public Object get(Map<String, Object> r, String column)
+            {
+                threads.add(Thread.currentThread());
+                return super.get(r, column);
+            }
+        };
+    }
+    @Before
+    public void addTables()
+    {
+        Object[][] emp = new Object[5000][];
+        for (int ii=0;ii<emp.length;ii++)
+        {
+            emp[ii] = new Object[] {(long)ii, (long)(ii%50), (long)(ii*7%1000)};
+        }
+        Object[][] dept = new Object[50][];
+        for (int ii=0;ii<dept.length;ii++)
+        {
+            dept[ii] = new Object[] {(long)ii, "d"+ii, (long)(ii%5)};
+        }
+        Object[][] site = new Object[5][];
+        for (int ii=0;ii<site.length;ii++)
+        {
+            site[ii] = new Object[] {(long)ii, "s"+ii};
+        }
+        engine.addTable("bigemp", new String[] {"id", "dept", "salary"}, emp);
+        engine.addTable("bigdept", new String[] {"id", "name", "site"}, dept);
+        engine.addTable("site", new String[] {"id", "name"}, site);
+    }
+
+    private void assertParallelEquals(String sql)
+    {
+        FetchResult<Map<String,Object>,Object> serial = execute(sql);
+        engine.setParallelism(4);
+        engine.setParallelThreshold(1);
+        threads.clear();
+        FetchResult<Map<String,Object>,Object> parallel = execute(sql);
+        assertTrue(threads.size() > 1);
+        assertEquals(serial.getRowCount(), parallel.getRowCount());
+        assertEquals(rows(serial), rows(parallel));
+        engine.setParallelism(1);
+    }
+
+    @Test
+    public void testTwoTables()
+    {
+        assertParallelEquals("select e.id, d.name from bigemp e, bigdept d where e.dept = d.id and e.salary > 100 order by e.id;");
+    }
+    @Test
+    public void testThreeTables()
+    {
+        assertParallelEquals("select e.id, d.name, s.name from bigemp e, bigdept d, site s where e.dept = d.id and d.site = s.id and e.salary < 500 order by e.id;");
+    }
+    @Test
+    public void testUnordered()
+    {
+        String sql = "select e.id, d.name from bigemp e, bigdept d where e.dept = d.id and e.salary > 900;";
+        Set<Object> serial = new HashSet<>(rows(execute(sql)));
+        engine.setParallelism(4);
+        engine.setParallelThreshold(1);
+        Set<Object> parallel = new HashSet<>(rows(execute(sql)));
+        assertEquals(serial, parallel);
+    }
+    @Test
+    public void testIllegalSettings()
+    {
+        try
+        {
+            engine.setParallelism(0);
+            fail();
+        }
+        catch (IllegalArgumentException ex)
+        {
+        }
+        try
+        {
+            engine.setParallelThreshold(0);
+            fail();
+        }
+        catch (IllegalArgumentException ex)
+        {
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+/**
+ * Measures prepare time with and without statement cache. Run as a plain 
+ * java program. Prints nanoseconds per prepare.
+ * @author Timo Vesalainen
+ */
+public class PrepareSpeedTester
+{
+    private static final String SQL = 
+            "select e.id, d.name from emp e, dept d "
+            + "where e.dept = d.id and e.salary > :salary and d.name in ('Sales', 'R&D', :name) "
+            + "and e.id not in (select id from emp where salary < 1000) order by e.id;";
+
+    private static long sink;
+
+    private static long time(MemoryEngine engine, int count)
+    {
+        long start = System.nanoTime();
+        for (int ii=0;ii<count;ii++)
+        {
+            sink += engine.prepare(SQL).hashCode();
+        }
+        return (System.nanoTime()-start)/count;
+    }
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args)
+    {
+        try
+        {
+            MemoryEngine engine = new MemoryEngine();
+            engine.addTable("emp", new String[] {"id", "name", "dept", "salary"});
+            engine.addTable("dept", new String[] {"id", "name"});
+            engine.setStatementCacheSize(0);
+            time(engine, 2000);
+            System.err.println("parse     "+time(engine, 20000)+" ns/prepare");
+            engine.setStatementCacheSize(Engine.DEFAULT_STATEMENT_CACHE_SIZE);
+            time(engine, 200000);
+            System.err.println("cache hit "+time(engine, 200000)+" ns/prepare");
+            System.err.println(sink != 0 ? "done" : "");
+        }
+        catch (Exception ex)
+        {
+            ex.printStackTrace();
+        }
+    }
+}
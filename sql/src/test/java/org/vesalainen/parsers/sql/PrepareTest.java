@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class PrepareTest extends SqlTestBase
+{
+    @Test
+    public void testPrepareCopies()
+    {
+        Statement s1 = engine.prepare("select id from emp where id = :id;");
+        Statement s2 = engine.prepare("select id from emp where id = :id;");
+        assertNotSame(s1, s2);
+        assertNotSame(s1.getPlaceholderMap(), s2.getPlaceholderMap());
+        s1.bindValue("id", 1L);
+        s2.bindValue("id", 2L);
+        assertEquals(list(1L), column(s1.execute(), 0));
+        assertEquals(list(2L), column(s2.execute(), 0));
+        assertEquals(list(1L), column(s1.execute(), 0));
+    }
+    @Test
+    public void testInListPlaceholders()
+    {
+        String sql = "select id from emp where dept in (30, :dept) and id not in (select id from emp where salary > :salary) order by id;";
+        Statement s1 = engine.prepare(sql);
+        Statement s2 = engine.prepare(sql);
+        s1.bindValue("dept", 10L);
+        s1.bindValue("salary", 3500L);
+        s2.bindValue("dept", 20L);
+        s2.bindValue("salary", 4500L);
+        assertEquals(list(1L, 5L), column(s1.execute(), 0));
+        assertEquals(list(3L, 5L), column(s2.execute(), 0));
+        s1.bindValue("dept", 20L);
+        assertEquals(list(3L, 5L), column(s1.execute(), 0));
+        assertEquals(list(3L, 5L), column(s2.execute(), 0));
+    }
+    @Test
+    public void testCacheCounters()
+    {
+        engine.prepare("select id from emp;");
+        engine.prepare("select id from emp;");
+        engine.prepare("select name from emp;");
+        assertEquals(1, engine.getStatementCacheHits());
+        assertEquals(2, engine.getStatementCacheMisses());
+        engine.clearStatementCache();
+        engine.prepare("select id from emp;");
+        assertEquals(3, engine.getStatementCacheMisses());
+    }
+    @Test
+    public void testCacheSize()
+    {
+        engine.setStatementCacheSize(1);
+        engine.prepare("select id from emp;");
+        engine.prepare("select name from emp;");
+        engine.prepare("select id from emp;");
+        assertEquals(0, engine.getStatementCacheHits());
+        engine.setStatementCacheSize(0);
+        engine.prepare("select id from emp;");
+        engine.prepare("select id from emp;");
+        assertEquals(0, engine.getStatementCacheHits());
+        try
+        {
+            engine.setStatementCacheSize(-1);
+            fail();
+        }
+        catch (IllegalArgumentException ex)
+        {
+        }
+    }
+    @Test
+    public void testConcurrentExecution() throws InterruptedException
+    {
+        String sql = "select e.id from emp e, dept d where e.dept = d.id and e.salary >= :salary and d.name in ('Sales', :name);";
+        final String[] names = new String[] {"R&D", "Support", "Empty", "Sales"};
+        final int[] expected = new int[names.length];
+        final List<Statement> statements = new ArrayList<>();
+        for (int ii=0;ii<names.length;ii++)
+        {
+            Statement statement = engine.prepare(sql);
+            statement.bindValue("salary", 3000L+ii*500L);
+            statement.bindValue("name", names[ii]);
+            expected[ii] = statement.execute().getRowCount();
+            statements.add(statement);
+        }
+        final AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[names.length];
+        for (int ii=0;ii<threads.length;ii++)
+        {
+            final int index = ii;
+            threads[ii] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (int jj=0;jj<200;jj++)
+                    {
+                        try
+                        {
+                            if (statements.get(index).execute().getRowCount() != expected[index])
+                            {
+                                errors.incrementAndGet();
+                            }
+                        }
+                        catch (RuntimeException ex)
+                        {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[ii].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class RangeTest extends SqlTestBase
+{
+    private final List<String> filtered = new ArrayList<>();
+    private final Map<String,Range<Object>> ranges = new HashMap<>();
+
+    @Before
+    public void addListener()
+    {
+        engine.addExecutionListener(new ExecutionAdapter<Map<String,Object>,Object>()
+        {
+            @Override
+            public void fetched(TableContext<Map<String, Object>, Object> table, int rows, long time)
+            {
+                for (Map.Entry<String,Range<Object>> entry : table.getColumnRanges().entrySet())
+                {
+                    ranges.put(table.getTable().getName()+"."+entry.getKey(), entry.getValue());
+                }
+            }
+
+            @Override
+            public void filtered(TableContext<Map<String, Object>, Object> table, String step, String column, int before, int after)
+            {
+                if ("range".equals(step))
+                {
+                    filtered.add(table.getTable().getName()+"."+column+" "+before+"->"+after);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testLiteralRange()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where salary > 3000 and salary <= 4000 order by id;");
+        assertEquals(list(2L, 3L, 6L), column(result, 0));
+        assertEquals(list("emp.salary 6->4"), new ArrayList<Object>(filtered));
+        Range<Object> range = ranges.get("emp.salary");
+        assertEquals(3000L, range.getLower());
+        assertEquals(4000L, range.getUpper());
+    }
+    @Test
+    public void testBetween()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where name between 'Maija' and 'Matti' order by id;");
+        assertEquals(list(1L, 2L, 6L), column(result, 0));
+        assertEquals(list("emp.name 6->3"), new ArrayList<Object>(filtered));
+    }
+    @Test
+    public void testEmptyRange()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where salary > 5000 and salary < 1000;");
+        assertEquals(0, result.getRowCount());
+        result = execute("select id from emp where salary >= 5000 and salary <= 5000;");
+        assertEquals(list(4L), column(result, 0));
+    }
+    @Test
+    public void testJoinNarrowing()
+    {
+        engine.setKeyFilters(false);
+        FetchResult<Map<String,Object>,Object> result = execute("select e.id, d.name from emp e, dept d where e.dept = d.id and d.id >= 20 order by e.id;");
+        assertEquals(list(list(3L, "R&D"), list(4L, "R&D"), list(5L, "Support")), rows(result));
+        Range<Object> range = ranges.get("emp.dept");
+        assertNotNull(range);
+        assertEquals(20L, range.getLower());
+        assertEquals(40L, range.getUpper());
+        assertTrue(filtered.contains("dept.id 4->3"));
+        assertTrue(filtered.contains("emp.dept 6->3"));
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class ResidualConditionTest extends SqlTestBase
+{
+    private final List<String> filtered = new ArrayList<>();
+
+    @Before
+    public void addListener()
+    {
+        engine.addExecutionListener(new ExecutionAdapter<Map<String,Object>,Object>()
+        {
+            @Override
+            public void filtered(TableContext<Map<String, Object>, Object> table, String step, String column, int before, int after)
+            {
+                if ("condition".equals(step))
+                {
+                    filtered.add(table.getTable().getName()+"."+column+" "+before+"->"+after);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testSingleTable()
+    {
+        SelectStatement<Map<String,Object>,Object> select = select("select id from emp where salary > 3000 and name <> 'Maija' and (dept = 10 or dept = 30);");
+        assertNull(select.getResidualCondition());
+        assertEquals(list(6L), column(select.execute(), 0));
+    }
+    @Test
+    public void testJoin()
+    {
+        engine.setKeyFilters(false);
+        SelectStatement<Map<String,Object>,Object> select = select("select e.id from emp e, dept d where e.dept = d.id and e.salary > 3000 and d.name <> 'R&D' order by e.id;");
+        Condition<Map<String,Object>,Object> residual = select.getResidualCondition();
+        assertTrue(String.valueOf(residual), residual instanceof JoinCondition);
+        assertEquals(list(2L, 6L), column(select.execute(), 0));
+        assertTrue(filtered.toString(), filtered.contains("emp.salary 5->4"));
+        assertTrue(filtered.toString(), filtered.contains("dept.name 4->3"));
+    }
+    @Test
+    public void testCrossTableOr()
+    {
+        SelectStatement<Map<String,Object>,Object> select = select("select e.id from emp e, dept d where e.dept = d.id and e.salary > 2500 and (e.salary > 4500 or d.name = 'Support') order by e.id;");
+        Condition<Map<String,Object>,Object> residual = select.getResidualCondition();
+        assertTrue(String.valueOf(residual), residual instanceof AndCondition);
+        AndCondition<Map<String,Object>,Object> and = (AndCondition<Map<String,Object>,Object>) residual;
+        assertTrue(and.getCondition1() instanceof JoinCondition || and.getCondition2() instanceof JoinCondition);
+        assertTrue(and.getCondition1() instanceof OrCondition || and.getCondition2() instanceof OrCondition);
+        assertEquals(list(4L), column(select.execute(), 0));
+    }
+    @Test
+    public void testColumnComparisonInOneTable()
+    {
+        engine.addTable("budget", new String[] {"dept", "planned", "actual"},
+                new Object[] {10L, 100L, 120L},
+                new Object[] {20L, 100L, 90L},
+                new Object[] {30L, 50L, 50L}
+        );
+        SelectStatement<Map<String,Object>,Object> select = select("select d.name from dept d, budget b where d.id = b.dept and b.actual > b.planned;");
+        assertTrue(select.getResidualCondition() instanceof JoinCondition);
+        assertEquals(list("Sales"), column(select.execute(), 0));
+    }
+    @Test
+    public void testConditionEvaluatedPerBaseRow()
+    {
+        final int[] gets = new int[1];
+        engine = new MemoryEngine()
+        {
+            @Override
+            public Object get(Map<String, Object> r, String column)
+            {
+                if ("salary".equals(column))
+                {
+                    gets[0]++;
+                }
+                return super.get(r, column);
+            }
+        };
+        Object[][] emp = new Object[100][];
+        for (int ii=0;ii<emp.length;ii++)
+        {
+            emp[ii] = new Object[] {(long)ii, (long)(ii%2), (long)(ii*10)};
+        }
+        engine.addTable("emp", new String[] {"id", "dept", "salary"}, emp);
+        engine.addTable("dept", new String[] {"id", "name"},
+                new Object[] {0L, "even"},
+                new Object[] {1L, "odd"}
+        );
+        FetchResult<Map<String,Object>,Object> result = execute("select e.id, d1.name from emp e, dept d1, dept d2 where e.dept = d1.id and e.salary <> 50;");
+        assertEquals(198, result.getRowCount());
+        // salary is read for indexing and once per distinct value, not per 
+        // joined row 
+        assertTrue(String.valueOf(gets[0]), gets[0] <= 2*emp.length);
+    }
+}
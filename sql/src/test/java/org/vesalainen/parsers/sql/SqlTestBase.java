@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+
+/**
+ * Base class for sql tests. Creates MemoryEngine with emp and dept tables.
+ * @author Timo Vesalainen
+ */
+public abstract class SqlTestBase
+{
+    protected MemoryEngine engine;
+
+    @Before
+    public void setUp()
+    {
+        engine = createEngine();
+        engine.addTable("emp", new String[] {"id", "name", "dept", "salary"},
+                new Object[] {1L, "Matti", 10L, 3000L},
+                new Object[] {2L, "Maija", 10L, 4000L},
+                new Object[] {3L, "Pekka", 20L, 3500L},
+                new Object[] {4L, "Liisa", 20L, 5000L},
+                new Object[] {5L, "Kalle", 30L, 2000L},
+                new Object[] {6L, "Marja", 10L, 4000L}
+        );
+        engine.addTable("dept", new String[] {"id", "name"},
+                new Object[] {10L, "Sales"},
+                new Object[] {20L, "R&D"},
+                new Object[] {30L, "Support"},
+                new Object[] {40L, "Empty"}
+        );
+    }
+    /**
+     * Creates engine. Override to create engine with overridden factory 
+     * methods.
+     * @return 
+     */
+    protected MemoryEngine createEngine()
+    {
+        return new MemoryEngine();
+    }
+    /**
+     * Executes sql.
+     * @param sql
+     * @return 
+     */
+    protected FetchResult<Map<String,Object>,Object> execute(String sql)
+    {
+        return engine.execute(sql);
+    }
+    /**
+     * Prepares sql containing a single select statement.
+     * @param sql
+     * @return 
+     */
+    protected SelectStatement<Map<String,Object>,Object> select(String sql)
+    {
+        BatchStatement<Map<String,Object>,Object> batch = (BatchStatement<Map<String,Object>,Object>) engine.prepare(sql);
+        return (SelectStatement<Map<String,Object>,Object>) batch.getStatementList().get(0);
+    }
+    protected static List<Object> column(FetchResult<Map<String,Object>,Object> result, int column)
+    {
+        List<Object> list = new ArrayList<>();
+        for (int ii=0;ii<result.getRowCount();ii++)
+        {
+            list.add(result.getValueAt(ii, column));
+        }
+        return list;
+    }
+    /**
+     * Returns result rows as lists.
+     * @param result
+     * @return 
+     */
+    protected static List<List<Object>> rows(FetchResult<Map<String,Object>,Object> result)
+    {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int ii=0;ii<result.getRowCount();ii++)
+        {
+            List<Object> row = new ArrayList<>();
+            for (int jj=0;jj<result.getColumnCount();jj++)
+            {
+                row.add(result.getValueAt(ii, jj));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+    protected static List<Object> list(Object... values)
+    {
+        List<Object> list = new ArrayList<>();
+        for (Object value : values)
+        {
+            list.add(value);
+        }
+        return list;
+    }
+    protected static Set<Object> set(Object... values)
+    {
+        return new HashSet<>(list(values));
+    }
+}
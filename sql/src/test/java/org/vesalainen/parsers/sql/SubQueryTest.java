@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.vesalainen.parsers.sql;
+
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class SubQueryTest extends SqlTestBase
+{
+    @Test
+    public void testInSubQuery()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select id from emp where dept in (select id from dept where name = 'Sales');");
+        assertEquals(set(1L, 2L, 6L), set(column(result, 0).toArray()));
+        result = execute("select id from emp where dept not in (select id from dept where name = 'Sales');");
+        assertEquals(set(3L, 4L, 5L), set(column(result, 0).toArray()));
+    }
+    @Test
+    public void testExists()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select d.name from dept d where exists (select e.id from emp e where e.dept = d.id and e.salary > 3800);");
+        assertEquals(set("Sales", "R&D"), set(column(result, 0).toArray()));
+        result = execute("select d.name from dept d where not exists (select e.id from emp e where e.dept = d.id);");
+        assertEquals(set("Empty"), set(column(result, 0).toArray()));
+    }
+    @Test
+    public void testCorrelatedCountIn()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select d.name from dept d where 0 in (select count(*) from emp e where e.dept = d.id);");
+        assertEquals(list("Empty"), column(result, 0));
+        result = execute("select d.name from dept d where 3 in (select count(*) from emp e where e.dept = d.id);");
+        assertEquals(list("Sales"), column(result, 0));
+        result = execute("select d.name from dept d where 0 not in (select count(*) from emp e where e.dept = d.id) order by d.name;");
+        assertEquals(list("R&D", "Sales", "Support"), column(result, 0));
+    }
+    @Test
+    public void testCorrelatedMaxIn()
+    {
+        // max over empty input is null so in is unknown for Empty
+        FetchResult<Map<String,Object>,Object> result = execute("select d.name from dept d where 5000 in (select max(e.salary) from emp e where e.dept = d.id);");
+        assertEquals(list("R&D"), column(result, 0));
+        result = execute("select d.name from dept d where 5000 not in (select max(e.salary) from emp e where e.dept = d.id) order by d.name;");
+        assertEquals(list("Sales", "Support"), column(result, 0));
+    }
+    @Test
+    public void testCorrelatedCountExists()
+    {
+        FetchResult<Map<String,Object>,Object> result = execute("select d.name from dept d where exists (select count(*) from emp e where e.dept = d.id);");
+        assertEquals(4, result.getRowCount());
+        result = execute("select d.name from dept d where not exists (select count(*) from emp e where e.dept = d.id);");
+        assertEquals(0, result.getRowCount());
+    }
+    @Test
+    public void testCorrelatedHavingRejected()
+    {
+        try
+        {
+            execute("select d.name from dept d where exists (select count(*) from emp e where e.dept = d.id having count(*) > 1);");
+            fail("having without group by accepted");
+        }
+        catch (IllegalArgumentException ex)
+        {
+        }
+    }
+}
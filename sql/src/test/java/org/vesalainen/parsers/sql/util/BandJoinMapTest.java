@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class BandJoinMapTest
+{
+    private FastSet<String> source = new FastSet<>(Arrays.asList("s1", "s2"), true);
+    private FastSet<String> target = new FastSet<>(Arrays.asList("t10", "t20", "t30", "t40"), true);
+
+    private TreeMap<Integer,Set<String>> targetIndex()
+    {
+        TreeMap<Integer,Set<String>> index = new TreeMap<>();
+        index.put(10, set("t10"));
+        index.put(20, set("t20"));
+        index.put(30, set("t30"));
+        index.put(40, set("t40"));
+        return index;
+    }
+    private static Map<Integer,Set<String>> sourceIndex(int s1, int s2)
+    {
+        Map<Integer,Set<String>> index = new HashMap<>();
+        index.put(s1, set("s1"));
+        index.computeIfAbsent(s2, (k)->new HashSet<>()).add("s2");
+        return index;
+    }
+    private static Set<String> set(String... rows)
+    {
+        return new HashSet<>(Arrays.asList(rows));
+    }
+
+    @Test
+    public void testNoBounds()
+    {
+        BandJoinMap<String,Integer> map = new BandJoinMap<>(source, target, targetIndex());
+        assertEquals(set("t10", "t20", "t30", "t40"), new HashSet<>(map.get("s1")));
+        assertEquals(8, map.getValueCount());
+    }
+    @Test
+    public void testLowerInclusive()
+    {
+        BandJoinMap<String,Integer> map = new BandJoinMap<>(source, target, targetIndex());
+        map.lower(sourceIndex(20, 35), true);
+        assertEquals(set("t20", "t30", "t40"), new HashSet<>(map.get("s1")));
+        assertEquals(set("t40"), new HashSet<>(map.get("s2")));
+    }
+    @Test
+    public void testLowerExclusive()
+    {
+        BandJoinMap<String,Integer> map = new BandJoinMap<>(source, target, targetIndex());
+        map.lower(sourceIndex(20, 40), false);
+        assertEquals(set("t30", "t40"), new HashSet<>(map.get("s1")));
+        assertTrue(map.get("s2").isEmpty());
+        assertEquals(1, map.size());
+    }
+    @Test
+    public void testBand()
+    {
+        BandJoinMap<String,Integer> map = new BandJoinMap<>(source, target, targetIndex());
+        map.lower(sourceIndex(20, 20), true);
+        map.upper(sourceIndex(30, 20), true);
+        assertEquals(set("t20", "t30"), new HashSet<>(map.get("s1")));
+        assertEquals(set("t20"), new HashSet<>(map.get("s2")));
+        map.upper(sourceIndex(30, 20), false);
+        assertEquals(set("t20"), new HashSet<>(map.get("s1")));
+        assertTrue(map.get("s2").isEmpty());
+    }
+    @Test
+    public void testRetainMatched()
+    {
+        BandJoinMap<String,Integer> map = new BandJoinMap<>(source, target, targetIndex());
+        map.lower(sourceIndex(20, 20), false);
+        map.upper(sourceIndex(30, 20), true);
+        map.retainMatched();
+        assertEquals(set("s1"), new HashSet<>(source));
+        assertEquals(set("t30"), new HashSet<>(target));
+        assertEquals(1, map.size());
+    }
+}
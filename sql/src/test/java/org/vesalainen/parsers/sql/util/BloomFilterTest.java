@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class BloomFilterTest
+{
+    @Test
+    public void testNoFalseNegatives()
+    {
+        BloomFilter<Long> filter = new BloomFilter<>(10000, 0.01);
+        for (long ii=0;ii<10000;ii++)
+        {
+            filter.add(ii*31);
+        }
+        for (long ii=0;ii<10000;ii++)
+        {
+            assertTrue(filter.mightContain(ii*31));
+        }
+    }
+    @Test
+    public void testFalsePositiveRate()
+    {
+        BloomFilter<Long> filter = new BloomFilter<>(10000, 0.01);
+        for (long ii=0;ii<10000;ii++)
+        {
+            filter.add(ii*2);
+        }
+        int positives = 0;
+        for (long ii=0;ii<100000;ii++)
+        {
+            if (filter.mightContain(ii*2+1))
+            {
+                positives++;
+            }
+        }
+        assertTrue("false positives "+positives, positives < 3000);
+        assertTrue(filter.getHashCount() > 0);
+        assertTrue(filter.getBitCount() >= 10000);
+    }
+    @Test
+    public void testAnd()
+    {
+        BloomFilter<Long> f1 = new BloomFilter<>(100, 0.001);
+        BloomFilter<Long> f2 = new BloomFilter<>(100, 0.001);
+        for (long ii=0;ii<100;ii++)
+        {
+            f1.add(ii);
+            f2.add(ii+50);
+        }
+        KeyFilter<Long> and = f1.and(f2);
+        for (long ii=50;ii<100;ii++)
+        {
+            assertTrue(and.mightContain(ii));
+        }
+        int positives = 0;
+        for (long ii=0;ii<50;ii++)
+        {
+            if (and.mightContain(ii))
+            {
+                positives++;
+            }
+        }
+        assertTrue(positives < 5);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Compares FastSet word-level operations against the same operations on 
+ * HashSet. Run as a plain java program. Prints nanoseconds per operation.
+ * @author Timo Vesalainen
+ */
+public class FastSetSpeedTester
+{
+    private static final int SIZE = 100000;
+    private static final int ROUNDS = 200;
+
+    private static long sink;
+
+    private static void fastSet(List<Integer> all, double density1, double density2)
+    {
+        FastSet<Integer> base = new FastSet<>(all);
+        Random random = new Random(12345);
+        FastSet<Integer> s1 = base.copy();
+        FastSet<Integer> s2 = base.copy();
+        for (int ii=0;ii<SIZE;ii++)
+        {
+            if (random.nextDouble() < density1)
+            {
+                s1.addIndex(ii);
+            }
+            if (random.nextDouble() < density2)
+            {
+                s2.addIndex(ii);
+            }
+        }
+        long start = System.nanoTime();
+        for (int ii=0;ii<ROUNDS;ii++)
+        {
+            FastSet<Integer> s = s1.copy();
+            s.and(s2);
+            sink += s.size();
+            s = s1.copy();
+            s.or(s2);
+            sink += s.size();
+            s = s1.copy();
+            s.andNot(s2);
+            sink += s.size();
+            for (Integer i : s1)
+            {
+                sink += i;
+            }
+        }
+        print("FastSet", density1, density2, System.nanoTime()-start);
+    }
+    private static void hashSet(List<Integer> all, double density1, double density2)
+    {
+        Random random = new Random(12345);
+        Set<Integer> s1 = new HashSet<>();
+        Set<Integer> s2 = new HashSet<>();
+        for (int ii=0;ii<SIZE;ii++)
+        {
+            if (random.nextDouble() < density1)
+            {
+                s1.add(all.get(ii));
+            }
+            if (random.nextDouble() < density2)
+            {
+                s2.add(all.get(ii));
+            }
+        }
+        long start = System.nanoTime();
+        for (int ii=0;ii<ROUNDS;ii++)
+        {
+            Set<Integer> s = new HashSet<>(s1);
+            s.retainAll(s2);
+            sink += s.size();
+            s = new HashSet<>(s1);
+            s.addAll(s2);
+            sink += s.size();
+            s = new HashSet<>(s1);
+            s.removeAll(s2);
+            sink += s.size();
+            for (Integer i : s1)
+            {
+                sink += i;
+            }
+        }
+        print("HashSet", density1, density2, System.nanoTime()-start);
+    }
+    private static void print(String name, double density1, double density2, long time)
+    {
+        System.err.println(name+" density "+density1+"/"+density2+": "+time/ROUNDS+" ns/round");
+    }
+    /**
+     * @param args the command line arguments
+     */
+    public static void main(String[] args)
+    {
+        try
+        {
+            List<Integer> all = new ArrayList<>();
+            for (int ii=0;ii<SIZE;ii++)
+            {
+                all.add(ii);
+            }
+            double[][] densities = new double[][] {{0.5, 0.5}, {0.01, 0.5}, {0.001, 0.001}};
+            for (int warmup=0;warmup<2;warmup++)
+            {
+                for (double[] d : densities)
+                {
+                    fastSet(all, d[0], d[1]);
+                    hashSet(all, d[0], d[1]);
+                }
+            }
+            System.err.println(sink != 0 ? "done" : "");
+        }
+        catch (Exception ex)
+        {
+            ex.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class FastSetTest
+{
+    private static final int SIZE = 200;
+
+    private static List<Integer> list()
+    {
+        List<Integer> list = new ArrayList<>();
+        for (int ii=0;ii<SIZE;ii++)
+        {
+            list.add(ii);
+        }
+        return list;
+    }
+    private static FastSet<Integer> set(FastSet<Integer> base, int from, int to)
+    {
+        FastSet<Integer> set = base.copy();
+        set.clear();
+        for (int ii=from;ii<to;ii++)
+        {
+            set.add(ii);
+        }
+        return set;
+    }
+    private static Set<Integer> hashSet(int from, int to)
+    {
+        Set<Integer> set = new HashSet<>();
+        for (int ii=from;ii<to;ii++)
+        {
+            set.add(ii);
+        }
+        return set;
+    }
+
+    @Test
+    public void testFill()
+    {
+        FastSet<Integer> all = new FastSet<>(list(), true);
+        assertEquals(SIZE, all.size());
+        assertEquals(SIZE, all.capacity());
+        assertTrue(all.contains(0));
+        assertTrue(all.contains(SIZE-1));
+        assertFalse(all.contains(SIZE));
+        assertEquals(hashSet(0, SIZE), new HashSet<>(all));
+    }
+    @Test
+    public void testAnd()
+    {
+        FastSet<Integer> all = new FastSet<>(list());
+        FastSet<Integer> s1 = set(all, 10, 130);
+        FastSet<Integer> s2 = set(all, 60, 190);
+        assertTrue(s1.and(s2));
+        assertEquals(70, s1.size());
+        assertEquals(hashSet(60, 130), new HashSet<>(s1));
+        assertFalse(s1.and(s2));
+    }
+    @Test
+    public void testOr()
+    {
+        FastSet<Integer> all = new FastSet<>(list());
+        FastSet<Integer> s1 = set(all, 10, 70);
+        FastSet<Integer> s2 = set(all, 120, 190);
+        assertTrue(s1.or(s2));
+        assertEquals(130, s1.size());
+        Set<Integer> exp = hashSet(10, 70);
+        exp.addAll(hashSet(120, 190));
+        assertEquals(exp, new HashSet<>(s1));
+        assertFalse(s1.or(s2));
+    }
+    @Test
+    public void testAndNot()
+    {
+        FastSet<Integer> all = new FastSet<>(list());
+        FastSet<Integer> s1 = set(all, 0, SIZE);
+        FastSet<Integer> s2 = set(all, 63, 129);
+        assertTrue(s1.andNot(s2));
+        assertEquals(SIZE-66, s1.size());
+        assertFalse(s1.contains(63));
+        assertFalse(s1.contains(128));
+        assertTrue(s1.contains(62));
+        assertTrue(s1.contains(129));
+        assertFalse(s1.andNot(s2));
+    }
+    @Test
+    public void testIntersects()
+    {
+        FastSet<Integer> all = new FastSet<>(list());
+        assertTrue(set(all, 0, 65).intersects(set(all, 64, 70)));
+        assertFalse(set(all, 0, 64).intersects(set(all, 64, 70)));
+    }
+    @Test
+    public void testIndex()
+    {
+        FastSet<Integer> all = new FastSet<>(list());
+        all.addIndex(5);
+        all.addIndex(64);
+        all.addIndex(199);
+        assertEquals(3, all.size());
+        assertEquals(5, all.nextIndex(0));
+        assertEquals(64, all.nextIndex(6));
+        assertEquals(199, all.nextIndex(65));
+        assertEquals(-1, all.nextIndex(200));
+        all.removeIndex(64);
+        assertEquals(2, all.size());
+        assertEquals(199, all.nextIndex(6));
+    }
+    @Test
+    public void testSub()
+    {
+        FastSet<Integer> all = new FastSet<>(list(), true);
+        FastSet<Integer> sub = all.sub();
+        for (int ii=50;ii<150;ii++)
+        {
+            sub.add(ii);
+        }
+        assertEquals(100, sub.size());
+        all.remove(100);
+        assertEquals(99, sub.size());
+        assertFalse(sub.contains(100));
+    }
+}
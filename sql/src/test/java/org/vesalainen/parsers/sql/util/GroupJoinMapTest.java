@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class GroupJoinMapTest
+{
+    private static Set<String> set(String... rows)
+    {
+        return new HashSet<>(Arrays.asList(rows));
+    }
+    private static FastSet<String> sub(FastSet<String> base, String... rows)
+    {
+        FastSet<String> sub = base.sub();
+        sub.addAll(Arrays.asList(rows));
+        return sub;
+    }
+
+    @Test
+    public void testBuildAndProbe()
+    {
+        FastSet<String> source = new FastSet<>(Arrays.asList("a1", "a2", "a3", "a4"), true);
+        FastSet<String> target = new FastSet<>(Arrays.asList("b1", "b2", "b3", "b4"), true);
+        GroupJoinMap<String> map = new GroupJoinMap<>(source, target);
+        map.addGroup(sub(source, "a1", "a2"), sub(target, "b1", "b2"));
+        map.addGroup(set("a3"), set("b3", "b4"));
+        assertEquals(3, map.size());
+        assertEquals(2.0F, map.getRatio(), 0.001F);
+        assertEquals(set("b1", "b2"), new HashSet<>(map.get("a1")));
+        assertEquals(set("b1", "b2"), new HashSet<>(map.get("a2")));
+        assertEquals(set("b3", "b4"), new HashSet<>(map.get("a3")));
+        assertTrue(map.containsKey("a3"));
+        assertFalse(map.containsKey("a4"));
+        assertNull(map.get("a4"));
+    }
+    @Test
+    public void testRemovedTarget()
+    {
+        FastSet<String> source = new FastSet<>(Arrays.asList("a1", "a2"), true);
+        FastSet<String> target = new FastSet<>(Arrays.asList("b1", "b2", "b3"), true);
+        GroupJoinMap<String> map = new GroupJoinMap<>(source, target);
+        map.addGroup(set("a1"), set("b1", "b2", "b3"));
+        target.remove("b2");
+        Set<String> joined = map.get("a1");
+        assertEquals(2, joined.size());
+        assertEquals(set("b1", "b3"), new HashSet<>(joined));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.sql.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * @author Timo Vesalainen
+ */
+public class RoaringSubSetTest
+{
+    private static final int SIZE = 200000;
+
+    private static FastSet<Integer> all()
+    {
+        List<Integer> list = new ArrayList<>();
+        for (int ii=0;ii<SIZE;ii++)
+        {
+            list.add(ii);
+        }
+        return new FastSet<>(list, true);
+    }
+
+    @Test
+    public void testArrayContainer()
+    {
+        FastSet<Integer> all = all();
+        RoaringSubSet<Integer> set = all.roaringSub();
+        assertTrue(set.isEmpty());
+        assertTrue(set.addIndex(70000));
+        assertTrue(set.addIndex(3));
+        assertTrue(set.addIndex(150000));
+        assertFalse(set.addIndex(3));
+        assertEquals(3, set.size());
+        assertEquals(3, set.nextIndex(0));
+        assertEquals(70000, set.nextIndex(4));
+        assertEquals(150000, set.nextIndex(70001));
+        assertEquals(-1, set.nextIndex(150001));
+        assertTrue(set.contains(70000));
+        assertFalse(set.contains(70001));
+    }
+    @Test
+    public void testBitmapContainer()
+    {
+        FastSet<Integer> all = all();
+        RoaringSubSet<Integer> set = all.roaringSub();
+        for (int ii=0;ii<10000;ii+=2)
+        {
+            assertTrue(set.addIndex(ii));
+        }
+        assertEquals(5000, set.size());
+        for (int ii=0;ii<10000;ii++)
+        {
+            assertEquals(ii % 2 == 0, set.containsIndex(ii));
+        }
+        assertEquals(4998, set.nextIndex(4997));
+        assertEquals(-1, set.nextIndex(9999));
+        assertTrue(set.remove(4998));
+        assertEquals(5000, set.nextIndex(4997));
+        assertEquals(4999, set.size());
+    }
+    @Test
+    public void testRemoveContainer()
+    {
+        FastSet<Integer> all = all();
+        RoaringSubSet<Integer> set = all.roaringSub();
+        set.addIndex(5);
+        set.addIndex(65540);
+        set.addIndex(140000);
+        assertTrue(set.remove(65540));
+        assertEquals(140000, set.nextIndex(6));
+        assertEquals(2, set.size());
+    }
+    @Test
+    public void testParent()
+    {
+        FastSet<Integer> all = all();
+        RoaringSubSet<Integer> set = all.roaringSub();
+        set.addIndex(10);
+        set.addIndex(100000);
+        all.removeIndex(10);
+        assertEquals(1, set.size());
+        assertFalse(set.containsIndex(10));
+        assertEquals(100000, set.nextIndex(0));
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(all.containsIndex(100000));
+    }
+}
@@ -102,6 +102,7 @@ public abstract class XMLDocumentParser extends XMLDTDBaseGrammar implements XML
     @Override
     public void parse(InputSource input) throws IOException, SAXException
     {
+        XMLParseEvent event = XMLParseEvent.start();
         try
         {
             this.input = input;
@@ -120,6 +121,13 @@ public abstract class XMLDocumentParser extends XMLDTDBaseGrammar implements XML
             {
                 parseDocument(inputReader);
             }
+            if (event != null && event.shouldCommit())
+            {
+                event.systemId = input.getSystemId();
+                event.external = external;
+                event.lines = locator.getLineNumber();
+                event.commit();
+            }
             inputReader.close();
         }
         catch (IOException | SAXException ex)
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2012 Timo Vesalainen
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.vesalainen.parsers.xml;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for document or external subset parsed by 
+ * XMLDocumentParser.
+ * @author Timo Vesalainen
+ */
+@Name("org.vesalainen.parsers.xml.Parse")
+@Label("XML Parse")
+@Category({"Parsers", "XML"})
+@StackTrace(false)
+public class XMLParseEvent extends jdk.jfr.Event
+{
+    private static final EventType TYPE = EventType.getEventType(XMLParseEvent.class);
+    @Label("System Id")
+    String systemId;
+    @Label("External")
+    @Description("True if external DTD subset was parsed")
+    boolean external;
+    @Label("Lines")
+    int lines;
+    /**
+     * Returns begun event or null if the event is not enabled in any running
+     * recording. Disabled events are not allocated.
+     * @return 
+     */
+    static XMLParseEvent start()
+    {
+        if (TYPE.isEnabled())
+        {
+            XMLParseEvent event = new XMLParseEvent();
+            event.begin();
+            return event;
+        }
+        return null;
+    }
+}